@@ -0,0 +1,169 @@
+package htsjdk.samtools;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.util.BinaryCodec;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A more compact, header-aware alternative to {@link SAMRecordSparkCodec} for shipping SAMRecords between Spark tasks.
+ * Reference names and read group ids are written as varint codes into dictionaries taken from a header that both
+ * the writing and the reading side have, rather than as strings on every record. The fixed-width fields of the
+ * BAM record are written as varints, and all other attributes are written in BAM binary form.
+ *
+ * Names that are not in the dictionaries are written out in full, so any record can be encoded.
+ * Decoded records are headerless, like those of SAMRecordSparkCodec. Instances are not thread-safe.
+ */
+public final class SAMRecordDictionarySparkCodec {
+    // codes for reference names and read group ids; dictionary entries are written as their index plus FIRST_ENTRY
+    private static final int ABSENT = 0;
+    private static final int LITERAL = 1;
+    private static final int FIRST_ENTRY = 2;
+
+    private static final short READ_GROUP_TAG = SAMTagUtil.getSingleton().RG;
+    // written in place of the size of an attribute for a read group written as a code; BAM attributes are never empty
+    private static final int READ_GROUP_ATTRIBUTE = 0;
+
+    private final List<String> referenceNames;
+    private final Map<String, Integer> referenceCodes = new HashMap<>();
+    private final List<String> readGroupIds;
+    private final Map<String, Integer> readGroupCodes = new HashMap<>();
+
+    private final BinaryCodec binaryCodec = new BinaryCodec();
+    private final BinaryTagCodec binaryTagCodec = new BinaryTagCodec(binaryCodec);
+
+    public SAMRecordDictionarySparkCodec(final SAMFileHeader header) {
+        this.referenceNames = header.getSequenceDictionary().getSequences().stream().map(SAMSequenceRecord::getSequenceName).collect(Collectors.toList());
+        this.readGroupIds = header.getReadGroups().stream().map(SAMReadGroupRecord::getReadGroupId).collect(Collectors.toList());
+        for (int i = 0; i < referenceNames.size(); i++) {
+            referenceCodes.put(referenceNames.get(i), i + FIRST_ENTRY);
+        }
+        for (int i = 0; i < readGroupIds.size(); i++) {
+            readGroupCodes.put(readGroupIds.get(i), i + FIRST_ENTRY);
+        }
+    }
+
+    /**
+     * Writes a record to the output.
+     *
+     * @param record Record to be written.
+     */
+    public void encode(final SAMRecord record, final Output output) {
+        final String referenceName = record.getReferenceName();
+        writeCode(output, SAMRecord.NO_ALIGNMENT_REFERENCE_NAME.equals(referenceName) ? null : referenceName, referenceCodes);
+        output.writeVarInt(record.getAlignmentStart(), true);
+        final String mateReferenceName = record.getMateReferenceName();
+        writeCode(output, SAMRecord.NO_ALIGNMENT_REFERENCE_NAME.equals(mateReferenceName) ? null : mateReferenceName, referenceCodes);
+        output.writeVarInt(record.getMateAlignmentStart(), true);
+        output.writeVarInt(record.getInferredInsertSize(), false);
+        output.writeVarInt(record.getFlags(), true);
+        output.writeVarInt(record.getMappingQuality(), true);
+        output.writeString(record.getReadName());
+
+        final int[] binaryCigar = BinaryCigarCodec.encode(record.getCigar());
+        output.writeVarInt(binaryCigar.length, true);
+        for (final int cigarElement : binaryCigar) {
+            output.writeVarInt(cigarElement, true);
+        }
+
+        final byte[] bases = record.getReadBases();
+        final byte[] qualities = record.getBaseQualities();
+        if (qualities.length != 0 && qualities.length != bases.length) {
+            throw new RuntimeException("Mismatch between read length and quals length writing read " +
+                    record.getReadName() + "; read length: " + bases.length +
+                    "; quals length: " + qualities.length);
+        }
+        output.writeVarInt(bases.length, true);
+        output.writeBytes(SAMUtils.bytesToCompressedBases(bases));
+        output.writeBoolean(qualities.length != 0);
+        output.writeBytes(qualities);
+
+        // the read group is written as a code, all other attributes as in BAM, each preceded by its size
+        int attributeCount = 0;
+        for (SAMBinaryTagAndValue attribute = record.getBinaryAttributes(); attribute != null; attribute = attribute.getNext()) {
+            attributeCount++;
+        }
+        output.writeVarInt(attributeCount, true);
+        binaryCodec.setOutputStream(output);
+        for (SAMBinaryTagAndValue attribute = record.getBinaryAttributes(); attribute != null; attribute = attribute.getNext()) {
+            if (attribute.tag == READ_GROUP_TAG && attribute.value instanceof String) {
+                output.writeVarInt(READ_GROUP_ATTRIBUTE, true);
+                writeCode(output, (String) attribute.value, readGroupCodes);
+            } else {
+                output.writeVarInt(BinaryTagCodec.getTagSize(attribute.value), true);
+                binaryTagCodec.writeTag(attribute.tag, attribute.value, attribute.isUnsignedArray());
+            }
+        }
+    }
+
+    /**
+     * Reads the next record from the input.
+     *
+     * @return a headerless record
+     */
+    public SAMRecord decode(final Input input) {
+        final SAMRecord record = new SAMRecord(null);
+        record.setReferenceName(readName(input, referenceNames, SAMRecord.NO_ALIGNMENT_REFERENCE_NAME));
+        record.setAlignmentStart(input.readVarInt(true));
+        record.setMateReferenceName(readName(input, referenceNames, SAMRecord.NO_ALIGNMENT_REFERENCE_NAME));
+        record.setMateAlignmentStart(input.readVarInt(true));
+        record.setInferredInsertSize(input.readVarInt(false));
+        record.setFlags(input.readVarInt(true));
+        record.setMappingQuality(input.readVarInt(true));
+        record.setReadName(input.readString());
+
+        final int[] binaryCigar = new int[input.readVarInt(true)];
+        for (int i = 0; i < binaryCigar.length; i++) {
+            binaryCigar[i] = input.readVarInt(true);
+        }
+        record.setCigar(BinaryCigarCodec.decode(binaryCigar));
+
+        final int readLength = input.readVarInt(true);
+        final byte[] compressedBases = input.readBytes((readLength + 1) / 2);
+        record.setReadBases(SAMUtils.compressedBasesToBytes(readLength, compressedBases, 0));
+        final boolean hasQualities = input.readBoolean();
+        record.setBaseQualities(hasQualities ? input.readBytes(readLength) : SAMRecord.NULL_QUALS);
+
+        final int attributeCount = input.readVarInt(true);
+        for (int i = 0; i < attributeCount; i++) {
+            final int attributeSize = input.readVarInt(true);
+            if (attributeSize == READ_GROUP_ATTRIBUTE) {
+                record.setAttribute(READ_GROUP_TAG, readName(input, readGroupIds, null), false);
+            } else {
+                final SAMBinaryTagAndValue attribute = BinaryTagCodec.readTags(input.readBytes(attributeSize), 0, attributeSize, ValidationStringency.STRICT);
+                record.setAttribute(attribute.tag, attribute.value, attribute.isUnsignedArray());
+            }
+        }
+        return record;
+    }
+
+    private static void writeCode(final Output output, final String name, final Map<String, Integer> codes) {
+        if (name == null) {
+            output.writeVarInt(ABSENT, true);
+            return;
+        }
+        final Integer code = codes.get(name);
+        if (code != null) {
+            output.writeVarInt(code, true);
+        } else {
+            output.writeVarInt(LITERAL, true);
+            output.writeString(name);
+        }
+    }
+
+    private static String readName(final Input input, final List<String> names, final String absentName) {
+        final int code = input.readVarInt(true);
+        switch (code) {
+            case ABSENT:
+                return absentName;
+            case LITERAL:
+                return input.readString();
+            default:
+                return names.get(code - FIRST_ENTRY);
+        }
+    }
+}
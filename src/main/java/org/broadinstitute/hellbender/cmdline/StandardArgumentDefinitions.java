@@ -28,6 +28,9 @@ public final class StandardArgumentDefinitions {
     public static final String CLOUD_PREFETCH_BUFFER_LONG_NAME = "cloud-prefetch-buffer";
     public static final String CLOUD_INDEX_PREFETCH_BUFFER_LONG_NAME = "cloud-index-prefetch-buffer";
     public static final String DISABLE_BAM_INDEX_CACHING_LONG_NAME = "disable-bam-index-caching";
+    public static final String READS_DECODING_THREADS_LONG_NAME = "reads-decoding-threads";
+    public static final String OUTPUT_COMPRESSION_THREADS_LONG_NAME = "output-compression-threads";
+    public static final String FEATURE_PREFETCH_WINDOWS_LONG_NAME = "feature-prefetch-windows";
     public static final String DISABLE_SEQUENCE_DICT_VALIDATION_NAME = "disable-sequence-dictionary-validation";
     public static final String ADD_OUTPUT_SAM_PROGRAM_RECORD = "add-output-sam-program-record";
     public static final String ADD_OUTPUT_VCF_COMMANDLINE = "add-output-vcf-command-line";
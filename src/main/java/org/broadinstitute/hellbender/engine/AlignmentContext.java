@@ -5,12 +5,14 @@ import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.hellbender.utils.HasGenomeLocation;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.pileup.PileupColumns;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Bundles together a pileup and a location.
@@ -26,6 +28,10 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
     private final Locatable loc;
     private final ReadPileup basePileup;
 
+    // non-null only for contexts backed by a column-oriented pileup
+    private final PileupColumns pileupColumns;
+    private Consumer<PileupColumns> pileupColumnsRecycler;
+
     private boolean hasPileupBeenDownsampled;
 
     public AlignmentContext(final Locatable loc, final ReadPileup basePileup) {
@@ -38,9 +44,30 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
 
         this.loc = loc;
         this.basePileup = basePileup;
+        this.pileupColumns = null;
         this.hasPileupBeenDownsampled = hasPileupBeenDownsampled;
     }
 
+    /**
+     * Creates a context backed by a column-oriented pileup, whose {@link #getBasePileup()} is a view that only
+     * creates {@link org.broadinstitute.hellbender.utils.pileup.PileupElement}s on demand.
+     *
+     * @param loc the location of the context
+     * @param pileupColumns the pileup at the location
+     * @param pileupColumnsRecycler if not {@code null}, receives {@code pileupColumns} back for reuse when {@link #release()}
+     *                              is called
+     */
+    public AlignmentContext(final Locatable loc, final PileupColumns pileupColumns, final Consumer<PileupColumns> pileupColumnsRecycler) {
+        Utils.nonNull(loc, "BUG: GenomeLoc in Alignment context is null");
+        Utils.nonNull(pileupColumns, "BUG: PileupColumns in Alignment context is null");
+
+        this.loc = loc;
+        this.basePileup = pileupColumns.asReadPileup();
+        this.pileupColumns = pileupColumns;
+        this.pileupColumnsRecycler = pileupColumnsRecycler;
+        this.hasPileupBeenDownsampled = false;
+    }
+
     /**
      * How many reads cover this locus?
      * @return
@@ -79,6 +106,30 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
         return basePileup;
     }
 
+    /**
+     * Returns the pileup of this context in column-oriented form.
+     *
+     * This is free for contexts created from {@link PileupColumns}, but requires a copy of the pileup otherwise.
+     */
+    public PileupColumns getPileupColumns() {
+        return pileupColumns != null ? pileupColumns : PileupColumns.fromPileup(basePileup);
+    }
+
+    /**
+     * Signals that this context, its pileup and its {@link PileupColumns} won't be used anymore, so that the
+     * storage of a column-oriented pileup can be reused for a later locus. Using this context after calling
+     * this method has undefined results.
+     *
+     * Does nothing for contexts that are not backed by a recyclable column-oriented pileup.
+     */
+    public void release() {
+        if (pileupColumnsRecycler != null) {
+            final Consumer<PileupColumns> recycler = pileupColumnsRecycler;
+            pileupColumnsRecycler = null;
+            recycler.accept(pileupColumns);
+        }
+    }
+
     /**
      * Returns a potentially derived subcontext containing only forward, reverse, or in fact all reads
      * in alignment context context.
@@ -0,0 +1,226 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of reference bases that any number of threads can query simultaneously, so that they can share a single
+ * reference (and a single cache) instead of each opening the reference with its own cache, as is required with
+ * {@link ReferenceFileSource}.
+ *
+ * The bases of the wrapped data source are cached in chunks of a fixed size, which are spread over several stripes.
+ * Each stripe has its own lock and evicts its least recently used chunks once it's full, so threads only contend when
+ * they query chunks of the same stripe. The wrapped data source is only accessed by one thread at a time, so it doesn't
+ * need to be thread-safe. Queries larger than a stripe go directly to the wrapped data source.
+ */
+public final class ConcurrentCachingReferenceSource implements ReferenceDataSource {
+    private static final Logger logger = LogManager.getLogger(ConcurrentCachingReferenceSource.class);
+
+    /** The default size of the chunks, in bp */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /** The default maximum number of cached bases */
+    public static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+
+    /** The default number of stripes (independently locked parts of the cache) */
+    public static final int DEFAULT_NUM_STRIPES = 32;
+
+    private final ReferenceDataSource source;
+    private final SAMSequenceDictionary sequenceDictionary;
+    private final int chunkSize;
+    private final Stripe[] stripes;
+    private final long maxCachedQueryLength;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * Initialize this data source with a fasta or .2bit file (see {@link ReferenceDataSource#of(Path)}), and the
+     * default cache settings.
+     *
+     * @param referencePath reference fasta or .2bit file
+     */
+    public ConcurrentCachingReferenceSource(final Path referencePath) {
+        this(ReferenceDataSource.of(referencePath), DEFAULT_CHUNK_SIZE, DEFAULT_CACHE_SIZE, DEFAULT_NUM_STRIPES);
+    }
+
+    /**
+     * @param source data source of the bases to cache, closed when this data source is closed. Must not be used
+     *               by the caller after this.
+     * @param chunkSize size of the cached chunks, in bp
+     * @param cacheSize maximum number of cached bases, at least one chunk per stripe is cached regardless
+     * @param numStripes number of stripes the chunks are spread over
+     */
+    public ConcurrentCachingReferenceSource(final ReferenceDataSource source, final int chunkSize, final long cacheSize, final int numStripes) {
+        this.source = Utils.nonNull(source);
+        Utils.validateArg(chunkSize > 0, "chunkSize must be > 0");
+        Utils.validateArg(cacheSize >= 0, "cacheSize must be >= 0");
+        Utils.validateArg(numStripes > 0, "numStripes must be > 0");
+        this.sequenceDictionary = Utils.nonNull(source.getSequenceDictionary(), "the reference has no sequence dictionary");
+        this.chunkSize = chunkSize;
+
+        final int maxChunksPerStripe = (int) Math.max(1, Math.min(Integer.MAX_VALUE, cacheSize / chunkSize / numStripes));
+        stripes = new Stripe[numStripes];
+        for ( int i = 0; i < numStripes; i++ ) {
+            stripes[i] = new Stripe(maxChunksPerStripe);
+        }
+        maxCachedQueryLength = (long) maxChunksPerStripe * chunkSize;
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * Can be called by several threads simultaneously.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop (included)
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start , final long stop) {
+        final SAMSequenceRecord contigInfo = sequenceDictionary.getSequence(contig);
+        if ( contigInfo == null ) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        Utils.validateArg(start >= 1, () -> String.format("Asking for start %d < 1 on contig %s", start, contig));
+        Utils.validateArg(stop >= start - 1, () -> String.format("Asking for stop<start (%d < %d)", stop, start));
+        Utils.validateArg(stop <= contigInfo.getSequenceLength(), () -> String.format("Asking for stop %d on contig %s but the contig only has %d bases.", stop, contig, contigInfo.getSequenceLength()));
+
+        final long length = stop - start + 1;
+        if ( length > maxCachedQueryLength ) {
+            // too large to cache without evicting the chunks of the query itself
+            cacheMisses.increment();
+            synchronized ( source ) {
+                return source.queryAndPrefetch(contig, start, stop);
+            }
+        }
+
+        final byte[] bases = new byte[(int) length];
+        long position = start - 1; // 0-based
+        while ( position < stop ) {
+            final int chunkIndex = (int) (position / chunkSize);
+            final byte[] chunk = getChunk(contigInfo, chunkIndex);
+            final int offsetInChunk = (int) (position - (long) chunkIndex * chunkSize);
+            final int toCopy = (int) Math.min(chunk.length - offsetInChunk, stop - position);
+            System.arraycopy(chunk, offsetInChunk, bases, (int) (position - start + 1), toCopy);
+            position += toCopy;
+        }
+        return new ReferenceSequence(contig, contigInfo.getSequenceIndex(), bases);
+    }
+
+    private byte[] getChunk(final SAMSequenceRecord contigInfo, final int chunkIndex) {
+        final long key = ((long) contigInfo.getSequenceIndex() << 32) | chunkIndex;
+        final Stripe stripe = stripes[Math.floorMod(Long.hashCode(key * 0x9E3779B97F4A7C15L), stripes.length)];
+        synchronized ( stripe ) {
+            final byte[] cached = stripe.chunks.get(key);
+            if ( cached != null ) {
+                cacheHits.increment();
+                return cached;
+            }
+
+            // loading under the stripe lock, so that threads needing the same chunk don't all load it
+            cacheMisses.increment();
+            final long chunkStart = (long) chunkIndex * chunkSize + 1;
+            final long chunkStop = Math.min(chunkStart + chunkSize - 1, contigInfo.getSequenceLength());
+            final byte[] chunk;
+            synchronized ( source ) {
+                chunk = source.queryAndPrefetch(contigInfo.getSequenceName(), chunkStart, chunkStop).getBases();
+            }
+            stripe.chunks.put(key, chunk);
+            return chunk;
+        }
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    /**
+     * Print the efficiency (hits / queries) to logger with priority
+     */
+    public void printEfficiency(final Level priority) {
+        logger.log(priority, String.format("### ConcurrentCachingReferenceSource: hits=%d misses=%d efficiency %.6f%%", getCacheHits(), getCacheMisses(), calcEfficiency()));
+    }
+
+    /**
+     * Returns the efficiency (% of hits of all chunk lookups) of this cache
+     */
+    public double calcEfficiency() {
+        final long hits = getCacheHits();
+        return 100.0 * hits / (getCacheMisses() + hits * 1.0);
+    }
+
+    /**
+     * @return the number of chunks found in the cache
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @return the number of chunks loaded from the wrapped data source, plus the number of queries too large to cache
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Permanently close this data source and the wrapped data source. Must not be called while other threads query it.
+     */
+    @Override
+    public void close() {
+        synchronized ( source ) {
+            source.close();
+        }
+    }
+
+    /**
+     * Part of the cache, only accessed while holding its lock.
+     */
+    private static final class Stripe {
+        private final Map<Long, byte[]> chunks;
+
+        private Stripe(final int maxChunks) {
+            // in access order, for the least recently used chunks to be evicted first
+            chunks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Long, byte[]> eldest) {
+                    return size() > maxChunks;
+                }
+            };
+        }
+    }
+}
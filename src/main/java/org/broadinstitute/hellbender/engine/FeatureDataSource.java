@@ -6,6 +6,7 @@ import htsjdk.tribble.*;
 import htsjdk.variant.bcf2.BCF2Codec;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeader;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -26,6 +27,7 @@ import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Enables traversals and queries over sources of Features, which are metadata associated with a location
@@ -46,10 +48,14 @@ import java.util.function.Function;
  * To improve performance in the case of targeted queries by one interval at a time, this class uses a caching
  * scheme that is optimized for the common access pattern of multiple separate queries over intervals with
  * gradually increasing start positions. It optimizes for this use case by pre-fetching records immediately
- * following each interval during a query and caching them. Performance will suffer if the access pattern is
- * random, involves queries over intervals with DECREASING start positions instead of INCREASING start positions,
- * or involves lots of very large jumps forward on the genome or lots of contig switches. Query caching
- * can be disabled, if desired.
+ * following each interval during a query and caching them. Several such windows are kept (see
+ * {@link MultiWindowFeatureCache}), so queries that go back to a recently queried region are also served from
+ * the cache. Performance will suffer if the access pattern is random over large regions, or involves lots of
+ * very large jumps forward on the genome. Query caching can be disabled, if desired.
+ *
+ * When the intervals that will be queried are known in advance, the Features overlapping them can also be read and
+ * decoded on a background thread ahead of the queries (see {@link #setIntervalsForQueryPrefetching(List, int)}), so
+ * that cache misses are served without waiting for the file.
  *
  * @param <T> The type of Feature returned by this data source
  */
@@ -83,12 +89,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
 
     /**
      * Cache containing Features from recent queries initiated via {@link #query(SimpleInterval)} and/or
-     * {@link #queryAndPrefetch(SimpleInterval)}. This is guaranteed to start at the start position of the
-     * most recent query, but will typically end well after the end of the most recent query. Designed to
-     * improve performance of the common access pattern involving multiple queries across nearby intervals
-     * with gradually increasing start positions.
+     * {@link #queryAndPrefetch(SimpleInterval)}. Holds several windows, each typically ending well after the
+     * end of the query that produced it. Designed to improve performance of the common access pattern involving
+     * multiple queries across nearby intervals with gradually increasing start positions, while still serving
+     * queries that jump back to recently queried regions.
      */
-    private final FeatureCache<T> queryCache;
+    private final MultiWindowFeatureCache<T> queryCache;
 
     /**
      * When we experience a cache miss (ie., a query interval not fully contained within our cache) and need
@@ -99,6 +105,28 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     private final int queryLookaheadBases;
 
+    /**
+     * Creates the additional feature reader used by {@link #queryPrefetcher}, which reads on another thread
+     */
+    private final Supplier<FeatureReader<T>> prefetchReaderFactory;
+
+    /**
+     * Intervals whose Features are decoded ahead of the queries, if set via
+     * {@link #setIntervalsForQueryPrefetching(List, int)} (null if none)
+     */
+    private List<SimpleInterval> intervalsForQueryPrefetching;
+
+    /**
+     * Number of windows of Features decoded ahead of the queries
+     */
+    private int numQueryPrefetchWindows;
+
+    /**
+     * Decodes the Features of {@link #intervalsForQueryPrefetching} on a background thread. Started on the first
+     * cache miss, so that data sources that are only iterated over don't start a thread (null if not started).
+     */
+    private FeatureQueryPrefetcher<T> queryPrefetcher;
+
     /**
      * Holds information about the path this datasource reads from.
      */
@@ -253,6 +281,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         // Create a feature reader without requiring an index.  We will require one ourselves as soon as
         // a query by interval is attempted.
         this.featureReader = getFeatureReader(featureInput, targetFeatureType, cloudWrapper, cloudIndexWrapper, reference);
+        this.prefetchReaderFactory = () -> getFeatureReader(featureInput, targetFeatureType, cloudWrapper, cloudIndexWrapper, reference);
 
         if (isGenomicsDBPath(featureInput.getFeaturePath())) {
             //genomics db uri's have no associated index file to read from, but they do support random access
@@ -272,8 +301,10 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
 
         this.currentIterator = null;
         this.intervalsForTraversal = null;
-        this.queryCache = new FeatureCache<>();
+        this.queryCache = new MultiWindowFeatureCache<>();
         this.queryLookaheadBases = queryLookaheadBases;
+        this.intervalsForQueryPrefetching = null;
+        this.queryPrefetcher = null;
     }
 
     /**
@@ -442,6 +473,32 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         }
     }
 
+    /**
+     * Reads and decodes the Features overlapping the provided intervals on a background thread, in order and ahead
+     * of the queries made via {@link #query(SimpleInterval)} and/or {@link #queryAndPrefetch(SimpleInterval)}, so
+     * that the queries that miss the cache don't have to wait for the file. Best suited to queries following the
+     * intervals in order, as in a traversal. Query results are the same with or without prefetching.
+     *
+     * The intervals are grouped or split into windows of at most {@link FeatureQueryPrefetcher#DEFAULT_WINDOW_BASES}
+     * bases, padded by the query lookahead on both sides. Prefetching requires an additional reader, and is only
+     * done for indexed files (it is ignored for other sources of Features). It starts with the first query.
+     *
+     * Intervals MUST be non-overlapping and sorted in order of increasing start position.
+     *
+     * Passing in a null or empty interval List disables prefetching.
+     *
+     * @param intervals Features overlapping these intervals are decoded ahead of the queries
+     * @param numWindowsAhead number of windows of Features decoded ahead of the queries (> 0)
+     */
+    public void setIntervalsForQueryPrefetching( final List<SimpleInterval> intervals, final int numWindowsAhead ) {
+        Utils.validateArg(numWindowsAhead > 0, "numWindowsAhead must be > 0");
+        closeQueryPrefetcherIfNecessary();
+
+        // Treat null and empty interval lists the same
+        intervalsForQueryPrefetching = (intervals != null && !intervals.isEmpty() && hasIndex) ? intervals : null;
+        numQueryPrefetchWindows = numWindowsAhead;
+    }
+
 
     /**
      * Gets an iterator over all Features in this data source, restricting traversal to Features
@@ -513,23 +570,18 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                                     "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
         }
 
-        // If the query can be satisfied using existing cache contents, prepare for retrieval
-        // by discarding all Features at the beginning of the cache that end before the start
-        // of our query interval.
-        if ( queryCache.cacheHit(interval) ) {
-            queryCache.trimToNewStartPosition(interval.getStart());
-        }
-        // Otherwise, we have a cache miss, so go to disk to refill our cache.
-        else {
+        // If the query can't be satisfied using existing cache contents, we have a cache miss,
+        // so go to disk to add a window to our cache.
+        if ( ! queryCache.cacheHit(interval) ) {
             refillQueryCache(interval);
         }
 
         // Return the subset of our cache that overlaps our query interval
-        return queryCache.getCachedFeaturesUpToStopPosition(interval.getEnd());
+        return queryCache.getCachedFeaturesOverlapping(interval);
     }
 
     /**
-     * Refill our cache from disk after a cache miss. Will prefetch Features overlapping an additional
+     * Add a window to our cache from disk after a cache miss. Will prefetch Features overlapping an additional
      * queryLookaheadBases bases after the end of the provided interval, in addition to those overlapping
      * the interval itself.
      *
@@ -539,6 +591,19 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      * @param interval the query interval that produced a cache miss
      */
     private void refillQueryCache( final SimpleInterval interval ) {
+        // The window may already have been read by our prefetcher, in which case we don't need to go to disk
+        if ( intervalsForQueryPrefetching != null ) {
+            if ( queryPrefetcher == null ) {
+                queryPrefetcher = new FeatureQueryPrefetcher<>(prefetchReaderFactory.get(), featureInput.toString(), intervalsForQueryPrefetching,
+                        FeatureQueryPrefetcher.DEFAULT_WINDOW_BASES, queryLookaheadBases, numQueryPrefetchWindows);
+            }
+            final Pair<SimpleInterval, List<T>> prefetchedWindow = queryPrefetcher.getWindowContaining(interval);
+            if ( prefetchedWindow != null ) {
+                queryCache.fill(prefetchedWindow.getRight().iterator(), prefetchedWindow.getLeft());
+                return;
+            }
+        }
+
         // Tribble documentation states that having multiple iterators open simultaneously over the same FeatureReader
         // results in undefined behavior
         closeOpenIterationIfNecessary();
@@ -588,6 +653,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
 
         logger.debug(String.format("Cache statistics for FeatureInput %s:", featureInput));
         queryCache.printCacheStatistics();
+        closeQueryPrefetcherIfNecessary();
 
         try {
             if ( featureReader != null ) {
@@ -599,6 +665,17 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         }
     }
 
+    /**
+     * Stop the prefetching of Features ahead of the queries, if it was started.
+     */
+    private void closeQueryPrefetcherIfNecessary() {
+        if ( queryPrefetcher != null ) {
+            queryPrefetcher.printStatistics();
+            queryPrefetcher.close();
+            queryPrefetcher = null;
+        }
+    }
+
     /**
      * Close the iterator currently open over this data source, if there is one.
      */
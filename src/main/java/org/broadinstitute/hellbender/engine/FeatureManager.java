@@ -284,6 +284,19 @@ public final class FeatureManager implements AutoCloseable {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Start decoding the Features overlapping the provided intervals on a background thread for each of our
+     * sources of Features, ahead of the queries made via {@link #getFeatures(FeatureInput, SimpleInterval)}.
+     * See {@link FeatureDataSource#setIntervalsForQueryPrefetching(List, int)}.
+     *
+     * @param intervals Features overlapping these intervals are decoded ahead of the queries. Must be non-overlapping
+     *                  and sorted. A null or empty List disables prefetching.
+     * @param numWindowsAhead number of windows of Features decoded ahead of the queries, for each source (> 0)
+     */
+    public synchronized void setIntervalsForQueryPrefetching( final List<SimpleInterval> intervals, final int numWindowsAhead ) {
+        featureSources.values().forEach(dataSource -> dataSource.setIntervalsForQueryPrefetching(intervals, numWindowsAhead));
+    }
+
     /**
      * Given a FeatureInput argument field from our tool, queries the data source for that FeatureInput
      * over the specified interval, and returns a List of the Features overlapping that interval from
@@ -293,13 +306,17 @@ public final class FeatureManager implements AutoCloseable {
      * FeatureManager was initialized with, or was not an @Argument-annotated field in the tool
      * (or parent classes).
      *
+     * This method is synchronized so that tools that process several intervals concurrently (eg., HaplotypeCaller with
+     * multiple assembly region threads) can safely share a single FeatureManager, since the underlying FeatureDataSources
+     * and their caches are not thread-safe.
+     *
      * @param featureDescriptor FeatureInput argument from our tool representing the Feature source to query
      * @param interval interval to query over (returned Features will overlap this interval)
      * @param <T> type of Feature in the source represented by featureDescriptor
      * @return A List of all Features in the backing data source for the provided FeatureInput that overlap
      *         the provided interval (may be empty if there are none, but never null)
      */
-    public <T extends Feature> List<T> getFeatures( final FeatureInput<T> featureDescriptor, final SimpleInterval interval ) {
+    public synchronized <T extends Feature> List<T> getFeatures( final FeatureInput<T> featureDescriptor, final SimpleInterval interval ) {
         final FeatureDataSource<T> dataSource = lookupDataSource(featureDescriptor);
 
         // No danger of a ClassCastException here, since we verified that the FeatureDataSource for this
@@ -0,0 +1,285 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.tribble.CloseableTribbleIterator;
+import htsjdk.tribble.Feature;
+import htsjdk.tribble.FeatureReader;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FeatureQueryPrefetcher: helper class for {@link FeatureDataSource} that decodes the Features of upcoming
+ * traversal intervals on a background thread, so that cache misses during queries initiated via
+ * {@link FeatureDataSource#queryAndPrefetch(SimpleInterval)} don't have to wait for the file to be read and decoded.
+ *
+ * The intervals are divided into windows: small nearby intervals are grouped together, large intervals are split,
+ * and each window is padded on both sides. The windows are decoded in order, a fixed number of them ahead of the
+ * window most recently handed out by {@link #getWindowContaining(SimpleInterval)}. Windows that the queries skip
+ * are discarded, and queries going back to a previous window are not served (the caller has to go to disk itself).
+ *
+ * Uses its own FeatureReader, since Tribble readers can't be used from several threads. Not thread-safe otherwise:
+ * all methods must be called from the same thread.
+ *
+ * @param <T> Type of Feature record we are prefetching
+ */
+final class FeatureQueryPrefetcher<T extends Feature> implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(FeatureQueryPrefetcher.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Default maximum size of the windows, in bases (excluding padding)
+     */
+    public static final int DEFAULT_WINDOW_BASES = 100_000;
+
+    private final FeatureReader<T> reader;
+    private final String sourceName;
+    private final int numWindowsAhead;
+
+    /**
+     * The windows, in traversal order: contig index (in order of first appearance in the intervals), start and
+     * interval of each window
+     */
+    private final Map<String, Integer> contigIndices = new HashMap<>();
+    private final int[] windowContigs;
+    private final int[] windowStarts;
+    private final List<SimpleInterval> windows;
+
+    /**
+     * Windows submitted to the background thread and not yet handed out, by window index
+     */
+    private final Map<Integer, Future<List<T>>> pendingWindows = new HashMap<>();
+
+    /**
+     * Index of the next window that may be handed out, and of the next window to submit
+     */
+    private int nextWindow = 0;
+    private int nextWindowToSubmit = 0;
+
+    private final ExecutorService executorService;
+
+    private int numWindowsHandedOut = 0;
+    private int numWindowsDiscarded = 0;
+
+    /**
+     * @param reader reader dedicated to this prefetcher, closed when this prefetcher is closed
+     * @param sourceName name of the source of Features, for error messages
+     * @param intervals intervals whose Features to prefetch, non-overlapping and sorted in traversal order
+     * @param windowBases maximum size of the windows, in bases, excluding padding
+     * @param padding number of bases added to both sides of each window
+     * @param numWindowsAhead number of windows decoded ahead of the last window handed out
+     */
+    public FeatureQueryPrefetcher( final FeatureReader<T> reader, final String sourceName, final List<SimpleInterval> intervals,
+                                   final int windowBases, final int padding, final int numWindowsAhead ) {
+        Utils.nonNull(intervals);
+        Utils.validateArg(windowBases > 0, "windowBases must be > 0");
+        Utils.validateArg(padding >= 0, "padding must be >= 0");
+        Utils.validateArg(numWindowsAhead > 0, "numWindowsAhead must be > 0");
+        this.reader = Utils.nonNull(reader);
+        this.sourceName = sourceName;
+        this.numWindowsAhead = numWindowsAhead;
+
+        windows = makeWindows(intervals, windowBases, padding);
+        windowContigs = new int[windows.size()];
+        windowStarts = new int[windows.size()];
+        for ( int i = 0; i < windows.size(); i++ ) {
+            final SimpleInterval window = windows.get(i);
+            final int contigIndex = contigIndices.computeIfAbsent(window.getContig(), contig -> contigIndices.size());
+            if ( i > 0 && (contigIndex < windowContigs[i - 1] || (contigIndex == windowContigs[i - 1] && window.getStart() < windowStarts[i - 1])) ) {
+                throw new IllegalArgumentException("intervals must be sorted, but found " + window + " after " + windows.get(i - 1));
+            }
+            windowContigs[i] = contigIndex;
+            windowStarts[i] = window.getStart();
+        }
+
+        executorService = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("feature-prefetch-%d").setDaemon(true).build());
+        submitWindowsUpTo(numWindowsAhead);
+    }
+
+    /**
+     * Groups the intervals into windows of at most windowBases bases (before padding), in traversal order.
+     */
+    static List<SimpleInterval> makeWindows( final List<SimpleInterval> intervals, final int windowBases, final int padding ) {
+        final List<SimpleInterval> windows = new ArrayList<>();
+        String contig = null;
+        int windowStart = 0;
+        int windowEnd = 0;
+        for ( final SimpleInterval interval : intervals ) {
+            for ( int start = interval.getStart(); start <= interval.getEnd(); start += windowBases ) {
+                final int end = (int) Math.min((long) start + windowBases - 1, interval.getEnd());
+                if ( contig != null && contig.equals(interval.getContig()) && start > windowEnd && end - windowStart < windowBases ) {
+                    windowEnd = end;
+                } else {
+                    if ( contig != null ) {
+                        windows.add(new SimpleInterval(contig, Math.max(1, windowStart - padding), Math.addExact(windowEnd, padding)));
+                    }
+                    contig = interval.getContig();
+                    windowStart = start;
+                    windowEnd = end;
+                }
+            }
+        }
+        if ( contig != null ) {
+            windows.add(new SimpleInterval(contig, Math.max(1, windowStart - padding), Math.addExact(windowEnd, padding)));
+        }
+        return windows;
+    }
+
+    /**
+     * @return the windows the intervals were divided into, in traversal order
+     */
+    List<SimpleInterval> getWindows() {
+        return Collections.unmodifiableList(windows);
+    }
+
+    /**
+     * @return Number of windows handed out by {@link #getWindowContaining(SimpleInterval)}
+     */
+    public int getNumWindowsHandedOut() {
+        return numWindowsHandedOut;
+    }
+
+    /**
+     * @return Number of windows skipped over by the queries, whose Features were not (or no longer) needed
+     */
+    public int getNumWindowsDiscarded() {
+        return numWindowsDiscarded;
+    }
+
+    /**
+     * Hands out the upcoming window containing the provided interval, waiting for its Features to be decoded if
+     * necessary. The windows before it are discarded, and the decoding of the following windows is started.
+     *
+     * @param interval interval that the window must contain
+     * @return the window and all the Features overlapping it, or null if no upcoming window contains the interval
+     */
+    public Pair<SimpleInterval, List<T>> getWindowContaining( final SimpleInterval interval ) {
+        final int windowIndex = findContainingWindow(interval);
+        if ( windowIndex < nextWindow ) {
+            return null;
+        }
+
+        for ( int i = nextWindow; i < windowIndex; i++ ) {
+            final Future<List<T>> skipped = pendingWindows.remove(i);
+            if ( skipped != null ) {
+                skipped.cancel(false);
+            }
+            ++numWindowsDiscarded;
+        }
+        nextWindow = windowIndex + 1;
+        nextWindowToSubmit = Math.max(nextWindowToSubmit, windowIndex);
+        submitWindowsUpTo(windowIndex + 1 + numWindowsAhead);
+
+        final List<T> features = getFeatures(pendingWindows.remove(windowIndex), windows.get(windowIndex));
+        ++numWindowsHandedOut;
+        return Pair.of(windows.get(windowIndex), features);
+    }
+
+    /**
+     * @return index of the last window containing the interval, or -1 if there is none
+     */
+    private int findContainingWindow( final SimpleInterval interval ) {
+        final Integer contigIndex = contigIndices.get(interval.getContig());
+        if ( contigIndex == null ) {
+            return -1;
+        }
+
+        // last window starting at or before the interval
+        int low = 0;
+        int high = windows.size();
+        while ( low < high ) {
+            final int mid = (low + high) >>> 1;
+            if ( windowContigs[mid] < contigIndex || (windowContigs[mid] == contigIndex && windowStarts[mid] <= interval.getStart()) ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        // the windows of a contig end in increasing order, so if any window contains the interval, one of the
+        // last two windows starting before it does
+        for ( int i = low - 1; i >= Math.max(0, low - 2); i-- ) {
+            if ( windows.get(i).contains(interval) ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void submitWindowsUpTo( final int endIndex ) {
+        for ( ; nextWindowToSubmit < Math.min(endIndex, windows.size()); nextWindowToSubmit++ ) {
+            final SimpleInterval window = windows.get(nextWindowToSubmit);
+            pendingWindows.put(nextWindowToSubmit, executorService.submit(() -> readFeatures(window)));
+        }
+    }
+
+    private List<T> readFeatures( final SimpleInterval window ) throws IOException {
+        final List<T> features = new ArrayList<>();
+        try ( final CloseableTribbleIterator<T> iter = reader.query(window.getContig(), window.getStart(), window.getEnd()) ) {
+            while ( iter.hasNext() ) {
+                features.add(iter.next());
+            }
+        }
+        return features;
+    }
+
+    private List<T> getFeatures( final Future<List<T>> pendingWindow, final SimpleInterval window ) {
+        try {
+            return pendingWindow.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for the Features of " + sourceName + " over interval " + window, e);
+        } catch ( final ExecutionException e ) {
+            // rethrow unchecked exceptions (eg., UserExceptions) from the background thread as-is
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error querying " + sourceName + " over interval " + window, e.getCause());
+        }
+    }
+
+    /**
+     * Print statistics about the prefetched windows for debugging
+     */
+    public void printStatistics() {
+        logger.debug(String.format("Prefetched windows: %d handed out and %d discarded, out of %d windows",
+                numWindowsHandedOut, numWindowsDiscarded, windows.size()));
+    }
+
+    /**
+     * Stop the background thread, discarding the windows not handed out yet, and close the reader.
+     */
+    @Override
+    public void close() {
+        // not interrupting the background thread, since an interrupt closes the NIO channel it may be reading from
+        pendingWindows.values().forEach(pendingWindow -> pendingWindow.cancel(false));
+        pendingWindows.clear();
+        executorService.shutdown();
+        try {
+            if ( ! executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS) ) {
+                logger.warn("Timed out waiting for the Feature prefetching thread of " + sourceName + " to terminate");
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            reader.close();
+        } catch ( final IOException e ) {
+            throw new GATKException("Error closing Feature reader for input " + sourceName, e);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import htsjdk.variant.variantcontext.writer.Options;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.vcf.VCFHeaderLine;
 import htsjdk.variant.vcf.VCFSimpleHeaderLine;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLinePluginDescriptor;
@@ -24,6 +25,7 @@ import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.transformers.ReadTransformer;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SequenceDictionaryUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -114,6 +116,42 @@ public abstract class GATKTool extends CommandLineProgram {
             optional = true)
     public boolean disableBamIndexCaching = false;
 
+    /**
+     * Reading BAM files on a single thread is often limited by the decompression of the BGZF blocks and the decoding
+     * of the records rather than by I/O. With this argument, blocks are decompressed ahead of time and records are
+     * decoded on this many background threads before they are handed to the tool. The reads, and their order, are
+     * the same as without this argument.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.READS_DECODING_THREADS_LONG_NAME,
+            doc = "Number of threads used to decompress and decode the reads ahead of the tool (0 to decode them on the main thread).",
+            optional = true, minValue = 0)
+    public int readsDecodingThreads = 0;
+
+    /**
+     * Compressing BAM and block-compressed VCF output often takes a large part of the runtime of tools that write
+     * every read or variant. With this argument, the BGZF blocks of the output are compressed on this many background
+     * threads. Requested indices are then created from the complete output files once they are written, which takes
+     * an extra pass over them.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_COMPRESSION_THREADS_LONG_NAME,
+            doc = "Number of threads used to compress BAM and block-compressed VCF output (0 to compress on the main thread).",
+            optional = true, minValue = 0)
+    public int outputCompressionThreads = 0;
+
+    /**
+     * Queries for Features (eg., of a dbSNP or gnomAD resource) that can't be answered from the cache have to wait
+     * for the Features to be read and decoded. With this argument, the Features overlapping the intervals (or the
+     * whole reference if no intervals are specified) are read and decoded on a background thread for each indexed
+     * Feature input, this many windows ahead of the queries. The Features returned are the same without this argument.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.FEATURE_PREFETCH_WINDOWS_LONG_NAME,
+            doc = "Number of windows of Features decoded on a background thread ahead of the queries, for each indexed Feature input (0 to disable).",
+            optional = true, minValue = 0)
+    public int featurePrefetchWindows = 0;
+
     /**
      * Master sequence dictionary to be used instead of all other dictionaries (if provided).
      */
@@ -302,25 +340,34 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reads data source.
      */
     void initializeReads() {
-        if (! readArguments.getReadFiles().isEmpty()) {
-            SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
-            if (hasReference()) { // pass in reference if available, because CRAM files need it
-                factory = factory.referenceSequence(referenceArguments.getReferencePath());
-            }
-            else if (hasCramInput()) {
-                throw new UserException.MissingReference("A reference file is required when using CRAM files.");
-            }
+        reads = readArguments.getReadFiles().isEmpty() ? null : createReadsDataSource(readsDecodingThreads);
+    }
 
-            if(bamIndexCachingShouldBeEnabled()) {
-                factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
-            }
+    /**
+     * Create a new source of reads data for the reads arguments, independent of {@link #reads} (eg., to be used
+     * from a different thread). Unlike {@link #reads}, it decodes the reads on the calling thread.
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot.
+     */
+    ReadsDataSource createReadsDataSource() {
+        return createReadsDataSource(0);
+    }
 
-            reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
-                (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+    private ReadsDataSource createReadsDataSource(final int decodingThreads) {
+        SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
+        if (hasReference()) { // pass in reference if available, because CRAM files need it
+            factory = factory.referenceSequence(referenceArguments.getReferencePath());
         }
-        else {
-            reads = null;
+        else if (hasCramInput()) {
+            throw new UserException.MissingReference("A reference file is required when using CRAM files.");
+        }
+
+        if(bamIndexCachingShouldBeEnabled()) {
+            factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
         }
+
+        return new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
+            (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer), decodingThreads);
     }
 
 
@@ -377,6 +424,26 @@ public abstract class GATKTool extends CommandLineProgram {
         }
     }
 
+    /**
+     * Start decoding Features ahead of the queries if requested, over our intervals for traversal, or over the
+     * whole reference if there are none and a sequence dictionary is available.
+     *
+     * Must be called after the features and intervals have been initialized.
+     */
+    private void initializeFeaturePrefetching() {
+        if ( featurePrefetchWindows == 0 || ! hasFeatures() ) {
+            return;
+        }
+        if ( hasIntervals() ) {
+            features.setIntervalsForQueryPrefetching(intervalsForTraversal, featurePrefetchWindows);
+        } else {
+            final SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
+            if ( sequenceDictionary != null ) {
+                features.setIntervalsForQueryPrefetching(IntervalUtils.getAllIntervalsForReference(sequenceDictionary), featurePrefetchWindows);
+            }
+        }
+    }
+
     /**
      * Is a source of reference data available?
      *
@@ -559,6 +626,8 @@ public abstract class GATKTool extends CommandLineProgram {
 
         initializeIntervals(); // Must be initialized after reference, reads and features, since intervals currently require a sequence dictionary from another data source
 
+        initializeFeaturePrefetching();
+
         if ( ! disableSequenceDictionaryValidation ) {
             validateSequenceDictionaries();
         }
@@ -697,7 +766,8 @@ public abstract class GATKTool extends CommandLineProgram {
                 getHeaderForSAMWriter(),
                 preSorted,
                 createOutputBamIndex,
-                createOutputBamMD5
+                createOutputBamMD5,
+                outputCompressionThreads
             )
         );
     }
@@ -733,6 +803,7 @@ public abstract class GATKTool extends CommandLineProgram {
                 outFile,
                 sequenceDictionary,
                 createOutputVariantMD5,
+                outputCompressionThreads,
                 options.toArray(new Options[options.size()]));
     }
 
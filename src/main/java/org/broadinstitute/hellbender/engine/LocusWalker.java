@@ -2,6 +2,8 @@ package org.broadinstitute.hellbender.engine;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
@@ -9,13 +11,20 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.iterators.ReadFilteringIterator;
+import org.broadinstitute.hellbender.utils.iterators.ReadTransformingIterator;
 import org.broadinstitute.hellbender.utils.locusiterator.AlignmentContextIteratorBuilder;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.locusiterator.LIBSDownsamplingInfo;
 import org.broadinstitute.hellbender.utils.locusiterator.LocusIteratorByState;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.runtime.OrderedTaskExecutor;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.stream.Collectors;
 
 /**
@@ -36,9 +45,32 @@ import java.util.stream.Collectors;
  */
 public abstract class LocusWalker extends GATKTool {
 
+    public static final String LOCUS_THREADS_LONG_NAME = "locus-threads";
+    public static final String LOCUS_SHARD_SIZE_LONG_NAME = "locus-shard-size";
+
+    /**
+     * Maximum number of shards that may be queued for or running on the worker threads, per thread, before
+     * traversal blocks waiting for the oldest shard to finish.
+     */
+    private static final int MAX_PENDING_SHARDS_PER_THREAD = 4;
+
     @Argument(fullName = "maxDepthPerSample", shortName = "maxDepthPerSample", doc = "Maximum number of reads to retain per sample per locus. Reads above this threshold will be downsampled. Set to 0 to disable.", optional = true)
     protected int maxDepthPerSample = defaultMaxDepthPerSample();
 
+    /**
+     * Number of threads used to traverse loci. When greater than 1, the intervals are split into shards of
+     * --{@value #LOCUS_SHARD_SIZE_LONG_NAME} bases that are processed on a pool of worker threads, each with its own
+     * reads and reference data sources, and the results are combined in genomic order on the main thread. Only
+     * available for tools that provide a {@link ThreadedLocusProcessor}, and requires indexed reads.
+     */
+    @Advanced
+    @Argument(fullName = LOCUS_THREADS_LONG_NAME, doc = "Number of threads to use for traversing loci (only for tools that support it)", optional = true, minValue = 1)
+    protected int locusThreads = 1;
+
+    @Advanced
+    @Argument(fullName = LOCUS_SHARD_SIZE_LONG_NAME, doc = "Size in bases of the shards of loci given to each thread when --" + LOCUS_THREADS_LONG_NAME + " is greater than 1", optional = true, minValue = 1)
+    protected int locusShardSize = 10000;
+
     /**
      * Should the LIBS keep unique reads? Tools that do should override to return {@code true}.
      */
@@ -89,6 +121,32 @@ public abstract class LocusWalker extends GATKTool {
         return false;
     }
 
+    /**
+     * Does this tool only need summaries of the pileups (base counts, qualities, etc.) that can be computed from
+     * {@link AlignmentContext#getPileupColumns()}? Tools that do should override to return {@code true}.
+     *
+     * NOTE:  When this returns {@code true}, the pileup storage of each {@link AlignmentContext} is reused for later
+     *  loci as soon as {@link #apply(AlignmentContext, ReferenceContext, FeatureContext)} returns, so tools must not
+     *  keep references to the context, its pileup or its elements after apply().
+     *
+     * @return {@code true} if this tool wants reusable column-oriented pileups, {@code false} otherwise
+     */
+    public boolean useColumnarPileups() {
+        return false;
+    }
+
+
+    /**
+     * Returns a processor that lets this tool traverse loci on several threads when --{@value #LOCUS_THREADS_LONG_NAME}
+     * is greater than 1, in which case it is used instead of {@link #apply(AlignmentContext, ReferenceContext, FeatureContext)}.
+     * Called once, after {@link #onTraversalStart()}.
+     *
+     * The default implementation returns {@code null}, which means that the tool only supports single-threaded traversal.
+     * Tools that support threaded traversal should override.
+     */
+    protected ThreadedLocusProcessor<?> makeThreadedLocusProcessor() {
+        return null;
+    }
 
     /**
      * Returns default value for the {@link #maxDepthPerSample} parameter, if none is provided on the command line.
@@ -144,26 +202,28 @@ public abstract class LocusWalker extends GATKTool {
      * The default implementation iterates over all positions in the reference covered by reads (filtered and transformed)
      * for all samples in the read groups, using the downsampling method provided by {@link #getDownsamplingInfo()}
      * and including deletions only if {@link #includeDeletions()} returns {@code true}.
+     *
+     * When --{@value #LOCUS_THREADS_LONG_NAME} is greater than 1, loci are processed in shards on several threads with the
+     * {@link ThreadedLocusProcessor} returned by {@link #makeThreadedLocusProcessor()} instead.
      */
     @Override
     public void traverse() {
+        if ( locusThreads > 1 ) {
+            final ThreadedLocusProcessor<?> processor = makeThreadedLocusProcessor();
+            if ( processor == null ) {
+                throw new CommandLineException.BadArgumentValue(LOCUS_THREADS_LONG_NAME, String.valueOf(locusThreads),
+                        "this tool does not support multi-threaded traversal");
+            }
+            traverseInShards(processor);
+            return;
+        }
+
         final SAMFileHeader header = getHeaderForReads();
-        // get the samples from the read groups
-        final Set<String> samples = header.getReadGroups().stream()
-                                          .map(SAMReadGroupRecord::getSample)
-                                          .collect(Collectors.toSet());
         final CountingReadFilter countedFilter = makeReadFilter();
         // get the filter and transformed iterator
         final Iterator<GATKRead> readIterator = getTransformedReadStream(countedFilter).iterator();
 
-        final AlignmentContextIteratorBuilder alignmentContextIteratorBuilder = new AlignmentContextIteratorBuilder();
-        alignmentContextIteratorBuilder.setDownsamplingInfo(getDownsamplingInfo());
-        alignmentContextIteratorBuilder.setEmitEmptyLoci(emitEmptyLoci());
-        alignmentContextIteratorBuilder.setIncludeDeletions(includeDeletions());
-        alignmentContextIteratorBuilder.setKeepUniqueReadListInLibs(keepUniqueReadListInLibs());
-        alignmentContextIteratorBuilder.setIncludeNs(includeNs());
-
-        final Iterator<AlignmentContext> iterator = alignmentContextIteratorBuilder.build(
+        final Iterator<AlignmentContext> iterator = makeAlignmentContextIteratorBuilder().build(
                 readIterator, header, intervalsForTraversal, getBestAvailableSequenceDictionary(),
                 hasReference());
 
@@ -172,11 +232,150 @@ public abstract class LocusWalker extends GATKTool {
                         final SimpleInterval alignmentInterval = new SimpleInterval(alignmentContext);
                         apply(alignmentContext, new ReferenceContext(reference, alignmentInterval), new FeatureContext(features, alignmentInterval));
                         progressMeter.update(alignmentInterval);
+                        alignmentContext.release();
                 }
             );
         logger.info(countedFilter.getSummaryLine());
     }
 
+    private AlignmentContextIteratorBuilder makeAlignmentContextIteratorBuilder() {
+        final AlignmentContextIteratorBuilder alignmentContextIteratorBuilder = new AlignmentContextIteratorBuilder();
+        alignmentContextIteratorBuilder.setDownsamplingInfo(getDownsamplingInfo());
+        alignmentContextIteratorBuilder.setEmitEmptyLoci(emitEmptyLoci());
+        alignmentContextIteratorBuilder.setIncludeDeletions(includeDeletions());
+        alignmentContextIteratorBuilder.setKeepUniqueReadListInLibs(keepUniqueReadListInLibs());
+        alignmentContextIteratorBuilder.setIncludeNs(includeNs());
+        alignmentContextIteratorBuilder.setUseColumnarPileups(useColumnarPileups());
+        return alignmentContextIteratorBuilder;
+    }
+
+    /**
+     * Multi-threaded traversal: splits the traversal intervals into shards of {@link #locusShardSize} bases, processes
+     * the loci of each shard with {@link ThreadedLocusProcessor#process} on a worker thread, and reduces the results of
+     * the shards in genomic order on this thread.
+     *
+     * Each worker has its own reads and reference data sources, read filter and transformers, since none of them are
+     * thread-safe. Reads overlapping several shards are loaded for each of them, but every locus is only processed in
+     * the shard that contains it.
+     */
+    private <T> void traverseInShards(final ThreadedLocusProcessor<T> processor) {
+        if ( ! reads.indicesAvailable() ) {
+            throw new UserException.MissingIndex(readArguments.getReadFiles().toString(),
+                    "Traversing loci with --" + LOCUS_THREADS_LONG_NAME + " greater than 1 requires indexed reads.");
+        }
+
+        final SAMFileHeader header = getHeaderForReads();
+        final SAMSequenceDictionary dictionary = getBestAvailableSequenceDictionary();
+        final List<SimpleInterval> intervals = hasIntervals() ? intervalsForTraversal : IntervalUtils.getAllIntervalsForReference(dictionary);
+        final List<ShardBoundary> shards = intervals.stream()
+                .flatMap(interval -> Shard.divideIntervalIntoShards(interval, locusShardSize, 0, dictionary).stream())
+                .collect(Collectors.toList());
+
+        final List<LocusShardDataSources> allDataSources = new ArrayList<>(locusThreads);
+        final BlockingQueue<LocusShardDataSources> availableDataSources = new ArrayBlockingQueue<>(locusThreads);
+        try ( final OrderedTaskExecutor<List<LocusResult<T>>> shardExecutor = new OrderedTaskExecutor<>(locusThreads,
+                MAX_PENDING_SHARDS_PER_THREAD * locusThreads, "LocusWalker-shard-%d", results -> reduceShard(processor, results)) ) {
+            for ( int i = 0; i < locusThreads; i++ ) {
+                final LocusShardDataSources dataSources = new LocusShardDataSources(createReadsDataSource(),
+                        hasReference() ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null,
+                        makeReadFilter(), makePreReadFilterTransformer(), makePostReadFilterTransformer());
+                allDataSources.add(dataSources);
+                availableDataSources.add(dataSources);
+            }
+            logger.info("Traversing " + shards.size() + " shards of loci using " + locusThreads + " threads");
+
+            for ( final ShardBoundary shard : shards ) {
+                shardExecutor.submit(() -> {
+                    final LocusShardDataSources dataSources = availableDataSources.take();
+                    try {
+                        return processShard(shard, dataSources, header, dictionary, processor);
+                    } finally {
+                        availableDataSources.add(dataSources);
+                    }
+                });
+            }
+            shardExecutor.drain();
+        } finally {
+            allDataSources.forEach(LocusShardDataSources::close);
+        }
+
+        // reads overlapping several shards go through the filters once per shard, so these are counts of filter applications
+        final long filteredCount = allDataSources.stream().mapToLong(dataSources -> dataSources.readFilter.getFilteredCount()).sum();
+        logger.info(filteredCount + " read(s) filtered in all shards (reads spanning several shards are counted once per shard)");
+    }
+
+    private <T> List<LocusResult<T>> processShard(final ShardBoundary shard, final LocusShardDataSources dataSources,
+                                                  final SAMFileHeader header, final SAMSequenceDictionary dictionary,
+                                                  final ThreadedLocusProcessor<T> processor) {
+        final Iterator<GATKRead> readIterator = new ReadTransformingIterator(
+                new ReadFilteringIterator(
+                        new ReadTransformingIterator(dataSources.reads.query(shard.getPaddedInterval()), dataSources.preReadFilterTransformer),
+                        dataSources.readFilter),
+                dataSources.postReadFilterTransformer);
+
+        final Iterator<AlignmentContext> iterator = makeAlignmentContextIteratorBuilder().build(
+                readIterator, header, Collections.singletonList(shard.getInterval()), dictionary, hasReference());
+
+        final List<LocusResult<T>> results = new ArrayList<>();
+        iterator.forEachRemaining(alignmentContext -> {
+            final SimpleInterval alignmentInterval = new SimpleInterval(alignmentContext);
+            final T result = processor.process(alignmentContext, new ReferenceContext(dataSources.reference, alignmentInterval), new FeatureContext(features, alignmentInterval));
+            alignmentContext.release();
+            results.add(new LocusResult<>(alignmentInterval, result));
+        });
+        return results;
+    }
+
+    private <T> void reduceShard(final ThreadedLocusProcessor<T> processor, final List<LocusResult<T>> results) {
+        for ( final LocusResult<T> result : results ) {
+            if ( result.result != null ) {
+                processor.reduce(result.result);
+            }
+            progressMeter.update(result.locus);
+        }
+    }
+
+    /**
+     * Result of processing a locus on a worker thread, waiting to be reduced.
+     */
+    private static final class LocusResult<T> {
+        private final SimpleInterval locus;
+        private final T result;
+
+        private LocusResult(final SimpleInterval locus, final T result) {
+            this.locus = locus;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Data sources, filter and transformers owned by one worker thread of the multi-threaded traversal at a time.
+     */
+    private static final class LocusShardDataSources implements AutoCloseable {
+        private final ReadsDataSource reads;
+        private final ReferenceDataSource reference;
+        private final CountingReadFilter readFilter;
+        private final ReadTransformer preReadFilterTransformer;
+        private final ReadTransformer postReadFilterTransformer;
+
+        private LocusShardDataSources(final ReadsDataSource reads, final ReferenceDataSource reference, final CountingReadFilter readFilter,
+                                      final ReadTransformer preReadFilterTransformer, final ReadTransformer postReadFilterTransformer) {
+            this.reads = reads;
+            this.reference = reference;
+            this.readFilter = readFilter;
+            this.preReadFilterTransformer = preReadFilterTransformer;
+            this.postReadFilterTransformer = postReadFilterTransformer;
+        }
+
+        @Override
+        public void close() {
+            reads.close();
+            if ( reference != null ) {
+                reference.close();
+            }
+        }
+    }
+
     /**
      * Process an individual AlignmentContext (with optional contextual information). Must be implemented by tool authors.
      * In general, tool authors should simply stream their output from apply(), and maintain as little internal state
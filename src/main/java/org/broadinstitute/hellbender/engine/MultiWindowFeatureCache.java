@@ -0,0 +1,295 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.util.IntervalTree;
+import htsjdk.tribble.Feature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.*;
+
+/**
+ * MultiWindowFeatureCache: helper class for {@link FeatureDataSource} to manage the cache of Feature records used
+ * during query operations initiated via {@link FeatureDataSource#query(org.broadinstitute.hellbender.utils.SimpleInterval)}
+ * and/or {@link FeatureDataSource#queryAndPrefetch(org.broadinstitute.hellbender.utils.SimpleInterval)}.
+ *
+ * Unlike {@link FeatureCache}, which holds a single window of Features and discards it on any cache miss, this cache
+ * holds several disjoint windows, stored per contig in an interval tree. Queries contained in any of the windows are
+ * cache hits, whether they come before or after the previous query, so callers that jump between intervals or look
+ * backward don't need to go back to disk. When the total number of cached Features exceeds a maximum, the least
+ * recently used windows are evicted.
+ *
+ * Usage:
+ * -Test whether each query interval is a cache hit via {@link #cacheHit(SimpleInterval)}
+ *
+ * -If it is a cache miss, add a window to the cache using {@link #fill(Iterator, SimpleInterval)}, pre-fetching
+ *  a large number of records after the query interval in addition to those actually requested.
+ *
+ * -Retrieve the records overlapping the query interval using {@link #getCachedFeaturesOverlapping(SimpleInterval)}
+ *
+ * @param <CACHED_FEATURE> Type of Feature record we are caching
+ */
+class MultiWindowFeatureCache<CACHED_FEATURE extends Feature> {
+    private static final Logger logger = LogManager.getLogger(MultiWindowFeatureCache.class);
+
+    /**
+     * Default maximum number of Features held in all the windows of the cache
+     */
+    public static final int DEFAULT_MAX_CACHED_FEATURES = 50_000;
+
+    /**
+     * The windows of each contig
+     */
+    private final Map<String, IntervalTree<Window<CACHED_FEATURE>>> windowsByContig = new HashMap<>();
+
+    /**
+     * All the windows, from the least to the most recently used
+     */
+    private final LinkedHashMap<Window<CACHED_FEATURE>, Boolean> windowsByLastUse = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Maximum number of Features held in all the windows. The most recent window is kept even if it's larger.
+     */
+    private final int maxCachedFeatures;
+
+    /**
+     * Number of Features currently held in all the windows
+     */
+    private int numCachedFeatures = 0;
+
+    /**
+     * Number of times we called {@link #cacheHit(SimpleInterval)} and it returned true
+     */
+    private int numCacheHits = 0;
+
+    /**
+     * Number of times we called {@link #cacheHit(SimpleInterval)} and it returned false
+     */
+    private int numCacheMisses = 0;
+
+    /**
+     * Number of windows evicted to keep the number of cached Features under the maximum
+     */
+    private int numEvictedWindows = 0;
+
+    /**
+     * Create an initially-empty MultiWindowFeatureCache holding at most {@link #DEFAULT_MAX_CACHED_FEATURES} Features
+     */
+    public MultiWindowFeatureCache() {
+        this(DEFAULT_MAX_CACHED_FEATURES);
+    }
+
+    /**
+     * Create an initially-empty MultiWindowFeatureCache
+     *
+     * @param maxCachedFeatures maximum number of Features held in all the windows of the cache. The most recently
+     *                          filled window is always kept, even if it has more Features.
+     */
+    public MultiWindowFeatureCache( final int maxCachedFeatures ) {
+        Utils.validateArg(maxCachedFeatures >= 0, "maxCachedFeatures must be >= 0");
+        this.maxCachedFeatures = maxCachedFeatures;
+    }
+
+    /**
+     * @return Number of windows currently in the cache
+     */
+    public int getNumWindows() {
+        return windowsByLastUse.size();
+    }
+
+    /**
+     * @return Number of Features currently held in all the windows of the cache
+     */
+    public int getNumCachedFeatures() {
+        return numCachedFeatures;
+    }
+
+    /**
+     * @return Number of times we called {@link #cacheHit(SimpleInterval)} and it returned true
+     */
+    public int getNumCacheHits() {
+        return numCacheHits;
+    }
+
+    /**
+     * @return Number of times we called {@link #cacheHit(SimpleInterval)} and it returned false
+     */
+    public int getNumCacheMisses() {
+        return numCacheMisses;
+    }
+
+    /**
+     * @return Number of windows evicted to keep the number of cached Features under the maximum
+     */
+    public int getNumEvictedWindows() {
+        return numEvictedWindows;
+    }
+
+    /**
+     * Add a window to the cache, holding the records from the provided iterator, in the same order. Windows
+     * overlapping the new window are discarded, and the least recently used windows are evicted if the cache
+     * holds too many Features.
+     *
+     * Typically each fill operation should involve significant lookahead beyond the region
+     * requested so that future queries will be cache hits.
+     *
+     * @param featureIter iterator from which to pull Features with which to populate the new window. The Features
+     *                    must be sorted by start position.
+     * @param interval all Features from featureIter overlap this interval
+     */
+    public void fill( final Iterator<CACHED_FEATURE> featureIter, final SimpleInterval interval ) {
+        final List<CACHED_FEATURE> features = new ArrayList<>();
+        while ( featureIter.hasNext() ) {
+            features.add(featureIter.next());
+        }
+        final Window<CACHED_FEATURE> window = new Window<>(interval, features);
+
+        final IntervalTree<Window<CACHED_FEATURE>> existingWindows = windowsByContig.get(interval.getContig());
+        if ( existingWindows != null ) {
+            final List<Window<CACHED_FEATURE>> overlappingWindows = new ArrayList<>();
+            existingWindows.overlappers(interval.getStart(), interval.getEnd()).forEachRemaining(node -> overlappingWindows.add(node.getValue()));
+            overlappingWindows.forEach(this::remove);
+        }
+
+        final IntervalTree<Window<CACHED_FEATURE>> contigWindows = windowsByContig.computeIfAbsent(interval.getContig(), contig -> new IntervalTree<>());
+        contigWindows.put(interval.getStart(), interval.getEnd(), window);
+        windowsByLastUse.put(window, Boolean.TRUE);
+        numCachedFeatures += features.size();
+
+        while ( numCachedFeatures > maxCachedFeatures && windowsByLastUse.size() > 1 ) {
+            remove(windowsByLastUse.keySet().iterator().next());
+            ++numEvictedWindows;
+        }
+    }
+
+    private void remove( final Window<CACHED_FEATURE> window ) {
+        final IntervalTree<Window<CACHED_FEATURE>> contigWindows = windowsByContig.get(window.interval.getContig());
+        contigWindows.remove(window.interval.getStart(), window.interval.getEnd());
+        if ( contigWindows.size() == 0 ) {
+            windowsByContig.remove(window.interval.getContig());
+        }
+        windowsByLastUse.remove(window);
+        numCachedFeatures -= window.features.size();
+    }
+
+    /**
+     * Determines whether all records overlapping the provided interval are already contained in one of the windows
+     * of the cache.
+     *
+     * @param interval the interval to check against the contents of our cache
+     * @return true if all records overlapping the provided interval are already contained in our cache, otherwise false
+     */
+    public boolean cacheHit( final SimpleInterval interval ) {
+        final boolean cacheHit = findContainingWindow(interval) != null;
+
+        if ( cacheHit ) {
+            ++numCacheHits;
+        }
+        else {
+            ++numCacheMisses;
+        }
+
+        return cacheHit;
+    }
+
+    /**
+     * Returns (but does not remove) all cached Features that overlap the provided interval, in the order in which they
+     * were added to the cache.
+     *
+     * @param interval interval that the returned Features must overlap. Must be a cache hit.
+     * @return all cached Features that overlap the interval
+     */
+    public List<CACHED_FEATURE> getCachedFeaturesOverlapping( final SimpleInterval interval ) {
+        final Window<CACHED_FEATURE> window = findContainingWindow(interval);
+        if ( window == null ) {
+            throw new GATKException("BUG: attempted to retrieve Features for an interval not contained in the cache: " + interval);
+        }
+        windowsByLastUse.get(window); // marks the window as the most recently used
+        return window.getFeaturesOverlapping(interval.getStart(), interval.getEnd());
+    }
+
+    private Window<CACHED_FEATURE> findContainingWindow( final SimpleInterval interval ) {
+        final IntervalTree<Window<CACHED_FEATURE>> contigWindows = windowsByContig.get(interval.getContig());
+        if ( contigWindows == null ) {
+            return null;
+        }
+        // the windows are disjoint, so only one of the overlapping windows can contain the interval
+        final Iterator<IntervalTree.Node<Window<CACHED_FEATURE>>> overlappers = contigWindows.overlappers(interval.getStart(), interval.getEnd());
+        while ( overlappers.hasNext() ) {
+            final Window<CACHED_FEATURE> window = overlappers.next().getValue();
+            if ( window.interval.contains(interval) ) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Print statistics about the cache hit rate for debugging
+     */
+    public void printCacheStatistics() {
+        final int totalQueries = getNumCacheHits() + getNumCacheMisses();
+        logger.debug(String.format("Cache hit rate was %.2f%% (%d out of %d total queries, %d windows evicted)",
+                totalQueries > 0 ? ((double)getNumCacheHits() / totalQueries) * 100.0 : 0.0,
+                getNumCacheHits(),
+                totalQueries,
+                getNumEvictedWindows()));
+    }
+
+    /**
+     * The Features overlapping an interval, sorted by start position.
+     */
+    private static final class Window<CACHED_FEATURE extends Feature> {
+        private final SimpleInterval interval;
+        private final List<CACHED_FEATURE> features;
+        private final int[] starts;
+
+        /**
+         * Length of the longest Feature, so that Features overlapping a position can be found from the position
+         * of their start
+         */
+        private final int maxFeatureLength;
+
+        private Window( final SimpleInterval interval, final List<CACHED_FEATURE> features ) {
+            this.interval = interval;
+            this.features = features;
+            starts = new int[features.size()];
+            int maxLength = 0;
+            for ( int i = 0; i < starts.length; i++ ) {
+                final CACHED_FEATURE feature = features.get(i);
+                starts[i] = feature.getStart();
+                maxLength = Math.max(maxLength, feature.getEnd() - feature.getStart());
+            }
+            maxFeatureLength = maxLength;
+        }
+
+        private List<CACHED_FEATURE> getFeaturesOverlapping( final int start, final int end ) {
+            // first Feature that may overlap start: Features starting earlier end before start
+            int index = firstStartAtOrAfter(start - maxFeatureLength);
+            final List<CACHED_FEATURE> overlapping = new ArrayList<>();
+            for ( ; index < starts.length && starts[index] <= end; index++ ) {
+                final CACHED_FEATURE feature = features.get(index);
+                if ( feature.getStart() >= start || feature.getEnd() >= start ) {
+                    overlapping.add(feature);
+                }
+            }
+            return overlapping;
+        }
+
+        private int firstStartAtOrAfter( final int position ) {
+            int low = 0;
+            int high = starts.length;
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( starts[mid] < position ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.iterators.ParallelDecodingReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.nio.SeekableByteChannelPrefetcher;
@@ -78,6 +79,18 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Threads used to decode the reads ahead of the consumer of our iterators, shared by all our iterations,
+     * or null to decode them on the consumer thread.
+     */
+    private final ParallelDecodingReadIterator.DecodingThreads decodingThreads;
+
+    /**
+     * Iterator decoding the reads of the current iteration in the background, if any. It must be closed before
+     * the iterators over our readers.
+     */
+    private ParallelDecodingReadIterator decodingIterator;
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -159,11 +172,32 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
     public ReadsDataSource( final List<Path> samPaths, final List<Path> samIndices,
             SamReaderFactory customSamReaderFactory,
             int cloudPrefetchBuffer, int cloudIndexPrefetchBuffer) {
+        this(samPaths, samIndices, customSamReaderFactory, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, 0);
+    }
+
+    /**
+     * Initialize this data source with multiple SAM/BAM/CRAM files, explicit indices for those files,
+     * a custom SamReaderFactory, and optionally decompress and decode the reads on other threads.
+     *
+     * @param samPaths paths to SAM/BAM/CRAM files, not null
+     * @param samIndices indices for all of the SAM/BAM/CRAM files, in the same order as samPaths. May be null,
+     *                   in which case index paths are inferred automatically.
+     * @param customSamReaderFactory SamReaderFactory to use, if null a default factory with no reference and validation
+     *                               stringency SILENT is used.
+     * @param cloudPrefetchBuffer MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
+     * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
+     * @param readDecodingThreads number of threads used to decode the reads ahead of the consumer (0 to disable).
+     *                            See {@link #ReadsDataSource(List, List, SamReaderFactory, Function, Function, int)}.
+     */
+    public ReadsDataSource( final List<Path> samPaths, final List<Path> samIndices,
+            SamReaderFactory customSamReaderFactory,
+            int cloudPrefetchBuffer, int cloudIndexPrefetchBuffer, int readDecodingThreads) {
         this(samPaths, samIndices, customSamReaderFactory,
             (cloudPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudPrefetchBuffer, is)
                                      : Function.identity()),
             (cloudIndexPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudIndexPrefetchBuffer, is)
-                : Function.identity()));
+                : Function.identity()),
+            readDecodingThreads);
     }
 
     /**
@@ -182,8 +216,37 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         SamReaderFactory customSamReaderFactory,
         Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper,
         Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper) {
+        this(samPaths, samIndices, customSamReaderFactory, cloudWrapper, cloudIndexWrapper, 0);
+    }
+
+    /**
+     * Initialize this data source with multiple SAM/BAM/CRAM files, explicit indices for those files,
+     * a custom SamReaderFactory, and optionally decompress and decode the reads on other threads.
+     *
+     * If readDecodingThreads is positive, BGZF blocks are decompressed ahead of the reader (see
+     * {@link SamReaderFactory#setUseAsyncIo}), and the reads returned by {@link #iterator} and the query methods
+     * are pulled from the files and decoded on background threads (see {@link ParallelDecodingReadIterator}).
+     * The reads, and their order, are the same as without decoding threads.
+     *
+     * @param samPaths paths to SAM/BAM/CRAM files, not null
+     * @param samIndices indices for all of the SAM/BAM/CRAM files, in the same order as samPaths. May be null,
+     *                   in which case index paths are inferred automatically.
+     * @param customSamReaderFactory SamReaderFactory to use, if null a default factory with no reference and validation
+     *                               stringency SILENT is used. Async IO is enabled on this factory if readDecodingThreads
+     *                               is positive.
+     * @param cloudWrapper caching/prefetching wrapper for the data, if on Google Cloud.
+     * @param cloudIndexWrapper caching/prefetching wrapper for the index, if on Google Cloud.
+     * @param readDecodingThreads number of threads used to decode the reads ahead of the consumer (0 to disable).
+     */
+    public ReadsDataSource( final List<Path> samPaths, final List<Path> samIndices,
+        SamReaderFactory customSamReaderFactory,
+        Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper,
+        Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper,
+        final int readDecodingThreads) {
         Utils.nonNull(samPaths);
         Utils.nonEmpty(samPaths, "ReadsDataSource cannot be created from empty file list");
+        Utils.validateArg(readDecodingThreads >= 0, "readDecodingThreads must be >= 0");
+        this.decodingThreads = readDecodingThreads > 0 ? new ParallelDecodingReadIterator.DecodingThreads(readDecodingThreads) : null;
 
         if ( samIndices != null && samPaths.size() != samIndices.size() ) {
             throw new UserException(String.format("Must have the same number of BAM/CRAM/SAM paths and indices. Saw %d BAM/CRAM/SAMs but %d indices",
@@ -198,6 +261,9 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
                 customSamReaderFactory == null ?
                     SamReaderFactory.makeDefault().validationStringency(ReadConstants.DEFAULT_READ_VALIDATION_STRINGENCY) :
                     customSamReaderFactory;
+        if ( readDecodingThreads > 0 ) {
+            samReaderFactory.setUseAsyncIo(true);
+        }
 
         int samCount = 0;
         for ( final Path samPath : samPaths ) {
@@ -421,6 +487,10 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             startingIterator = new MergingSamRecordIterator(headerMerger, readers, true);
         }
 
+        if ( decodingThreads != null ) {
+            decodingIterator = new ParallelDecodingReadIterator(startingIterator, decodingThreads);
+            return decodingIterator;
+        }
         return new SAMRecordToReadIterator(startingIterator);
     }
 
@@ -472,6 +542,9 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
     @Override
     public void close() {
         closePreviousIterationsIfNecessary();
+        if ( decodingThreads != null ) {
+            decodingThreads.close();
+        }
 
         try {
             for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
@@ -487,6 +560,11 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      * Close any previously-opened iterations over our readers (htsjdk allows only one open iteration per reader).
      */
     private void closePreviousIterationsIfNecessary() {
+        // stop the decoding threads first, since they are using the iterators over our readers
+        if ( decodingIterator != null ) {
+            decodingIterator.close();
+            decodingIterator = null;
+        }
         for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
             CloseableIterator<SAMRecord> readerIterator = readerEntry.getValue();
             if ( readerIterator != null ) {
@@ -18,14 +18,15 @@ import java.util.Iterator;
 public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable {
 
     /**
-     * Initialize this data source using a fasta file.
+     * Initialize this data source using a fasta file, or a .2bit file.
      *
-     * The provided fasta file must have companion .fai and .dict files.
+     * The provided fasta file must have companion .fai and .dict files. A .2bit file is memory-mapped
+     * (see {@link ReferenceTwoBitFileSource}), and its .dict file is optional.
      *
-     * @param fastaPath reference fasta Path
+     * @param fastaPath reference fasta or .2bit Path
      */
     public static ReferenceDataSource of(final Path fastaPath) {
-        return new ReferenceFileSource(fastaPath);
+        return ReferenceTwoBitFileSource.isTwoBit(fastaPath) ? new ReferenceTwoBitFileSource(fastaPath) : new ReferenceFileSource(fastaPath);
     }
 
 
@@ -0,0 +1,305 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manages queries over reference data stored in a .2bit file (see https://genome.ucsc.edu/FAQ/FAQformat.html#format7).
+ *
+ * Unlike {@link ReferenceFileSource}, which parses the fasta file through a cache, the packed bases of each contig are
+ * memory-mapped (or, for file systems that don't support mapping, loaded into memory), and queries decode the bases
+ * directly from the packed data into the returned array. Queries don't modify any state, so a single instance can be
+ * shared by several threads.
+ *
+ * As with fasta files, bases are returned in upper case: the soft-masking of the .2bit file is ignored, and the
+ * N blocks are returned as Ns. The sequence dictionary is read from the companion .dict file if there is one,
+ * otherwise it is made from the contig names and lengths in the .2bit file.
+ *
+ * Supports targeted queries over the reference by interval, but does not
+ * yet support complete iteration over the entire reference.
+ */
+public final class ReferenceTwoBitFileSource implements ReferenceDataSource {
+    public static final String TWO_BIT_EXTENSION = ".2bit";
+
+    private static final int TWO_BIT_SIGNATURE = 0x1A412743;
+    private static final int HEADER_LENGTH = 16;
+
+    // bases encoded by the 2 bit values 0 to 3
+    private static final byte[] BASES = {'T', 'C', 'A', 'G'};
+    // the 4 bases packed in each byte value, starting at index 4 * (value & 0xFF)
+    private static final byte[] UNPACKED_BASES = new byte[256 * 4];
+    static {
+        for ( int value = 0; value < 256; value++ ) {
+            for ( int i = 0; i < 4; i++ ) {
+                UNPACKED_BASES[4 * value + i] = BASES[(value >>> (6 - 2 * i)) & 3];
+            }
+        }
+    }
+
+    private final Path twoBitPath;
+    private final Map<String, Contig> contigs;
+    private final SAMSequenceDictionary sequenceDictionary;
+
+    /**
+     * Initialize this data source using a .2bit file.
+     *
+     * @param twoBitPath reference .2bit file
+     */
+    public ReferenceTwoBitFileSource(final Path twoBitPath) {
+        this.twoBitPath = Utils.nonNull(twoBitPath);
+        Utils.validateArg(isTwoBit(twoBitPath), () -> "Not a .2bit file: " + twoBitPath.toUri());
+
+        try ( final SeekableByteChannel channel = Files.newByteChannel(twoBitPath) ) {
+            contigs = readContigs(channel);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(twoBitPath, e.getMessage(), e);
+        }
+        sequenceDictionary = loadSequenceDictionary();
+    }
+
+    /**
+     * @return true if the path has the .2bit extension
+     */
+    public static boolean isTwoBit(final Path path) {
+        return path.getFileName() != null && path.getFileName().toString().endsWith(TWO_BIT_EXTENSION);
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * See the BaseUtils class for guidance on how to work with bases in this format.
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop (included)
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start , final long stop) {
+        final Contig contigData = contigs.get(contig);
+        Utils.validateArg(contigData != null, () -> "Contig " + contig + " not found in reference " + twoBitPath.toUri());
+        Utils.validateArg(start >= 1, () -> String.format("Asking for start %d < 1 on contig %s", start, contig));
+        Utils.validateArg(stop >= start - 1, () -> String.format("Asking for stop<start (%d < %d)", stop, start));
+        Utils.validateArg(stop <= contigData.length, () -> String.format("Asking for stop %d on contig %s but the contig only has %d bases.", stop, contig, contigData.length));
+
+        final byte[] bases = new byte[(int) (stop - start + 1)];
+        contigData.getBases((int) start - 1, bases);
+        return new ReferenceSequence(contig, sequenceDictionary.getSequenceIndex(contig), bases);
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    /**
+     * No-op: the file is closed once the bases are mapped, and the mappings are released when this data source is
+     * garbage collected.
+     */
+    @Override
+    public void close() {}
+
+    private Map<String, Contig> readContigs(final SeekableByteChannel channel) throws IOException {
+        // the signature is written in the byte order of the rest of the file
+        final ByteBuffer header = read(channel, 0, HEADER_LENGTH, ByteOrder.LITTLE_ENDIAN);
+        if ( header.getInt(0) != TWO_BIT_SIGNATURE ) {
+            header.order(ByteOrder.BIG_ENDIAN);
+            if ( header.getInt(0) != TWO_BIT_SIGNATURE ) {
+                throw new UserException.MalformedFile("Invalid .2bit signature in " + twoBitPath.toUri());
+            }
+        }
+        final ByteOrder order = header.order();
+        final int version = header.getInt(4);
+        // version 1 files have 64 bit offsets, for files larger than 4Gb
+        if ( version != 0 && version != 1 ) {
+            throw new UserException.MalformedFile("Unsupported .2bit version " + version + " in " + twoBitPath.toUri());
+        }
+        final int numContigs = header.getInt(8);
+        final int offsetLength = version == 0 ? Integer.BYTES : Long.BYTES;
+
+        final List<String> names = new ArrayList<>(numContigs);
+        final List<Long> offsets = new ArrayList<>(numContigs);
+        long position = HEADER_LENGTH;
+        for ( int i = 0; i < numContigs; i++ ) {
+            final int nameLength = read(channel, position, 1, order).get(0) & 0xFF;
+            final ByteBuffer entry = read(channel, position + 1, nameLength + offsetLength, order);
+            names.add(new String(entry.array(), 0, nameLength, StandardCharsets.US_ASCII));
+            offsets.add(version == 0 ? entry.getInt(nameLength) & 0xFFFFFFFFL : entry.getLong(nameLength));
+            position += 1 + nameLength + offsetLength;
+        }
+
+        final Map<String, Contig> contigs = new LinkedHashMap<>(numContigs * 2);
+        for ( int i = 0; i < numContigs; i++ ) {
+            if ( contigs.put(names.get(i), readContig(channel, offsets.get(i), order)) != null ) {
+                throw new UserException.MalformedFile("Contig " + names.get(i) + " appears more than once in " + twoBitPath.toUri());
+            }
+        }
+        return contigs;
+    }
+
+    private Contig readContig(final SeekableByteChannel channel, final long offset, final ByteOrder order) throws IOException {
+        long position = offset;
+        final ByteBuffer counts = read(channel, position, 2 * Integer.BYTES, order);
+        final int length = counts.getInt(0);
+        final int numNBlocks = counts.getInt(4);
+        position += 2 * Integer.BYTES;
+
+        final ByteBuffer nBlocks = read(channel, position, 2 * Integer.BYTES * numNBlocks, order);
+        final int[] nBlockStarts = new int[numNBlocks];
+        final int[] nBlockEnds = new int[numNBlocks];
+        for ( int i = 0; i < numNBlocks; i++ ) {
+            nBlockStarts[i] = nBlocks.getInt(Integer.BYTES * i);
+            nBlockEnds[i] = nBlockStarts[i] + nBlocks.getInt(Integer.BYTES * (numNBlocks + i));
+        }
+        position += 2 * Integer.BYTES * numNBlocks;
+
+        // skip the soft-masked blocks and the reserved word
+        final int numMaskBlocks = read(channel, position, Integer.BYTES, order).getInt(0);
+        position += Integer.BYTES + 2L * Integer.BYTES * numMaskBlocks + Integer.BYTES;
+
+        final int packedLength = (int) ((length + 3L) / 4);
+        return new Contig(length, nBlockStarts, nBlockEnds, mapPackedBases(channel, position, packedLength));
+    }
+
+    private ByteBuffer mapPackedBases(final SeekableByteChannel channel, final long position, final int length) throws IOException {
+        if ( channel instanceof FileChannel ) {
+            try {
+                return ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, position, length);
+            } catch ( final UnsupportedOperationException e ) {
+                // the file system doesn't support mapping, load the bases instead
+            }
+        }
+        return read(channel, position, length, ByteOrder.BIG_ENDIAN);
+    }
+
+    private ByteBuffer read(final SeekableByteChannel channel, final long position, final int length, final ByteOrder order) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(order);
+        channel.position(position);
+        while ( buffer.hasRemaining() ) {
+            if ( channel.read(buffer) < 0 ) {
+                throw new UserException.MalformedFile("Unexpected end of .2bit file " + twoBitPath.toUri());
+            }
+        }
+        return buffer;
+    }
+
+    private SAMSequenceDictionary loadSequenceDictionary() {
+        final Path dictPath = twoBitPath.resolveSibling(ReferenceUtils.getFastaDictionaryFileName(twoBitPath.getFileName().toString()));
+        if ( ! Files.exists(dictPath) ) {
+            final List<SAMSequenceRecord> records = new ArrayList<>(contigs.size());
+            contigs.forEach((name, contig) -> records.add(new SAMSequenceRecord(name, contig.length)));
+            return new SAMSequenceDictionary(records);
+        }
+
+        final SAMSequenceDictionary dictionary;
+        try ( final InputStream dictStream = Files.newInputStream(dictPath) ) {
+            dictionary = ReferenceUtils.loadFastaDictionary(dictStream);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(dictPath, e.getMessage(), e);
+        }
+        for ( final SAMSequenceRecord record : dictionary.getSequences() ) {
+            final Contig contig = contigs.get(record.getSequenceName());
+            if ( contig == null || contig.length != record.getSequenceLength() ) {
+                throw new UserException.MalformedFile("The sequence dictionary " + dictPath.toUri() + " does not match the contigs of " + twoBitPath.toUri() + " for contig " + record.getSequenceName());
+            }
+        }
+        if ( dictionary.size() != contigs.size() ) {
+            throw new UserException.MalformedFile("The sequence dictionary " + dictPath.toUri() + " does not have all the contigs of " + twoBitPath.toUri());
+        }
+        return dictionary;
+    }
+
+    /**
+     * The packed bases of a contig and the positions of its N blocks. Immutable.
+     */
+    private static final class Contig {
+        private final int length;
+        // 0-based starts and exclusive ends of the N blocks, sorted by start
+        private final int[] nBlockStarts;
+        private final int[] nBlockEnds;
+        // 4 bases per byte, only read with absolute gets so that it can be shared by threads
+        private final ByteBuffer packedBases;
+
+        private Contig(final int length, final int[] nBlockStarts, final int[] nBlockEnds, final ByteBuffer packedBases) {
+            this.length = length;
+            this.nBlockStarts = nBlockStarts;
+            this.nBlockEnds = nBlockEnds;
+            this.packedBases = packedBases;
+        }
+
+        /**
+         * Fills bases with the bases of the contig starting at the 0-based position start.
+         */
+        private void getBases(final int start, final byte[] bases) {
+            final int end = start + bases.length;
+            int position = start;
+            // bases before the first complete byte
+            while ( position < end && (position & 3) != 0 ) {
+                bases[position - start] = getBase(position);
+                position++;
+            }
+            // whole bytes
+            for ( ; position + 4 <= end; position += 4 ) {
+                System.arraycopy(UNPACKED_BASES, 4 * (packedBases.get(position >>> 2) & 0xFF), bases, position - start, 4);
+            }
+            // bases after the last complete byte
+            for ( ; position < end; position++ ) {
+                bases[position - start] = getBase(position);
+            }
+
+            // the first N block that may overlap, since blocks don't overlap each other
+            int block = Arrays.binarySearch(nBlockStarts, start);
+            if ( block < 0 ) {
+                block = Math.max(0, -block - 2);
+            }
+            for ( ; block < nBlockStarts.length && nBlockStarts[block] < end; block++ ) {
+                final int from = Math.max(start, nBlockStarts[block]);
+                final int to = Math.min(end, nBlockEnds[block]);
+                if ( from < to ) {
+                    Arrays.fill(bases, from - start, to - start, (byte) 'N');
+                }
+            }
+        }
+
+        private byte getBase(final int position) {
+            return UNPACKED_BASES[4 * (packedBases.get(position >>> 2) & 0xFF) + (position & 3)];
+        }
+    }
+}
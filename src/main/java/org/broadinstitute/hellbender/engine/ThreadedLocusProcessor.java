@@ -0,0 +1,36 @@
+package org.broadinstitute.hellbender.engine;
+
+/**
+ * Splits the work of a {@link LocusWalker} between a step that processes each locus independently, and may run
+ * concurrently on many threads, and a step that combines the results of that processing in genomic order.
+ *
+ * Returned by {@link LocusWalker#makeThreadedLocusProcessor()} to enable the threaded traversal of a tool
+ * (see {@link LocusWalker#LOCUS_THREADS_LONG_NAME}). Tools that don't care about the order in which loci are
+ * processed can do all their work in {@link #process}, as long as it is thread-safe, and return {@code null}.
+ *
+ * @param <T> type of the result of processing a locus
+ */
+public interface ThreadedLocusProcessor<T> {
+
+    /**
+     * Process a single locus. Called concurrently from several worker threads, so implementations must not modify
+     * any state shared with other loci without synchronization.
+     *
+     * The context and its pileup can only be used until this method returns, as with
+     * {@link LocusWalker#apply(AlignmentContext, ReferenceContext, FeatureContext)}.
+     *
+     * @param alignmentContext current alignment context
+     * @param referenceContext Reference bases spanning the current locus
+     * @param featureContext Features spanning the current locus
+     * @return the result of processing the locus, or {@code null} if there is nothing to pass to {@link #reduce}
+     */
+    T process(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext);
+
+    /**
+     * Combine the result of processing a locus. Called on the traversal thread only, with the non-{@code null}
+     * results of {@link #process} in the genomic order of their loci.
+     *
+     * @param result result of processing a locus, never {@code null}
+     */
+    void reduce(T result);
+}
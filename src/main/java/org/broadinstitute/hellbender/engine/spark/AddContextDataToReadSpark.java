@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.engine.spark;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterators;
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
@@ -16,6 +17,7 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
@@ -60,6 +62,40 @@ public class AddContextDataToReadSpark {
             final JavaRDD<GATKVariant> variants, final List<String> variantsPaths, final JoinStrategy joinStrategy,
             final SAMSequenceDictionary sequenceDictionary,
             final int shardSize, final int shardPadding) {
+        return add(ctx, reads, referenceSource, variants, variantsPaths, joinStrategy, sequenceDictionary, shardSize, shardPadding, null);
+    }
+
+    /**
+     * Add context data ({@link ReadContextData}) to reads. For the SHUFFLE join strategy the reads are shuffled in
+     * their compact encoding (see {@link CompactReadCodec}), and the reads in the result are headerless.
+     * @param ctx the Spark context
+     * @param reads the coordinate-sorted reads
+     * @param referenceSource the reference source
+     * @param variants the coordinate-sorted variants
+     * @param variantsPaths the paths to variants files
+     * @param joinStrategy the strategy to use to join context data to reads
+     * @param header the header for the reads
+     * @param shardSize the maximum size of each shard, in bases (only used for OVERLAPS_PARTITIONER join strategy, use 0 otherwise)
+     * @param shardPadding amount of extra context around each shard, in bases (only used for OVERLAPS_PARTITIONER join strategy, use 0 otherwise)
+     * @return a RDD of read-context pairs, in coordinate-sorted order
+     */
+    public static JavaPairRDD<GATKRead, ReadContextData> add(
+            final JavaSparkContext ctx,
+            final JavaRDD<GATKRead> reads, final ReferenceMultiSource referenceSource,
+            final JavaRDD<GATKVariant> variants, final List<String> variantsPaths, final JoinStrategy joinStrategy,
+            final SAMFileHeader header,
+            final int shardSize, final int shardPadding) {
+        Utils.nonNull(header);
+        final CompactReadCodec readCodec = joinStrategy.equals(JoinStrategy.SHUFFLE) ? new CompactReadCodec(ctx, header) : null;
+        return add(ctx, reads, referenceSource, variants, variantsPaths, joinStrategy, header.getSequenceDictionary(), shardSize, shardPadding, readCodec);
+    }
+
+    private static JavaPairRDD<GATKRead, ReadContextData> add(
+            final JavaSparkContext ctx,
+            final JavaRDD<GATKRead> reads, final ReferenceMultiSource referenceSource,
+            final JavaRDD<GATKVariant> variants, final List<String> variantsPaths, final JoinStrategy joinStrategy,
+            final SAMSequenceDictionary sequenceDictionary,
+            final int shardSize, final int shardPadding, @Nullable final CompactReadCodec readCodec) {
         // TODO: this static method should not be filtering the unmapped reads.  To be addressed in another issue.
         JavaRDD<GATKRead> mappedReads = reads.filter(read -> ReadFilterLibrary.MAPPED.test(read));
         JavaPairRDD<GATKRead, Tuple2<Iterable<GATKVariant>, ReferenceBases>> withVariantsWithRef;
@@ -69,10 +105,14 @@ public class AddContextDataToReadSpark {
             // Join Reads with ReferenceBases
             withVariantsWithRef = BroadcastJoinReadsWithRefBases.addBases(referenceSource, withVariants);
         } else if (joinStrategy.equals(JoinStrategy.SHUFFLE)) {
-            // Join Reads and Variants
-            JavaPairRDD<GATKRead, Iterable<GATKVariant>> withVariants = ShuffleJoinReadsWithVariants.join(mappedReads, variants);
-            // Join Reads with ReferenceBases
-            withVariantsWithRef = ShuffleJoinReadsWithRefBases.addBases(referenceSource, withVariants);
+            // Join Reads and Variants, and then Reads with ReferenceBases, shuffling the reads in their compact encoding if there is a codec
+            if (readCodec == null) {
+                JavaPairRDD<GATKRead, Iterable<GATKVariant>> withVariants = ShuffleJoinReadsWithVariants.join(mappedReads, variants);
+                withVariantsWithRef = ShuffleJoinReadsWithRefBases.addBases(referenceSource, withVariants);
+            } else {
+                JavaPairRDD<GATKRead, Iterable<GATKVariant>> withVariants = ShuffleJoinReadsWithVariants.join(mappedReads, variants, readCodec);
+                withVariantsWithRef = ShuffleJoinReadsWithRefBases.addBases(referenceSource, withVariants, readCodec);
+            }
         } else if (joinStrategy.equals(JoinStrategy.OVERLAPS_PARTITIONER)) {
             return addUsingOverlapsPartitioning(ctx, reads, referenceSource, variants, variantsPaths, sequenceDictionary, shardSize, shardPadding);
         } else {
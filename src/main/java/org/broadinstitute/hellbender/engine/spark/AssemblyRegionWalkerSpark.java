@@ -104,6 +104,12 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     @Argument(doc = "whether to use the shuffle implementation or not", shortName = "shuffle", fullName = "shuffle", optional = true)
     public boolean shuffle = false;
 
+    @Argument(doc = "whether to split high-coverage read shards and spread read shards over partitions by their coverage, " +
+            "estimated in a first pass over the reads. Uses a shuffle, so the shuffle argument is ignored. The reads are not cached, " +
+            "so they are loaded and filtered twice, once for the estimate and once for the shuffle.",
+            shortName = "balanceShardsByCoverage", fullName = "balanceShardsByCoverage", optional = true)
+    public boolean balanceShardsByCoverage = false;
+
     @Override
     public final boolean requiresReads() { return true; }
 
@@ -150,7 +156,12 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
      */
     protected JavaRDD<AssemblyRegionWalkerContext> getAssemblyRegions(JavaSparkContext ctx) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
-        JavaRDD<Shard<GATKRead>> shardedReads = SparkSharder.shard(ctx, getReads(), GATKRead.class, sequenceDictionary, intervalShards, readShardSize, shuffle);
+        // the reads are shuffled in their compact encoding
+        CompactReadCodec readCodec = balanceShardsByCoverage || shuffle ? new CompactReadCodec(ctx, getHeaderForReads()) : null;
+        JavaRDD<Shard<GATKRead>> shardedReads = balanceShardsByCoverage ?
+                SparkSharder.shardReadsBalancedByCoverage(ctx, getReads(), sequenceDictionary, intervalShards, readShardSize,
+                        ShardBalancer.coverageWindowSize(readShardSize, maxAssemblyRegionSize), readCodec) :
+                SparkSharder.shardReads(ctx, getReads(), sequenceDictionary, intervalShards, readShardSize, shuffle, readCodec);
         Broadcast<ReferenceMultiSource> bReferenceSource = hasReference() ? ctx.broadcast(getReference()) : null;
         Broadcast<FeatureManager> bFeatureManager = features == null ? null : ctx.broadcast(features);
         return shardedReads.flatMap(getAssemblyRegionsFunction(bReferenceSource, bFeatureManager, sequenceDictionary, getHeaderForReads(),
@@ -0,0 +1,161 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordDictionarySparkCodec;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.broadcast.Broadcast;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import scala.Tuple2;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes GATKReads as compact byte arrays for Spark shuffles, using {@link SAMRecordDictionarySparkCodec}.
+ *
+ * Unlike {@link SAMRecordToGATKReadAdapterSerializer}, which has no header and so writes the reference names of
+ * every record as strings, this codec broadcasts the header once. Each record then carries varint codes for its
+ * contigs and read group, and varints for its other fixed-width fields. The codec is captured in the closures on
+ * both sides of a shuffle, so it works the same in local and cluster mode.
+ *
+ * Shuffle blocks are also compressed as a whole by Spark, with the codec set by spark.io.compression.codec
+ * (for example lz4 or zstd, passed with --conf).
+ */
+public final class CompactReadCodec implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final Broadcast<SAMFileHeader> headerBroadcast;
+
+    // created lazily in each task, since they are neither serializable nor thread-safe
+    private transient SAMRecordDictionarySparkCodec codec;
+    private transient Output output;
+
+    /**
+     * @param ctx the context used to broadcast the header
+     * @param header header for the reads to encode; its sequence dictionary and read groups make up the codes
+     */
+    public CompactReadCodec(final JavaSparkContext ctx, final SAMFileHeader header) {
+        Utils.nonNull(ctx);
+        Utils.nonNull(header);
+        this.headerBroadcast = ctx.broadcast(header);
+    }
+
+    /**
+     * Encodes a read. Reads that are not backed by a SAMRecord are converted to one first.
+     */
+    public byte[] encode(final GATKRead read) {
+        Utils.nonNull(read);
+        final SAMRecord record = read instanceof SAMRecordToGATKReadAdapter ?
+                ((SAMRecordToGATKReadAdapter) read).getEncapsulatedSamRecord() : read.convertToSAMRecord(headerBroadcast.getValue());
+        if (output == null) {
+            output = new Output(INITIAL_BUFFER_SIZE, -1);
+        }
+        output.clear();
+        getCodec().encode(record, output);
+        return output.toBytes();
+    }
+
+    /**
+     * Decodes a read encoded by {@link #encode}.
+     * @return a headerless read
+     */
+    public GATKRead decode(final byte[] encodedRead) {
+        Utils.nonNull(encodedRead);
+        return SAMRecordToGATKReadAdapter.headerlessReadAdapter(getCodec().decode(new Input(encodedRead)));
+    }
+
+    /**
+     * Encodes every read of an RDD, for example to persist the reads in their compact encoding.
+     */
+    public JavaRDD<byte[]> encodeReads(final JavaRDD<GATKRead> reads) {
+        return reads.map(read -> encode(read));
+    }
+
+    /**
+     * Decodes every read of an RDD made by {@link #encodeReads}.
+     * @return headerless reads
+     */
+    public JavaRDD<GATKRead> decodeReads(final JavaRDD<byte[]> encodedReads) {
+        return encodedReads.map(encodedRead -> decode(encodedRead));
+    }
+
+    /**
+     * Like <code>groupByKey</code>, but shuffles the reads in their compact encoding.
+     * @param keyedReads the reads to group
+     * @param numPartitions number of partitions of the grouped RDD
+     * @param <K> type of keys
+     * @return an RDD where the reads for each key are grouped into a list
+     */
+    public <K> JavaPairRDD<K, Iterable<GATKRead>> groupByKey(final JavaPairRDD<K, GATKRead> keyedReads, final int numPartitions) {
+        return keyedReads.mapValues(this::encode).groupByKey(numPartitions).mapValues(this::decodeAll);
+    }
+
+    /**
+     * Like <code>aggregateByKey</code> on an RDD keyed by read, but shuffles the reads in their compact encoding.
+     * Reads are equal as keys if their encodings are equal.
+     * @param readKeyed the values to aggregate, keyed by read
+     * @param zeroValue initial value of the aggregate for each read
+     * @param seqFunc function to add a value to an aggregate
+     * @param combFunc function to merge two aggregates
+     * @param <V> type of values
+     * @param <U> type of aggregates
+     * @return an RDD of the aggregate for each distinct read, with headerless reads
+     */
+    public <V, U> JavaPairRDD<GATKRead, U> aggregateByKey(final JavaPairRDD<GATKRead, V> readKeyed, final U zeroValue,
+                                                          final Function2<U, V, U> seqFunc, final Function2<U, U, U> combFunc) {
+        return readKeyed.mapToPair(pair -> new Tuple2<>(new EncodedRead(encode(pair._1())), pair._2()))
+                .aggregateByKey(zeroValue, seqFunc, combFunc)
+                .mapToPair(pair -> new Tuple2<>(decode(pair._1().bytes), pair._2()));
+    }
+
+    private Iterable<GATKRead> decodeAll(final Iterable<byte[]> encodedReads) {
+        // decode eagerly, so that callers may iterate over and modify the same reads more than once
+        final List<GATKRead> reads = new ArrayList<>();
+        for (final byte[] encodedRead : encodedReads) {
+            reads.add(decode(encodedRead));
+        }
+        return reads;
+    }
+
+    private SAMRecordDictionarySparkCodec getCodec() {
+        if (codec == null) {
+            codec = new SAMRecordDictionarySparkCodec(headerBroadcast.getValue());
+        }
+        return codec;
+    }
+
+    /**
+     * An encoded read, with value equality so that it can be used as a shuffle key.
+     */
+    static final class EncodedRead implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+
+        EncodedRead(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return this == o || (o instanceof EncodedRead && Arrays.equals(bytes, ((EncodedRead) o).bytes));
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bytes);
+        }
+    }
+}
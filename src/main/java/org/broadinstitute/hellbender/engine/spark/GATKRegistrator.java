@@ -7,6 +7,8 @@ import htsjdk.samtools.*;
 import org.apache.spark.serializer.KryoRegistrator;
 import org.bdgenomics.adam.serialization.ADAMKryoRegistrator;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.broadinstitute.hellbender.utils.read.markduplicates.CompactReadEnd;
+import org.broadinstitute.hellbender.utils.read.markduplicates.DuplicateCandidate;
 import org.broadinstitute.hellbender.utils.read.markduplicates.PairedEnds;
 
 import java.util.Collections;
@@ -80,5 +82,8 @@ public class GATKRegistrator implements KryoRegistrator {
 
         //register to avoid writing the full name of this class over and over
         kryo.register(PairedEnds.class, new FieldSerializer<>(kryo, PairedEnds.class));
+        kryo.register(CompactReadEnd.class, new FieldSerializer<>(kryo, CompactReadEnd.class));
+        kryo.register(DuplicateCandidate.class, new FieldSerializer<>(kryo, DuplicateCandidate.class));
+        kryo.register(CompactReadCodec.EncodedRead.class, new FieldSerializer<>(kryo, CompactReadCodec.EncodedRead.class));
     }
 }
@@ -0,0 +1,184 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.Locatable;
+import org.apache.spark.api.java.JavaRDD;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Utility methods for spreading the work for a list of {@link ShardBoundary} evenly over Spark partitions, so that
+ * high-coverage regions (such as centromeric pile-ups or amplicons) don't end up as straggler tasks.
+ *
+ * The cost of a region is estimated from the number of reads starting in it, counted over fixed-size windows in a
+ * cheap first pass over the reads. Shards that are too costly are split at window boundaries, and the shards are
+ * then packed into contiguous runs of roughly equal total cost, one run per partition.
+ */
+public final class ShardBalancer {
+
+    /**
+     * Costly shards are split so that each piece costs at most this fraction of the cost of a partition, which bounds
+     * how far from even the packing of shards into partitions can be.
+     */
+    static final int PIECES_PER_PARTITION = 4;
+
+    /**
+     * Added to the cost of every shard, to account for the work done for a shard regardless of its reads.
+     */
+    static final double COST_PER_SHARD = 1.0;
+
+    private ShardBalancer() {}
+
+    /**
+     * @return the window size to estimate coverage over for read shards of the given size: a tenth of the shard size,
+     * but no less than the maximum assembly region size, so that split shards still hold whole assembly regions
+     */
+    public static int coverageWindowSize(final int readShardSize, final int maxAssemblyRegionSize) {
+        return Math.max(1, Math.max(readShardSize / 10, maxAssemblyRegionSize));
+    }
+
+    /**
+     * Count the locatables starting in each window of <code>windowSize</code> bases. Unmapped locatables, and those
+     * on contigs not in the dictionary, are not counted. Only windows with locatables are counted, and the counts are
+     * merged with <code>reduceByKey</code>, so neither the executors nor the driver hold a count for every window of
+     * the genome.
+     * @return the non-zero counts for each contig with any locatables, keyed by window (window <code>i</code> starts
+     * at base <code>i * windowSize + 1</code>)
+     */
+    public static <L extends Locatable> Map<String, NavigableMap<Integer, Integer>> countStartsPerWindow(final JavaRDD<L> locatables, final SAMSequenceDictionary sequenceDictionary,
+                                                                                                        final int windowSize) {
+        Utils.validateArg(windowSize > 0, "windowSize must be positive");
+        final List<Tuple2<Tuple2<String, Integer>, Integer>> windowCounts = locatables
+                .filter(locatable -> locatable.getContig() != null && sequenceDictionary.getSequence(locatable.getContig()) != null)
+                .mapToPair(locatable -> {
+                    // starts past the end of the contig are counted in its last window
+                    final int lastWindow = windowIndex(sequenceDictionary.getSequence(locatable.getContig()).getSequenceLength(), windowSize);
+                    return new Tuple2<>(new Tuple2<>(locatable.getContig(), Math.min(windowIndex(locatable.getStart(), windowSize), lastWindow)), 1);
+                })
+                .reduceByKey(Integer::sum)
+                .collect();
+
+        final Map<String, NavigableMap<Integer, Integer>> counts = new HashMap<>();
+        for (final Tuple2<Tuple2<String, Integer>, Integer> windowCount : windowCounts) {
+            counts.computeIfAbsent(windowCount._1()._1(), contig -> new TreeMap<>()).put(windowCount._1()._2(), windowCount._2());
+        }
+        return counts;
+    }
+
+    private static int windowIndex(final int position, final int windowSize) {
+        return Math.max(0, position - 1) / windowSize;
+    }
+
+    /**
+     * Estimate the cost of an interval, counting the reads starting in windows that only partly overlap the
+     * interval in proportion to the overlap.
+     */
+    static double cost(final Locatable interval, final Map<String, NavigableMap<Integer, Integer>> counts, final int windowSize) {
+        final NavigableMap<Integer, Integer> contigCounts = counts.get(interval.getContig());
+        double cost = COST_PER_SHARD;
+        if (contigCounts == null) {
+            return cost;
+        }
+        for (final Map.Entry<Integer, Integer> windowCount : contigCounts.subMap(windowIndex(interval.getStart(), windowSize), true,
+                windowIndex(interval.getEnd(), windowSize), true).entrySet()) {
+            final int windowStart = windowCount.getKey() * windowSize + 1;
+            final int windowEnd = windowStart + windowSize - 1;
+            final int overlap = Math.min(windowEnd, interval.getEnd()) - Math.max(windowStart, interval.getStart()) + 1;
+            cost += windowCount.getValue() * (double) overlap / windowSize;
+        }
+        return cost;
+    }
+
+    /**
+     * Split each shard that costs more than <code>maxCost</code> at window boundaries, into pieces that each cost at
+     * most <code>maxCost</code> (or that are a single window). The pieces keep the padding of the original shard.
+     * @param shards the shards to split, in order
+     * @return the shards, with costly ones replaced by their pieces, in order
+     */
+    public static List<ShardBoundary> splitCostlyShards(final List<ShardBoundary> shards, final Map<String, NavigableMap<Integer, Integer>> counts, final int windowSize,
+                                                        final double maxCost, final SAMSequenceDictionary sequenceDictionary) {
+        final List<ShardBoundary> result = new ArrayList<>();
+        for (final ShardBoundary shard : shards) {
+            final SimpleInterval interval = shard.getInterval();
+            if (cost(interval, counts, windowSize) <= maxCost || interval.size() <= windowSize) {
+                result.add(shard);
+                continue;
+            }
+            final SimpleInterval paddedInterval = shard.getPaddedInterval();
+            final int padding = Math.max(interval.getStart() - paddedInterval.getStart(), paddedInterval.getEnd() - interval.getEnd());
+            int pieceStart = interval.getStart();
+            while (pieceStart <= interval.getEnd()) {
+                // extend the piece a window at a time, always taking at least the first window
+                int pieceEnd = Math.min((windowIndex(pieceStart, windowSize) + 1) * windowSize, interval.getEnd());
+                while (pieceEnd < interval.getEnd()) {
+                    final int nextEnd = Math.min(pieceEnd + windowSize, interval.getEnd());
+                    if (cost(new SimpleInterval(interval.getContig(), pieceStart, nextEnd), counts, windowSize) > maxCost) {
+                        break;
+                    }
+                    pieceEnd = nextEnd;
+                }
+                final SimpleInterval piece = new SimpleInterval(interval.getContig(), pieceStart, pieceEnd);
+                result.add(new ShardBoundary(piece, piece.expandWithinContig(padding, sequenceDictionary)));
+                pieceStart = pieceEnd + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pack shards into <code>numPartitions</code> contiguous runs of roughly equal cost. Each shard goes to the
+     * partition that the midpoint of its cost falls in, when the total cost is divided evenly between partitions.
+     * @param shards the shards to pack, in order
+     * @return a list of <code>numPartitions</code> lists of shards (some possibly empty), in order
+     */
+    public static List<List<ShardBoundary>> partitionByCost(final List<ShardBoundary> shards, final Map<String, NavigableMap<Integer, Integer>> counts, final int windowSize,
+                                                            final int numPartitions) {
+        Utils.validateArg(numPartitions > 0, "numPartitions must be positive");
+        final double[] costs = shards.stream().mapToDouble(shard -> cost(shard.getInterval(), counts, windowSize)).toArray();
+        final double costPerPartition = Math.max(Double.MIN_VALUE, Arrays.stream(costs).sum() / numPartitions);
+
+        final List<List<ShardBoundary>> shardsPerPartition = new ArrayList<>();
+        for (int i = 0; i < numPartitions; i++) {
+            shardsPerPartition.add(new ArrayList<>());
+        }
+        double cumulativeCost = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            final int partition = Math.min(numPartitions - 1, (int) ((cumulativeCost + costs[i] / 2) / costPerPartition));
+            shardsPerPartition.get(partition).add(shards.get(i));
+            cumulativeCost += costs[i];
+        }
+        return shardsPerPartition;
+    }
+
+    /**
+     * The total cost of all the reads counted, used to find the cost of a partition.
+     */
+    public static double totalReadCost(final Map<String, NavigableMap<Integer, Integer>> counts) {
+        long total = 0;
+        for (final NavigableMap<Integer, Integer> contigCounts : counts.values()) {
+            for (final int count : contigCounts.values()) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Find the maximum cost of a shard so that costly shards are split finely enough to be spread over
+     * <code>numPartitions</code> partitions.
+     */
+    public static double maxShardCost(final Map<String, NavigableMap<Integer, Integer>> counts, final int numPartitions) {
+        return Math.max(COST_PER_SHARD, totalReadCost(counts) / ((double) numPartitions * PIECES_PER_PARTITION));
+    }
+}
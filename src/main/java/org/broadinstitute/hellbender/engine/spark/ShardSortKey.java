@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import org.apache.spark.Partitioner;
+import org.broadinstitute.hellbender.engine.ReferenceShard;
+import org.broadinstitute.hellbender.engine.VariantShard;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+
+/**
+ * Shuffle key for sort-merge joins of records keyed by {@link ReferenceShard} or {@link VariantShard}.
+ *
+ * Keys are partitioned by shard with {@link ShardPartitioner}, and sort by shard and then start position, so after
+ * <code>repartitionAndSortWithinPartitions</code> each shard's records are adjacent and in start order. Each shard
+ * can then be consumed as a sorted stream, rather than being collected into an <code>Iterable</code> by
+ * <code>groupByKey</code> or <code>cogroup</code>.
+ */
+final class ShardSortKey implements Comparable<ShardSortKey>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String contig;
+    private final int shardNumber;
+    private final int start;
+
+    private ShardSortKey(final String contig, final int shardNumber, final int start) {
+        this.contig = Utils.nonNull(contig);
+        this.shardNumber = shardNumber;
+        this.start = start;
+    }
+
+    public static ShardSortKey of(final ReferenceShard shard, final int start) {
+        return new ShardSortKey(shard.getContig(), shard.getShardNumber(), start);
+    }
+
+    public static ShardSortKey of(final VariantShard shard, final int start) {
+        return new ShardSortKey(shard.getContig(), shard.getShardNumber(), start);
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return true if both keys are for the same shard, regardless of their start positions
+     */
+    public boolean isSameShard(final ShardSortKey other) {
+        return shardNumber == other.shardNumber && contig.equals(other.contig);
+    }
+
+    private int shardHashCode() {
+        //using a 4 digit prime because we found empirically that 31 ended up with badly dispersed values in spark
+        return 5779 * shardNumber + contig.hashCode();
+    }
+
+    @Override
+    public int compareTo(final ShardSortKey o) {
+        int cmp = contig.compareTo(o.contig);
+        if (cmp != 0) {
+            return cmp;
+        }
+        cmp = Integer.compare(shardNumber, o.shardNumber);
+        return cmp != 0 ? cmp : Integer.compare(start, o.start);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ShardSortKey that = (ShardSortKey) o;
+
+        return shardNumber == that.shardNumber && start == that.start && contig.equals(that.contig);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * shardHashCode() + start;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardSortKey{" +
+                "contig='" + contig + '\'' +
+                ", shardNumber=" + shardNumber +
+                ", start=" + start +
+                '}';
+    }
+
+    /**
+     * Partitions {@link ShardSortKey}s by shard only, so that all the records for a shard end up in the same partition.
+     */
+    static final class ShardPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+
+        private final int numPartitions;
+
+        public ShardPartitioner(final int numPartitions) {
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(final Object key) {
+            return Math.floorMod(((ShardSortKey) key).shardHashCode(), numPartitions);
+        }
+    }
+}
@@ -1,20 +1,25 @@
 package org.broadinstitute.hellbender.engine.spark;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.SerializableFunction;
-import com.google.common.collect.Lists;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.broadinstitute.hellbender.engine.ReferenceShard;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
-import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 import scala.Tuple2;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * RefBasesForReads queries the Google Genomics API for reference bases overlapping all of the reads.
@@ -24,7 +29,7 @@ import java.util.stream.Collectors;
  * |--------- shard 0 ----------|---------- shard 1 ----------|--------- shard 2 ----------|--------- shard 3 ----------|
  *           |------ read a -----|                             |-- read b --|   |---- read c ----|
  *
- * step 2: group reads by the shard they start in
+ * step 2: sort reads by the shard they start in, and then by start, so each shard's reads are streamed in order
  *
  *  |--------- shard 0 ----------|
  *            |------ read a -----|
@@ -33,7 +38,8 @@ import java.util.stream.Collectors;
  *  |--------- shard 2 ----------|
  *   |-- read b --|   |---- read c ----|
  *
- *  step 3: query the Google Genomics API for all bases needed for each shard
+ *  step 3: query the Google Genomics API for all bases needed for each shard (or for each run of
+ *  {@link #READS_PER_REFERENCE_QUERY} reads within a shard, so a shard's reads are never all held in memory)
  *
 
  * |--- ref bases 1 ---|        |--------- ref bases 2 -----------|
@@ -54,6 +60,11 @@ import java.util.stream.Collectors;
  */
 public final class ShuffleJoinReadsWithRefBases {
 
+    /**
+     * Maximum number of reads from a single shard to fetch reference bases for at once.
+     */
+    static final int READS_PER_REFERENCE_QUERY = 1000;
+
     /**
      * Joins each read of an RDD<GATKRead> with that read's corresponding reference sequence.
      *
@@ -63,32 +74,8 @@ public final class ShuffleJoinReadsWithRefBases {
      */
     public static JavaPairRDD<GATKRead, ReferenceBases> addBases(final ReferenceMultiSource referenceDataflowSource,
                                                                  final JavaRDD<GATKRead> reads) {
-        // TODO: reimpl this method by calling out to the more complex version?
-        SerializableFunction<GATKRead, SimpleInterval> windowFunction = referenceDataflowSource.getReferenceWindowFunction();
-
-        JavaPairRDD<ReferenceShard, GATKRead> shardRead = reads.mapToPair(gatkRead -> {
-            ReferenceShard shard = ReferenceShard.getShardNumberFromInterval(windowFunction.apply(gatkRead));
-            return new Tuple2<>(shard, gatkRead);
-        });
-
-        JavaPairRDD<ReferenceShard, Iterable<GATKRead>> shardiRead = shardRead.groupByKey();
-
-        return shardiRead.flatMapToPair(in -> {
-            List<Tuple2<GATKRead, ReferenceBases>> out = Lists.newArrayList();
-            Iterable<GATKRead> iReads = in._2();
-
-            // Apply the reference window function to each read to produce a set of intervals representing
-            // the desired reference bases for each read.
-            final List<SimpleInterval> readWindows = Utils.stream(iReads).map(read -> windowFunction.apply(read)).collect(Collectors.toList());
-
-            SimpleInterval interval = IntervalUtils.getSpanningInterval(readWindows);
-            ReferenceBases bases = referenceDataflowSource.getReferenceBases(interval);
-            for (GATKRead r : iReads) {
-                final ReferenceBases subset = bases.getSubset(windowFunction.apply(r));
-                out.add(new Tuple2<>(r, subset));
-            }
-            return out.iterator();
-        });
+        return addBases(referenceDataflowSource, reads.mapToPair(read -> new Tuple2<>(read, (Void) null)))
+                .mapToPair(pair -> new Tuple2<>(pair._1(), pair._2()._2()));
     }
 
     /**
@@ -100,31 +87,90 @@ public final class ShuffleJoinReadsWithRefBases {
      */
     public static <T> JavaPairRDD<GATKRead, Tuple2<T, ReferenceBases>> addBases(final ReferenceMultiSource referenceDataflowSource,
                                                                                 final JavaPairRDD<GATKRead, T> keyedByRead) {
+        return ShuffleJoinReadsWithRefBases.<T, GATKRead>addBases(referenceDataflowSource, keyedByRead, read -> read, read -> read);
+    }
+
+    /**
+     * Joins each read of an RDD<GATKRead, T> with key's corresponding reference sequence, shuffling the reads in
+     * their compact encoding.
+     *
+     * @param referenceDataflowSource The source of the reference sequence information
+     * @param keyedByRead The read-keyed RDD for which to extract reference sequence information
+     * @param readCodec The codec to encode the reads with for the shuffle
+     * @return The JavaPairRDD that contains each (headerless) read along with the corresponding ReferenceBases object and the value
+     */
+    public static <T> JavaPairRDD<GATKRead, Tuple2<T, ReferenceBases>> addBases(final ReferenceMultiSource referenceDataflowSource,
+                                                                                final JavaPairRDD<GATKRead, T> keyedByRead,
+                                                                                final CompactReadCodec readCodec) {
+        return addBases(referenceDataflowSource, keyedByRead, readCodec::encode, readCodec::decode);
+    }
+
+    private static <T, R> JavaPairRDD<GATKRead, Tuple2<T, ReferenceBases>> addBases(final ReferenceMultiSource referenceDataflowSource,
+                                                                                   final JavaPairRDD<GATKRead, T> keyedByRead,
+                                                                                   final SerializableFunction<GATKRead, R> encode,
+                                                                                   final SerializableFunction<R, GATKRead> decode) {
         SerializableFunction<GATKRead, SimpleInterval> windowFunction = referenceDataflowSource.getReferenceWindowFunction();
 
-        JavaPairRDD<ReferenceShard, Tuple2<GATKRead, T>> shardRead = keyedByRead.mapToPair(pair -> {
-            ReferenceShard shard = ReferenceShard.getShardNumberFromInterval(windowFunction.apply(pair._1()));
-            return new Tuple2<>(shard, pair);
+        JavaPairRDD<ShardSortKey, Tuple2<R, T>> shardRead = keyedByRead.mapToPair(pair -> {
+            SimpleInterval window = windowFunction.apply(pair._1());
+            return new Tuple2<>(ShardSortKey.of(ReferenceShard.getShardNumberFromInterval(window), window.getStart()),
+                    new Tuple2<>(encode.apply(pair._1()), pair._2()));
         });
 
-        JavaPairRDD<ReferenceShard, Iterable<Tuple2<GATKRead, T>>> shardiRead = shardRead.groupByKey();
-
-        return shardiRead.flatMapToPair(in -> {
-            List<Tuple2<GATKRead, Tuple2<T, ReferenceBases>>> out = Lists.newArrayList();
-            Iterable<Tuple2<GATKRead, T>> iReads = in._2();
+        return shardRead.repartitionAndSortWithinPartitions(new ShardSortKey.ShardPartitioner(keyedByRead.getNumPartitions()))
+                .mapPartitionsToPair(sortedReads -> addBasesToSortedReads(referenceDataflowSource, windowFunction,
+                        Iterators.<Tuple2<ShardSortKey, Tuple2<R, T>>, Tuple2<ShardSortKey, Tuple2<GATKRead, T>>>transform(sortedReads,
+                                sorted -> new Tuple2<>(sorted._1(), new Tuple2<>(decode.apply(sorted._2()._1()), sorted._2()._2())))));
+    }
 
-            // Apply the reference window function to each read to produce a set of intervals representing
-            // the desired reference bases for each read.
-            final List<SimpleInterval> readWindows = Utils.stream(iReads).map(pair -> windowFunction.apply(pair._1())).collect(Collectors.toList());
+    /**
+     * Pairs reads sorted by shard and start with their reference bases, querying the reference once for each run of
+     * up to {@link #READS_PER_REFERENCE_QUERY} reads in the same shard.
+     */
+    private static <T> Iterator<Tuple2<GATKRead, Tuple2<T, ReferenceBases>>> addBasesToSortedReads(final ReferenceMultiSource referenceDataflowSource,
+                                                                                                final SerializableFunction<GATKRead, SimpleInterval> windowFunction,
+                                                                                                final Iterator<Tuple2<ShardSortKey, Tuple2<GATKRead, T>>> sortedReads) {
+        final PeekingIterator<Tuple2<ShardSortKey, Tuple2<GATKRead, T>>> peekingReads = Iterators.peekingIterator(sortedReads);
+        return new AbstractIterator<Tuple2<GATKRead, Tuple2<T, ReferenceBases>>>() {
+            private Iterator<Tuple2<GATKRead, Tuple2<T, ReferenceBases>>> batch = Collections.emptyIterator();
+
+            @Override
+            protected Tuple2<GATKRead, Tuple2<T, ReferenceBases>> computeNext() {
+                if (!batch.hasNext()) {
+                    if (!peekingReads.hasNext()) {
+                        return endOfData();
+                    }
+                    batch = nextBatch();
+                }
+                return batch.next();
+            }
 
-            SimpleInterval interval = IntervalUtils.getSpanningInterval(readWindows);
-            // TODO: don't we need to support GCS PipelineOptions?
-            ReferenceBases bases = referenceDataflowSource.getReferenceBases(interval);
-            for (Tuple2<GATKRead, T> p : iReads) {
-                final ReferenceBases subset = bases.getSubset(windowFunction.apply(p._1()));
-                out.add(new Tuple2<>(p._1(), new Tuple2<>(p._2(), subset)));
+            private Iterator<Tuple2<GATKRead, Tuple2<T, ReferenceBases>>> nextBatch() {
+                final ShardSortKey shard = peekingReads.peek()._1();
+                final List<Tuple2<GATKRead, T>> reads = new ArrayList<>();
+                // Apply the reference window function to each read to produce a set of intervals representing
+                // the desired reference bases for each read.
+                final List<SimpleInterval> readWindows = new ArrayList<>();
+                while (peekingReads.hasNext() && reads.size() < READS_PER_REFERENCE_QUERY && peekingReads.peek()._1().isSameShard(shard)) {
+                    final Tuple2<GATKRead, T> pair = peekingReads.next()._2();
+                    reads.add(pair);
+                    readWindows.add(windowFunction.apply(pair._1()));
+                }
+
+                final SimpleInterval interval = IntervalUtils.getSpanningInterval(readWindows);
+                final ReferenceBases bases;
+                try {
+                    bases = referenceDataflowSource.getReferenceBases(interval);
+                } catch (IOException e) {
+                    throw new GATKException("Failed to get reference bases for " + interval, e);
+                }
+                final List<Tuple2<GATKRead, Tuple2<T, ReferenceBases>>> out = new ArrayList<>(reads.size());
+                for (int i = 0; i < reads.size(); i++) {
+                    final Tuple2<GATKRead, T> p = reads.get(i);
+                    out.add(new Tuple2<>(p._1(), new Tuple2<>(p._2(), bases.getSubset(readWindows.get(i)))));
+                }
+                return out.iterator();
             }
-            return out.iterator();
-        });
+        };
     }
 }
@@ -1,14 +1,22 @@
 package org.broadinstitute.hellbender.engine.spark;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.broadinstitute.hellbender.engine.VariantShard;
+import org.broadinstitute.hellbender.utils.SerializableFunction;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.variant.GATKVariant;
 import scala.Tuple2;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -28,7 +36,7 @@ import java.util.Set;
  *     |---------- read a ---------|               |----- read b ------|
  *   |- variant 1 -|    |- variant 2 -|               |- variant 3 -|
  *
- * step 2: shard read and variant by variant shard
+ * step 2: shard read and variant by variant shard, sorting each shard's reads and variants by start
  *                      |---- shard 0 -----|
  *                          |---------- read a ---------|
  *                        |- variant 1 -|
@@ -47,7 +55,8 @@ import java.util.Set;
  *             |----- read b ------|
  *                |- variant 3 -|
  *
- * step 3: pair reads and variants
+ * step 3: pair reads and variants, sweeping through each shard's sorted reads and variants together, so that only
+ * reads waiting for variants that may still overlap them, and variants that may still overlap a read, are held in memory
  * Tuple2<read a, variant 1> // from shard 0
  * Tuple2<read a, variant 2> // from shard 1
  * Tuple2<read b, variant 3> // from shard 2
@@ -61,72 +70,149 @@ public class ShuffleJoinReadsWithVariants {
     public static JavaPairRDD<GATKRead, Iterable<GATKVariant>> join(
             final JavaRDD<GATKRead> reads, final JavaRDD<GATKVariant> variants) {
 
-        JavaPairRDD<VariantShard, GATKRead> readsWShards = pairReadsWithVariantShards(reads);
+        JavaPairRDD<ShardSortKey, GATKRead> readsWShards = pairReadsWithVariantShards(reads, read -> read);
 
-        JavaPairRDD<VariantShard, GATKVariant> variantsWShards = pairVariantsWithVariantShards(variants);
+        JavaPairRDD<ShardSortKey, GATKVariant> variantsWShards = pairVariantsWithVariantShards(variants);
 
         // generate read-variant pairs; however, the reads are replicated for each overlapping pair
-        JavaPairRDD<GATKRead, GATKVariant> allPairs = pairReadsWithVariants(readsWShards, variantsWShards);
+        JavaPairRDD<GATKRead, GATKVariant> allPairs = pairReadsWithVariants(readsWShards, variantsWShards, read -> read);
 
         // we group together all variants for each unique GATKRead.  As we combine through the Variants, they are added
         // to a HashSet that get continually merged together
-        return allPairs.aggregateByKey(new LinkedHashSet<>(), (vs, v) -> {
-            if (v != null) { // pairReadsWithVariants can produce null variant
-                ((Set<GATKVariant>) vs).add(v);
-            }
-            return vs;
-        }, (vs1, vs2) -> {
-            ((Set<GATKVariant>) vs1).addAll((Set<GATKVariant>) vs2);
-            return vs1;
-        });
+        return allPairs.aggregateByKey(new LinkedHashSet<>(), ShuffleJoinReadsWithVariants::addVariant, ShuffleJoinReadsWithVariants::mergeVariants);
+    }
+
+    /**
+     * Like {@link #join(JavaRDD, JavaRDD)}, but shuffles the reads in their compact encoding.
+     * @param readCodec the codec to encode the reads with for the shuffles
+     * @return an RDD of each (headerless) read paired with the variants that overlap it
+     */
+    public static JavaPairRDD<GATKRead, Iterable<GATKVariant>> join(
+            final JavaRDD<GATKRead> reads, final JavaRDD<GATKVariant> variants, final CompactReadCodec readCodec) {
+
+        // encode each read once, before it is replicated for each variant shard it overlaps
+        JavaPairRDD<ShardSortKey, byte[]> readsWShards = pairReadsWithVariantShards(reads, readCodec::encode);
+
+        JavaPairRDD<ShardSortKey, GATKVariant> variantsWShards = pairVariantsWithVariantShards(variants);
+
+        JavaPairRDD<GATKRead, GATKVariant> allPairs = pairReadsWithVariants(readsWShards, variantsWShards, readCodec::decode);
+
+        return readCodec.aggregateByKey(allPairs, new LinkedHashSet<>(), ShuffleJoinReadsWithVariants::addVariant, ShuffleJoinReadsWithVariants::mergeVariants);
+    }
+
+    private static Iterable<GATKVariant> addVariant(final Iterable<GATKVariant> vs, final GATKVariant v) {
+        if (v != null) { // pairReadsWithVariants can produce null variant
+            ((Set<GATKVariant>) vs).add(v);
+        }
+        return vs;
+    }
+
+    private static Iterable<GATKVariant> mergeVariants(final Iterable<GATKVariant> vs1, final Iterable<GATKVariant> vs2) {
+        ((Set<GATKVariant>) vs1).addAll((Set<GATKVariant>) vs2);
+        return vs1;
     }
 
-    private static JavaPairRDD<VariantShard, GATKRead> pairReadsWithVariantShards(final JavaRDD<GATKRead> reads) {
+    private static <R> JavaPairRDD<ShardSortKey, R> pairReadsWithVariantShards(final JavaRDD<GATKRead> reads,
+                                                                               final SerializableFunction<GATKRead, R> encode) {
         return reads.flatMapToPair(gatkRead -> {
             List<VariantShard> shards = VariantShard.getVariantShardsFromInterval(gatkRead);
-            List<Tuple2<VariantShard, GATKRead>> out = Lists.newArrayList();
+            R encodedRead = encode.apply(gatkRead);
+            List<Tuple2<ShardSortKey, R>> out = Lists.newArrayList();
             for (VariantShard shard : shards) {
-                out.add(new Tuple2<>(shard, gatkRead));
+                out.add(new Tuple2<>(ShardSortKey.of(shard, gatkRead.getStart()), encodedRead));
             }
             return out.iterator();
         });
     }
 
-    private static JavaPairRDD<VariantShard, GATKVariant> pairVariantsWithVariantShards(final JavaRDD<GATKVariant> variants) {
+    private static JavaPairRDD<ShardSortKey, GATKVariant> pairVariantsWithVariantShards(final JavaRDD<GATKVariant> variants) {
         return  variants.flatMapToPair(variant -> {
             List<VariantShard> shards = VariantShard.getVariantShardsFromInterval(variant);
-            List<Tuple2<VariantShard, GATKVariant>> out = Lists.newArrayList();
+            List<Tuple2<ShardSortKey, GATKVariant>> out = Lists.newArrayList();
             for (VariantShard shard : shards) {
-                out.add(new Tuple2<>(shard, variant));
+                out.add(new Tuple2<>(ShardSortKey.of(shard, variant.getStart()), variant));
             }
             return out.iterator();
         });
     }
-    private static JavaPairRDD<GATKRead, GATKVariant> pairReadsWithVariants(final JavaPairRDD<VariantShard, GATKRead> readsWShards,
-                                                                            final  JavaPairRDD<VariantShard, GATKVariant> variantsWShards) {
-        JavaPairRDD<VariantShard, Tuple2<Iterable<GATKRead>, Iterable<GATKVariant>>> cogroup = readsWShards.cogroup(variantsWShards);
-
-        return cogroup.flatMapToPair(cogroupValue -> {
-            Iterable<GATKRead> iReads = cogroupValue._2()._1();
-            Iterable<GATKVariant> iVariants = cogroupValue._2()._2();
-
-            List<Tuple2<GATKRead, GATKVariant>> out = Lists.newArrayList();
-            // For every read, find every overlapping variant.
-            for (GATKRead r : iReads) {
-                boolean foundVariants = false;
-                SimpleInterval interval = new SimpleInterval(r);
-                for (GATKVariant v : iVariants) {
-                    if (interval.overlaps(v)) {
-                        foundVariants = true;
-                        out.add(new Tuple2<>(r, v));
+    private static <R> JavaPairRDD<GATKRead, GATKVariant> pairReadsWithVariants(final JavaPairRDD<ShardSortKey, R> readsWShards,
+                                                                                final JavaPairRDD<ShardSortKey, GATKVariant> variantsWShards,
+                                                                                final SerializableFunction<R, GATKRead> decode) {
+        // each value holds either a read or a variant, so both can be sorted together
+        JavaPairRDD<ShardSortKey, Tuple2<R, GATKVariant>> readsAndVariants =
+                readsWShards.mapValues(r -> new Tuple2<R, GATKVariant>(r, null))
+                        .union(variantsWShards.mapValues(v -> new Tuple2<R, GATKVariant>(null, v)));
+        int numPartitions = Math.max(readsWShards.getNumPartitions(), variantsWShards.getNumPartitions());
+
+        return readsAndVariants.repartitionAndSortWithinPartitions(new ShardSortKey.ShardPartitioner(numPartitions))
+                .mapPartitionsToPair(sorted -> pairSortedReadsWithVariants(
+                        Iterators.<Tuple2<ShardSortKey, Tuple2<R, GATKVariant>>, Tuple2<ShardSortKey, Tuple2<GATKRead, GATKVariant>>>transform(sorted,
+                                next -> new Tuple2<>(next._1(), new Tuple2<>(next._2()._1() == null ? null : decode.apply(next._2()._1()), next._2()._2())))));
+    }
+
+    /**
+     * Pairs reads with the variants that overlap them, given the reads and variants sorted by shard and then start.
+     * A read is paired once the sweep has passed its end, since no later variant in the shard can overlap it, and
+     * a variant is dropped once it ends before both the sweep position and the start of every waiting read.
+     */
+    private static Iterator<Tuple2<GATKRead, GATKVariant>> pairSortedReadsWithVariants(final Iterator<Tuple2<ShardSortKey, Tuple2<GATKRead, GATKVariant>>> sortedReadsAndVariants) {
+        final PeekingIterator<Tuple2<ShardSortKey, Tuple2<GATKRead, GATKVariant>>> peekingReadsAndVariants = Iterators.peekingIterator(sortedReadsAndVariants);
+        return new AbstractIterator<Tuple2<GATKRead, GATKVariant>>() {
+            private final Deque<Tuple2<GATKRead, GATKVariant>> out = new ArrayDeque<>();
+            private final List<GATKRead> pendingReads = new ArrayList<>();
+            private final List<GATKVariant> activeVariants = new ArrayList<>();
+            private ShardSortKey currentShard = null;
+
+            @Override
+            protected Tuple2<GATKRead, GATKVariant> computeNext() {
+                while (out.isEmpty()) {
+                    if (!peekingReadsAndVariants.hasNext()) {
+                        if (pendingReads.isEmpty()) {
+                            return endOfData();
+                        }
+                        pairReadsEndingBefore(Integer.MAX_VALUE);
+                        continue;
+                    }
+                    Tuple2<ShardSortKey, Tuple2<GATKRead, GATKVariant>> next = peekingReadsAndVariants.next();
+                    if (currentShard == null || !currentShard.isSameShard(next._1())) {
+                        pairReadsEndingBefore(Integer.MAX_VALUE);
+                        activeVariants.clear();
+                        currentShard = next._1();
+                    }
+                    pairReadsEndingBefore(next._1().getStart());
+                    if (next._2()._1() != null) {
+                        pendingReads.add(next._2()._1());
+                    } else {
+                        activeVariants.add(next._2()._2());
                     }
                 }
-                // If no variants are found, we still want to output the read.
-                if (!foundVariants) {
-                    out.add(new Tuple2<>(r, null));
+                return out.poll();
+            }
+
+            private void pairReadsEndingBefore(final int position) {
+                for (Iterator<GATKRead> it = pendingReads.iterator(); it.hasNext(); ) {
+                    GATKRead r = it.next();
+                    if (r.getEnd() >= position) {
+                        continue;
+                    }
+                    it.remove();
+                    // For every read, find every overlapping variant.
+                    boolean foundVariants = false;
+                    SimpleInterval interval = new SimpleInterval(r);
+                    for (GATKVariant v : activeVariants) {
+                        if (interval.overlaps(v)) {
+                            foundVariants = true;
+                            out.add(new Tuple2<>(r, v));
+                        }
+                    }
+                    // If no variants are found, we still want to output the read.
+                    if (!foundVariants) {
+                        out.add(new Tuple2<>(r, null));
+                    }
                 }
+                final int minStart = pendingReads.isEmpty() ? position : Math.min(position, pendingReads.get(0).getStart());
+                activeVariants.removeIf(v -> v.getEnd() < minStart);
             }
-            return out.iterator();
-        });
+        };
     }
 }
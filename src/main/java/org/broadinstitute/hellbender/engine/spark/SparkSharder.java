@@ -7,7 +7,6 @@ import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.util.Locatable;
 import htsjdk.samtools.util.OverlapDetector;
 import org.apache.spark.Partitioner;
-import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
@@ -20,14 +19,17 @@ import org.broadinstitute.hellbender.engine.Shard;
 import org.broadinstitute.hellbender.engine.ShardBoundary;
 import org.broadinstitute.hellbender.engine.ShardBoundaryShard;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SerializableFunction;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 import scala.Option;
 import scala.Tuple2;
 import scala.reflect.ClassTag;
 import scala.reflect.ClassTag$;
 
 import javax.annotation.Nullable;
+import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -58,8 +60,10 @@ public class SparkSharder {
     /**
      * Create an RDD of {@link Shard} from an RDD of coordinate sorted {@link Locatable}, optionally using a shuffle.
      * A shuffle is typically only needed for correctness testing, since it usually has a significant performance impact.
+     * The shuffle implementation sorts the locatables itself (see {@link #shardWithSortMerge}), so they need not be
+     * coordinate sorted in that case.
      * @param ctx the Spark Context
-     * @param locatables the RDD of {@link Locatable}, must be coordinate sorted
+     * @param locatables the RDD of {@link Locatable}, must be coordinate sorted unless <code>useShuffle</code> is true
      * @param locatableClass the class of the {@link Locatable} objects in the RDD
      * @param sequenceDictionary the sequence dictionary to use to find contig lengths
      * @param intervals the {@link ShardBoundary} objects to create shards for, must be coordinate sorted
@@ -72,7 +76,110 @@ public class SparkSharder {
                                                                 SAMSequenceDictionary sequenceDictionary, List<ShardBoundary> intervals,
                                                                 int maxLocatableLength, boolean useShuffle) {
 
-        List<ShardBoundary> paddedIntervals = intervals.stream().map(sb -> new ShardBoundary(sb.getInterval(), sb.getPaddedInterval()) {
+        List<ShardBoundary> paddedIntervals = padded(intervals);
+        if (useShuffle) {
+            return SparkSharder.<L, L>shardWithSortMerge(ctx, locatables, sequenceDictionary, evenlySplit(paddedIntervals, locatables.getNumPartitions()),
+                    maxLocatableLength, locatable -> locatable, locatable -> locatable);
+        }
+        return joinOverlapping(ctx, locatables, locatableClass, sequenceDictionary, paddedIntervals, maxLocatableLength,
+                new MapFunction<Tuple2<ShardBoundary, Iterable<L>>, Shard<L>>() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            public Shard<L> call(Tuple2<ShardBoundary, Iterable<L>> value) {
+                return new ShardBoundaryShard<>(value._1(), value._2());
+            }
+        });
+    }
+
+    /**
+     * Create an RDD of {@link Shard} from an RDD of {@link Locatable}, spreading the work evenly over partitions
+     * according to the coverage of each shard, rather than assigning shards to the partitions their reads are in.
+     *
+     * A first pass over the locatables counts how many start in each window of <code>windowSize</code> bases, to
+     * estimate the cost of each shard (see {@link ShardBalancer}). Shards that are much more costly than average are
+     * split into smaller shards (no smaller than a window), and the shards are then packed into contiguous runs of
+     * roughly equal cost, one per partition, and joined with the locatables using a shuffle. The locatables need not
+     * be coordinate sorted, but since they are read twice they should be cached if they are expensive to compute.
+     * @param ctx the Spark Context
+     * @param locatables the RDD of {@link Locatable}
+     * @param locatableClass the class of the {@link Locatable} objects in the RDD
+     * @param sequenceDictionary the sequence dictionary to use to find contig lengths
+     * @param intervals the {@link ShardBoundary} objects to create shards for, must be coordinate sorted
+     * @param maxLocatableLength the maximum length of a {@link Locatable}, if any is larger than this size then an exception will be thrown
+     * @param windowSize the size of the windows to estimate coverage over, and the smallest size shards are split into
+     * @param <L> the {@link Locatable} type
+     * @return an RDD of {@link Shard} of overlapping {@link Locatable} objects (including overlapping only padding),
+     * with as many partitions as <code>locatables</code>
+     */
+    public static <L extends Locatable> JavaRDD<Shard<L>> shardBalancedByCoverage(JavaSparkContext ctx, JavaRDD<L> locatables, Class<L> locatableClass,
+                                                                                  SAMSequenceDictionary sequenceDictionary, List<ShardBoundary> intervals,
+                                                                                  int maxLocatableLength, int windowSize) {
+        return SparkSharder.<L, L>shardWithSortMerge(ctx, locatables, sequenceDictionary, balancedByCoverage(locatables, sequenceDictionary, intervals, windowSize),
+                maxLocatableLength, locatable -> locatable, locatable -> locatable);
+    }
+
+    /**
+     * Like {@link #shard(JavaSparkContext, JavaRDD, Class, SAMSequenceDictionary, List, int, boolean)} for reads, but if
+     * <code>useShuffle</code> is true then the reads are shuffled in their compact encoding, and are headerless in the shards.
+     * @param readCodec the codec to encode the reads with for the shuffle (only used if <code>useShuffle</code> is true)
+     */
+    public static JavaRDD<Shard<GATKRead>> shardReads(JavaSparkContext ctx, JavaRDD<GATKRead> reads, SAMSequenceDictionary sequenceDictionary,
+                                                      List<ShardBoundary> intervals, int maxReadLength, boolean useShuffle,
+                                                      CompactReadCodec readCodec) {
+        if (useShuffle) {
+            return shardWithSortMerge(ctx, reads, sequenceDictionary, evenlySplit(padded(intervals), reads.getNumPartitions()),
+                    maxReadLength, readCodec::encode, readCodec::decode);
+        }
+        return shard(ctx, reads, GATKRead.class, sequenceDictionary, intervals, maxReadLength, false);
+    }
+
+    /**
+     * Like {@link #shardBalancedByCoverage} for reads, but the reads are shuffled in their compact encoding, and are
+     * headerless in the shards.
+     * @param readCodec the codec to encode the reads with for the shuffle
+     */
+    public static JavaRDD<Shard<GATKRead>> shardReadsBalancedByCoverage(JavaSparkContext ctx, JavaRDD<GATKRead> reads, SAMSequenceDictionary sequenceDictionary,
+                                                                        List<ShardBoundary> intervals, int maxReadLength, int windowSize,
+                                                                        CompactReadCodec readCodec) {
+        return shardWithSortMerge(ctx, reads, sequenceDictionary, balancedByCoverage(reads, sequenceDictionary, intervals, windowSize),
+                maxReadLength, readCodec::encode, readCodec::decode);
+    }
+
+    /**
+     * @return the (padded) intervals split into contiguous runs of about the same number of intervals, one per partition
+     */
+    private static List<List<ShardBoundary>> evenlySplit(List<ShardBoundary> paddedIntervals, int numLocatablePartitions) {
+        int numPartitions = Math.max(1, numLocatablePartitions);
+        List<List<ShardBoundary>> shardsPerPartition = new ArrayList<>();
+        for (int i = 0; i < numPartitions; i++) {
+            shardsPerPartition.add(new ArrayList<>(paddedIntervals.subList(
+                    (int) ((long) i * paddedIntervals.size() / numPartitions),
+                    (int) ((long) (i + 1) * paddedIntervals.size() / numPartitions))));
+        }
+        return shardsPerPartition;
+    }
+
+    /**
+     * @return the intervals, split where they are costly and padded, in contiguous runs of roughly equal cost, one
+     * per partition of <code>locatables</code> (see {@link ShardBalancer})
+     */
+    private static <L extends Locatable> List<List<ShardBoundary>> balancedByCoverage(JavaRDD<L> locatables, SAMSequenceDictionary sequenceDictionary,
+                                                                                      List<ShardBoundary> intervals, int windowSize) {
+        int numPartitions = Math.max(1, locatables.getNumPartitions());
+        Map<String, NavigableMap<Integer, Integer>> counts = ShardBalancer.countStartsPerWindow(locatables, sequenceDictionary, windowSize);
+        List<ShardBoundary> splitIntervals = ShardBalancer.splitCostlyShards(intervals, counts, windowSize,
+                ShardBalancer.maxShardCost(counts, numPartitions), sequenceDictionary);
+        return ShardBalancer.partitionByCost(splitIntervals, counts, windowSize, numPartitions).stream()
+                .map(SparkSharder::padded)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return shard boundaries whose extent (as a {@link Locatable}) is their padded interval, so they overlap the
+     * locatables that overlap their padding
+     */
+    private static List<ShardBoundary> padded(List<ShardBoundary> intervals) {
+        return intervals.stream().map(sb -> new ShardBoundary(sb.getInterval(), sb.getPaddedInterval()) {
             private static final long serialVersionUID = 1L;
             @Override
             public String getContig() {
@@ -87,24 +194,51 @@ public class SparkSharder {
                 return getPaddedInterval().getEnd();
             }
         }).collect(Collectors.toList());
-        if (useShuffle) {
-            OverlapDetector<ShardBoundary> overlapDetector = OverlapDetector.create(paddedIntervals);
-            Broadcast<OverlapDetector<ShardBoundary>> overlapDetectorBroadcast = ctx.broadcast(overlapDetector);
-            JavaPairRDD<ShardBoundary, L> intervalsToLocatables = locatables.flatMapToPair(locatable -> {
-                Set<ShardBoundary> overlaps = overlapDetectorBroadcast.getValue().getOverlaps(locatable);
-                return overlaps.stream().map(key -> new Tuple2<>(key, locatable)).collect(Collectors.toList()).iterator();
-            });
-            JavaPairRDD<ShardBoundary, Iterable<L>> grouped = intervalsToLocatables.groupByKey();
-            return grouped.map((org.apache.spark.api.java.function.Function<Tuple2<ShardBoundary, Iterable<L>>, Shard<L>>) value -> new ShardBoundaryShard<>(value._1(), value._2()));
+    }
+
+    /**
+     * Shard locatables that are not necessarily sorted, using a sort-merge join rather than grouping by shard.
+     *
+     * The (sorted, padded) shards are given as contiguous ranges, one per partition of the result. Each locatable is sent to
+     * every partition with a shard that it overlaps, and the shuffle sorts the locatables by position within each
+     * partition. The sorted locatables are then merged with the shards for the same partition by
+     * {@link #locatablesPerShard}, which only holds the locatables for the current and next shard at any time,
+     * so no partition is materialized in memory (Spark may spill the sort to disk instead).
+     *
+     * The locatables are shuffled in the form given by <code>encode</code> (once per locatable, however many
+     * partitions it is sent to), and turned back into locatables by <code>decode</code> after the sort.
+     */
+    private static <L extends Locatable, E> JavaRDD<Shard<L>> shardWithSortMerge(JavaSparkContext ctx, JavaRDD<L> locatables,
+                                                                                 SAMSequenceDictionary sequenceDictionary, List<List<ShardBoundary>> shardsPerPartition,
+                                                                                 int maxLocatableLength, SerializableFunction<L, E> encode,
+                                                                                 SerializableFunction<E, L> decode) {
+        int numPartitions = shardsPerPartition.size();
+        List<PartitionLocatable<ShardBoundary>> indexedShards = new ArrayList<>();
+        for (int i = 0; i < numPartitions; i++) {
+            for (ShardBoundary shard : shardsPerPartition.get(i)) {
+                indexedShards.add(new PartitionLocatable<>(i, shard));
+            }
         }
-        return joinOverlapping(ctx, locatables, locatableClass, sequenceDictionary, paddedIntervals, maxLocatableLength,
-                new MapFunction<Tuple2<ShardBoundary, Iterable<L>>, Shard<L>>() {
-            private static final long serialVersionUID = 1L;
-            @Override
-            public Shard<L> call(Tuple2<ShardBoundary, Iterable<L>> value) {
-                return new ShardBoundaryShard<>(value._1(), value._2());
+
+        Broadcast<OverlapDetector<PartitionLocatable<ShardBoundary>>> overlapDetectorBroadcast = ctx.broadcast(OverlapDetector.create(indexedShards));
+        JavaRDD<L> sortedLocatables = locatables.flatMapToPair(locatable -> {
+            Set<PartitionLocatable<ShardBoundary>> overlaps = overlapDetectorBroadcast.getValue().getOverlaps(locatable);
+            if (overlaps.isEmpty()) {
+                return Collections.<Tuple2<PartitionPosition, E>>emptyIterator();
             }
-        });
+            E encoded = encode.apply(locatable);
+            return overlaps.stream().map(PartitionLocatable::getPartitionIndex).distinct()
+                    .map(partitionIndex -> new Tuple2<>(new PartitionPosition(partitionIndex, sequenceDictionary, locatable), encoded))
+                    .collect(Collectors.toList()).iterator();
+        }).repartitionAndSortWithinPartitions(new PartitionPositionPartitioner(numPartitions)).values().map(decode::apply);
+
+        // one list of shards per partition, in order, so each partition lines up with the locatables sent to it
+        JavaRDD<ShardBoundary> shardsRdd = ctx.parallelize(shardsPerPartition, numPartitions).flatMap(List::iterator);
+
+        return sortedLocatables.zipPartitions(shardsRdd, (FlatMapFunction2<Iterator<L>, Iterator<ShardBoundary>, Shard<L>>) (locatablesIterator, shardsIterator) ->
+                Iterators.<Tuple2<ShardBoundary, Iterable<L>>, Shard<L>>transform(
+                        locatablesPerShard(locatablesIterator, shardsIterator, sequenceDictionary, maxLocatableLength),
+                        input -> new ShardBoundaryShard<>(input._1(), input._2())));
     }
 
     /**
@@ -351,6 +485,65 @@ public class SparkSharder {
 
     }
 
+    /**
+     * Shuffle key for {@link #shardWithSortMerge}: the partition a locatable is sent to, and its position (the contig
+     * index in the high bits and the start in the low bits) to sort by within that partition.
+     */
+    private static final class PartitionPosition implements Comparable<PartitionPosition>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int partitionIndex;
+        private final long position;
+
+        public PartitionPosition(int partitionIndex, SAMSequenceDictionary sequenceDictionary, Locatable locatable) {
+            this.partitionIndex = partitionIndex;
+            this.position = ((long) sequenceDictionary.getSequenceIndex(locatable.getContig()) << 32) | locatable.getStart();
+        }
+
+        @Override
+        public int compareTo(PartitionPosition o) {
+            int cmp = Integer.compare(partitionIndex, o.partitionIndex);
+            return cmp != 0 ? cmp : Long.compare(position, o.position);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            PartitionPosition that = (PartitionPosition) o;
+
+            return partitionIndex == that.partitionIndex && position == that.position;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * partitionIndex + Long.hashCode(position);
+        }
+    }
+
+    private static class PartitionPositionPartitioner extends Partitioner {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int numPartitions;
+
+        public PartitionPositionPartitioner(int numPartitions) {
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(Object key) {
+            return ((PartitionPosition) key).partitionIndex;
+        }
+
+    }
+
     static class PartitionLocatable<L extends Locatable> implements Locatable {
         private static final long serialVersionUID = 1L;
 
@@ -23,8 +23,10 @@ import org.broadinstitute.hellbender.cmdline.programgroups.ShortVariantDiscovery
 import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.spark.CompactReadCodec;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.engine.ShardToMultiIntervalShardAdapter;
+import org.broadinstitute.hellbender.engine.spark.ShardBalancer;
 import org.broadinstitute.hellbender.engine.spark.SparkSharder;
 import org.broadinstitute.hellbender.engine.spark.datasources.VariantsSparkSink;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -118,6 +120,9 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         @Argument(fullName = AssemblyRegionWalker.PROPAGATION_LONG_NAME, doc="Upper limit on how many bases away probability mass can be moved around when calculating the boundaries between active and inactive assembly regions", optional = true)
         public int maxProbPropagationDistance = HaplotypeCaller.DEFAULT_MAX_PROB_PROPAGATION_DISTANCE;
 
+        @Argument(fullName = "balance-shards-by-coverage", doc = "Split high-coverage read shards and spread read shards over partitions by their coverage, estimated in a first pass over the reads, so that high-depth regions don't hold up the whole job. The reads are not cached, so they are loaded and filtered again for each pass.", optional = true)
+        public boolean balanceShardsByCoverage = false;
+
     }
 
     @ArgumentCollection
@@ -238,7 +243,11 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
 
         final int maxReadLength = reads.map(r -> r.getEnd() - r.getStart() + 1).reduce(Math::max);
 
-        final JavaRDD<Shard<GATKRead>> readShards = SparkSharder.shard(ctx, reads, GATKRead.class, header.getSequenceDictionary(), shardBoundaries, maxReadLength);
+        final JavaRDD<Shard<GATKRead>> readShards = shardingArgs.balanceShardsByCoverage ?
+                SparkSharder.shardReadsBalancedByCoverage(ctx, reads, header.getSequenceDictionary(), shardBoundaries, maxReadLength,
+                        ShardBalancer.coverageWindowSize(shardingArgs.readShardSize, shardingArgs.maxAssemblyRegionSize),
+                        new CompactReadCodec(ctx, header)) :
+                SparkSharder.shard(ctx, reads, GATKRead.class, header.getSequenceDictionary(), shardBoundaries, maxReadLength);
 
         final JavaRDD<Tuple2<AssemblyRegion, SimpleInterval>> assemblyRegions = readShards
                 .mapPartitions(shardsToAssemblyRegions(referenceBroadcast,
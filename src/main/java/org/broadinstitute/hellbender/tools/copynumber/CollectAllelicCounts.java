@@ -13,6 +13,7 @@ import org.broadinstitute.hellbender.engine.AlignmentContext;
 import org.broadinstitute.hellbender.engine.FeatureContext;
 import org.broadinstitute.hellbender.engine.LocusWalker;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.ThreadedLocusProcessor;
 import org.broadinstitute.hellbender.engine.filters.MappingQualityReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
@@ -22,6 +23,7 @@ import org.broadinstitute.hellbender.tools.copynumber.formats.collections.Alleli
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.Metadata;
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.MetadataUtils;
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.SampleLocatableMetadata;
+import org.broadinstitute.hellbender.tools.copynumber.formats.records.AllelicCount;
 import org.broadinstitute.hellbender.utils.Nucleotide;
 
 import java.io.File;
@@ -69,6 +71,10 @@ import java.util.List;
  *          -O sample.allelicCounts.tsv
  * </pre>
  *
+ * <p>
+ *     With indexed reads, the sites can be counted on several threads with {@code --locus-threads}.
+ * </p>
+ *
  * @author Lee Lichtenstein &lt;lichtens@broadinstitute.org&gt;
  * @author Samuel Lee &lt;slee@broadinstitute.org&gt;
  */
@@ -108,6 +114,11 @@ public final class CollectAllelicCounts extends LocusWalker {
         return true;
     }
 
+    @Override
+    public boolean useColumnarPileups() {
+        return true;
+    }
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -149,6 +160,22 @@ public final class CollectAllelicCounts extends LocusWalker {
     @Override
     public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
         final byte refAsByte = referenceContext.getBase();
-        allelicCountCollector.collectAtLocus(Nucleotide.valueOf(refAsByte), alignmentContext.getBasePileup(), alignmentContext.getLocation(), minimumBaseQuality);
+        allelicCountCollector.collectAtLocus(Nucleotide.valueOf(refAsByte), alignmentContext.getPileupColumns(), alignmentContext.getLocation(), minimumBaseQuality);
+    }
+
+    @Override
+    protected ThreadedLocusProcessor<?> makeThreadedLocusProcessor() {
+        return new ThreadedLocusProcessor<AllelicCount>() {
+            @Override
+            public AllelicCount process(final AlignmentContext alignmentContext, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                return AllelicCountCollector.countAtLocus(Nucleotide.valueOf(referenceContext.getBase()),
+                        alignmentContext.getPileupColumns(), alignmentContext.getLocation(), minimumBaseQuality);
+            }
+
+            @Override
+            public void reduce(final AllelicCount allelicCount) {
+                allelicCountCollector.add(allelicCount);
+            }
+        };
     }
 }
@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.utils.Nucleotide;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.pileup.PileupColumns;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 
 import java.util.ArrayList;
@@ -64,14 +65,76 @@ public final class AllelicCountCollector {
                 .filter(r -> r.getQual() >= minBaseQuality)
                 .forEach(r -> nucleotideCounter.add(r.getBase()));
 
+        allelicCounts.add(makeAllelicCount(refBase, nucleotideCounter, locus));
+    }
+
+    /**
+     * Add counts to this class for a specific locus, reading the bases and qualities directly from a
+     * column-oriented pileup.
+     *
+     * @param refBase single nucleotide of the reference.  Not {@code null}
+     * @param pileup associated pileup at the locus.  Not {@code null}
+     * @param locus position in genome to collect alellic counts.  Not {@code null}
+     * @param minBaseQuality minimum base quality in the read for that read to count at that position.  Must be greater than or equal to 0.
+     */
+    public void collectAtLocus(final Nucleotide refBase, final PileupColumns pileup, final Locatable locus, final int minBaseQuality) {
+        final AllelicCount allelicCount = countAtLocus(refBase, pileup, locus, minBaseQuality);
+        if (allelicCount != null) {
+            add(allelicCount);
+        }
+    }
+
+    /**
+     * Computes the counts for a specific locus, reading the bases and qualities directly from a column-oriented pileup,
+     * without adding them to any collector.  This allows counting loci on several threads and adding the results
+     * with {@link #add(AllelicCount)} in order.
+     *
+     * @param refBase single nucleotide of the reference.  Not {@code null}
+     * @param pileup associated pileup at the locus.  Not {@code null}
+     * @param locus position in genome to collect alellic counts.  Not {@code null}
+     * @param minBaseQuality minimum base quality in the read for that read to count at that position.  Must be greater than or equal to 0.
+     * @return the counts at the locus, or {@code null} if the reference base is not one of {@link #BASES}
+     */
+    public static AllelicCount countAtLocus(final Nucleotide refBase, final PileupColumns pileup, final Locatable locus, final int minBaseQuality) {
+        Utils.nonNull(refBase);
+        Utils.nonNull(pileup);
+        Utils.nonNull(locus);
+        ParamUtils.isPositiveOrZero(minBaseQuality, "Minimum base quality must be zero or higher.");
+
+        if (!BASES.contains(refBase)) {
+            logger.warn(String.format("The reference position at %s has an unknown base call (value: %s). Skipping...",
+                    locus, refBase.toString()));
+            return null;
+        }
+
+        final Nucleotide.Counter nucleotideCounter = new Nucleotide.Counter();
+        for (int i = 0; i < pileup.size(); i++) {
+            if (!pileup.isDeletion(i) && pileup.getQual(i) >= minBaseQuality) {
+                nucleotideCounter.add(pileup.getBase(i));
+            }
+        }
+
+        return makeAllelicCount(refBase, nucleotideCounter, locus);
+    }
+
+    /**
+     * Add counts computed by {@link #countAtLocus(Nucleotide, PileupColumns, Locatable, int)} to this class.
+     *
+     * @param allelicCount counts at a locus.  Not {@code null}
+     */
+    public void add(final AllelicCount allelicCount) {
+        allelicCounts.add(Utils.nonNull(allelicCount));
+    }
+
+    private static AllelicCount makeAllelicCount(final Nucleotide refBase, final Nucleotide.Counter nucleotideCounter, final Locatable locus) {
         final int totalBaseCount = BASES.stream().mapToInt(b -> (int) nucleotideCounter.get(b)).sum();  //only include total ACGT counts (exclude N, etc.)
         final int refReadCount = (int) nucleotideCounter.get(refBase);
         final int altReadCount = totalBaseCount - refReadCount;                                         //we take alt = total - ref instead of the actual alt count
         final Nucleotide altBase = altReadCount == 0 ? Nucleotide.N : inferAltFromPileupBaseCounts(nucleotideCounter, refBase);
 
-        allelicCounts.add(new AllelicCount(
+        return new AllelicCount(
                 new SimpleInterval(locus.getContig(), locus.getStart(), locus.getEnd()),
-                refReadCount, altReadCount, refBase, altBase));
+                refReadCount, altReadCount, refBase, altBase);
     }
 
     /**
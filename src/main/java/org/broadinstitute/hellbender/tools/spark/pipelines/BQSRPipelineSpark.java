@@ -7,6 +7,7 @@ import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.storage.StorageLevel;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
@@ -14,6 +15,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.ReadContextData;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.spark.AddContextDataToReadSpark;
+import org.broadinstitute.hellbender.engine.spark.CompactReadCodec;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.engine.spark.JoinStrategy;
 import org.broadinstitute.hellbender.engine.spark.datasources.VariantsSparkSource;
@@ -104,6 +106,10 @@ public final class BQSRPipelineSpark extends GATKSparkTool {
     @Argument(fullName="read-shard-padding", doc = "Each read shard has this many bases of extra context on each side. Only applies when using the OVERLAPS_PARTITIONER join strategy.", optional = true)
     public int readShardPadding = 1000;
 
+    @Argument(fullName = "persist-reads-to-disk", doc = "Persist the input reads to local disk in a compact encoding while computing the recalibration tables, " +
+            "and apply BQSR to the persisted reads, rather than reading and filtering the input a second time.", optional = true)
+    public boolean persistReadsToDisk = false;
+
     /**
      * command-line arguments to fine tune the apply BQSR step.
      */
@@ -123,7 +129,19 @@ public final class BQSRPipelineSpark extends GATKSparkTool {
         //Should this get the getUnfilteredReads? getReads will merge default and command line filters.
         //but the code below uses other filters for other parts of the pipeline that do not honor
         //the commandline.
-        final JavaRDD<GATKRead> initialReads = getReads();
+
+        // When persisting, the reads are written to local disk as a side effect of computing the recalibration
+        // tables, and read back from there to apply BQSR.
+        final JavaRDD<byte[]> persistedReads;
+        final JavaRDD<GATKRead> initialReads;
+        if (persistReadsToDisk) {
+            final CompactReadCodec codec = new CompactReadCodec(ctx, getHeaderForReads());
+            persistedReads = codec.encodeReads(getReads()).persist(StorageLevel.DISK_ONLY());
+            initialReads = codec.decodeReads(persistedReads);
+        } else {
+            persistedReads = null;
+            initialReads = getReads();
+        }
 
         // The initial reads have already had the WellformedReadFilter applied to them, which
         // is all the filtering that ApplyBQSR wants. BQSR itself wants additional filtering
@@ -135,7 +153,7 @@ public final class BQSRPipelineSpark extends GATKSparkTool {
         final VariantsSparkSource variantsSparkSource = new VariantsSparkSource(ctx);
         final JavaRDD<GATKVariant> bqsrKnownVariants = variantsSparkSource.getParallelVariants(baseRecalibrationKnownVariantPaths, getIntervals());
 
-        final JavaPairRDD<GATKRead, ReadContextData> rddReadContext = AddContextDataToReadSpark.add(ctx, filteredReadsForBQSR, getReference(), bqsrKnownVariants, baseRecalibrationKnownVariantPaths, joinStrategy, getHeaderForReads().getSequenceDictionary(), readShardSize, readShardPadding);
+        final JavaPairRDD<GATKRead, ReadContextData> rddReadContext = AddContextDataToReadSpark.add(ctx, filteredReadsForBQSR, getReference(), bqsrKnownVariants, baseRecalibrationKnownVariantPaths, joinStrategy, getHeaderForReads(), readShardSize, readShardPadding);
         //note: we use the reference dictionary from the reads themselves.
         final RecalibrationReport bqsrReport = BaseRecalibratorSparkFn.apply(rddReadContext, getHeaderForReads(), getHeaderForReads().getSequenceDictionary(), bqsrArgs);
 
@@ -143,5 +161,8 @@ public final class BQSRPipelineSpark extends GATKSparkTool {
         final JavaRDD<GATKRead> finalReads = ApplyBQSRSparkFn.apply(initialReads, reportBroadcast, getHeaderForReads(), applyBqsrArgs.toApplyBQSRArgumentCollection(bqsrArgs.PRESERVE_QSCORES_LESS_THAN));
 
         writeReads(ctx, output, finalReads);
+        if (persistedReads != null) {
+            persistedReads.unpersist();
+        }
     }
 }
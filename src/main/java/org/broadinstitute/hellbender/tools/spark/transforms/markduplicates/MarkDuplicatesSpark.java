@@ -48,6 +48,14 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
     @Argument(shortName = "DS", fullName = "DUPLICATE_SCORING_STRATEGY", doc = "The scoring strategy for choosing the non-duplicate among candidates.")
     public MarkDuplicatesScoringStrategy duplicatesScoringStrategy = MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES;
 
+    /**
+     * Instead of grouping reads by name and by duplicate key, shuffle only compact records for each read
+     * and each duplicate key, resolve duplicates by sorting them, and then set the duplicate flags back on the reads.
+     * This uses much less memory on deep or skewed inputs. The input reads are read twice.
+     */
+    @Argument(fullName = "SORT_BASED_MARKING", doc = "Resolve duplicates by sorting compact records rather than grouping reads", optional = true)
+    public boolean sortBasedMarking = false;
+
     @ArgumentCollection
     protected OpticalDuplicatesArgumentCollection opticalDuplicatesArgumentCollection = new OpticalDuplicatesArgumentCollection();
 
@@ -59,10 +67,23 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
     public static JavaRDD<GATKRead> mark(final JavaRDD<GATKRead> reads, final SAMFileHeader header,
                                          final MarkDuplicatesScoringStrategy scoringStrategy,
                                          final OpticalDuplicateFinder opticalDuplicateFinder, final int numReducers) {
+        return mark(reads, header, scoringStrategy, opticalDuplicateFinder, numReducers, false);
+    }
+
+    /**
+     * @param sortBasedMarking if true, use {@link MarkDuplicatesSparkUtils#transformReadsSortBased}, which shuffles
+     *                         compact records rather than reads
+     */
+    public static JavaRDD<GATKRead> mark(final JavaRDD<GATKRead> reads, final SAMFileHeader header,
+                                         final MarkDuplicatesScoringStrategy scoringStrategy,
+                                         final OpticalDuplicateFinder opticalDuplicateFinder, final int numReducers,
+                                         final boolean sortBasedMarking) {
 
         JavaRDD<GATKRead> primaryReads = reads.filter(v1 -> !ReadUtils.isNonPrimary(v1));
         JavaRDD<GATKRead> nonPrimaryReads = reads.filter(v1 -> ReadUtils.isNonPrimary(v1));
-        JavaRDD<GATKRead> primaryReadsTransformed = MarkDuplicatesSparkUtils.transformReads(header, scoringStrategy, opticalDuplicateFinder, primaryReads, numReducers);
+        JavaRDD<GATKRead> primaryReadsTransformed = sortBasedMarking ?
+                MarkDuplicatesSparkUtils.transformReadsSortBased(header, scoringStrategy, opticalDuplicateFinder, primaryReads, numReducers) :
+                MarkDuplicatesSparkUtils.transformReads(header, scoringStrategy, opticalDuplicateFinder, primaryReads, numReducers);
 
         return primaryReadsTransformed.union(nonPrimaryReads);
     }
@@ -73,7 +94,7 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
         final OpticalDuplicateFinder finder = opticalDuplicatesArgumentCollection.READ_NAME_REGEX != null ?
                 new OpticalDuplicateFinder(opticalDuplicatesArgumentCollection.READ_NAME_REGEX, opticalDuplicatesArgumentCollection.OPTICAL_DUPLICATE_PIXEL_DISTANCE, null) : null;
 
-        final JavaRDD<GATKRead> finalReadsForMetrics = mark(reads, getHeaderForReads(), duplicatesScoringStrategy, finder, getRecommendedNumReducers());
+        final JavaRDD<GATKRead> finalReadsForMetrics = mark(reads, getHeaderForReads(), duplicatesScoringStrategy, finder, getRecommendedNumReducers(), sortBasedMarking);
 
         if (metricsFile != null) {
             final JavaPairRDD<String, DuplicationMetrics> metricsByLibrary = MarkDuplicatesSparkUtils.generateMetrics(getHeaderForReads(), finalReadsForMetrics);
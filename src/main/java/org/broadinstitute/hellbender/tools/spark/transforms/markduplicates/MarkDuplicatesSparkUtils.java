@@ -2,9 +2,13 @@ package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 
 import com.google.common.collect.*;
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.metrics.MetricsFile;
+import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.engine.spark.CompactReadCodec;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.metrics.MetricsUtils;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -26,10 +30,16 @@ public class MarkDuplicatesSparkUtils {
     // Used to set an attribute on the GATKRead marking this read as an optical duplicate.
     public static final String OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME = "OD";
 
+    // Flag value marking a read as a duplicate in sort-based marking. All other values are optical duplicate totals.
+    private static final int DUPLICATE_FLAG = -1;
+
+    // Library name used in duplicate keys for reads without a library, as in ReadsKey.
+    private static final String UNKNOWN_LIBRARY = "-";
+
     /**
      * (0) filter: remove unpaired reads and reads with an unmapped mate.
      * (1) keyReadsByName: label each read with its read group and read name.
-     * (2) GroupByKey: group together reads with the same group and name.
+     * (2) GroupByKey: group together reads with the same group and name, shuffling them with {@link CompactReadCodec}.
      * (3) keyPairedEndsWithAlignmentInfo:
      *   (a) Sort each group of reads (see GATKOrder below).
      *   (b) Pair consecutive reads into PairedEnds. In most cases there will only be two reads
@@ -51,9 +61,10 @@ public class MarkDuplicatesSparkUtils {
             // reads are already sorted by name, so perform grouping within the partition (no shuffle)
             keyedReads = spanReadsByKey(header, reads);
         } else {
-            // sort by group and name (incurs a shuffle)
+            // sort by group and name (incurs a shuffle, of the reads in their compact encoding)
             JavaPairRDD<String, GATKRead> keyReadPairs = reads.mapToPair(read -> new Tuple2<>(ReadsKey.keyForRead(header, read), read));
-            keyedReads = keyReadPairs.groupByKey(numReducers);
+            final CompactReadCodec codec = new CompactReadCodec(JavaSparkContext.fromSparkContext(reads.context()), header);
+            keyedReads = codec.groupByKey(keyReadPairs, numReducers);
         }
 
         JavaPairRDD<String, Iterable<PairedEnds>> keyedPairs = keyedReads.flatMapToPair(keyedRead -> {
@@ -87,6 +98,281 @@ public class MarkDuplicatesSparkUtils {
         return markPairedEnds(keyedPairs, scoringStrategy, finder, header);
     }
 
+    /**
+     * Sort-based version of {@link #transformReads}, which marks the same duplicates without grouping reads or
+     * PairedEnds by key. Only compact records holding keys, scores, tie-breaking fields and read ordinals are shuffled:
+     * (0) summarizeReads: number each read with an ordinal and summarize it as a {@link CompactReadEnd}.
+     * (1) Bring together the summaries of reads with the same group and name: within each partition if the reads
+     *     are already sorted by name, otherwise with repartitionAndSortWithinPartitions on the summaries themselves,
+     *     ordered by {@link CompactReadEnd#GROUPING_ORDER} (incurs a shuffle).
+     * (2) candidatesForReadsWithSameKey: make a {@link DuplicateCandidate} for each read as a fragment, and for each
+     *     pair of reads with mapped mates, paired up in the same order as by transformReads.
+     * (3) repartitionAndSortWithinPartitions: partition candidates by key and sort them from best to worst within
+     *     each key.
+     * (4) markSortedCandidates: sweep the runs of candidates with equal keys, emitting a flag keyed by ordinal for
+     *     each duplicate read and the number of optical duplicates for the best pair.
+     * (5) repartitionAndSortWithinPartitions: send each flag back to the partition of its read, ordered by ordinal.
+     * (6) applyFlags: zip the flags with the reads and set them in a single pass over each partition.
+     *
+     * The reads themselves are never shuffled, but they are computed twice, in (0) and (6), so the input RDD must
+     * produce the same reads in the same order each time.
+     * Candidates with the same score are ordered as by the ReadCoordinateComparator used in transformReads, so
+     * the result does not depend on how the reads are partitioned.
+     */
+    static JavaRDD<GATKRead> transformReadsSortBased(final SAMFileHeader header, final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder, final JavaRDD<GATKRead> reads, final int numReducers) {
+        final int numReadPartitions = reads.getNumPartitions();
+        final Map<String, Short> libraryIndexByReadGroup = indexLibrariesByReadGroup(header);
+        final Map<String, Integer> readGroupIndexes = indexReadGroups(header);
+
+        final JavaRDD<DuplicateCandidate> candidates;
+        if (SAMFileHeader.SortOrder.queryname.equals(header.getSortOrder())) {
+            // reads are already sorted by name, so perform grouping within the partition (no shuffle)
+            candidates = reads.mapPartitionsWithIndex((partition, readsInPartition) -> {
+                final Iterator<Tuple2<String, CompactReadEnd>> summariesByName = Iterators.transform(
+                        summarizeReads(partition, numReadPartitions, readsInPartition, header, libraryIndexByReadGroup, readGroupIndexes, scoringStrategy, finder),
+                        summary -> new Tuple2<>(summary.getName(), summary));
+                return Iterators.concat(Iterators.transform(spanningIterator(summariesByName), namedSummaries -> {
+                    // for each name, separate reads by read group
+                    final ListMultimap<Integer, CompactReadEnd> multi = LinkedListMultimap.create();
+                    for (final CompactReadEnd summary : namedSummaries._2()) {
+                        multi.put(summary.getReadGroupIndex(), summary);
+                    }
+                    final List<DuplicateCandidate> out = Lists.newArrayList();
+                    for (final Integer readGroupIndex : multi.keySet()) {
+                        out.addAll(candidatesForReadsWithSameKey(multi.get(readGroupIndex)));
+                    }
+                    return out.iterator();
+                }));
+            }, false);
+        } else {
+            // sort summaries by group and name (incurs a shuffle of the summaries only, which are their own keys)
+            final JavaRDD<CompactReadEnd> summaries = reads.mapPartitionsWithIndex((partition, readsInPartition) ->
+                    summarizeReads(partition, numReadPartitions, readsInPartition, header, libraryIndexByReadGroup, readGroupIndexes, scoringStrategy, finder), false);
+            candidates = summaries
+                    .mapToPair(summary -> new Tuple2<>(summary, (Void) null))
+                    .repartitionAndSortWithinPartitions(new GroupingPartitioner(numReducers), new GroupingOrder())
+                    .keys()
+                    .mapPartitions(sortedSummaries -> Iterators.concat(Iterators.transform(groupingIterator(sortedSummaries),
+                            group -> candidatesForReadsWithSameKey(group).iterator())));
+        }
+
+        final JavaPairRDD<Long, Integer> flags = candidates
+                .mapToPair(candidate -> new Tuple2<>(candidate, (Void) null))
+                .repartitionAndSortWithinPartitions(new DuplicateKeyPartitioner(numReducers), new DuplicateOrder())
+                .keys()
+                .mapPartitionsToPair(sortedCandidates -> markSortedCandidates(sortedCandidates, finder));
+
+        final JavaPairRDD<Long, Integer> flagsByReadPartition = flags.repartitionAndSortWithinPartitions(new OrdinalPartitioner(numReadPartitions));
+        return reads.zipPartitions(flagsByReadPartition, (readsInPartition, sortedFlags) -> applyFlags(readsInPartition, sortedFlags, numReadPartitions));
+    }
+
+    /**
+     * Assigns a short index to each library in the header, with index 0 standing for reads without a library.
+     * @return the library index for each read group id in the header
+     */
+    static Map<String, Short> indexLibrariesByReadGroup(final SAMFileHeader header) {
+        final List<String> libraries = Lists.newArrayList(UNKNOWN_LIBRARY);
+        final Map<String, Short> libraryIndexByReadGroup = new HashMap<>();
+        for (final SAMReadGroupRecord readGroup : header.getReadGroups()) {
+            final String library = readGroup.getLibrary() != null ? readGroup.getLibrary() : UNKNOWN_LIBRARY;
+            int index = libraries.indexOf(library);
+            if (index < 0) {
+                index = libraries.size();
+                libraries.add(library);
+            }
+            Utils.validate(index <= Short.MAX_VALUE, "Too many libraries in the header for sort-based duplicate marking");
+            libraryIndexByReadGroup.put(readGroup.getReadGroupId(), (short) index);
+        }
+        return libraryIndexByReadGroup;
+    }
+
+    /**
+     * Assigns an index to each read group in the header, with index 0 standing for reads without a read group or
+     * with one that is not in the header.
+     * @return the index for each read group id in the header
+     */
+    static Map<String, Integer> indexReadGroups(final SAMFileHeader header) {
+        final Map<String, Integer> readGroupIndexes = new HashMap<>();
+        for (final SAMReadGroupRecord readGroup : header.getReadGroups()) {
+            readGroupIndexes.putIfAbsent(readGroup.getReadGroupId(), readGroupIndexes.size() + 1);
+        }
+        return readGroupIndexes;
+    }
+
+    /**
+     * Makes an ordinal for the read at the given index within a partition. The partition can be recovered with
+     * {@code ordinal % numPartitions}, and ordinals of reads in the same partition sort in the order of the reads.
+     */
+    static long ordinal(final int partition, final long indexInPartition, final int numPartitions) {
+        return indexInPartition * numPartitions + partition;
+    }
+
+    /**
+     * Summarizes each read in a partition, numbering the reads with {@link #ordinal}.
+     */
+    private static Iterator<CompactReadEnd> summarizeReads(final int partition, final int numPartitions, final Iterator<GATKRead> reads,
+                                                           final SAMFileHeader header, final Map<String, Short> libraryIndexByReadGroup,
+                                                           final Map<String, Integer> readGroupIndexes,
+                                                           final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder) {
+        return new Iterator<CompactReadEnd>() {
+            private long index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return reads.hasNext();
+            }
+
+            @Override
+            public CompactReadEnd next() {
+                final GATKRead read = reads.next();
+                final short library = libraryIndexByReadGroup.getOrDefault(read.getReadGroup(), (short) 0);
+                final int readGroupIndex = readGroupIndexes.getOrDefault(read.getReadGroup(), 0);
+                return CompactReadEnd.of(ordinal(partition, index++, numPartitions), library, readGroupIndex, read, header, scoringStrategy, finder);
+            }
+        };
+    }
+
+    /**
+     * An iterator that groups consecutive summaries with the same read group and name, as ordered by
+     * {@link CompactReadEnd#GROUPING_ORDER}.
+     */
+    static Iterator<List<CompactReadEnd>> groupingIterator(final Iterator<CompactReadEnd> sortedSummaries) {
+        final PeekingIterator<CompactReadEnd> iter = Iterators.peekingIterator(sortedSummaries);
+        return new AbstractIterator<List<CompactReadEnd>>() {
+            @Override
+            protected List<CompactReadEnd> computeNext() {
+                if (!iter.hasNext()) {
+                    return endOfData();
+                }
+                final List<CompactReadEnd> group = Lists.newArrayList(iter.next());
+                while (iter.hasNext() && CompactReadEnd.GROUPING_ORDER.compare(iter.peek(), group.get(0)) == 0) {
+                    group.add(iter.next());
+                }
+                return group;
+            }
+        };
+    }
+
+    /**
+     * Makes the duplicate candidates for reads with the same group and name: every read as a fragment, and the
+     * reads with a mapped mate, sorted and paired up consecutively as in {@link #transformReads}.
+     * A read left over after pairing is an unpaired end, which is never marked, so no candidate is made for it.
+     */
+    static List<DuplicateCandidate> candidatesForReadsWithSameKey(final Iterable<CompactReadEnd> readsWithSameKey) {
+        final List<DuplicateCandidate> out = Lists.newArrayList();
+        final List<CompactReadEnd> sorted = Lists.newArrayList();
+        for (final CompactReadEnd read : readsWithSameKey) {
+            out.add(DuplicateCandidate.fragment(read));
+            if (read.hasMappedMate()) {
+                sorted.add(read);
+            }
+        }
+        sorted.sort(CompactReadEnd.PAIRING_ORDER);
+        for (int i = 0; i + 1 < sorted.size(); i += 2) {
+            out.add(DuplicateCandidate.pair(sorted.get(i), sorted.get(i + 1)));
+        }
+        return out;
+    }
+
+    /**
+     * Sweeps candidates sorted by {@link DuplicateOrder}, holding only the candidates for one key at a time.
+     * @return flags keyed by read ordinal: {@link #DUPLICATE_FLAG} for duplicate reads, or the number of optical
+     *         duplicates for the first read of the best pair of each key
+     */
+    static Iterator<Tuple2<Long, Integer>> markSortedCandidates(final Iterator<DuplicateCandidate> sortedCandidates, final OpticalDuplicateFinder finder) {
+        final PeekingIterator<DuplicateCandidate> iter = Iterators.peekingIterator(sortedCandidates);
+        final List<DuplicateCandidate> sameKey = Lists.newArrayList();
+        return Iterators.concat(new AbstractIterator<Iterator<Tuple2<Long, Integer>>>() {
+            @Override
+            protected Iterator<Tuple2<Long, Integer>> computeNext() {
+                if (!iter.hasNext()) {
+                    return endOfData();
+                }
+                sameKey.clear();
+                sameKey.add(iter.next());
+                while (iter.hasNext() && iter.peek().hasSameKey(sameKey.get(0))) {
+                    sameKey.add(iter.next());
+                }
+                return markCandidatesWithSameKey(sameKey, finder).iterator();
+            }
+        });
+    }
+
+    /**
+     * Marks a run of candidates with the same key, sorted from best to worst, following the rules of
+     * {@link #markPairedEnds} and {@link #handleFragments}.
+     */
+    private static List<Tuple2<Long, Integer>> markCandidatesWithSameKey(final List<DuplicateCandidate> sameKey, final OpticalDuplicateFinder finder) {
+        final List<Tuple2<Long, Integer>> flags = Lists.newArrayList();
+        final DuplicateCandidate best = sameKey.get(0);
+
+        if (!best.isPair()) { // fragments
+            // Fragments of reads with a mapped mate sort first. If there are any, all the other fragments are duplicates,
+            // otherwise all but the highest scoring one are. Reads with a mapped mate are marked through their pairs.
+            for (final DuplicateCandidate fragment : best.hasMappedMate() ? sameKey : Iterables.skip(sameKey, 1)) {
+                if (!fragment.hasMappedMate()) {
+                    flags.add(new Tuple2<>(fragment.getFirstOrdinal(), DUPLICATE_FLAG));
+                }
+            }
+            return flags;
+        }
+
+        // Mark everyone who's not best as a duplicate
+        for (final DuplicateCandidate pair : Iterables.skip(sameKey, 1)) {
+            flags.add(new Tuple2<>(pair.getFirstOrdinal(), DUPLICATE_FLAG));
+            flags.add(new Tuple2<>(pair.getSecondOrdinal(), DUPLICATE_FLAG));
+        }
+
+        // Split by orientation and count duplicates in each group separately.
+        final int numOpticalDuplicates;
+        if (finder == null) {
+            numOpticalDuplicates = 0;
+        } else {
+            final List<DuplicateCandidate> pairsFR = sameKey.stream().filter(pair -> pair.getOrientationForOpticalDuplicates() == ReadEnds.FR).collect(Collectors.toList());
+            final List<DuplicateCandidate> pairsRF = sameKey.stream().filter(pair -> pair.getOrientationForOpticalDuplicates() == ReadEnds.RF).collect(Collectors.toList());
+            if (!pairsFR.isEmpty() && !pairsRF.isEmpty()) {
+                numOpticalDuplicates = countOpticalDuplicates(finder, pairsFR) + countOpticalDuplicates(finder, pairsRF);
+            } else {
+                // findOpticalDuplicates sorts the list, so give it a copy
+                numOpticalDuplicates = countOpticalDuplicates(finder, new ArrayList<>(sameKey));
+            }
+        }
+        flags.add(new Tuple2<>(best.getFirstOrdinal(), numOpticalDuplicates));
+        return flags;
+    }
+
+    /**
+     * Clears the duplicate flag on every read in a partition, then sets the flags for the partition, which must be
+     * sorted by ordinal, on the reads they were made for.
+     */
+    static Iterator<GATKRead> applyFlags(final Iterator<GATKRead> reads, final Iterator<Tuple2<Long, Integer>> sortedFlags, final int numPartitions) {
+        final PeekingIterator<Tuple2<Long, Integer>> flags = Iterators.peekingIterator(sortedFlags);
+        return new Iterator<GATKRead>() {
+            private long index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return reads.hasNext();
+            }
+
+            @Override
+            public GATKRead next() {
+                final GATKRead read = reads.next();
+                read.setIsDuplicate(false);
+                while (flags.hasNext() && flags.peek()._1() / numPartitions == index) {
+                    final int flag = flags.next()._2();
+                    if (flag == DUPLICATE_FLAG) {
+                        read.setIsDuplicate(true);
+                    } else {
+                        read.setAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, flag);
+                    }
+                }
+                index++;
+                return read;
+            }
+        };
+    }
+
     static JavaPairRDD<String, Iterable<GATKRead>> spanReadsByKey(final SAMFileHeader header, final JavaRDD<GATKRead> reads) {
         JavaPairRDD<String, GATKRead> nameReadPairs = reads.mapToPair(read -> new Tuple2<>(read.getName(), read));
         return spanByKey(nameReadPairs).flatMapToPair(namedRead -> {
@@ -217,7 +503,7 @@ public class MarkDuplicatesSparkUtils {
         });
     }
 
-    private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<PairedEnds> scored) {
+    private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<? extends OpticalDuplicateFinder.PhysicalLocation> scored) {
         final boolean[] opticalDuplicateFlags = finder.findOpticalDuplicates(scored);
         int numOpticalDuplicates = 0;
         for (final boolean b : opticalDuplicateFlags) {
@@ -346,6 +632,100 @@ public class MarkDuplicatesSparkUtils {
         MetricsUtils.saveMetrics(result, metricsOutputPath);
     }
 
+    /**
+     * Serializable wrapper around {@link CompactReadEnd#GROUPING_ORDER}, for sorting summaries in a shuffle.
+     */
+    final static class GroupingOrder implements Comparator<CompactReadEnd>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(final CompactReadEnd lhs, final CompactReadEnd rhs) {
+            return CompactReadEnd.GROUPING_ORDER.compare(lhs, rhs);
+        }
+    }
+
+    /**
+     * Partitions {@link CompactReadEnd}s by read group and name, so that all the reads that may be paired up end up
+     * in the same partition.
+     */
+    final static class GroupingPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+
+        private final int numPartitions;
+
+        public GroupingPartitioner(final int numPartitions) {
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(final Object key) {
+            return Math.floorMod(((CompactReadEnd) key).groupingHashCode(), numPartitions);
+        }
+    }
+
+    /**
+     * Serializable wrapper around {@link DuplicateCandidate#DUPLICATE_ORDER}, for sorting candidates in a shuffle.
+     */
+    final static class DuplicateOrder implements Comparator<DuplicateCandidate>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(final DuplicateCandidate lhs, final DuplicateCandidate rhs) {
+            return DuplicateCandidate.DUPLICATE_ORDER.compare(lhs, rhs);
+        }
+    }
+
+    /**
+     * Partitions {@link DuplicateCandidate}s by key, so that all duplicates of each other end up in the same partition.
+     */
+    final static class DuplicateKeyPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+
+        private final int numPartitions;
+
+        public DuplicateKeyPartitioner(final int numPartitions) {
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(final Object key) {
+            return Math.floorMod(((DuplicateCandidate) key).keyHashCode(), numPartitions);
+        }
+    }
+
+    /**
+     * Partitions read ordinals made by {@link #ordinal} back to the partition of their read.
+     */
+    final static class OrdinalPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+
+        private final int numPartitions;
+
+        public OrdinalPartitioner(final int numPartitions) {
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(final Object key) {
+            return (int) ((Long) key % numPartitions);
+        }
+    }
+
     /**
      * GATKRead comparator that compares based on mapping position followed by SAM flags.
      */
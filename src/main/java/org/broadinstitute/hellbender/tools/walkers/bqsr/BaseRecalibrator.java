@@ -19,6 +19,7 @@ import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine
 import org.broadinstitute.hellbender.utils.recalibration.QuantizationInfo;
 import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
+import org.broadinstitute.hellbender.utils.runtime.OrderedTaskExecutor;
 import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 
 import java.io.File;
@@ -26,6 +27,8 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * First pass of the base quality score recalibration.
@@ -72,6 +75,11 @@ import java.util.List;
  *   --known-sites another/optional/setOfSitesToMask.vcf \
  *   -O recal_data.table
  * </pre>
+ *
+ * <p>
+ * Use {@code --recalibration-threads} to process reads on several threads. Each thread collects its own tables,
+ * which are combined once all the reads have been processed, so the output is the same as with a single thread.
+ * </p>
  */
 
 @CommandLineProgramProperties(
@@ -87,6 +95,18 @@ public final class BaseRecalibrator extends ReadWalker {
             "(such as read group, reported quality score, machine cycle, and nucleotide context).";
 
     public static final String KNOWN_SITES_ARG_FULL_NAME = "known-sites";
+    public static final String RECALIBRATION_THREADS_LONG_NAME = "recalibration-threads";
+
+    /**
+     * Number of reads handed to a worker thread at once when --{@value #RECALIBRATION_THREADS_LONG_NAME} is greater than 1.
+     */
+    private static final int READS_PER_BATCH = 200;
+
+    /**
+     * Maximum number of batches of reads that may be queued for or running on the worker threads, per thread,
+     * before traversal blocks waiting for a batch to finish.
+     */
+    private static final int MAX_PENDING_BATCHES_PER_THREAD = 4;
 
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
@@ -115,8 +135,24 @@ public final class BaseRecalibrator extends ReadWalker {
     @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, doc = "The output recalibration table file to create", optional = false)
     private File recalTableFile = null;
 
+    /**
+     * Reads are processed on this many threads, in batches. Each thread has its own recalibration engine and tables,
+     * and the tables of all the threads are combined at the end of the traversal. The threads share a single
+     * reference cache.
+     */
+    @Argument(fullName = RECALIBRATION_THREADS_LONG_NAME, doc = "Number of threads to use for collecting the recalibration tables", optional = true, minValue = 1)
+    private int recalibrationThreads = 1;
+
     private BaseRecalibrationEngine recalibrationEngine;
 
+    // Used only when recalibrationThreads > 1: workers owning a private engine, the reference shared by the workers, and the current batch of reads
+    private BlockingQueue<RecalibrationWorker> workers;
+    private final List<RecalibrationWorker> allWorkers = new ArrayList<>();
+    private ConcurrentCachingReferenceSource workersReference;
+    private OrderedTaskExecutor<Void> batchExecutor;
+    private List<GATKRead> readBatch;
+    private List<List<Feature>> knownSitesBatch;
+
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
 
     /**
@@ -144,6 +180,26 @@ public final class BaseRecalibrator extends ReadWalker {
         recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
         recalibrationEngine.logCovariatesUsed();
         referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+
+        if ( recalibrationThreads > 1 ) {
+            initializeWorkers();
+        }
+    }
+
+    private void initializeWorkers() {
+        workersReference = new ConcurrentCachingReferenceSource(referenceArguments.getReferencePath());
+        workers = new ArrayBlockingQueue<>(recalibrationThreads);
+        for ( int i = 0; i < recalibrationThreads; i++ ) {
+            // the engines may set the platform of the read groups in their header, so each needs its own copy
+            final RecalibrationWorker worker = new RecalibrationWorker(new BaseRecalibrationEngine(recalArgs, getHeaderForReads().clone()));
+            allWorkers.add(worker);
+            workers.add(worker);
+        }
+        batchExecutor = new OrderedTaskExecutor<>(recalibrationThreads, MAX_PENDING_BATCHES_PER_THREAD * recalibrationThreads,
+                "BaseRecalibrator-batch-%d", ignored -> {});
+        readBatch = new ArrayList<>(READS_PER_BATCH);
+        knownSitesBatch = new ArrayList<>(READS_PER_BATCH);
+        logger.info("Collecting recalibration tables using " + recalibrationThreads + " threads");
     }
 
     @Override
@@ -182,11 +238,46 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        if ( batchExecutor == null ) {
+            recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+            return;
+        }
+
+        // the known sites are queried here since the feature sources are shared by all the threads
+        readBatch.add(read);
+        knownSitesBatch.add(featureContext.getValues(knownSites));
+        if ( readBatch.size() == READS_PER_BATCH ) {
+            submitBatch();
+        }
+    }
+
+    private void submitBatch() {
+        final List<GATKRead> reads = readBatch;
+        final List<List<Feature>> readsKnownSites = knownSitesBatch;
+        batchExecutor.submit(() -> {
+            final RecalibrationWorker worker = workers.take();
+            try {
+                for ( int i = 0; i < reads.size(); i++ ) {
+                    worker.engine.processRead(reads.get(i), workersReference, readsKnownSites.get(i));
+                }
+            } finally {
+                workers.add(worker);
+            }
+            return null;
+        });
+        readBatch = new ArrayList<>(READS_PER_BATCH);
+        knownSitesBatch = new ArrayList<>(READS_PER_BATCH);
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if ( batchExecutor != null ) {
+            if ( ! readBatch.isEmpty() ) {
+                submitBatch();
+            }
+            batchExecutor.drain();
+            allWorkers.forEach(worker -> recalibrationEngine.combine(worker.engine));
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
@@ -209,6 +300,16 @@ public final class BaseRecalibrator extends ReadWalker {
         quantizationInfo = new QuantizationInfo(recalibrationEngine.getFinalRecalibrationTables(), recalArgs.QUANTIZING_LEVELS);
     }
 
+    @Override
+    public void closeTool() {
+        if ( batchExecutor != null ) {
+            batchExecutor.close();
+        }
+        if ( workersReference != null ) {
+            workersReference.close();
+        }
+    }
+
     private void generateReport() {
         try ( PrintStream recalTableStream = new PrintStream(recalTableFile) ) {
             RecalUtils.outputRecalibrationReport(recalTableStream, recalArgs, quantizationInfo, recalibrationEngine.getFinalRecalibrationTables(), recalibrationEngine.getCovariates());
@@ -217,4 +318,15 @@ public final class BaseRecalibrator extends ReadWalker {
             throw new UserException.CouldNotCreateOutputFile(recalTableFile, e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Recalibration engine owned by one worker thread at a time.
+     */
+    private static final class RecalibrationWorker {
+        private final BaseRecalibrationEngine engine;
+
+        private RecalibrationWorker(final BaseRecalibrationEngine engine) {
+            this.engine = engine;
+        }
+    }
+}
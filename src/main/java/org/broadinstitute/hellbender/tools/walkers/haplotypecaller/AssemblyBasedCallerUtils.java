@@ -184,6 +184,8 @@ public final class AssemblyBasedCallerUtils {
         assemblyEngine.setRecoverDanglingBranches(!rtaac.doNotRecoverDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(rtaac.minDanglingBranchLength);
         assemblyEngine.setMinBaseQualityToUseInAssembly(args.minBaseQualityScore);
+        assemblyEngine.setSkipKmerSizesPredictedToFail(rtaac.skipKmerSizesPredictedToFail);
+        assemblyEngine.setUseIterativeKBestHaplotypeFinder(rtaac.useIterativeKBestHaplotypeFinder);
 
         if ( rtaac.graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(rtaac.graphOutput));
@@ -41,6 +41,8 @@ public final class AssemblyResultSet {
     private boolean variationPresent;
     private Haplotype refHaplotype;
     private boolean wasTrimmed = false;
+    private int numberOfKmerSizesTried = 0;
+    private int numberOfGraphsBuilt = 0;
     private final CountSet kmerSizes;
     private SortedSet<VariantContext> variationEvents;
     private boolean debug;
@@ -96,6 +98,7 @@ public final class AssemblyResultSet {
             throw new IllegalStateException("missing reference haplotype in the trimmed set");
         }
         result.wasTrimmed = true;
+        result.setKmerSizeSearchCounts(numberOfKmerSizesTried, numberOfGraphsBuilt);
         return result;
     }
 
@@ -439,6 +442,36 @@ public final class AssemblyResultSet {
         return assemblyResult.getThreadingGraph();
     }
 
+    /**
+     * Records how much work the assembler did to find the kmer sizes of this set.
+     *
+     * @param kmerSizesTried number of kmer sizes the assembler considered.
+     * @param graphsBuilt number of assembly graphs the assembler actually built, at most {@code kmerSizesTried}.
+     */
+    public void setKmerSizeSearchCounts(final int kmerSizesTried, final int graphsBuilt) {
+        Utils.validateArg(graphsBuilt >= 0 && graphsBuilt <= kmerSizesTried, "the number of graphs built must be between 0 and the number of kmer sizes tried");
+        numberOfKmerSizesTried = kmerSizesTried;
+        numberOfGraphsBuilt = graphsBuilt;
+    }
+
+    /**
+     * Returns the number of kmer sizes the assembler considered for this set.
+     *
+     * @return 0 or greater.
+     */
+    public int getNumberOfKmerSizesTried() {
+        return numberOfKmerSizesTried;
+    }
+
+    /**
+     * Returns the number of assembly graphs the assembler built for this set.
+     *
+     * @return 0 or greater, never more than {@link #getNumberOfKmerSizesTried()}.
+     */
+    public int getNumberOfGraphsBuilt() {
+        return numberOfGraphsBuilt;
+    }
+
     /**
      * Checks whether this assembly result set was trimmed.
      *
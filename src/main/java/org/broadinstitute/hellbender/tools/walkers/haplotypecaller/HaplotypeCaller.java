@@ -2,9 +2,13 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.samtools.util.CloserUtil;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import java.nio.file.Path;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
@@ -17,10 +21,16 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.runtime.OrderedTaskExecutor;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 
 
@@ -102,6 +112,16 @@ import org.broadinstitute.hellbender.utils.io.IOUtils;
  *   -G AS_Standard
  * </pre>
  *
+ * <h4>Single-sample GVCF calling using multiple threads for the assembly regions</h4>
+ * <pre>
+ * gatk --java-options "-Xmx16g" HaplotypeCaller  \
+ *   -R Homo_sapiens_assembly38.fasta \
+ *   -I input.bam \
+ *   -O output.g.vcf.gz \
+ *   -ERC GVCF \
+ *   --assembly-region-threads 8
+ * </pre>
+ *
  * <h4>Variant calling with <a href='https://software.broadinstitute.org/gatk/documentation/article?id=5484'>bamout</a> to show realigned reads</h4>
  * <pre>
  * gatk --java-options "-Xmx4g" HaplotypeCaller  \
@@ -147,6 +167,14 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
     public static final int DEFAULT_MAX_READS_PER_ALIGNMENT = 50;
     public static final double DEFAULT_ACTIVE_PROB_THRESHOLD = 0.002;
     public static final int DEFAULT_MAX_PROB_PROPAGATION_DISTANCE = 50;
+
+    public static final String ASSEMBLY_REGION_THREADS_LONG_NAME = "assembly-region-threads";
+
+    /**
+     * Maximum number of assembly regions that may be queued for or running on the worker threads, per thread,
+     * before traversal blocks waiting for the oldest region to finish.
+     */
+    private static final int MAX_PENDING_REGIONS_PER_THREAD = 4;
     @ArgumentCollection
     private HaplotypeCallerArgumentCollection hcArgs = new HaplotypeCallerArgumentCollection();
 
@@ -156,10 +184,28 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
     @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, doc = "File to which variants should be written")
     public String outputVCF = null;
 
+    /**
+     * Number of threads used to call variants in assembly regions. When greater than 1, assembly regions are still
+     * determined on the main thread, but assembly, likelihood calculation and genotyping for each region run on a pool
+     * of worker threads, each with its own engine. Calls are written in the same order as, and are identical to, those
+     * of a single-threaded run. Not compatible with --{@value AssemblyBasedCallerArgumentCollection#BAM_OUTPUT_LONG_NAME}.
+     */
+    @Advanced
+    @Argument(fullName = ASSEMBLY_REGION_THREADS_LONG_NAME, doc = "Number of threads to use for calling variants in assembly regions", optional = true, minValue = 1)
+    public int assemblyRegionThreads = 1;
+
     private VariantContextWriter vcfWriter;
 
     private HaplotypeCallerEngine hcEngine;
 
+    // Only used when assemblyRegionThreads > 1. Each worker engine is owned by at most one thread at a time.
+    private BlockingQueue<HaplotypeCallerEngine> workerEngines;
+
+    // Reference readers opened for the engines, which don't close them
+    private final List<ReferenceSequenceFile> referenceReaders = new ArrayList<>();
+
+    private OrderedTaskExecutor<List<VariantContext>> regionExecutor;
+
     @Override
     protected int defaultMinAssemblyRegionSize() { return DEFAULT_MIN_ASSEMBLY_REGION_SIZE; }
 
@@ -193,13 +239,40 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void onTraversalStart() {
-        final ReferenceSequenceFile referenceReader = getReferenceReader(referenceArguments);
-        hcEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), referenceReader);
+        hcEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), openReferenceReader());
 
         // The HC engine will make the right kind (VCF or GVCF) of writer for us
         final SAMSequenceDictionary sequenceDictionary = getHeaderForReads().getSequenceDictionary();
         vcfWriter = hcEngine.makeVCFWriter(outputVCF, sequenceDictionary, createOutputVariantIndex, createOutputVariantMD5);
         hcEngine.writeHeader(vcfWriter, sequenceDictionary, getDefaultToolVCFHeaderLines());
+
+        if ( assemblyRegionThreads > 1 ) {
+            initializeWorkerEngines();
+        }
+    }
+
+    private void initializeWorkerEngines() {
+        if ( hcArgs.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(ASSEMBLY_REGION_THREADS_LONG_NAME,
+                    "multi-threaded assembly region processing cannot be used together with --" + AssemblyBasedCallerArgumentCollection.BAM_OUTPUT_LONG_NAME);
+        }
+
+        // The main engine is only used to determine activity; each worker thread gets its own engine
+        // (and reference reader), since none of the assembly, likelihood or genotyping engines are thread-safe
+        workerEngines = new ArrayBlockingQueue<>(assemblyRegionThreads);
+        for ( int i = 0; i < assemblyRegionThreads; i++ ) {
+            workerEngines.add(new HaplotypeCallerEngine(hcArgs, false, false, getHeaderForReads(), openReferenceReader()));
+        }
+
+        regionExecutor = new OrderedTaskExecutor<>(assemblyRegionThreads, MAX_PENDING_REGIONS_PER_THREAD * assemblyRegionThreads,
+                "HaplotypeCaller-region-%d", calls -> calls.forEach(vcfWriter::add));
+        logger.info("Calling variants in assembly regions using " + assemblyRegionThreads + " threads");
+    }
+
+    private ReferenceSequenceFile openReferenceReader() {
+        final ReferenceSequenceFile referenceReader = getReferenceReader(referenceArguments);
+        referenceReaders.add(referenceReader);
+        return referenceReader;
     }
 
     private static CachingIndexedFastaSequenceFile getReferenceReader(ReferenceInputArgumentCollection referenceArguments) {
@@ -215,11 +288,45 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        if ( regionExecutor == null ) {
+            hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+            return;
+        }
+
+        // Reads are shared between neighboring regions and callRegion() may modify them in place (eg., when adjusting
+        // the qualities of overlapping mates), so give each region its own copies before handing it to another thread
+        final List<GATKRead> readCopies = region.getReads().stream().map(GATKRead::deepCopy).collect(Collectors.toList());
+        region.clearReads();
+        region.addAll(readCopies);
+
+        regionExecutor.submit(() -> {
+            final HaplotypeCallerEngine engine = workerEngines.take();
+            try {
+                return engine.callRegion(region, featureContext);
+            } finally {
+                workerEngines.add(engine);
+            }
+        });
+    }
+
+    @Override
+    public Object onTraversalSuccess() {
+        if ( regionExecutor != null ) {
+            regionExecutor.drain();
+        }
+        return null;
     }
 
     @Override
     public void closeTool() {
+        if ( regionExecutor != null ) {
+            regionExecutor.close();
+        }
+
+        if ( workerEngines != null ) {
+            workerEngines.forEach(HaplotypeCallerEngine::shutdown);
+        }
+
         if ( vcfWriter != null ) {
             vcfWriter.close();
         }
@@ -227,5 +334,8 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         if ( hcEngine != null ) {
             hcEngine.shutdown();
         }
+
+        CloserUtil.close(referenceReaders);
+        referenceReaders.clear();
     }
 }
@@ -431,6 +431,12 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             return new ActivityProfileState(ref.getInterval(), 0.0);
         }
 
+        if ( ! ReferenceConfidenceModel.hasNonRefEvidence(context.getBasePileup(), ref.getBase(), hcArgs.minBaseQualityScore) ) {
+            // every usable base supports the reference, so hom-ref is the most likely genotype in every sample and the
+            // genotyper below would report the site as inactive with no high quality soft clips; skip it altogether
+            return new ActivityProfileState(ref.getInterval(), 0.0, ActivityProfileState.Type.NONE, 0.0);
+        }
+
         final int ploidy = activeRegionEvaluationGenotyperEngine.getConfiguration().genotypeArgs.samplePloidy;
         final List<Allele> noCall = GATKVariantContextUtils.noCallAlleles(ploidy); // used to noCall all genotypes until the exact model is applied
 
@@ -180,9 +180,11 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         // Add likelihoods for each sample's reads to our result
         final ReadLikelihoods<Haplotype> result = new ReadLikelihoods<>(samples, haplotypes, perSampleReadList);
         final int sampleCount = result.numberOfSamples();
+        final List<LikelihoodMatrix<Haplotype>> sampleMatrices = new ArrayList<>(sampleCount);
         for (int i = 0; i < sampleCount; i++) {
-            computeReadLikelihoods(result.sampleMatrix(i));
+            sampleMatrices.add(result.sampleMatrix(i));
         }
+        computeReadLikelihoods(sampleMatrices);
 
         result.normalizeLikelihoods(false, log10globalReadMismappingRate);
         result.filterPoorlyModeledReads(EXPECTED_ERROR_RATE_PER_BASE);
@@ -243,16 +245,28 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         pairHMM.initialize(haplotypes, perSampleReadList, readMaxLength, haplotypeMaxLength);
     }
 
-    private void computeReadLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
-        // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
-        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads());
-
-        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
+    /**
+     * Compute the likelihoods for all samples' reads, submitting the reads of all samples to the PairHMM as a single
+     * batch so that implementations with a high per-call overhead (ie., the native ones) are called only once per region.
+     * Regions are not batched together, since they have different haplotypes, so single-sample inputs (eg., exomes
+     * and panels) still make one PairHMM call per region and gain nothing from this.
+     *
+     * @param sampleLikelihoods the likelihood matrix of each sample, all sharing the same haplotypes
+     */
+    private void computeReadLikelihoods(final List<LikelihoodMatrix<Haplotype>> sampleLikelihoods) {
+        final List<List<GATKRead>> processedReads = new ArrayList<>(sampleLikelihoods.size());
+        final Map<GATKRead, byte[]> gapContinuationPenalties = new HashMap<>();
+        for (final LikelihoodMatrix<Haplotype> likelihoods : sampleLikelihoods) {
+            // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
+            final List<GATKRead> sampleProcessedReads = modifyReadQualities(likelihoods.reads());
+            processedReads.add(sampleProcessedReads);
+            gapContinuationPenalties.putAll(buildGapContinuationPenalties(sampleProcessedReads, constantGCP));
+        }
 
         // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        pairHMM.batchComputeLog10Likelihoods(sampleLikelihoods, processedReads, gapContinuationPenalties);
 
-        writeDebugLikelihoods(likelihoods);
+        sampleLikelihoods.forEach(this::writeDebugLikelihoods);
     }
 
     /**
@@ -41,6 +41,24 @@ public final class ReadThreadingAssemblerArgumentCollection implements Serializa
     @Argument(fullName="allow-non-unique-kmers-in-ref", doc="Allow graphs that have non-unique kmers in the reference", optional = true)
     public boolean allowNonUniqueKmersInRef = false;
 
+    /**
+     * Before building the assembly graph for a kmer size, scan the kmers of the reference and reads and skip the kmer
+     * size if its graph is certain to be rejected for low complexity. This saves building graphs in repetitive
+     * (e.g. STR-rich) regions and does not change the results.
+     */
+    @Advanced
+    @Argument(fullName="skip-kmer-sizes-predicted-to-fail", doc="Skip kmer sizes whose graph is predicted to be rejected before building it", optional = true)
+    public boolean skipKmerSizesPredictedToFail = false;
+
+    /**
+     * Look for the best haplotypes of each assembly graph with an iterative search whose memory use is bounded by
+     * --max-num-haplotypes-in-population, instead of the default recursive search. Both searches find the same
+     * haplotypes in the same order.
+     */
+    @Advanced
+    @Argument(fullName="use-iterative-kbest-haplotype-finder", doc="Use the iterative, bounded memory search for the best haplotypes of each assembly graph", optional = true)
+    public boolean useIterativeKBestHaplotypeFinder = false;
+
     /**
      * If fewer samples than the specified number pass the minPruning threshold for a given path, that path will be eliminated from the graph.
      */
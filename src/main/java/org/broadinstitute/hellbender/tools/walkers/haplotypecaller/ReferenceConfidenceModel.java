@@ -379,9 +379,42 @@ public final class ReferenceConfidenceModel {
         return result;
     }
 
-    private void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double log10Ploidy, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips) {
-        final boolean isAlt = element.getBase() != refBase || element.isDeletion() || element.isBeforeDeletionStart()
+    /**
+     * Checks whether any element in the pileup would count as non-reference evidence in
+     * {@link #calcGenotypeLikelihoodsOfRefVsAny}: a usable base that mismatches the reference, a deletion, an adjacent
+     * indel or a neighbouring soft clip.
+     *
+     * <p>
+     *     When this returns {@code false} every usable element supports the reference, so the hom-ref genotype is the
+     *     most likely one and no high quality soft clips are collected; callers can use it to skip the likelihood
+     *     calculation altogether.
+     * </p>
+     *
+     * @param pileup the read backed pileup containing the data we want to evaluate
+     * @param refBase the reference base at this pileup position
+     * @param minBaseQual the min base quality for a read in the pileup at the pileup position to be included in the calculation
+     * @return {@code true} iff at least one usable element in the pileup does not support the reference
+     */
+    public static boolean hasNonRefEvidence(final ReadPileup pileup, final byte refBase, final byte minBaseQual) {
+        Utils.nonNull(pileup, "the pileup cannot be null");
+        for (final PileupElement p : pileup) {
+            if (!p.isDeletion() && p.getQual() <= minBaseQual) {
+                continue;
+            }
+            if (isNonRefEvidence(p, refBase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNonRefEvidence(final PileupElement element, final byte refBase) {
+        return element.getBase() != refBase || element.isDeletion() || element.isBeforeDeletionStart()
                 || element.isAfterDeletionEnd() || element.isBeforeInsertion() || element.isAfterInsertion() || element.isNextToSoftClip();
+    }
+
+    private void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double log10Ploidy, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips) {
+        final boolean isAlt = isNonRefEvidence(element, refBase);
         final double referenceLikelihood;
         final double nonRefLikelihood;
         if (isAlt) {
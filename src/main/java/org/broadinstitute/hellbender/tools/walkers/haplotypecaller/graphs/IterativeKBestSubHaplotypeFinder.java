@@ -0,0 +1,541 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.util.*;
+
+/**
+ * K-best sub-haplotype finder that enumerates the best haplotypes from a set of source vertices to a set of sink
+ * vertices iteratively, without building a sub-finder per vertex.
+ *
+ * <p>
+ *     The search is the same as that of the recursive finders: the best sub-haplotypes from each vertex are merged
+ *     from the best sub-haplotypes of its children with a priority queue, and are calculated on demand. Here the
+ *     demand is tracked with an explicit stack rather than with recursive calls, so no step recurses over the length
+ *     of the paths, and sub-haplotypes share their suffixes.
+ * </p>
+ *
+ * <p>
+ *     Edge scores are calibrated and added up as in {@link RecursiveSubHaplotypeFinder}, and the priority queues see
+ *     the same sequence of insertions and removals as those of {@link AggregatedSubHaplotypeFinder}, so the
+ *     haplotypes, their scores and their order, including amongst haplotypes with the very same score, are exactly
+ *     those of the recursive finders. The next sub-haplotype of a child is only queued when the vertex needs another
+ *     solution, so no vertex ever holds more than {@code maxHaplotypes} solutions, and memory use is bounded by
+ *     {@code maxHaplotypes} times the size of the graph however many paths the graph has.
+ * </p>
+ *
+ * <p>The input graph must not have cycles amongst the vertices reachable from the sources.</p>
+ */
+final class IterativeKBestSubHaplotypeFinder implements KBestSubHaplotypeFinder {
+
+    private static final int NONE = -1;
+
+    private final SeqGraph graph;
+
+    private final int maxHaplotypes;
+
+    /**
+     * Vertices of the graph, indexed by their position in this array.
+     */
+    private final SeqVertex[] vertices;
+
+    private final int[] sourceIndices;
+
+    private final boolean[] isSink;
+
+    private final boolean[] isReferenceVertex;
+
+    /**
+     * Edges that can be part of a haplotype, i.e. that come out of a non-sink vertex and lead to some sink.
+     */
+    private final BaseEdge[] edges;
+    private final int[] edgeSource;
+    private final int[] edgeTarget;
+    private final double[] edgeScore;
+
+    /**
+     * Indices of the usable outgoing edges of each vertex, in the graph's order.
+     */
+    private final int[][] outgoingEdges;
+
+    /**
+     * The search nodes are the vertices, with the same indices, and when there is more than one source, an extra
+     * node at index {@code vertices.length} that merges the solutions of all sources.
+     */
+    private final int topNode;
+
+    /**
+     * Number of solutions from each node, capped at {@link Integer#MAX_VALUE} as in the recursive finders.
+     */
+    private final int[] counts;
+
+    /**
+     * Solutions from each node calculated so far, best first; {@code null} until the first one is needed.
+     */
+    private final List<List<RankedHaplotype>> solutions;
+
+    /**
+     * Next best solution through each child of a node, as in {@link AggregatedSubHaplotypeFinder};
+     * {@code null} until the node's first solution is needed.
+     */
+    private final List<PriorityQueue<RankedHaplotype>> candidates;
+
+    /**
+     * For each node, the child and rank of the candidate that replaces the last solution taken, if any. It is only
+     * queued when the next solution is needed, so that children are never asked for solutions that are not used.
+     */
+    private final int[] pendingChild;
+    private final int[] pendingChildRank;
+
+    /**
+     * Creates a new finder.
+     *
+     * @param graph the search graph, with no cycles reachable from the sources.
+     * @param sources the source vertices for all haplotypes, in order of preference when scoring a sequence.
+     * @param sinks the sink vertices for all haplotypes.
+     * @param maxHaplotypes the maximum number of haplotypes to find.
+     */
+    IterativeKBestSubHaplotypeFinder(final SeqGraph graph, final Collection<SeqVertex> sources, final Set<SeqVertex> sinks,
+                                     final int maxHaplotypes) {
+        this.graph = Utils.nonNull(graph, "graph cannot be null");
+        Utils.nonNull(sources, "sources cannot be null");
+        Utils.nonNull(sinks, "sinks cannot be null");
+        ParamUtils.isPositive(maxHaplotypes, "the maximum number of haplotypes must be positive");
+        this.maxHaplotypes = maxHaplotypes;
+
+        vertices = graph.vertexSet().toArray(new SeqVertex[0]);
+        final Map<SeqVertex, Integer> vertexIndex = new HashMap<>(vertices.length);
+        for (int i = 0; i < vertices.length; i++) {
+            vertexIndex.put(vertices[i], i);
+        }
+        sourceIndices = sources.stream().mapToInt(vertexIndex::get).toArray();
+        isSink = new boolean[vertices.length];
+        isReferenceVertex = new boolean[vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            isSink[i] = sinks.contains(vertices[i]);
+            isReferenceVertex[i] = graph.isReferenceNode(vertices[i]);
+        }
+
+        // vertices with some path to a sink, found walking backwards from the sinks; paths never go through a sink
+        final boolean[] reachesSink = isSink.clone();
+        final Deque<Integer> pending = new ArrayDeque<>();
+        for (int i = 0; i < vertices.length; i++) {
+            if (isSink[i]) {
+                pending.add(i);
+            }
+        }
+        while (!pending.isEmpty()) {
+            for (final BaseEdge edge : graph.incomingEdgesOf(vertices[pending.remove()])) {
+                final int parent = vertexIndex.get(graph.getEdgeSource(edge));
+                if (!reachesSink[parent]) {
+                    reachesSink[parent] = true;
+                    pending.add(parent);
+                }
+            }
+        }
+
+        // collect the usable edges and calibrate their scores against the other usable edges of the same vertex
+        final List<BaseEdge> edgeList = new ArrayList<>();
+        final List<int[]> outgoing = new ArrayList<>(vertices.length);
+        final List<Double> scores = new ArrayList<>();
+        for (int i = 0; i < vertices.length; i++) {
+            final List<BaseEdge> usable = new ArrayList<>();
+            if (!isSink[i] && reachesSink[i]) {
+                for (final BaseEdge edge : graph.outgoingEdgesOf(vertices[i])) {
+                    if (reachesSink[vertexIndex.get(graph.getEdgeTarget(edge))]) {
+                        usable.add(edge);
+                    }
+                }
+            }
+            double totalEdgeMultiplicityAcrossEdges = 0;
+            for (final BaseEdge edge : usable) {
+                totalEdgeMultiplicityAcrossEdges += Math.max(0.5, edge.getMultiplicity());
+            }
+            final double log10TotalEdgeMultiplicityAcrossEdges = Math.log10(totalEdgeMultiplicityAcrossEdges);
+            final int[] edgeIndices = new int[usable.size()];
+            for (int j = 0; j < edgeIndices.length; j++) {
+                final BaseEdge edge = usable.get(j);
+                edgeIndices[j] = edgeList.size();
+                edgeList.add(edge);
+                // a single usable edge is not calibrated, as in the recursive finder
+                scores.add(usable.size() == 1 ? 0 : Math.log10(Math.max(edge.getMultiplicity(), 0.5)) - log10TotalEdgeMultiplicityAcrossEdges);
+            }
+            outgoing.add(edgeIndices);
+        }
+        edges = edgeList.toArray(new BaseEdge[0]);
+        outgoingEdges = outgoing.toArray(new int[0][]);
+        edgeSource = new int[edges.length];
+        edgeTarget = new int[edges.length];
+        edgeScore = new double[edges.length];
+        final int[] incomingCount = new int[vertices.length];
+        for (int e = 0; e < edges.length; e++) {
+            edgeSource[e] = vertexIndex.get(graph.getEdgeSource(edges[e]));
+            edgeTarget[e] = vertexIndex.get(graph.getEdgeTarget(edges[e]));
+            edgeScore[e] = scores.get(e);
+            incomingCount[edgeTarget[e]]++;
+        }
+        final int[][] incomingEdges = new int[vertices.length][];
+        for (int i = 0; i < vertices.length; i++) {
+            incomingEdges[i] = new int[incomingCount[i]];
+            incomingCount[i] = 0;
+        }
+        for (int e = 0; e < edges.length; e++) {
+            incomingEdges[edgeTarget[e]][incomingCount[edgeTarget[e]]++] = e;
+        }
+
+        topNode = sourceIndices.length == 1 ? sourceIndices[0] : vertices.length;
+        final int numNodes = vertices.length + 1;
+        counts = countSolutions(incomingEdges);
+        solutions = new ArrayList<>(Collections.nCopies(numNodes, null));
+        candidates = new ArrayList<>(Collections.nCopies(numNodes, null));
+        pendingChild = new int[numNodes];
+        pendingChildRank = new int[numNodes];
+        Arrays.fill(pendingChild, NONE);
+    }
+
+    /**
+     * Counts the solutions from each node, visiting the vertices from the sinks backwards so that the counts of all
+     * the children of a vertex are known before its own.
+     */
+    private int[] countSolutions(final int[][] incomingEdges) {
+        final int[] result = new int[vertices.length + 1];
+        final int[] pendingChildren = new int[vertices.length];
+        final IntStack ready = new IntStack();
+        for (int i = 0; i < vertices.length; i++) {
+            pendingChildren[i] = outgoingEdges[i].length;
+            if (pendingChildren[i] == 0) {
+                result[i] = isSink[i] ? 1 : 0;
+                ready.push(i);
+            }
+        }
+        while (ready.size() > 0) {
+            for (final int edge : incomingEdges[ready.pop()]) {
+                final int parent = edgeSource[edge];
+                if (--pendingChildren[parent] == 0) {
+                    long count = 0;
+                    for (final int childEdge : outgoingEdges[parent]) {
+                        count += result[edgeTarget[childEdge]];
+                    }
+                    result[parent] = (int) Math.min(Integer.MAX_VALUE, count);
+                    ready.push(parent);
+                }
+            }
+        }
+        long count = 0;
+        for (final int source : sourceIndices) {
+            count += result[source];
+        }
+        result[vertices.length] = (int) Math.min(Integer.MAX_VALUE, count);
+        return result;
+    }
+
+    @Override
+    public String id() {
+        final StringBuilder resultBuilder = new StringBuilder("kbest");
+        for (final int source : sourceIndices) {
+            resultBuilder.append('v').append(vertices[source].getId());
+        }
+        return resultBuilder.toString();
+    }
+
+    @Override
+    public String label() {
+        return "&lt;OR&gt;";
+    }
+
+    @Override
+    public Set<Pair<? extends KBestSubHaplotypeFinder, String>> subFinderLabels() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public int getCount() {
+        return Math.min(counts[topNode], maxHaplotypes);
+    }
+
+    @Override
+    public KBestHaplotype getKBest(final int k) {
+        ParamUtils.isPositiveOrZero(k, "k cannot be negative");
+        Utils.validateArg(k < getCount(), "k must be less than the count");
+        return getSolution(topNode, k);
+    }
+
+    @Override
+    public boolean isReference() {
+        return false;
+    }
+
+    /**
+     * Scores the first path that spells the query, trying sources and then outgoing edges in order, just like the
+     * recursive finders do; in particular a query that ends right after a non-sink vertex gets the score of the path
+     * up to that vertex.
+     */
+    @Override
+    public double score(final byte[] bases, final int offset, final int length) {
+        Utils.nonNull(bases, "bases cannot be null");
+        ParamUtils.isPositiveOrZero(offset, "the offset cannot be negative");
+        ParamUtils.isPositiveOrZero(length, "the length cannot be negative");
+        Utils.validateArg(offset + length <= bases.length, "the offset and length go beyond the array size");
+        for (final int source : sourceIndices) {
+            final double score = score(source, bases, offset, length);
+            if (!Double.isNaN(score)) {
+                return score;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Depth-first search for the first path from {@code start} that spells the query, with an explicit stack.
+     */
+    private double score(final int start, final byte[] bases, final int offset, final int length) {
+        // the edges followed so far, and for each of them the index of the next edge to try at its source vertex
+        final IntStack pathEdges = new IntStack();
+        final IntStack nextEdgeToTry = new IntStack();
+        int vertex = start;
+        int position = offset;
+        int nextEdge = 0;
+        while (true) {
+            final byte[] sequence = vertices[vertex].getSequence();
+            final int remaining = offset + length - position;
+            double matchScore = Double.NaN;
+            boolean descend = false;
+            if (isSink[vertex]) {
+                if (remaining == sequence.length && Utils.equalRange(bases, position, sequence, 0, remaining)) {
+                    matchScore = 0;
+                }
+            } else if (nextEdge < outgoingEdges[vertex].length) {
+                if (remaining == 0) {
+                    matchScore = 0;
+                } else if (remaining >= sequence.length && Utils.equalRange(sequence, 0, bases, position, sequence.length)) {
+                    descend = true;
+                }
+            }
+
+            if (!Double.isNaN(matchScore)) {
+                // add up the edge scores from the end of the path, as the recursive finders do
+                for (int i = pathEdges.size() - 1; i >= 0; i--) {
+                    matchScore = edgeScore[pathEdges.get(i)] + matchScore;
+                }
+                return matchScore;
+            } else if (descend) {
+                final int edge = outgoingEdges[vertex][nextEdge];
+                pathEdges.push(edge);
+                nextEdgeToTry.push(nextEdge + 1);
+                position += sequence.length;
+                vertex = edgeTarget[edge];
+                nextEdge = 0;
+            } else if (pathEdges.size() == 0) {
+                return Double.NaN;
+            } else {
+                // backtrack and try the next edge out of the parent vertex
+                vertex = edgeSource[pathEdges.pop()];
+                nextEdge = nextEdgeToTry.pop();
+                position -= vertices[vertex].getSequence().length;
+            }
+        }
+    }
+
+    private int numChildren(final int node) {
+        return node == vertices.length ? sourceIndices.length : outgoingEdges[node].length;
+    }
+
+    private int child(final int node, final int childIndex) {
+        return node == vertices.length ? sourceIndices[childIndex] : edgeTarget[outgoingEdges[node][childIndex]];
+    }
+
+    /**
+     * Returns the {@code k}-th best solution from a node, calculating it and any solution it depends on if needed.
+     *
+     * <p>
+     *     Each step either finds the solution of a child that a node needs next, or takes one step of
+     *     {@link AggregatedSubHaplotypeFinder#getKBest}: initializing the candidates, queueing the pending candidate or
+     *     taking the best candidate as the next solution.
+     * </p>
+     */
+    private RankedHaplotype getSolution(final int node, final int k) {
+        final IntStack pendingNodes = new IntStack();
+        final IntStack pendingRanks = new IntStack();
+        pendingNodes.push(node);
+        pendingRanks.push(k);
+        while (pendingNodes.size() > 0) {
+            final int current = pendingNodes.peek();
+            final int rank = pendingRanks.peek();
+            List<RankedHaplotype> currentSolutions = solutions.get(current);
+            if (currentSolutions == null) {
+                currentSolutions = new ArrayList<>(1);
+                solutions.set(current, currentSolutions);
+            }
+            if (rank < currentSolutions.size()) {
+                pendingNodes.pop();
+                pendingRanks.pop();
+                continue;
+            }
+
+            if (current < vertices.length && isSink[current]) {
+                final RankedHaplotype onlySolution = new RankedHaplotype(graph, vertices[current], null, 0, isReferenceVertex[current], NONE, NONE);
+                onlySolution.rank = 0;
+                currentSolutions.add(onlySolution);
+                continue;
+            }
+
+            PriorityQueue<RankedHaplotype> currentCandidates = candidates.get(current);
+            if (currentCandidates == null) {
+                final int missingChild = firstChildWithoutSolutions(current);
+                if (missingChild != NONE) {
+                    pendingNodes.push(missingChild);
+                    pendingRanks.push(0);
+                    continue;
+                }
+                currentCandidates = new PriorityQueue<>(numChildren(current));
+                for (int i = 0; i < numChildren(current); i++) {
+                    if (counts[child(current, i)] != 0) {
+                        currentCandidates.add(candidate(current, i, 0));
+                    }
+                }
+                candidates.set(current, currentCandidates);
+            } else if (pendingChild[current] != NONE) {
+                final int childNode = child(current, pendingChild[current]);
+                final List<RankedHaplotype> childSolutions = solutions.get(childNode);
+                if (childSolutions == null || childSolutions.size() <= pendingChildRank[current]) {
+                    pendingNodes.push(childNode);
+                    pendingRanks.push(pendingChildRank[current]);
+                    continue;
+                }
+                currentCandidates.add(candidate(current, pendingChild[current], pendingChildRank[current]));
+                pendingChild[current] = NONE;
+            } else {
+                final RankedHaplotype next = currentCandidates.remove();
+                next.rank = currentSolutions.size();
+                currentSolutions.add(next);
+                // if there is no further solution from the same child we cannot add another solution from that child
+                if (next.childRank + 1 < counts[child(current, next.childIndex)]) {
+                    pendingChild[current] = next.childIndex;
+                    pendingChildRank[current] = next.childRank + 1;
+                }
+            }
+        }
+        return solutions.get(node).get(k);
+    }
+
+    private int firstChildWithoutSolutions(final int node) {
+        for (int i = 0; i < numChildren(node); i++) {
+            final int childNode = child(node, i);
+            if (counts[childNode] != 0 && (solutions.get(childNode) == null || solutions.get(childNode).isEmpty())) {
+                return childNode;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Makes the candidate solution of a node that goes through the {@code childRank}-th best solution of one of its
+     * children, which must have been calculated already.
+     */
+    private RankedHaplotype candidate(final int node, final int childIndex, final int childRank) {
+        final RankedHaplotype childSolution = solutions.get(child(node, childIndex)).get(childRank);
+        if (node == vertices.length) {
+            return new RankedHaplotype(graph, childSolution.vertex, childSolution.next, childSolution.score, childSolution.isReference,
+                    childIndex, childRank);
+        }
+        final int edge = outgoingEdges[node][childIndex];
+        return new RankedHaplotype(graph, vertices[node], childSolution, edgeScore[edge] + childSolution.score,
+                edges[edge].isRef() && childSolution.isReference, childIndex, childRank);
+    }
+
+    /**
+     * Growable stack of ints.
+     */
+    private static final class IntStack {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        void push(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        int peek() {
+            return values[size - 1];
+        }
+
+        int get(final int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A solution from some node, made of its first vertex and the solution that follows, and the child it comes from.
+     *
+     * <p>Solutions that share their ends share the objects that represent them.</p>
+     */
+    private static final class RankedHaplotype extends KBestHaplotype {
+
+        private final SeqGraph graph;
+        private final SeqVertex vertex;
+        private final RankedHaplotype next;
+        private final double score;
+        private final boolean isReference;
+
+        /**
+         * The child of the node that this solution goes through, and the rank of the child's solution that it uses.
+         */
+        private final int childIndex;
+        private final int childRank;
+
+        private int rank = -1;
+
+        private RankedHaplotype(final SeqGraph graph, final SeqVertex vertex, final RankedHaplotype next, final double score,
+                                final boolean isReference, final int childIndex, final int childRank) {
+            this.graph = graph;
+            this.vertex = vertex;
+            this.next = next;
+            this.score = score;
+            this.isReference = isReference;
+            this.childIndex = childIndex;
+            this.childRank = childRank;
+        }
+
+        @Override
+        public SeqGraph graph() {
+            return graph;
+        }
+
+        @Override
+        public double score() {
+            return score;
+        }
+
+        @Override
+        public boolean isReference() {
+            return isReference;
+        }
+
+        @Override
+        public int rank() {
+            return rank;
+        }
+
+        @Override
+        protected SeqVertex head() {
+            return vertex;
+        }
+
+        @Override
+        protected KBestHaplotype tail() {
+            return next;
+        }
+    }
+}
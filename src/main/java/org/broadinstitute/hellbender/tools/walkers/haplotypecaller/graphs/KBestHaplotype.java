@@ -57,17 +57,21 @@ public abstract class KBestHaplotype implements Comparable<KBestHaplotype> {
         if (bases != null) {
             return bases;
         }
-        final KBestHaplotype tail = tail();
-        final SeqVertex head = head();
-        if (tail == null) {
-            bases = head.getSequence();
-        } else {
-            final byte[] tailBases = tail.bases();
-            final byte[] headBases = head.getSequence();
-            final int length = tailBases.length + headBases.length;
-            bases = new byte[length];
-            System.arraycopy(headBases, 0, bases, 0, headBases.length);
-            System.arraycopy(tailBases, 0, bases, headBases.length, tailBases.length);
+        if (tail() == null) {
+            bases = head().getSequence();
+            return bases;
+        }
+        // walk the path iteratively rather than recursively, so that long paths cannot overflow the stack
+        int length = 0;
+        for (KBestHaplotype subHaplotype = this; subHaplotype != null; subHaplotype = subHaplotype.tail()) {
+            length += subHaplotype.head().getSequence().length;
+        }
+        bases = new byte[length];
+        int offset = 0;
+        for (KBestHaplotype subHaplotype = this; subHaplotype != null; subHaplotype = subHaplotype.tail()) {
+            final byte[] headBases = subHaplotype.head().getSequence();
+            System.arraycopy(headBases, 0, bases, offset, headBases.length);
+            offset += headBases.length;
         }
         return bases;
     }
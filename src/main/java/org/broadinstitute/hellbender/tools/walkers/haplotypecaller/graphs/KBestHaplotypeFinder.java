@@ -59,11 +59,38 @@ public final class KBestHaplotypeFinder extends AbstractList<KBestHaplotype> {
      * </ul>
      */
     public KBestHaplotypeFinder(final SeqGraph graph, final Set<SeqVertex> sources, final Set<SeqVertex> sinks) {
+        this(graph, sources, sinks, 0);
+    }
+
+    /**
+     * Constructs a new best haplotypes finder that looks for at most a given number of haplotypes.
+     *
+     * <p>
+     *     Unlike the other constructors, the search does not recurse over the graph, and its memory use is bounded by
+     *     {@code maxHaplotypes} times the size of the graph. It returns the same haplotypes with the same scores in
+     *     the same order, even amongst haplotypes with exactly the same score. The search graph is not available
+     *     to {@link #printDOT}.
+     * </p>
+     *
+     * @param graph the seq-graph to search.
+     * @param sources source vertices for all haplotypes.
+     * @param sinks sink vertices for all haplotypes.
+     * @param maxHaplotypes maximum number of haplotypes to find, or 0 to find all of them using the recursive search.
+     *
+     * @throws IllegalArgumentException if <ul>
+     *     <li>any of {@code graph}, {@code sources} or {@code sinks} is {@code null},</li>
+     *     <li>any of {@code sources}' or any {@code sinks}' member is not a vertex in {@code graph} or</li>
+     *     <li>{@code maxHaplotypes} is negative.</li>
+     * </ul>
+     */
+    public KBestHaplotypeFinder(final SeqGraph graph, final Set<SeqVertex> sources, final Set<SeqVertex> sinks,
+                                final int maxHaplotypes) {
         Utils.nonNull(graph, "graph cannot be null");
         Utils.nonNull(sources, "sources cannot be null");
         Utils.nonNull(sinks, "sinks cannot be null");
         Utils.validateArg(graph.containsAllVertices(sources), "source does not belong to the graph");
         Utils.validateArg(graph.containsAllVertices(sinks), "sink does not belong to the graph");
+        Utils.validateArg(maxHaplotypes >= 0, "the maximum number of haplotypes cannot be negative");
 
         //TODO dealing with cycles here due to a bug in some of the graph transformations that produces cycles.
         //TODO Once that is solve, the if-else below should be substituted by a throw if there is any cycles,
@@ -76,6 +103,8 @@ public final class KBestHaplotypeFinder extends AbstractList<KBestHaplotype> {
         this.sources = sources;
         if (sinks.isEmpty() || sources.isEmpty()) {
             topFinder = DeadEndKBestSubHaplotypeFinder.INSTANCE;
+        } else if (maxHaplotypes > 0) {
+            topFinder = new IterativeKBestSubHaplotypeFinder(this.graph, sources, sinks, maxHaplotypes);
         } else if (sources.size() == 1) {
             topFinder = createVertexFinder(sources.iterator().next());
         } else {
@@ -0,0 +1,192 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Map from fixed-size kmers to values, specialized for the read threading graph.
+ *
+ * <p>
+ *     Kmers of up to {@link #MAX_PACKED_KMER_SIZE} bases made only of the bases A, C, G and T are encoded with two bits
+ *     per base into a {@code long} and kept in a primitive open-addressing hash map, so looking them up neither boxes
+ *     the key nor allocates a {@link Kmer}. Any other kmer (longer kmers, or kmers with Ns, IUPAC codes or lower case
+ *     bases) is kept under a boxed {@link Kmer} key instead, so the map behaves exactly as a {@code Map<Kmer, V>}
+ *     would.
+ * </p>
+ *
+ * @param <V> the value type
+ */
+final class PackedKmerMap<V> {
+
+    /**
+     * Maximum kmer size that can be packed in a long. One base is left unused so that no packed kmer is negative,
+     * which lets us use -1 to flag kmers that cannot be packed.
+     */
+    static final int MAX_PACKED_KMER_SIZE = 31;
+
+    /**
+     * Returned by the packing methods for kmers that cannot be packed.
+     */
+    static final long UNPACKABLE = -1;
+
+    private static final int[] BASE_TO_BITS = new int[256];
+    static {
+        Arrays.fill(BASE_TO_BITS, -1);
+        BASE_TO_BITS['A'] = 0;
+        BASE_TO_BITS['C'] = 1;
+        BASE_TO_BITS['G'] = 2;
+        BASE_TO_BITS['T'] = 3;
+    }
+
+    private final int kmerSize;
+    private final Long2ObjectOpenHashMap<V> packedKmers;
+    private final Map<Kmer, V> unpackedKmers;
+
+    /**
+     * @param kmerSize the size of all the kmers in this map, must be 1 or greater
+     */
+    PackedKmerMap(final int kmerSize) {
+        Utils.validateArg(kmerSize > 0, () -> "the kmer size must be 1 or greater but got " + kmerSize);
+        this.kmerSize = kmerSize;
+        packedKmers = new Long2ObjectOpenHashMap<>();
+        unpackedKmers = new HashMap<>();
+    }
+
+    /**
+     * @return {@code true} iff kmers of the given size can be packed
+     */
+    static boolean canPack(final int kmerSize) {
+        return kmerSize <= MAX_PACKED_KMER_SIZE;
+    }
+
+    /**
+     * Returns the two bit code of a base.
+     *
+     * @return 0 to 3 for A, C, G and T respectively, or -1 for any other base
+     */
+    static int baseToBits(final byte base) {
+        return BASE_TO_BITS[base & 0xFF];
+    }
+
+    /**
+     * @return the mask that selects the bits used by a packed kmer of the given size
+     */
+    static long packedKmerMask(final int kmerSize) {
+        return kmerSize >= 32 ? -1L : (1L << (2 * kmerSize)) - 1;
+    }
+
+    /**
+     * Packs a kmer into a long.
+     *
+     * @param bases the bases that contain the kmer
+     * @param start the offset of the first base of the kmer in {@code bases}
+     * @param length the kmer size
+     * @return the packed kmer, or {@link #UNPACKABLE} if the kmer is too long or contains a base other than A, C, G or T
+     */
+    static long pack(final byte[] bases, final int start, final int length) {
+        if ( ! canPack(length) ) {
+            return UNPACKABLE;
+        }
+        long result = 0;
+        for ( int i = start, stop = start + length; i < stop; i++ ) {
+            final int bits = baseToBits(bases[i]);
+            if ( bits < 0 ) {
+                return UNPACKABLE;
+            }
+            result = (result << 2) | bits;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value associated with the kmer that starts at {@code start} in {@code bases}.
+     *
+     * @return {@code null} if there is no such kmer in the map
+     */
+    V get(final byte[] bases, final int start) {
+        final long packed = pack(bases, start, kmerSize);
+        return packed != UNPACKABLE ? packedKmers.get(packed) : unpackedKmers.get(new Kmer(bases, start, kmerSize));
+    }
+
+    /**
+     * Returns the value associated with a kmer.
+     *
+     * @return {@code null} if there is no such kmer in the map, including when the kmer has a different size
+     */
+    V get(final Kmer kmer) {
+        if ( kmer.length() != kmerSize ) {
+            return null;
+        }
+        return get(kmer.bases(), 0);
+    }
+
+    /**
+     * @return {@code true} iff the kmer that starts at {@code start} in {@code bases} is in the map
+     */
+    boolean containsKey(final byte[] bases, final int start) {
+        final long packed = pack(bases, start, kmerSize);
+        return packed != UNPACKABLE ? packedKmers.containsKey(packed) : unpackedKmers.containsKey(new Kmer(bases, start, kmerSize));
+    }
+
+    /**
+     * Associates a value with the kmer that starts at {@code start} in {@code bases}.
+     *
+     * <p>The map may keep a reference to {@code bases}, which therefore must not be modified afterwards.</p>
+     *
+     * @return the value previously associated with the kmer, or {@code null} if there was none
+     */
+    V put(final byte[] bases, final int start, final V value) {
+        final long packed = pack(bases, start, kmerSize);
+        return packed != UNPACKABLE ? packedKmers.put(packed, value) : unpackedKmers.put(new Kmer(bases, start, kmerSize), value);
+    }
+
+    /**
+     * Removes the kmer that starts at {@code start} in {@code bases}.
+     *
+     * @return the value previously associated with the kmer, or {@code null} if there was none
+     */
+    V remove(final byte[] bases, final int start) {
+        final long packed = pack(bases, start, kmerSize);
+        return packed != UNPACKABLE ? packedKmers.remove(packed) : unpackedKmers.remove(new Kmer(bases, start, kmerSize));
+    }
+
+    /**
+     * @return the number of kmers in the map
+     */
+    int size() {
+        return packedKmers.size() + unpackedKmers.size();
+    }
+
+    /**
+     * @return {@code true} iff there are no kmers in the map
+     */
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return a new collection with the values in the map, in no particular order
+     */
+    Collection<V> values() {
+        final List<V> result = new ArrayList<>(size());
+        result.addAll(packedKmers.values());
+        result.addAll(unpackedKmers.values());
+        return result;
+    }
+
+    /**
+     * Removes all kmers from the map.
+     */
+    void clear() {
+        packedKmers.clear();
+        unpackedKmers.clear();
+    }
+}
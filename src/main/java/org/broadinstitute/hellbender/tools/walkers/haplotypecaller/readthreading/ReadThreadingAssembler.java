@@ -45,6 +45,12 @@ public final class ReadThreadingAssembler {
 
     private boolean removePathsNotConnectedToRef = true;
     private boolean justReturnRawGraph = false;
+    private boolean skipKmerSizesPredictedToFail = false;
+    private boolean useIterativeKBestHaplotypeFinder = false;
+
+    /** Number of kmer sizes tried and of graphs actually built while assembling the current region. */
+    private int kmerSizesTriedInRegion = 0;
+    private int graphsBuiltInRegion = 0;
 
     /**
      * If false, we will only write out a region around the reference source
@@ -148,6 +154,10 @@ public final class ReadThreadingAssembler {
             }
 
         }
+        resultSet.setKmerSizeSearchCounts(kmerSizesTriedInRegion, graphsBuiltInRegion);
+        if ( debug ) {
+            logger.info("Tried " + kmerSizesTriedInRegion + " kmer sizes and built " + graphsBuiltInRegion + " graphs to assemble " + activeRegionExtendedLocation);
+        }
 
         findBestPaths(nonRefGraphs, refHaplotype, refLoc, activeRegionExtendedLocation, assemblyResultByGraph, resultSet, aligner);
 
@@ -201,7 +211,8 @@ public final class ReadThreadingAssembler {
             final SeqVertex source = graph.getReferenceSourceVertex();
             final SeqVertex sink = graph.getReferenceSinkVertex();
             Utils.validateArg( source != null && sink != null, () -> "Both source and sink cannot be null but got " + source + " and sink " + sink + " for graph " + graph);
-            final KBestHaplotypeFinder haplotypeFinder = new KBestHaplotypeFinder(graph,source,sink);
+            final KBestHaplotypeFinder haplotypeFinder = new KBestHaplotypeFinder(graph, Collections.singleton(source), Collections.singleton(sink),
+                    useIterativeKBestHaplotypeFinder ? numBestHaplotypesPerGraph : 0);
             finders.add(haplotypeFinder);
             final Iterator<KBestHaplotype> bestHaplotypes = haplotypeFinder.iterator(numBestHaplotypesPerGraph);
 
@@ -384,6 +395,8 @@ public final class ReadThreadingAssembler {
     @VisibleForTesting
     List<AssemblyResult> assemble(final List<GATKRead> reads, final Haplotype refHaplotype, final List<Haplotype> givenHaplotypes, final SAMFileHeader header, final SmithWatermanAligner aligner) {
         final List<AssemblyResult> results = new LinkedList<>();
+        kmerSizesTriedInRegion = 0;
+        graphsBuiltInRegion = 0;
 
         // first, try using the requested kmer sizes
         for ( final int kmerSize : kmerSizes ) {
@@ -430,6 +443,7 @@ public final class ReadThreadingAssembler {
                                        final boolean allowNonUniqueKmersInRef,
                                        final SAMFileHeader header,
                                        final SmithWatermanAligner aligner) {
+        kmerSizesTriedInRegion++;
         if ( refHaplotype.length() < kmerSize ) {
             // happens in cases where the assembled region is just too small
             return new AssemblyResult(AssemblyResult.Status.FAILED, null, null);
@@ -460,8 +474,18 @@ public final class ReadThreadingAssembler {
             rtgraph.addRead(read, header);
         }
 
+        // a graph that is bound to be rejected for low complexity can be ruled out from its kmer counts alone,
+        // before paying for threading the sequences and checking it for cycles
+        if ( skipKmerSizesPredictedToFail && ! allowLowComplexityGraphs && rtgraph.isPredictedLowComplexity() ) {
+            if ( debug ) {
+                logger.info("Not using kmer size of " + kmerSize + " in read threading assembler because its kmer counts show it would not produce a graph with enough complexity");
+            }
+            return null;
+        }
+
         // actually build the read threading graph
         rtgraph.buildGraphIfNecessary();
+        graphsBuiltInRegion++;
 
         // sanity check: make sure there are no cycles in the graph
         if ( rtgraph.hasCycles() ) {
@@ -630,6 +654,32 @@ public final class ReadThreadingAssembler {
         this.justReturnRawGraph = justReturnRawGraph;
     }
 
+    /**
+     * If true, kmer sizes whose graph is certain to be rejected as low complexity are skipped before the graph is built,
+     * based on a scan of the kmers in the reference, given haplotypes and reads.  This does not change the results.
+     */
+    public void setSkipKmerSizesPredictedToFail(final boolean skipKmerSizesPredictedToFail) {
+        this.skipKmerSizesPredictedToFail = skipKmerSizesPredictedToFail;
+    }
+
+    /**
+     * If true, look for the best haplotypes of each graph with an iterative search whose memory use is bounded by the
+     * number of haplotypes requested, rather than with the recursive one.
+     */
+    public void setUseIterativeKBestHaplotypeFinder(final boolean useIterativeKBestHaplotypeFinder) {
+        this.useIterativeKBestHaplotypeFinder = useIterativeKBestHaplotypeFinder;
+    }
+
+    @VisibleForTesting
+    int getKmerSizesTriedInRegion() {
+        return kmerSizesTriedInRegion;
+    }
+
+    @VisibleForTesting
+    int getGraphsBuiltInRegion() {
+        return graphsBuiltInRegion;
+    }
+
     public void setRemovePathsNotConnectedToRef(final boolean removePathsNotConnectedToRef) {
         this.removePathsNotConnectedToRef = removePathsNotConnectedToRef;
     }
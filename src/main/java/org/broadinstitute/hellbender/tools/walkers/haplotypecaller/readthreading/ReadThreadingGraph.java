@@ -5,6 +5,7 @@ import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
@@ -56,14 +57,19 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
     private final Map<String, List<SequenceForKmers>> pending = new LinkedHashMap<>();
 
     /**
-     * A set of non-unique kmers that cannot be used as merge points in the graph
+     * Non-unique kmers of the pending sequences, if already computed by {@link #isPredictedLowComplexity()}
      */
-    private Set<Kmer> nonUniqueKmers;
+    private Set<Kmer> pendingNonUniqueKmers = null;
+
+    /**
+     * A set of non-unique kmers that cannot be used as merge points in the graph, stored as a map from each kmer to itself
+     */
+    private PackedKmerMap<Kmer> nonUniqueKmers;
 
     /**
      * A map from kmers -> their corresponding vertex in the graph
      */
-    private final Map<Kmer, MultiDeBruijnVertex> uniqueKmers = new LinkedHashMap<>();
+    private final PackedKmerMap<MultiDeBruijnVertex> uniqueKmers;
 
     private final boolean debugGraphTransformations;
     private final byte minBaseQualityToUseInAssembly;
@@ -97,6 +103,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
     @VisibleForTesting
     protected ReadThreadingGraph(final int kmerSizeFromString, final EdgeFactory<MultiDeBruijnVertex, MultiSampleEdge> edgeFactory) {
         super(kmerSizeFromString, new MyEdgeFactory(1));
+        uniqueKmers = new PackedKmerMap<>(kmerSizeFromString);
         debugGraphTransformations = false;
         minBaseQualityToUseInAssembly = 0;
     }
@@ -145,6 +152,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
 
         Utils.validateArg( kmerSize > 0, () -> "bad minkKmerSize " + kmerSize);
 
+        uniqueKmers = new PackedKmerMap<>(kmerSize);
         this.debugGraphTransformations = debugGraphTransformations;
         this.minBaseQualityToUseInAssembly = minBaseQualityToUseInAssembly;
 
@@ -156,6 +164,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      */
     private void resetToInitialState() {
         pending.clear();
+        pendingNonUniqueKmers = null;
         nonUniqueKmers = null;
         uniqueKmers.clear();
         refSource = null;
@@ -214,6 +223,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
 
         // add the new sequence to the list of sequences for sample
         sampleSequences.add(new SequenceForKmers(seqName, sequence, start, stop, count, isRef));
+        pendingNonUniqueKmers = null;
     }
 
     /**
@@ -267,8 +277,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         for ( int i = seqForKmers.start; i < seqForKmers.stop - kmerSize; i++ ) {
-            final Kmer kmer1 = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if ( isThreadingStart(kmer1) ) {
+            if ( isThreadingStart(seqForKmers.sequence, i) ) {
                 return i;
             }
         }
@@ -282,12 +291,12 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @see #setThreadingStartOnlyAtExistingVertex(boolean)
      * @see #getThreadingStartOnlyAtExistingVertex()
      *
-     * @param kmer the query kmer.
+     * @param sequence the sequence that contains the query kmer.
+     * @param start the offset of the query kmer in {@code sequence}.
      * @return {@code true} if we can start thread the sequence at this kmer, {@code false} otherwise.
      */
-    private boolean isThreadingStart(final Kmer kmer) {
-        Utils.nonNull(kmer);
-        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(kmer) : !nonUniqueKmers.contains(kmer);
+    private boolean isThreadingStart(final byte[] sequence, final int start) {
+        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(sequence, start) : !nonUniqueKmers.containsKey(sequence, start);
     }
 
     /**
@@ -310,8 +319,12 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // determine the kmer size we'll use, and capture the set of nonUniques for that kmer size
-        final NonUniqueResult result = determineKmerSizeAndNonUniques(kmerSize, kmerSize);
-        nonUniqueKmers = result.nonUniques;
+        final Set<Kmer> nonUniques = pendingNonUniqueKmers != null ? pendingNonUniqueKmers : determineKmerSizeAndNonUniques(kmerSize, kmerSize).nonUniques;
+        pendingNonUniqueKmers = null;
+        nonUniqueKmers = new PackedKmerMap<>(kmerSize);
+        for ( final Kmer kmer : nonUniques ) {
+            nonUniqueKmers.put(kmer.bases(), 0, kmer);
+        }
 
         if ( DEBUG_NON_UNIQUE_CALC ) {
             logger.info("using " + kmerSize + " kmer size for this assembly with the following non-uniques");
@@ -346,8 +359,9 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         final boolean result = super.removeVertex(V);
         if (result) {
             final byte[] sequence = V.getSequence();
-            final Kmer kmer = new Kmer(sequence);
-            uniqueKmers.remove(kmer);
+            if ( sequence.length == kmerSize ) {
+                uniqueKmers.remove(sequence, 0);
+            }
         }
         return result;
     }
@@ -375,6 +389,53 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         return nonUniqueKmers.size() * 4 > uniqueKmers.size();
     }
 
+    /**
+     * Predicts, from the sequences added so far and without threading them, whether {@link #isLowComplexity()} will
+     * be true once the graph is built.
+     *
+     * The non-unique kmers of the built graph are exactly those of the pending sequences, counted over whole sequences
+     * as {@link #determineNonUniqueKmers(SequenceForKmers, int)} does.  Every unique kmer vertex comes from a kmer of
+     * some pending sequence that is not one of them, so counting those kmers over the same whole sequences (which
+     * includes any prefix before {@link SequenceForKmers#start}) can only give too many unique kmers.  Hence a true
+     * result guarantees that the built graph would be low complexity.  The non-unique kmers computed here are reused
+     * when the graph is built, so calling this method right before {@link #buildGraphIfNecessary()} costs little more
+     * than two hash lookups per kmer.
+     *
+     * @return true if the graph is certain to have low complexity, false otherwise
+     */
+    public boolean isPredictedLowComplexity() {
+        if ( alreadyBuilt ) {
+            return isLowComplexity();
+        }
+        final Set<Kmer> pendingNonUniques = getPendingNonUniqueKmers();
+        final PackedKmerMap<Kmer> pendingNonUniqueKmerMap = new PackedKmerMap<>(kmerSize);
+        for ( final Kmer kmer : pendingNonUniques ) {
+            pendingNonUniqueKmerMap.put(kmer.bases(), 0, kmer);
+        }
+        final int maxUniqueKmersForLowComplexity = pendingNonUniques.size() * 4 - 1;
+
+        // stop counting as soon as there are enough unique kmers to make the graph complex enough
+        final PackedKmerMap<Boolean> distinctKmers = new PackedKmerMap<>(kmerSize);
+        int uniqueKmerCount = 0;
+        for ( final SequenceForKmers sequenceForKmers : getAllPendingSequences() ) {
+            for ( int i = 0; i <= sequenceForKmers.stop - kmerSize; i++ ) {
+                if ( distinctKmers.put(sequenceForKmers.sequence, i, Boolean.TRUE) == null
+                        && ! pendingNonUniqueKmerMap.containsKey(sequenceForKmers.sequence, i)
+                        && ++uniqueKmerCount > maxUniqueKmersForLowComplexity ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private Set<Kmer> getPendingNonUniqueKmers() {
+        if ( pendingNonUniqueKmers == null ) {
+            pendingNonUniqueKmers = determineKmerSizeAndNonUniques(kmerSize, kmerSize).nonUniques;
+        }
+        return pendingNonUniqueKmers;
+    }
+
     @Override
     public ReadThreadingGraph clone() {
         return (ReadThreadingGraph) super.clone();
@@ -1017,13 +1078,52 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      */
     static Collection<Kmer> determineNonUniqueKmers(final SequenceForKmers seqForKmers, final int kmerSize) {
         // count up occurrences of kmers within each read
-        final Set<Kmer> allKmers = new LinkedHashSet<>();
         final List<Kmer> nonUniqueKmers = new ArrayList<>();
         final int stopPosition = seqForKmers.stop - kmerSize;
-        for (int i = 0; i <= stopPosition; i++) {
-            final Kmer kmer = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if (!allKmers.add(kmer)) {
-                nonUniqueKmers.add(kmer);
+        if ( stopPosition < 0 ) {
+            return nonUniqueKmers;
+        }
+        final byte[] sequence = seqForKmers.sequence;
+
+        if ( ! PackedKmerMap.canPack(kmerSize) ) {
+            final Set<Kmer> allKmers = new HashSet<>();
+            for (int i = 0; i <= stopPosition; i++) {
+                final Kmer kmer = new Kmer(sequence, i, kmerSize);
+                if (!allKmers.add(kmer)) {
+                    nonUniqueKmers.add(kmer);
+                }
+            }
+            return nonUniqueKmers;
+        }
+
+        // roll a 2-bit packed encoding of the kmer along the sequence, so that each position costs a single shift
+        // instead of hashing a new Kmer object; kmers with bases other than A, C, G or T fall back to boxed Kmers
+        final LongOpenHashSet allPackedKmers = new LongOpenHashSet(stopPosition + 1);
+        Set<Kmer> allUnpackableKmers = null;
+        final long mask = PackedKmerMap.packedKmerMask(kmerSize);
+        long packedKmer = 0;
+        int packableBasesInKmer = 0;
+        for (int end = 0; end < stopPosition + kmerSize; end++) {
+            final int bits = PackedKmerMap.baseToBits(sequence[end]);
+            if (bits < 0) {
+                packableBasesInKmer = 0;
+            } else {
+                packedKmer = ((packedKmer << 2) | bits) & mask;
+                packableBasesInKmer++;
+            }
+            final int i = end - kmerSize + 1;
+            if (i < 0) {
+                continue;
+            }
+            final boolean isNew;
+            if (packableBasesInKmer >= kmerSize) {
+                isNew = allPackedKmers.add(packedKmer);
+            } else {
+                allUnpackableKmers = allUnpackableKmers == null ? new HashSet<>() : allUnpackableKmers;
+                isNew = allUnpackableKmers.add(new Kmer(sequence, i, kmerSize));
+            }
+            if (!isNew) {
+                nonUniqueKmers.add(new Kmer(sequence, i, kmerSize));
             }
         }
         return nonUniqueKmers;
@@ -1061,36 +1161,36 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @return a non-null vertex
      */
     private MultiDeBruijnVertex getOrCreateKmerVertex(final byte[] sequence, final int start) {
-        final Kmer kmer = new Kmer(sequence, start, kmerSize);
-        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(kmer, true);
-        return ( vertex != null ) ? vertex : createVertex(kmer);
+        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(sequence, start, true);
+        return ( vertex != null ) ? vertex : createVertex(sequence, start);
     }
 
     /**
-     * Get the unique vertex for kmer, or null if not possible.
+     * Get the unique vertex for the kmer in sequence starting at start, or null if not possible.
      *
      * @param allowRefSource if true, we will allow kmer to match the reference source vertex
      * @return a vertex for kmer, or null if it's not unique
      */
-    private MultiDeBruijnVertex getUniqueKmerVertex(final Kmer kmer, final boolean allowRefSource) {
-        if ( ! allowRefSource && kmer.equals(refSource) ) {
+    private MultiDeBruijnVertex getUniqueKmerVertex(final byte[] sequence, final int start, final boolean allowRefSource) {
+        if ( ! allowRefSource && refSource != null && refSource.equals(new Kmer(sequence, start, kmerSize)) ) {
             return null;
         }
 
-        return uniqueKmers.get(kmer);
+        return uniqueKmers.get(sequence, start);
     }
 
 
     /**
-     * Create a new vertex for kmer.  Add it to the uniqueKmers map if appropriate.
+     * Create a new vertex for the kmer in sequence starting at start.  Add it to the uniqueKmers map if appropriate.
      *
      * kmer must not have a entry in unique kmers, or an error will be thrown
      *
-     * @param kmer the kmer we want to create a vertex for
+     * @param sequence the sequence that contains the kmer we want to create a vertex for
+     * @param start the position of the kmer start
      * @return the non-null created vertex
      */
-    private MultiDeBruijnVertex createVertex(final Kmer kmer) {
-        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(kmer.bases());
+    private MultiDeBruijnVertex createVertex(final byte[] sequence, final int start) {
+        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(Arrays.copyOfRange(sequence, start, start + kmerSize));
         final int prevSize = vertexSet().size();
         addVertex(newVertex);
 
@@ -1100,9 +1200,10 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // add the vertex to the unique kmer map, if it is in fact unique
-        if ( ! nonUniqueKmers.contains(kmer) && ! uniqueKmers.containsKey(kmer) ) // TODO -- not sure this last test is necessary
+        final byte[] kmer = newVertex.getSequence();
+        if ( ! nonUniqueKmers.containsKey(kmer, 0) && ! uniqueKmers.containsKey(kmer, 0) ) // TODO -- not sure this last test is necessary
         {
-            uniqueKmers.put(kmer, newVertex);
+            uniqueKmers.put(kmer, 0, newVertex);
         }
 
         return newVertex;
@@ -1133,15 +1234,14 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
-        final Kmer kmer = new Kmer(sequence, kmerStart, kmerSize);
-        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(kmer, false);
+        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(sequence, kmerStart, false);
 
         if ( isRef && uniqueMergeVertex != null ) {
             throw new IllegalStateException("Found a unique vertex to merge into the reference graph " + prevVertex + " -> " + uniqueMergeVertex);
         }
 
         // either use our unique merge vertex, or create a new one in the chain
-        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(kmer) : uniqueMergeVertex;
+        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(sequence, kmerStart) : uniqueMergeVertex;
         addEdge(prevVertex, nextVertex, ((MyEdgeFactory)getEdgeFactory()).createEdge(isRef, count));
         return nextVertex;
     }
@@ -1196,7 +1296,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      */
     @VisibleForTesting
     Set<Kmer> getNonUniqueKmers() {
-        return nonUniqueKmers;
+        return new HashSet<>(nonUniqueKmers.values());
     }
 
     @Override
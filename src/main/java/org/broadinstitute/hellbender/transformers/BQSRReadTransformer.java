@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.transformers;
 
+import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SAMUtils;
@@ -27,8 +28,6 @@ import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_R
 public final class BQSRReadTransformer implements ReadTransformer {
     private static final long serialVersionUID = 1L;
 
-    private final QuantizationInfo quantizationInfo; // histogram containing the map for qual quantization (calculated after recalibration is done)
-    private final RecalibrationTables recalibrationTables;
     private final StandardCovariateList covariates; // list of all covariates to be used in this calculation
     private final SAMFileHeader header;
     
@@ -42,13 +41,44 @@ public final class BQSRReadTransformer implements ReadTransformer {
 
     private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
 
-    //Note: varargs allocates a new array every time. We'll pre-allocate one array and reuse it to avoid object allocation for every base of every read.
-    private final RecalDatum[] empiricalQualCovsArgs;
     private final boolean useOriginalBaseQualities;
 
     private byte[] staticQuantizedMapping;
     private final CovariateKeyCache keyCache;
 
+    /*
+     * Lookup tables precomputed from the recalibration tables, so that recalibrating a base takes a few array lookups
+     * instead of a walk through the nested tables and the evaluation of hierarchicalBayesianQualityEstimate().
+     *
+     * The estimate decomposes into a conditional prior that only depends on the read group and reported quality,
+     * plus one delta per additional covariate that only depends on the read group, reported quality and covariate
+     * value, so we store those rather than the result for every combination of covariate values (there are far too
+     * many combinations of context and cycle). Deltas are only stored for the combinations of read group and reported
+     * quality that have data, and a covariate whose deltas would take too much memory (eg., with many read groups) is
+     * looked up in its nested table instead. Values are computed with the same floating-point operations, in the
+     * same order, as hierarchicalBayesianQualityEstimate(), so the recalibrated qualities are identical.
+     */
+    // maximum number of deltas stored for a covariate (32MB), beyond which the covariate is looked up in its nested table
+    static final int DEFAULT_MAX_PRECOMPUTED_DELTAS_PER_COVARIATE = 1 << 22;
+
+    private final int numQualKeys;
+    // read group key -> whether the read group has data in the recalibration tables
+    private final boolean[] readGroupHasData;
+    // (read group key * numQualKeys + qual key) -> conditional prior of the additional covariates
+    private final double[] conditionalPriors;
+    // (read group key * numQualKeys + qual key) -> row of the deltas of that read group and qual, or -1 if no additional covariate has data for them
+    private final int[] deltaRows;
+    // for each additional covariate: covariate key -> index of the key among the keys of that covariate with data, or -1
+    private final int[][] covariateKeyIndexes;
+    // for each additional covariate: number of keys with data
+    private final int[] covariateNumKeys;
+    // for each additional covariate: (row * number of keys with data + key index) -> delta, or null if the covariate is looked up in its table
+    private final double[][] covariateDeltas;
+    // for each additional covariate: its table, used when its deltas are not precomputed
+    private final NestedIntegerArray<RecalDatum>[] covariateTables;
+    // recalibrated quality -> final quality, after dynamic quantization and static binning
+    private final byte[] recalibratedQualMapping;
+
     /**
      * Constructor using a GATK Report file
      *
@@ -68,12 +98,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
      * @param quantizationInfo quantization info
      * @param covariates standard covariate set
      * @param args ApplyBQSR arguments
+     * @param maxPrecomputedDeltasPerCovariate maximum number of deltas precomputed for a covariate
      */
-    private BQSRReadTransformer(final SAMFileHeader header, final RecalibrationTables recalibrationTables, final QuantizationInfo quantizationInfo, final StandardCovariateList covariates, final ApplyBQSRArgumentCollection args) {
+    private BQSRReadTransformer(final SAMFileHeader header, final RecalibrationTables recalibrationTables, final QuantizationInfo quantizationInfo, final StandardCovariateList covariates, final ApplyBQSRArgumentCollection args,
+                                final int maxPrecomputedDeltasPerCovariate) {
         this.header = header;
-        this.recalibrationTables = recalibrationTables;
         this.covariates = covariates;
-        this.quantizationInfo = quantizationInfo;
 
         if (args.quantizationLevels == 0) { // quantizationLevels == 0 means no quantization, preserve the quality scores
             quantizationInfo.noQuantization();
@@ -95,9 +125,98 @@ public final class BQSRReadTransformer implements ReadTransformer {
         totalCovariateCount = covariates.size();
         specialCovariateCount = covariates.numberOfSpecialCovariates();
 
-        //Note: We pre-create the varargs arrays that will be used in the calls. Otherwise we're spending a lot of time allocating those int[] objects
-        empiricalQualCovsArgs = new RecalDatum[totalCovariateCount - specialCovariateCount];
         keyCache = new CovariateKeyCache();//one cache per transformer
+
+        final NestedIntegerArray<RecalDatum> readGroupTable = recalibrationTables.getReadGroupTable();
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
+        final int numReadGroupKeys = readGroupTable.getDimensions()[0];
+        numQualKeys = qualityScoreTable.getDimensions()[1];
+
+        readGroupHasData = new boolean[numReadGroupKeys];
+        conditionalPriors = new double[numReadGroupKeys * numQualKeys];
+        for (int rgKey = 0; rgKey < numReadGroupKeys; rgKey++) {
+            final RecalDatum empiricalQualRG = readGroupTable.get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
+            if (empiricalQualRG == null) {
+                continue;
+            }
+            readGroupHasData[rgKey] = true;
+            final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+            final double globalDeltaQ = empiricalQualRG.getEmpiricalQuality(epsilon) - epsilon;
+            for (int qualKey = 0; qualKey < numQualKeys; qualKey++) {
+                final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(rgKey, qualKey, BASE_SUBSTITUTION_INDEX);
+                final double deltaQReported = empiricalQualQS == null ? 0.0 : empiricalQualQS.getEmpiricalQuality(globalDeltaQ + epsilon) - (globalDeltaQ + epsilon);
+                conditionalPriors[rgKey * numQualKeys + qualKey] = deltaQReported + globalDeltaQ + epsilon;
+            }
+        }
+
+        final int numAdditionalCovariates = totalCovariateCount - specialCovariateCount;
+        deltaRows = new int[conditionalPriors.length];
+        Arrays.fill(deltaRows, -1);
+        int numDeltaRows = 0;
+        for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
+            for (final NestedIntegerArray.Leaf<RecalDatum> leaf : recalibrationTables.getTable(i).getAllLeaves()) {
+                final int rgQualKey = leaf.keys[0] * numQualKeys + leaf.keys[1];
+                if (leaf.keys[3] == BASE_SUBSTITUTION_INDEX && readGroupHasData[leaf.keys[0]] && deltaRows[rgQualKey] == -1) {
+                    deltaRows[rgQualKey] = numDeltaRows++;
+                }
+            }
+        }
+
+        covariateKeyIndexes = new int[numAdditionalCovariates][];
+        covariateNumKeys = new int[numAdditionalCovariates];
+        covariateDeltas = new double[numAdditionalCovariates][];
+        @SuppressWarnings("unchecked")
+        final NestedIntegerArray<RecalDatum>[] tables = (NestedIntegerArray<RecalDatum>[]) new NestedIntegerArray<?>[numAdditionalCovariates];
+        covariateTables = tables;
+        for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
+            covariateTables[i - specialCovariateCount] = recalibrationTables.getTable(i);
+            precomputeCovariateDeltas(recalibrationTables.getTable(i), covariates.get(i).maximumKeyValue(), i - specialCovariateCount,
+                    numDeltaRows, maxPrecomputedDeltasPerCovariate);
+        }
+
+        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
+        recalibratedQualMapping = new byte[MAX_RECALIBRATED_Q_SCORE + 1];
+        for (int qual = 0; qual <= MAX_RECALIBRATED_Q_SCORE; qual++) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            recalibratedQualMapping[qual] = staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+        }
+    }
+
+    /**
+     * Fills the lookup tables of the deltas of an additional covariate, for the covariate keys that have data
+     * (deltas of combinations without data are 0, which leaves the sum of the deltas unchanged). If there would be
+     * more than maxDeltas deltas, none are stored and the covariate is looked up in its table instead.
+     */
+    private void precomputeCovariateDeltas(final NestedIntegerArray<RecalDatum> table, final int maximumKeyValue, final int index,
+                                           final int numDeltaRows, final int maxDeltas) {
+        final List<NestedIntegerArray.Leaf<RecalDatum>> leaves = table.getAllLeaves();
+
+        final int[] keyIndexes = new int[maximumKeyValue + 1];
+        Arrays.fill(keyIndexes, -1);
+        int numKeys = 0;
+        for (final NestedIntegerArray.Leaf<RecalDatum> leaf : leaves) {
+            final int covariateKey = leaf.keys[2];
+            if (leaf.keys[3] == BASE_SUBSTITUTION_INDEX && keyIndexes[covariateKey] == -1) {
+                keyIndexes[covariateKey] = numKeys++;
+            }
+        }
+
+        covariateKeyIndexes[index] = keyIndexes;
+        covariateNumKeys[index] = numKeys;
+        if ((long) numDeltaRows * numKeys > maxDeltas) {
+            return;
+        }
+
+        final double[] deltas = new double[numDeltaRows * numKeys];
+        for (final NestedIntegerArray.Leaf<RecalDatum> leaf : leaves) {
+            final int rgKey = leaf.keys[0];
+            if (leaf.keys[3] == BASE_SUBSTITUTION_INDEX && readGroupHasData[rgKey]) {
+                final int rgQualKey = rgKey * numQualKeys + leaf.keys[1];
+                final double conditionalPrior = conditionalPriors[rgQualKey];
+                deltas[deltaRows[rgQualKey] * numKeys + keyIndexes[leaf.keys[2]]] = leaf.value.getEmpiricalQuality(conditionalPrior) - conditionalPrior;
+            }
+        }
+        covariateDeltas[index] = deltas;
     }
 
     /**
@@ -108,7 +227,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
      * @param args a set of arguments to control how bqsr is applied
      */
     public BQSRReadTransformer(final SAMFileHeader header, final RecalibrationReport recalInfo, final ApplyBQSRArgumentCollection args) {
-        this(header, recalInfo.getRecalibrationTables(), recalInfo.getQuantizationInfo(), recalInfo.getCovariates(), args);
+        this(header, recalInfo, args, DEFAULT_MAX_PRECOMPUTED_DELTAS_PER_COVARIATE);
+    }
+
+    @VisibleForTesting
+    BQSRReadTransformer(final SAMFileHeader header, final RecalibrationReport recalInfo, final ApplyBQSRArgumentCollection args, final int maxPrecomputedDeltasPerCovariate) {
+        this(header, recalInfo.getRecalibrationTables(), recalInfo.getQuantizationInfo(), recalInfo.getCovariates(), args, maxPrecomputedDeltasPerCovariate);
     }
 
     /**
@@ -154,18 +278,13 @@ public final class BQSRReadTransformer implements ReadTransformer {
         // the rg key is constant over the whole read, the global deltaQ is too
         final int rgKey = fullReadKeySet[0][0];
 
-        final RecalDatum empiricalQualRG = recalibrationTables.getReadGroupTable().get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
-
-        if (empiricalQualRG == null) {
+        if (rgKey >= readGroupHasData.length || !readGroupHasData[rgKey]) {
             return read;
         }
         final byte[] quals = read.getBaseQualities();
 
         final int readLength = quals.length;
-        final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
-
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
-        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
+        final int rgQualKeyOffset = rgKey * numQualKeys;
 
         //Note: this loop is under very heavy use in applyBQSR. Keep it slim.
         for (int offset = 0; offset < readLength; offset++) { // recalibrate all bases in the read
@@ -174,23 +293,41 @@ public final class BQSRReadTransformer implements ReadTransformer {
             if (quals[offset] < preserveQLessThan) {
                 continue;
             }
-            Arrays.fill(empiricalQualCovsArgs, null);  //clear the array
             final int[] keySet = fullReadKeySet[offset];
-
-
-            final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(keySet[0], keySet[1], BASE_SUBSTITUTION_INDEX);
-
-            for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
-                if (keySet[i] >= 0) {
-                    empiricalQualCovsArgs[i - specialCovariateCount] = recalibrationTables.getTable(i).get4Keys(keySet[0], keySet[1], keySet[i], BASE_SUBSTITUTION_INDEX);
+            final int qualKey = keySet[1];
+            if (qualKey >= numQualKeys) {
+                throw new MalformedRead(read, "base quality " + qualKey + " is above the maximum quality of the recalibration tables (" + (numQualKeys - 1) + ")");
+            }
+            final int rgQualKey = rgQualKeyOffset + qualKey;
+            final double conditionalPrior = conditionalPriors[rgQualKey];
+            final int deltaRow = deltaRows[rgQualKey];
+
+            // equivalent to hierarchicalBayesianQualityEstimate(), with the lookup tables computed in the constructor
+            double deltaQCovariates = 0.0;
+            if (deltaRow >= 0) { // otherwise no additional covariate has data for this read group and quality
+                for (int i = 0; i < covariateDeltas.length; i++) {
+                    final int covariateKey = keySet[i + specialCovariateCount];
+                    if (covariateKey < 0) {
+                        continue;
+                    }
+                    final double[] deltas = covariateDeltas[i];
+                    if (deltas == null) {
+                        final RecalDatum empiricalQualCov = covariateTables[i].get4Keys(rgKey, qualKey, covariateKey, BASE_SUBSTITUTION_INDEX);
+                        if (empiricalQualCov != null) {
+                            deltaQCovariates += empiricalQualCov.getEmpiricalQuality(conditionalPrior) - conditionalPrior;
+                        }
+                    } else {
+                        final int[] keyIndexes = covariateKeyIndexes[i];
+                        if (covariateKey < keyIndexes.length && keyIndexes[covariateKey] >= 0) {
+                            deltaQCovariates += deltas[deltaRow * covariateNumKeys[i] + keyIndexes[covariateKey]];
+                        }
+                    }
                 }
             }
-            final double recalibratedQualDouble = hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovsArgs);
-
-            final byte recalibratedQualityScore = quantizedQuals.get(getRecalibratedQual(recalibratedQualDouble));
+            final double recalibratedQualDouble = conditionalPrior + deltaQCovariates;
 
-            // Bin to static quals
-            quals[offset] = staticQuantizedMapping == null ? recalibratedQualityScore : staticQuantizedMapping[recalibratedQualityScore];
+            // quantize and bin to static quals
+            quals[offset] = recalibratedQualMapping[getRecalibratedQual(recalibratedQualDouble)];
         }
         read.setBaseQualities(quals);
         return read;
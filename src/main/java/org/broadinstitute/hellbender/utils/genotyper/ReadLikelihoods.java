@@ -37,8 +37,17 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
      */
     private static final int MISSING_REF = -1;
 
+    /**
+     * Minimum number of read slots added whenever the read capacity of a sample has to grow.
+     */
+    private static final int MINIMUM_READ_CAPACITY_INCREASE = 16;
+
     /**
      * Reads by sample index. Each sub array contains reference to the reads of the ith sample.
+     * <p>
+     *     Only the first {@code numberOfReads[s]} positions are in use; the rest is spare capacity so that reads can
+     *     be removed and added without reallocating the per-sample arrays.
+     * </p>
      */
     protected final GATKRead[][] readsBySampleIndex;
 
@@ -47,9 +56,18 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
      * <p>
      *     valuesBySampleIndex[s][a][r] == lnLk(R_r | A_a) where R_r comes from Sample s.
      * </p>
+     * <p>
+     *     Each allele row has the same capacity as {@code readsBySampleIndex[s]}, and only the first
+     *     {@code numberOfReads[s]} positions are in use.
+     * </p>
      */
     protected final double[][][] valuesBySampleIndex;
 
+    /**
+     * Number of reads in use per sample, which may be less than the capacity of the per-sample arrays.
+     */
+    protected final int[] numberOfReads;
+
     /**
      * Sample list
      */
@@ -133,6 +151,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         readsBySampleIndex = new GATKRead[sampleCount][];
         readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
         valuesBySampleIndex = new double[sampleCount][][];
+        numberOfReads = new int[sampleCount];
         referenceAlleleIndex = findReferenceAllele(alleles);
 
         readIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -156,6 +175,10 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         this.valuesBySampleIndex = values;
         this.readIndexBySampleIndex = readIndex;
         final int sampleCount = samples.numberOfSamples();
+        this.numberOfReads = new int[sampleCount];
+        for (int s = 0; s < sampleCount; s++) {
+            numberOfReads[s] = readsBySampleIndex[s].length;
+        }
         this.readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
 
         referenceAlleleIndex = findReferenceAllele(alleles);
@@ -183,6 +206,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         final double[][] sampleValues = new double[alleleCount][sampleReadCount];
         valuesBySampleIndex[sampleIndex] = sampleValues;
+        numberOfReads[sampleIndex] = sampleReadCount;
     }
 
     /**
@@ -201,9 +225,10 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
 
         for (int s = 0; s < sampleCount; s++) {
-            newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
+            final int sampleReadCount = numberOfReads[s];
+            newReadsBySampleIndex[s] = Arrays.copyOf(readsBySampleIndex[s], sampleReadCount);
             for (int a = 0; a < alleleCount; a++) {
-                newLikelihoodValues[s][a] = valuesBySampleIndex[s][a].clone();
+                newLikelihoodValues[s][a] = Arrays.copyOf(valuesBySampleIndex[s][a], sampleReadCount);
             }
         }
 
@@ -306,7 +331,8 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         Utils.validIndex(sampleIndex, samples.numberOfSamples());
         final List<GATKRead> extantList = readListBySampleIndex[sampleIndex];
         if (extantList == null) {
-            return readListBySampleIndex[sampleIndex] = Collections.unmodifiableList(Arrays.asList(readsBySampleIndex[sampleIndex]));
+            return readListBySampleIndex[sampleIndex] = Collections.unmodifiableList(
+                    Arrays.asList(readsBySampleIndex[sampleIndex]).subList(0, numberOfReads[sampleIndex]));
         } else {
             return extantList;
         }
@@ -358,7 +384,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         for (int s = 0; s < valuesBySampleIndex.length; s++) {
             final double[][] sampleValues = valuesBySampleIndex[s];
-            final int readCount = readsBySampleIndex[s].length;
+            final int readCount = numberOfReads[s];
             for (int r = 0; r < readCount; r++) {
                 normalizeLikelihoodsPerRead(bestToZero, maximumLikelihoodDifferenceCap, sampleValues, s, r);
             }
@@ -478,7 +504,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         for (int s = 0; s < sampleCount; s++) {
             final GATKRead[] sampleReads = readsBySampleIndex[s];
             final Object2IntMap<GATKRead> readIndex = readIndexBySampleIndex[s];
-            final int sampleReadCount = sampleReads.length;
+            final int sampleReadCount = numberOfReads[s];
             for (int r = 0; r < sampleReadCount; r++) {
                 final GATKRead read = sampleReads[r];
                 final GATKRead replacement = readRealignments.get(read);
@@ -541,10 +567,10 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         //copy old allele likelihoods and set new allele likelihoods to the default value
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final int sampleReadCount = readsBySampleIndex[s].length;
+            final int sampleReadCapacity = readsBySampleIndex[s].length;
             final double[][] newValuesBySampleIndex = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount);
             for (int a = oldAlleleCount; a < newAlleleCount; a++) {
-                newValuesBySampleIndex[a] = new double[sampleReadCount];
+                newValuesBySampleIndex[a] = new double[sampleReadCapacity];
                 if (defaultLikelihood != 0.0) {
                     Arrays.fill(newValuesBySampleIndex[a], defaultLikelihood);
                 }
@@ -588,7 +614,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
 
         for (int s = 0; s < sampleCount; s++) {
-            newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
+            newReadsBySampleIndex[s] = Arrays.copyOf(readsBySampleIndex[s], numberOfReads[s]);
         }
 
         // Finally we create the new read-likelihood
@@ -645,10 +671,10 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         for (int s = 0; s < sampleCount; s++) {
             final int[] sampleReadsToKeep = readsToKeep[s];
             final GATKRead[] oldSampleReads = readsBySampleIndex[s];
-            final int oldSampleReadCount = oldSampleReads.length;
+            final int oldSampleReadCount = numberOfReads[s];
             final int newSampleReadCount = sampleReadsToKeep.length;
             if (newSampleReadCount == oldSampleReadCount) {
-                newReadsBySampleIndex[s] = oldSampleReads.clone();
+                newReadsBySampleIndex[s] = Arrays.copyOf(oldSampleReads, oldSampleReadCount);
             } else {
                 newReadsBySampleIndex[s] = new GATKRead[newSampleReadCount];
                 for (int i = 0; i < newSampleReadCount; i++) {
@@ -676,7 +702,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         for (int s = 0; s < sampleCount; s++) {
             buffer.clear();
             final GATKRead[] sampleReads = readsBySampleIndex[s];
-            final int sampleReadCount = sampleReads.length;
+            final int sampleReadCount = numberOfReads[s];
             buffer.ensureCapacity(sampleReadCount);
             for (int r = 0; r < sampleReadCount; r++) {
                 if (unclippedReadOverlapsRegion(sampleReads[r], contig, overlapStart, overlapEnd)) {
@@ -715,7 +741,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final double[][][] result = new double[sampleCount][][];
 
         for (int s = 0; s < sampleCount; s++) {
-            final int sampleReadCount = readsBySampleIndex[s].length;
+            final int sampleReadCount = numberOfReads[s];
             final double[][] oldSampleValues = valuesBySampleIndex[s];
             final int[] sampleReadToKeep = readsToKeep == null || readsToKeep[s].length == sampleReadCount ? null : readsToKeep[s];
             final int newSampleReadCount = sampleReadToKeep == null ? sampleReadCount : sampleReadToKeep.length;
@@ -725,16 +751,19 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
                 Arrays.fill(newSampleValues[a], Double.NEGATIVE_INFINITY);
             }
             // For each old allele and read we update the new table keeping the maximum likelihood.
-            for (int r = 0; r < newSampleReadCount; r++) {
-                for (int a = 0; a < oldAlleleCount; a++) {
-                    final int oldReadIndex = newSampleReadCount == sampleReadCount ? r : sampleReadToKeep[r];
-                    final int newAlleleIndex = oldToNewAlleleIndexMap[a];
-                    if (newAlleleIndex == -1) {
-                        continue;
-                    }
-                    final double likelihood = oldSampleValues[a][oldReadIndex];
-                    if (likelihood > newSampleValues[newAlleleIndex][r]) {
-                        newSampleValues[newAlleleIndex][r] = likelihood;
+            // We iterate allele-major so that both the old and the new rows are traversed sequentially.
+            for (int a = 0; a < oldAlleleCount; a++) {
+                final int newAlleleIndex = oldToNewAlleleIndexMap[a];
+                if (newAlleleIndex == -1) {
+                    continue;
+                }
+                final double[] oldAlleleValues = oldSampleValues[a];
+                final double[] newAlleleValues = newSampleValues[newAlleleIndex];
+                for (int r = 0; r < newSampleReadCount; r++) {
+                    final int oldReadIndex = sampleReadToKeep == null ? r : sampleReadToKeep[r];
+                    final double likelihood = oldAlleleValues[oldReadIndex];
+                    if (likelihood > newAlleleValues[r]) {
+                        newAlleleValues[r] = likelihood;
                     }
                 }
             }
@@ -787,7 +816,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         new IndexRange(0, samples.numberOfSamples()).forEach(s -> {
             final GATKRead[] sampleReads = readsBySampleIndex[s];
-            final List<Integer> removeIndices = new IndexRange(0, sampleReads.length)
+            final List<Integer> removeIndices = new IndexRange(0, numberOfReads[s])
                     .filter(r -> readIsPoorlyModelled(s, r, sampleReads[r], maximumErrorPerBase));
             removeSampleReads(s, removeIndices, alleles.numberOfAlleles());
         });
@@ -834,34 +863,45 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
                 continue;
             }
 
-            final int sampleReadCount = readsBySampleIndex[sampleIndex].length;
+            final int sampleReadCount = numberOfReads[sampleIndex];
             final int newSampleReadCount = sampleReadCount + newSampleReads.size();
 
-            appendReads(newSampleReads, sampleIndex, sampleReadCount, newSampleReadCount);
+            ensureReadCapacity(sampleIndex, newSampleReadCount);
+            appendReads(newSampleReads, sampleIndex, sampleReadCount);
             extendsLikelihoodArrays(initialLikelihood, sampleIndex, sampleReadCount, newSampleReadCount);
+            numberOfReads[sampleIndex] = newSampleReadCount;
+            readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
+        }
+    }
+
+    // Grows the per-sample read and likelihood arrays, if needed, so that they can hold at least the requested number
+    // of reads. Capacity grows geometrically so that repeated additions are amortized.
+    private void ensureReadCapacity(final int sampleIndex, final int requiredCapacity) {
+        final int currentCapacity = readsBySampleIndex[sampleIndex].length;
+        if (currentCapacity >= requiredCapacity) {
+            return;
+        }
+        final int newCapacity = Math.max(requiredCapacity, currentCapacity + Math.max(currentCapacity >> 1, MINIMUM_READ_CAPACITY_INCREASE));
+        readsBySampleIndex[sampleIndex] = Arrays.copyOf(readsBySampleIndex[sampleIndex], newCapacity);
+        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        for (int a = 0; a < sampleValues.length; a++) {
+            sampleValues[a] = Arrays.copyOf(sampleValues[a], newCapacity);
         }
     }
 
-    // Extends the likelihood arrays-matrices.
+    // Sets the likelihoods of the newly added reads to their initial value.
     private void extendsLikelihoodArrays(final double initialLikelihood, final int sampleIndex, final int sampleReadCount, final int newSampleReadCount) {
         final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
         final int alleleCount = alleles.numberOfAlleles();
+        // slots beyond the previous read count may hold stale values from removed reads, so they are always reset.
         for (int a = 0; a < alleleCount; a++) {
-            sampleValues[a] = Arrays.copyOf(sampleValues[a], newSampleReadCount);
-        }
-        if (initialLikelihood != 0.0) // the default array new value.
-        {
-            for (int a = 0; a < alleleCount; a++) {
-                Arrays.fill(sampleValues[a], sampleReadCount, newSampleReadCount, initialLikelihood);
-            }
+            Arrays.fill(sampleValues[a], sampleReadCount, newSampleReadCount, initialLikelihood);
         }
     }
 
     // Append the new read reference into the structure per-sample.
-    private void appendReads(final List<GATKRead> newSampleReads, final int sampleIndex,
-                             final int sampleReadCount, final int newSampleReadCount) {
-        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex] =
-                Arrays.copyOf(readsBySampleIndex[sampleIndex], newSampleReadCount);
+    private void appendReads(final List<GATKRead> newSampleReads, final int sampleIndex, final int sampleReadCount) {
+        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
 
         int nextReadIndex = sampleReadCount;
         final Object2IntMap<GATKRead> sampleReadIndex = readIndexBySampleIndex[sampleIndex];
@@ -933,7 +973,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final Median medianCalculator = new Median();
         for (int s = 0; s < samples.numberOfSamples(); s++) {
             final double[][] sampleValues = valuesBySampleIndex[s];
-            final int readCount = sampleValues[0].length;
+            final int readCount = numberOfReads[s];
             for (int r = 0; r < readCount; r++) {
                 final BestAllele bestAllele = searchBestAllele(s, r, true);
                 int numberOfQualifiedAlleleLikelihoods = 0;
@@ -980,7 +1020,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
                 continue;
             }
             if (fraction >= 1.0) {
-                final List<Integer> removeIndices = IntStream.range(0, readsBySampleIndex[s].length).boxed().collect(Collectors.toList());
+                final List<Integer> removeIndices = IntStream.range(0, numberOfReads[s]).boxed().collect(Collectors.toList());
                 removeSampleReads(s, removeIndices, alleleCount);
             } else {
                 final Map<A,List<GATKRead>> readsByBestAllelesMap = readsByBestAlleleMap(s);
@@ -1022,8 +1062,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
     private Collection<BestAllele> bestAlleles(final int sampleIndex) {
         Utils.validIndex(sampleIndex, numberOfSamples());
 
-        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-        final int readCount = sampleReads.length;
+        final int readCount = numberOfReads[sampleIndex];
         final List<BestAllele> result = new ArrayList<>(readCount);
         for (int r = 0; r < readCount; r++) {
             result.add(searchBestAllele(sampleIndex, r, true));
@@ -1041,7 +1080,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
     private Map<A,List<GATKRead>> readsByBestAlleleMap(final int sampleIndex) {
         Utils.validIndex(sampleIndex, numberOfSamples());
         final int alleleCount = alleles.numberOfAlleles();
-        final int sampleReadCount = readsBySampleIndex[sampleIndex].length;
+        final int sampleReadCount = numberOfReads[sampleIndex];
         final Map<A,List<GATKRead>> result = new LinkedHashMap<>(alleleCount);
         for (int a = 0; a < alleleCount; a++) {
             result.put(alleles.getAllele(a), new ArrayList<>(sampleReadCount));
@@ -1070,8 +1109,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
     }
 
     private void readsByBestAlleleMap(final int sampleIndex, final Map<A,List<GATKRead>> result) {
-        final GATKRead[] reads = readsBySampleIndex[sampleIndex];
-        final int readCount = reads.length;
+        final int readCount = numberOfReads[sampleIndex];
 
         for (int r = 0; r < readCount; r++) {
             final BestAllele bestAllele = searchBestAllele(sampleIndex,r,true);
@@ -1107,7 +1145,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         int sum = 0;
         final int sampleCount = samples.numberOfSamples();
         for (int i = 0; i < sampleCount; i++) {
-            sum += readsBySampleIndex[i].length;
+            sum += numberOfReads[i];
         }
         return sum;
     }
@@ -1121,7 +1159,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
      */
     public int sampleReadCount(final int sampleIndex) {
         Utils.validIndex(sampleIndex, samples.numberOfSamples());
-        return readsBySampleIndex[sampleIndex].length;
+        return numberOfReads[sampleIndex];
     }
 
     /**
@@ -1147,7 +1185,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final int alleleCount = alleles.numberOfAlleles();
         for (int s = 0; s < sampleCount; s++) {
             final GATKRead[] sampleReads = readsBySampleIndex[s];
-            final List<Integer> removeIndices = new IndexRange(0, sampleReads.length)
+            final List<Integer> removeIndices = new IndexRange(0, numberOfReads[s])
                     .filter(r -> !unclippedReadOverlapsRegion(sampleReads[r], locContig, locStart, locEnd));
             removeSampleReads(s, removeIndices, alleleCount);
         }
@@ -1205,7 +1243,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         }
 
         final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-        final int sampleReadCount = sampleReads.length;
+        final int sampleReadCount = numberOfReads[sampleIndex];
 
         final Object2IntMap<GATKRead> indexByRead = readIndexBySampleIndex[sampleIndex];
         if (indexByRead != null) {
@@ -1215,32 +1253,20 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         final int firstDeleted = removeIndices.get(0);
         removeIndices.stream().forEach(n -> removeIndex[n] = true);
 
-        final int newSampleReadCount = sampleReadCount - removeIndices.size();
+        compactSampleReads(sampleIndex, removeIndex, firstDeleted, alleleCount);
 
-        // Now we skim out the removed reads from the read array.
-        final GATKRead[] oldSampleReads = readsBySampleIndex[sampleIndex];
-        final GATKRead[] newSampleReads = new GATKRead[newSampleReadCount];
-
-        System.arraycopy(oldSampleReads, 0, newSampleReads, 0, firstDeleted);
-        Utils.skimArray(oldSampleReads,firstDeleted, newSampleReads, firstDeleted, removeIndex, firstDeleted);
-
-        // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
-        for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a], 0, newSampleValues[a], 0, firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
+        // Update the indices for the extant reads from the first deletion onwards.
+        if (indexByRead != null) {
+            for (int r = firstDeleted; r < numberOfReads[sampleIndex]; r++) {
+                indexByRead.put(sampleReads[r], r);
+            }
         }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
-        readsBySampleIndex[sampleIndex] = newSampleReads;
-        readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
 
 
     // Requires that the collection passed iterator can remove elements, and it can be modified.
     public void removeSampleReads(final int sampleIndex, final Collection<GATKRead> readsToRemove, final int alleleCount) {
-        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-        final int sampleReadCount = sampleReads.length;
+        final int sampleReadCount = numberOfReads[sampleIndex];
 
         final Object2IntMap<GATKRead> indexByRead = readIndexBySampleIndex(sampleIndex);
         // Count how many we are going to remove, which ones (indexes) and remove entry from the read-index map.
@@ -1268,29 +1294,43 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
             return;
         }
 
-        final int newSampleReadCount = sampleReadCount - removeCount;
+        compactSampleReads(sampleIndex, removeIndex, firstDeleted, alleleCount);
 
-        // Now we skim out the removed reads from the read array.
-        final GATKRead[] oldSampleReads = readsBySampleIndex[sampleIndex];
-        final GATKRead[] newSampleReads = new GATKRead[newSampleReadCount];
+        // Update the indices for the extant reads from the first deletion onwards.
+        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
+        for (int r = firstDeleted; r < numberOfReads[sampleIndex]; r++) {
+            indexByRead.put(sampleReads[r], r);
+        }
+    }
 
-        System.arraycopy(oldSampleReads,0,newSampleReads,0,firstDeleted);
-        Utils.skimArray(oldSampleReads,firstDeleted, newSampleReads, firstDeleted, removeIndex, firstDeleted);
+    /**
+     * Skims out the reads flagged for removal, and their likelihoods, by shifting the remaining ones down within the
+     * existing per-sample arrays. No new arrays are allocated; the freed positions become spare capacity.
+     */
+    private void compactSampleReads(final int sampleIndex, final boolean[] removeIndex, final int firstDeleted, final int alleleCount) {
+        final int sampleReadCount = numberOfReads[sampleIndex];
+        final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
+        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
 
-        // Update the indices for the extant reads from the first deletion onwards.
-        for (int r = firstDeleted; r < newSampleReadCount; r++) {
-            indexByRead.put(newSampleReads[r], r);
+        int newSampleReadCount = firstDeleted;
+        for (int r = firstDeleted; r < sampleReadCount; r++) {
+            if (!removeIndex[r]) {
+                sampleReads[newSampleReadCount++] = sampleReads[r];
+            }
         }
+        // release the references to the removed reads.
+        Arrays.fill(sampleReads, newSampleReadCount, sampleReadCount, null);
 
-        // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
         for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a],0,newSampleValues[a],0,firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
+            final double[] alleleValues = sampleValues[a];
+            int to = firstDeleted;
+            for (int r = firstDeleted; r < sampleReadCount; r++) {
+                if (!removeIndex[r]) {
+                    alleleValues[to++] = alleleValues[r];
+                }
+            }
         }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
-        readsBySampleIndex[sampleIndex] = newSampleReads;
+        numberOfReads[sampleIndex] = newSampleReadCount;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
 
@@ -1298,7 +1338,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
     private Object2IntMap<GATKRead> readIndexBySampleIndex(final int sampleIndex) {
         if (readIndexBySampleIndex[sampleIndex] == null) {
             final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-            final int sampleReadCount = sampleReads.length;
+            final int sampleReadCount = numberOfReads[sampleIndex];
             readIndexBySampleIndex[sampleIndex] = new Object2IntOpenHashMap<>(sampleReadCount);
             for (int r = 0; r < sampleReadCount; r++) {
                 readIndexBySampleIndex[sampleIndex].put(sampleReads[r], r);
@@ -1343,14 +1383,14 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         @Override
         public void set(final int alleleIndex, final int readIndex, final double value) {
             Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
+            Utils.validIndex(readIndex, numberOfReads[sampleIndex]);
             valuesBySampleIndex[sampleIndex][alleleIndex][readIndex] = value;
         }
 
         @Override
         public double get(final int alleleIndex, final int readIndex) {
             Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
+            Utils.validIndex(readIndex, numberOfReads[sampleIndex]);
             return valuesBySampleIndex[sampleIndex][alleleIndex][readIndex];
         }
 
@@ -1373,7 +1413,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
 
         @Override
         public int numberOfReads() {
-            return readsBySampleIndex[sampleIndex].length;
+            return ReadLikelihoods.this.numberOfReads[sampleIndex];
         }
 
         @Override
@@ -1384,7 +1424,7 @@ public class ReadLikelihoods<A extends Allele> implements SampleList, AlleleList
         @Override
         public GATKRead getRead(final int readIndex) {
             final GATKRead[] sampleReads = readsBySampleIndex[sampleIndex];
-            Utils.validIndex(readIndex, sampleReads.length);
+            Utils.validIndex(readIndex, ReadLikelihoods.this.numberOfReads[sampleIndex]);
             return sampleReads[readIndex];
         }
 
@@ -11,6 +11,7 @@ import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -97,9 +98,10 @@ public class UnfilledReadsLikelihoods<A extends Allele> extends ReadLikelihoods<
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
 
         for (int s = 0; s < sampleCount; s++) {
-            newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
+            final int sampleReadCount = numberOfReads[s];
+            newReadsBySampleIndex[s] = Arrays.copyOf(readsBySampleIndex[s], sampleReadCount);
             for (int a = 0; a < alleleCount; a++) {
-                newLikelihoodValues[s][a] = valuesBySampleIndex[s][a].clone();
+                newLikelihoodValues[s][a] = Arrays.copyOf(valuesBySampleIndex[s][a], sampleReadCount);
             }
         }
 
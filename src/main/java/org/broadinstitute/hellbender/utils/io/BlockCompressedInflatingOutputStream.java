@@ -0,0 +1,131 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the BGZF (block compressed gzip) data written to it, and writes the uncompressed data to another stream.
+ *
+ * This allows the data produced by writers that can only write BGZF data themselves (e.g. htsjdk's BAM writer) to be
+ * compressed differently, typically by a {@link ParallelBlockCompressedOutputStream}. It is intended for data
+ * written with compression level 0, for which decompressing is little more than a copy. End-of-file marker blocks
+ * are dropped, since the stream that compresses the data again writes its own.
+ *
+ * Like other output streams this class is not thread-safe.
+ */
+public final class BlockCompressedInflatingOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final Inflater inflater = new Inflater(true);
+
+    private final byte[] blockBuffer = new byte[BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE];
+    private final byte[] uncompressedBuffer = new byte[BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE];
+    private int numBlockBytes = 0;
+    private boolean closed = false;
+
+    /**
+     * @param out stream to write the uncompressed data to, closed when this stream is closed
+     */
+    public BlockCompressedInflatingOutputStream(final OutputStream out) {
+        this.out = Utils.nonNull(out);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        Utils.validate(! closed, "the stream has been closed");
+        int written = 0;
+        while ( written < length ) {
+            // read the header first, to know how long the block is
+            final int bytesNeeded = (numBlockBytes < BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH ?
+                    BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH : getBlockSize()) - numBlockBytes;
+            final int toCopy = Math.min(length - written, bytesNeeded);
+            System.arraycopy(bytes, offset + written, blockBuffer, numBlockBytes, toCopy);
+            numBlockBytes += toCopy;
+            written += toCopy;
+            if ( numBlockBytes == BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH ) {
+                validateHeader();
+            }
+            if ( numBlockBytes > BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH && numBlockBytes == getBlockSize() ) {
+                inflateBlock();
+                numBlockBytes = 0;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        inflater.end();
+        try {
+            if ( numBlockBytes != 0 ) {
+                throw new GATKException("The BGZF data ends with an incomplete block");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private int getBlockSize() {
+        final int offset = BlockCompressedStreamConstants.BLOCK_LENGTH_OFFSET;
+        return ((blockBuffer[offset] & 0xFF) | ((blockBuffer[offset + 1] & 0xFF) << 8)) + 1;
+    }
+
+    private void validateHeader() {
+        final byte[] preamble = BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE;
+        for ( int i = 0; i < preamble.length; i++ ) {
+            // the modification time (bytes 4 to 7) doesn't matter
+            if ( (i < 4 || i > 7) && blockBuffer[i] != preamble[i] ) {
+                throw new GATKException("The data is not in the BGZF format");
+            }
+        }
+        final int blockSize = getBlockSize();
+        if ( blockSize < BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH ) {
+            throw new GATKException("Invalid BGZF block size " + blockSize);
+        }
+    }
+
+    private void inflateBlock() throws IOException {
+        final int blockSize = numBlockBytes;
+        final int footerOffset = blockSize - BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+        final int uncompressedSize = (blockBuffer[footerOffset + 4] & 0xFF)
+                | ((blockBuffer[footerOffset + 5] & 0xFF) << 8)
+                | ((blockBuffer[footerOffset + 6] & 0xFF) << 16)
+                | ((blockBuffer[footerOffset + 7] & 0xFF) << 24);
+        if ( uncompressedSize == 0 ) {
+            return; // end-of-file marker, or an empty block from a flush
+        }
+        if ( uncompressedSize < 0 || uncompressedSize > uncompressedBuffer.length ) {
+            throw new GATKException("Invalid uncompressed size " + uncompressedSize + " for a BGZF block");
+        }
+
+        inflater.reset();
+        inflater.setInput(blockBuffer, BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH, footerOffset - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH);
+        try {
+            final int inflated = inflater.inflate(uncompressedBuffer, 0, uncompressedSize);
+            if ( inflated != uncompressedSize ) {
+                throw new GATKException("BGZF block decompressed to " + inflated + " bytes instead of " + uncompressedSize);
+            }
+        } catch ( final DataFormatException e ) {
+            throw new GATKException("Invalid BGZF block", e);
+        }
+        out.write(uncompressedBuffer, 0, uncompressedSize);
+    }
+}
@@ -0,0 +1,208 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.runtime.OrderedTaskExecutor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes BGZF (block compressed gzip) data, like htsjdk's {@link htsjdk.samtools.util.BlockCompressedOutputStream},
+ * but compresses the blocks concurrently on a pool of threads.
+ *
+ * Uncompressed data is split into blocks of {@link BlockCompressedStreamConstants#DEFAULT_UNCOMPRESSED_BLOCK_SIZE}
+ * bytes, which are compressed independently and written to the wrapped stream in order, followed by the BGZF
+ * end-of-file marker block when the stream is closed. At most a few blocks per thread are held in memory.
+ *
+ * Since the compressed size of a block is not known when its data is written, this stream does not provide
+ * virtual file pointers, so indices of the output (.bai, .tbi) have to be created once the output is complete.
+ *
+ * Like other output streams this class is not thread-safe.
+ */
+public final class ParallelBlockCompressedOutputStream extends OutputStream {
+    private static final int MAX_PENDING_BLOCKS_PER_THREAD = 4;
+
+    // room for the compressed data of a block, so that the whole block fits in MAX_COMPRESSED_BLOCK_SIZE
+    private static final int MAX_COMPRESSED_DATA_SIZE = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE
+            - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH - BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+
+    private final OutputStream out;
+    private final OrderedTaskExecutor<byte[]> executor;
+    // one compressor per thread, taken by the tasks while they compress a block
+    private final BlockingQueue<BlockCompressor> compressors;
+
+    private byte[] uncompressedBuffer = new byte[BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE];
+    private int numUncompressedBytes = 0;
+    private boolean closed = false;
+
+    /**
+     * @param out stream to write the compressed blocks to, closed when this stream is closed
+     * @param compressionLevel deflate compression level, from 0 to 9
+     * @param numThreads number of threads used to compress the blocks (must be >= 1)
+     */
+    public ParallelBlockCompressedOutputStream(final OutputStream out, final int compressionLevel, final int numThreads) {
+        this.out = Utils.nonNull(out);
+        Utils.validateArg(compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION,
+                () -> "invalid compression level " + compressionLevel);
+        Utils.validateArg(numThreads >= 1, "numThreads must be at least 1");
+
+        compressors = new ArrayBlockingQueue<>(numThreads);
+        for ( int i = 0; i < numThreads; i++ ) {
+            compressors.add(new BlockCompressor(compressionLevel));
+        }
+        executor = new OrderedTaskExecutor<>(numThreads, numThreads * MAX_PENDING_BLOCKS_PER_THREAD,
+                "BlockCompression-%d", this::writeCompressedBlock);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        Utils.validate(! closed, "the stream has been closed");
+        int written = 0;
+        while ( written < length ) {
+            final int toCopy = Math.min(length - written, uncompressedBuffer.length - numUncompressedBytes);
+            System.arraycopy(bytes, offset + written, uncompressedBuffer, numUncompressedBytes, toCopy);
+            numUncompressedBytes += toCopy;
+            written += toCopy;
+            if ( numUncompressedBytes == uncompressedBuffer.length ) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses and writes all the data written so far, even if it doesn't fill a block, and flushes the wrapped
+     * stream. As with {@link htsjdk.samtools.util.BlockCompressedOutputStream#flush}, flushing often produces small
+     * blocks and hurts the compression.
+     */
+    @Override
+    public void flush() throws IOException {
+        Utils.validate(! closed, "the stream has been closed");
+        try {
+            submitBlock();
+            executor.drain();
+        } catch ( final UncheckedIOException e ) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the remaining data and the BGZF end-of-file marker block, and closes the wrapped stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( closed ) {
+            return;
+        }
+        try {
+            flush();
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            out.close();
+        } finally {
+            closed = true;
+            executor.close();
+            compressors.forEach(BlockCompressor::end);
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if ( numUncompressedBytes == 0 ) {
+            return;
+        }
+        final byte[] blockData = uncompressedBuffer;
+        final int blockLength = numUncompressedBytes;
+        try {
+            executor.submit(() -> compressBlock(blockData, blockLength));
+        } catch ( final UncheckedIOException e ) {
+            throw e.getCause();
+        }
+        // the buffer now belongs to the task
+        uncompressedBuffer = new byte[BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE];
+        numUncompressedBytes = 0;
+    }
+
+    // runs on the compression threads
+    private byte[] compressBlock(final byte[] data, final int length) throws InterruptedException {
+        final BlockCompressor compressor = compressors.take();
+        try {
+            return compressor.compress(data, length);
+        } finally {
+            compressors.add(compressor);
+        }
+    }
+
+    // runs on the thread writing to this stream, in the order of the blocks
+    private void writeCompressedBlock(final byte[] block) {
+        try {
+            out.write(block);
+        } catch ( final IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compresses blocks of data into BGZF blocks. Not thread-safe.
+     */
+    private static final class BlockCompressor {
+        private final Deflater deflater;
+        // used instead when compression would make a block too large, as in htsjdk
+        private final Deflater noCompressionDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
+        private final CRC32 crc32 = new CRC32();
+        private final byte[] compressedBuffer = new byte[MAX_COMPRESSED_DATA_SIZE];
+
+        private BlockCompressor(final int compressionLevel) {
+            deflater = new Deflater(compressionLevel, true);
+        }
+
+        private byte[] compress(final byte[] data, final int length) {
+            int compressedSize = deflate(deflater, data, length);
+            if ( compressedSize < 0 ) {
+                compressedSize = deflate(noCompressionDeflater, data, length);
+                if ( compressedSize < 0 ) {
+                    throw new GATKException("Uncompressed block of " + length + " bytes does not fit in a BGZF block");
+                }
+            }
+            crc32.reset();
+            crc32.update(data, 0, length);
+
+            final int blockSize = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + compressedSize + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+            final ByteBuffer block = ByteBuffer.allocate(blockSize).order(ByteOrder.LITTLE_ENDIAN);
+            block.put(BlockCompressedStreamConstants.GZIP_BLOCK_PREAMBLE);
+            block.putShort((short) (blockSize - 1));
+            block.put(compressedBuffer, 0, compressedSize);
+            block.putInt((int) crc32.getValue());
+            block.putInt(length);
+            return block.array();
+        }
+
+        /**
+         * @return the size of the compressed data, or -1 if it doesn't fit in a block
+         */
+        private int deflate(final Deflater deflater, final byte[] data, final int length) {
+            deflater.reset();
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            final int compressedSize = deflater.deflate(compressedBuffer, 0, compressedBuffer.length);
+            return deflater.finished() ? compressedSize : -1;
+        }
+
+        private void end() {
+            deflater.end();
+            noCompressionDeflater.end();
+        }
+    }
+}
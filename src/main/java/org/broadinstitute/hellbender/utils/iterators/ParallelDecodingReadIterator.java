@@ -0,0 +1,243 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTag;
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.broadinstitute.hellbender.utils.runtime.OrderedTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a SAMRecord iterator within an iterator of GATKReads, like {@link SAMRecordToReadIterator}, but reads and
+ * decodes the records ahead of the consumer on other threads.
+ *
+ * A background thread pulls the records from the wrapped iterator in batches of {@link #READS_PER_BATCH}, and the
+ * batches are decoded (bases, qualities, cigar, attributes...) concurrently on a pool of worker threads. Decoded
+ * batches are handed to the consumer in the order of the wrapped iterator, so the reads are returned in exactly the
+ * same order as without this wrapper. At most a few batches per worker thread are held in memory at any time.
+ *
+ * The wrapped iterator is only used by the background thread, so it doesn't need to be thread-safe, but it must not
+ * be used or closed by the caller until {@link #close} has returned. The background thread is never interrupted, since
+ * an interrupt would close the NIO channel that the wrapped iterator may be reading from, and with it the reader that
+ * the caller may want to query again: it stops by itself, within one batch, once the iterator is closed.
+ *
+ * The threads can be shared by successive iterators (eg., over successive queries of a data source) by passing the
+ * same {@link DecodingThreads} to each of them.
+ */
+public final class ParallelDecodingReadIterator implements CloseableIterator<GATKRead> {
+    public static final int READS_PER_BATCH = 1000;
+    private static final int MAX_PENDING_BATCHES_PER_THREAD = 4;
+    private static final long HAND_OFF_TIMEOUT_MILLISECONDS = 100;
+
+    // marks the end of the reads; compared by identity
+    private static final List<GATKRead> END_OF_READS = Collections.emptyList();
+
+    private final Iterator<SAMRecord> samIterator;
+    private final DecodingThreads threads;
+    private final boolean ownsThreads;
+    private final BlockingQueue<List<GATKRead>> decodedBatches;
+    private final Future<?> reader;
+
+    private volatile boolean closed = false;
+    private volatile Throwable readerError = null;
+
+    private Iterator<GATKRead> currentBatch = Collections.emptyIterator();
+    private boolean exhausted = false;
+
+    /**
+     * @param samIterator iterator over the records to decode, not null
+     * @param numThreads number of threads used to decode the records (must be >= 1), in addition to the thread that
+     *                   pulls the records from samIterator. The threads are stopped when this iterator is closed.
+     */
+    public ParallelDecodingReadIterator(final Iterator<SAMRecord> samIterator, final int numThreads) {
+        this(samIterator, new DecodingThreads(numThreads), true);
+    }
+
+    /**
+     * @param samIterator iterator over the records to decode, not null
+     * @param threads threads to pull and decode the records on, not null. They must not be used by any other open
+     *                iterator, and are left running when this iterator is closed.
+     */
+    public ParallelDecodingReadIterator(final Iterator<SAMRecord> samIterator, final DecodingThreads threads) {
+        this(samIterator, Utils.nonNull(threads), false);
+    }
+
+    private ParallelDecodingReadIterator(final Iterator<SAMRecord> samIterator, final DecodingThreads threads, final boolean ownsThreads) {
+        this.samIterator = Utils.nonNull(samIterator);
+        this.threads = threads;
+        this.ownsThreads = ownsThreads;
+        this.decodedBatches = new ArrayBlockingQueue<>(threads.numThreads * MAX_PENDING_BATCHES_PER_THREAD);
+        this.reader = threads.readerThread.submit(this::readBatches);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ( ! currentBatch.hasNext() && ! exhausted ) {
+            Utils.validate(! closed, "the iterator has been closed");
+            final List<GATKRead> batch;
+            try {
+                batch = decodedBatches.take();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for reads to be decoded", e);
+            }
+            if ( batch == END_OF_READS ) {
+                exhausted = true;
+                rethrowReaderError();
+            } else {
+                currentBatch = batch.iterator();
+            }
+        }
+        return currentBatch.hasNext();
+    }
+
+    @Override
+    public GATKRead next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("No more reads");
+        }
+        return currentBatch.next();
+    }
+
+    /**
+     * Stops reading and decoding, and waits for the background threads to stop using the wrapped iterator.
+     * Does not close the wrapped iterator.
+     */
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        // make room for a batch the reader thread may be handing off, so that it notices sooner that we're closed
+        decodedBatches.clear();
+        try {
+            reader.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for the read decoding threads to stop", e);
+        } catch ( final ExecutionException e ) {
+            // errors are recorded by the reader thread itself, and not reported once we're closed
+        } finally {
+            decodedBatches.clear();
+            if ( ownsThreads ) {
+                threads.close();
+            }
+        }
+    }
+
+    private void rethrowReaderError() {
+        if ( readerError instanceof RuntimeException ) {
+            throw (RuntimeException) readerError;
+        } else if ( readerError instanceof Error ) {
+            throw (Error) readerError;
+        } else if ( readerError != null ) {
+            throw new GATKException("Problem reading reads", readerError);
+        }
+    }
+
+    // runs on the reader thread
+    private void readBatches() {
+        try ( final OrderedTaskExecutor<List<GATKRead>> executor = new OrderedTaskExecutor<>(threads.decodingPool,
+                threads.numThreads * MAX_PENDING_BATCHES_PER_THREAD, this::putDecodedBatch) ) {
+            while ( ! closed && samIterator.hasNext() ) {
+                final List<SAMRecord> records = new ArrayList<>(READS_PER_BATCH);
+                while ( records.size() < READS_PER_BATCH && samIterator.hasNext() ) {
+                    records.add(samIterator.next());
+                }
+                executor.submit(() -> decode(records));
+            }
+            if ( ! closed ) {
+                executor.drain();
+            }
+        } catch ( final Throwable e ) {
+            if ( ! closed ) {
+                readerError = e;
+            }
+        } finally {
+            putDecodedBatch(END_OF_READS);
+        }
+    }
+
+    // runs on the reader thread; drops the batch if the iterator is closed before the consumer takes it
+    private void putDecodedBatch(final List<GATKRead> batch) {
+        try {
+            while ( ! closed ) {
+                if ( decodedBatches.offer(batch, HAND_OFF_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS) ) {
+                    return;
+                }
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while handing decoded reads to the consumer", e);
+        }
+    }
+
+    // runs on the decoding threads
+    private static List<GATKRead> decode(final List<SAMRecord> records) {
+        final List<GATKRead> reads = new ArrayList<>(records.size());
+        for ( final SAMRecord record : records ) {
+            // BAM records are decoded lazily the first time each field is requested, so request them all here
+            record.getReadName();
+            record.getCigar();
+            record.getReadBases();
+            record.getBaseQualities();
+            record.getAttribute(SAMTag.RG.name()); // decodes all the attributes
+            reads.add(new SAMRecordToGATKReadAdapter(record));
+        }
+        return reads;
+    }
+
+    /**
+     * The threads used by {@link ParallelDecodingReadIterator}: one thread pulling the records from the wrapped
+     * iterator, and a pool of threads decoding them. They can be reused by successive iterators, as long as each
+     * iterator is closed before the next one is created, and must be closed once no longer needed.
+     */
+    public static final class DecodingThreads implements AutoCloseable {
+        private final int numThreads;
+        private final ExecutorService readerThread;
+        private final ExecutorService decodingPool;
+
+        /**
+         * @param numThreads number of threads used to decode the records (must be >= 1), in addition to the thread
+         *                   that pulls the records from the wrapped iterator
+         */
+        public DecodingThreads(final int numThreads) {
+            Utils.validateArg(numThreads >= 1, "numThreads must be at least 1");
+            this.numThreads = numThreads;
+            readerThread = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("ReadDecoding-reader-%d").setDaemon(true).build());
+            decodingPool = Executors.newFixedThreadPool(numThreads,
+                    new ThreadFactoryBuilder().setNameFormat("ReadDecoding-%d").setDaemon(true).build());
+        }
+
+        public int getNumThreads() {
+            return numThreads;
+        }
+
+        /**
+         * Lets the threads terminate. Any iterator using them must have been closed first.
+         */
+        @Override
+        public void close() {
+            readerThread.shutdown();
+            decodingPool.shutdown();
+        }
+    }
+}
@@ -30,6 +30,7 @@ public class AlignmentContextIteratorBuilder {
     private boolean isKeepUniqueReadListInLibs;
     private boolean isIncludeDeletions;
     private boolean isIncludeNs;
+    private boolean isUseColumnarPileups;
     private LIBSDownsamplingInfo downsamplingInfo;
 
     public boolean isEmitEmptyLoci() {
@@ -64,6 +65,14 @@ public class AlignmentContextIteratorBuilder {
         isIncludeNs = includeNs;
     }
 
+    public boolean isUseColumnarPileups() {
+        return isUseColumnarPileups;
+    }
+
+    public void setUseColumnarPileups(boolean useColumnarPileups) {
+        isUseColumnarPileups = useColumnarPileups;
+    }
+
     public LIBSDownsamplingInfo getDownsamplingInfo() {
         return downsamplingInfo;
     }
@@ -77,6 +86,7 @@ public class AlignmentContextIteratorBuilder {
         isKeepUniqueReadListInLibs = false;
         isIncludeDeletions = true;
         isIncludeNs = false;
+        isUseColumnarPileups = false;
         downsamplingInfo = LocusIteratorByState.NO_DOWNSAMPLING;
     }
 
@@ -95,7 +105,7 @@ public class AlignmentContextIteratorBuilder {
         Utils.nonNull(readIterator, "Read iterator cannot be null");
         final boolean isDefinitelyReference = (dictionary != null) && isReference ;
         return createAlignmentContextIterator(intervalsForTraversal, header, readIterator, dictionary, downsamplingInfo,
-                isDefinitelyReference, isEmitEmptyLoci, isKeepUniqueReadListInLibs, isIncludeDeletions, isIncludeNs);
+                isDefinitelyReference, isEmitEmptyLoci, isKeepUniqueReadListInLibs, isIncludeDeletions, isIncludeNs, isUseColumnarPileups);
     }
 
     /**
@@ -114,6 +124,7 @@ public class AlignmentContextIteratorBuilder {
      *                                       available via the transferReadsFromAllPreviousPileups interface (this parameter is specific to {@link LocusIteratorByState})
      * @param isIncludeDeletions include reads with deletion on the loci in question
      * @param isIncludeNs include reads with N on the loci in question
+     * @param isUseColumnarPileups produce AlignmentContexts backed by reusable column-oriented pileups (this parameter is specific to {@link LocusIteratorByState})
      * @return iterator that produces AlignmentContexts ready for consumption (e.g. by a {@link org.broadinstitute.hellbender.engine.LocusWalker})
      */
     private static Iterator<AlignmentContext> createAlignmentContextIterator(final List<SimpleInterval> intervalsForTraversal,
@@ -125,7 +136,8 @@ public class AlignmentContextIteratorBuilder {
                                                                                boolean emitEmptyLoci,
                                                                                boolean isKeepUniqueReadListInLibs,
                                                                                boolean isIncludeDeletions,
-                                                                               boolean isIncludeNs) {
+                                                                               boolean isIncludeNs,
+                                                                               boolean isUseColumnarPileups) {
 
         // get the samples from the read groups
         final Set<String> samples = header.getReadGroups().stream()
@@ -133,7 +145,7 @@ public class AlignmentContextIteratorBuilder {
                 .collect(Collectors.toSet());
 
         // get the LIBS
-        final LocusIteratorByState libs = new LocusIteratorByState(readIterator, downsamplingInfo, isKeepUniqueReadListInLibs, samples, header, isIncludeDeletions, isIncludeNs);
+        final LocusIteratorByState libs = new LocusIteratorByState(readIterator, downsamplingInfo, isKeepUniqueReadListInLibs, samples, header, isIncludeDeletions, isIncludeNs, isUseColumnarPileups);
 
         List<SimpleInterval> finalIntervals = intervalsForTraversal;
         validateEmitEmptyLociParameters(emitEmptyLoci, dictionary, intervalsForTraversal, isReference);
@@ -6,6 +6,7 @@ import htsjdk.samtools.CigarOperator;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.pileup.PileupColumns;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
@@ -311,5 +312,20 @@ public final class AlignmentStateMachine {
                 getCurrentCigarElementOffset(),
                 getOffsetIntoCurrentCigarElement());
     }
-}
 
+    /**
+     * Add the current state of this element to a column-oriented pileup, without creating a PileupElement
+     *
+     * Must not be a left or right edge
+     *
+     * @param columns the pileup to add this element to
+     */
+    public final void addToPileupColumns(final PileupColumns columns) {
+        Utils.validate(!(isLeftEdge() || isRightEdge()), "Cannot add an edge alignment state to a pileup");
+        columns.add(read,
+                getReadOffset(),
+                getCurrentCigarElement(),
+                getCurrentCigarElementOffset(),
+                getOffsetIntoCurrentCigarElement());
+    }
+}
@@ -10,12 +10,14 @@ import org.broadinstitute.hellbender.engine.AlignmentContext;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
+import org.broadinstitute.hellbender.utils.pileup.PileupColumns;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Iterator that traverses a SAM File, accumulating information on a per-locus basis
@@ -41,6 +43,10 @@ import java.util.*;
  * -- LIBS can optionally capture all of the reads that come off the iterator, before any leveling downsampling
  * occurs, if requested.  This allows users of LIBS to see both a ReadPileup view of the data as well as
  * a stream of unique, sorted reads
+ * -- LIBS can optionally produce column-oriented pileups (see {@link PileupColumns}), which store the bases,
+ * qualities, etc. of each locus in primitive arrays and only create PileupElements on demand.  The storage
+ * of a pileup is reused for later loci once its AlignmentContext has been released with
+ * {@link AlignmentContext#release()}.
  */
 public final class LocusIteratorByState implements Iterator<AlignmentContext> {
     /** Indicates that we shouldn't do any downsampling */
@@ -78,6 +84,17 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
      */
     private final boolean includeReadsWithNsAtLoci;
 
+    /**
+     * Should we produce column-oriented pileups?
+     */
+    private final boolean useColumnarPileups;
+
+    /**
+     * Column-oriented pileups released by the clients, ready to be reused for the next loci
+     */
+    private final Deque<PileupColumns> recycledPileupColumns = new ArrayDeque<>();
+    private final Consumer<PileupColumns> pileupColumnsRecycler = recycledPileupColumns::push;
+
     /**
      * The next alignment context.  A non-null value means that a
      * context is waiting from hasNext() for sending off to the next next() call.  A null
@@ -209,6 +226,43 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
                                 final SAMFileHeader header,
                                 final boolean includeReadsWithDeletionAtLoci,
                                 final boolean includeReadsWithNsAtLoci) {
+        this(samIterator,
+                downsamplingInfo,
+                keepUniqueReadListInLIBS,
+                samples,
+                header,
+                includeReadsWithDeletionAtLoci,
+                includeReadsWithNsAtLoci,
+                false
+        );
+    }
+
+    /**
+     * Create a new LocusIteratorByState
+     *
+     * @param samIterator                    the iterator of reads to process into pileups.  Reads must be ordered
+     *                                       according to standard coordinate-sorted BAM conventions
+     * @param downsamplingInfo               meta-information about how to downsample the reads
+     * @param keepUniqueReadListInLIBS       if true, we will keep the unique reads from the samIterator and make them
+     *                                       available via the transferReadsFromAllPreviousPileups interface
+     * @param samples                        a complete list of samples present in the read groups for the reads coming from samIterator.
+     *                                       This is generally just the set of read group sample fields in the SAMFileHeader.  This
+     *                                       list of samples may contain a null element, and all reads without read groups will
+     *                                       be mapped to this null sample
+     * @param header                         header from the reads
+     * @param includeReadsWithDeletionAtLoci Include reads with deletion at loci
+     * @param includeReadsWithNsAtLoci       Include reads with Ns at loci (usually it is not needed)
+     * @param useColumnarPileups             Produce AlignmentContexts backed by {@link PileupColumns}, whose storage is
+     *                                       reused once they are released with {@link AlignmentContext#release()}
+     */
+    public LocusIteratorByState(final Iterator<GATKRead> samIterator,
+                                final LIBSDownsamplingInfo downsamplingInfo,
+                                final boolean keepUniqueReadListInLIBS,
+                                final Collection<String> samples,
+                                final SAMFileHeader header,
+                                final boolean includeReadsWithDeletionAtLoci,
+                                final boolean includeReadsWithNsAtLoci,
+                                final boolean useColumnarPileups) {
         Utils.nonNull(samIterator, "samIterator cannot be null");
         Utils.nonNull(downsamplingInfo, "downsamplingInfo cannot be null");
         Utils.nonNull(samples, "Samples cannot be null");
@@ -222,6 +276,7 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
 
         this.includeReadsWithDeletionAtLoci = includeReadsWithDeletionAtLoci;
         this.includeReadsWithNsAtLoci = includeReadsWithNsAtLoci;
+        this.useColumnarPileups = useColumnarPileups;
         this.samples = new ArrayList<>(samples);
         this.readStates = new ReadStateManager(samIterator, this.samples, downsamplingInfo, keepUniqueReadListInLIBS, header);
     }
@@ -320,7 +375,8 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
             // since they are just going to get combined into one monolithic pileup anyway
             // when we construct the final ReadPileup below. This optimization speeds up the
             // HaplotypeCaller by quite a bit!
-            final List<PileupElement> allPileupElements = new ArrayList<>(100);
+            final List<PileupElement> allPileupElements = useColumnarPileups ? null : new ArrayList<>(100);
+            final PileupColumns pileupColumns = useColumnarPileups ? nextPileupColumns(location) : null;
 
             for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates) {
                 final PerSampleReadStateManager readState = sampleStatePair.getValue();
@@ -341,18 +397,37 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
                             continue;
                         }
 
-                        allPileupElements.add(state.makePileupElement());
+                        if (useColumnarPileups) {
+                            state.addToPileupColumns(pileupColumns);
+                        } else {
+                            allPileupElements.add(state.makePileupElement());
+                        }
                     }
                 }
             }
 
             readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
-            if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
+            if (useColumnarPileups) {
+                if (!pileupColumns.isEmpty()) {
+                    nextAlignmentContext = new AlignmentContext(location, pileupColumns, pileupColumnsRecycler);
+                } else {
+                    recycledPileupColumns.push(pileupColumns);
+                }
+            } else if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
                 nextAlignmentContext = new AlignmentContext(location, new ReadPileup(location, allPileupElements));
             }
         }
     }
 
+    /**
+     * Get an empty column-oriented pileup at location, reusing a released one if possible
+     */
+    private PileupColumns nextPileupColumns(final Locatable location) {
+        final PileupColumns result = recycledPileupColumns.isEmpty() ? new PileupColumns() : recycledPileupColumns.pop();
+        result.clear(location);
+        return result;
+    }
+
     /**
      * Should this read be excluded from the pileup?
      *
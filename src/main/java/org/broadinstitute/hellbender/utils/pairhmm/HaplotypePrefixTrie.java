@@ -0,0 +1,83 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import htsjdk.variant.variantcontext.Allele;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Prefix tree of the haplotypes of a region, flattened into the depth-first order in which the PairHMM should
+ * evaluate them so that the matrix columns of every shared prefix are computed only once per read.
+ *
+ * The PairHMM fills its matrices one haplotype column at a time, and column {@code j} only depends on the first
+ * {@code j} haplotype bases (and on the haplotype length, through the initial deletion row). Walking the trie
+ * depth-first therefore lets each haplotype start from the columns left behind by its predecessor, recomputing only
+ * those past the branch point. The trie is never materialized: sorting the haplotypes by length and then
+ * lexicographically yields exactly its depth-first order, and the length of the prefix each haplotype shares with its
+ * predecessor in that order is the depth of the branch point between them.
+ *
+ * Haplotypes of different lengths never share columns, so the first haplotype of each length restarts from column 0.
+ */
+final class HaplotypePrefixTrie {
+
+    private static final Comparator<byte[]> LENGTH_THEN_LEXICOGRAPHIC = Comparator.<byte[]>comparingInt(bases -> bases.length)
+            .thenComparing(HaplotypePrefixTrie::compareBases);
+
+    private final int[] evaluationOrder;
+    private final int[] sharedPrefixLengths;
+
+    /**
+     * @param haplotypes the haplotypes to evaluate, in the order of the destination likelihood matrix
+     */
+    HaplotypePrefixTrie(final List<? extends Allele> haplotypes) {
+        Utils.nonNull(haplotypes);
+        final byte[][] bases = haplotypes.stream().map(Allele::getBases).toArray(byte[][]::new);
+
+        evaluationOrder = IntStream.range(0, bases.length).boxed()
+                .sorted(Comparator.comparing(index -> bases[index], LENGTH_THEN_LEXICOGRAPHIC))
+                .mapToInt(Integer::intValue).toArray();
+
+        sharedPrefixLengths = new int[bases.length];
+        for ( int k = 1; k < bases.length; k++ ) {
+            final byte[] previous = bases[evaluationOrder[k - 1]];
+            final byte[] current = bases[evaluationOrder[k]];
+            sharedPrefixLengths[k] = previous.length != current.length ? 0 : PairHMM.findFirstPositionWhereHaplotypesDiffer(previous, current);
+        }
+    }
+
+    /**
+     * @return the number of haplotypes in the trie
+     */
+    int size() {
+        return evaluationOrder.length;
+    }
+
+    /**
+     * @param k position in the evaluation order
+     * @return index, in the list given at construction, of the {@code k}th haplotype to evaluate
+     */
+    int haplotypeIndex(final int k) {
+        return evaluationOrder[k];
+    }
+
+    /**
+     * @param k position in the evaluation order
+     * @return number of leading bases the {@code k}th haplotype to evaluate shares with the one evaluated just before it,
+     *         or 0 for the first haplotype of each length
+     */
+    int sharedPrefixLength(final int k) {
+        return sharedPrefixLengths[k];
+    }
+
+    private static int compareBases(final byte[] bases1, final byte[] bases2) {
+        final int minLength = Math.min(bases1.length, bases2.length);
+        for ( int i = 0; i < minLength; i++ ) {
+            if ( bases1[i] != bases2[i] ) {
+                return Byte.compare(bases1[i], bases2[i]);
+            }
+        }
+        return Integer.compare(bases1.length, bases2.length);
+    }
+}
@@ -229,7 +229,9 @@ public abstract class PairHMM implements Closeable{
         final List<Haplotype> alleles = logLikelihoods.alleles();
         final int alleleCount = alleles.size();
         mLogLikelihoodArray = new double[readCount * alleleCount];
-        int idx = 0;
+
+        // evaluate the haplotypes in prefix-tree order so that each read only pays once for every shared haplotype prefix
+        final HaplotypePrefixTrie haplotypeTrie = new HaplotypePrefixTrie(alleles);
         int readIndex = 0;
         for(final GATKRead read : processedReads){
             final byte[] readBases = read.getBases();
@@ -238,16 +240,17 @@ public abstract class PairHMM implements Closeable{
             final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read);
             final byte[] overallGCP = gcp.get(read);
 
-            // peek at the next haplotype in the list (necessary to get nextHaplotypeBases, which is required for caching in the array implementation)
-            final boolean isFirstHaplotype = true;
-            for (int a = 0; a < alleleCount; a++) {
-                final Allele allele = alleles.get(a);
-                final byte[] alleleBases = allele.getBases();
-                final byte[] nextAlleleBases = a == alleles.size() - 1 ? null : alleles.get(a + 1).getBases();
+            for (int k = 0; k < alleleCount; k++) {
+                final int a = haplotypeTrie.haplotypeIndex(k);
+                final byte[] alleleBases = alleles.get(a).getBases();
+                // the first haplotype recaches the read values; the following ones resume from the columns of the prefix
+                // they share with their predecessor, which are still in the matrices
+                final boolean isFirstHaplotype = k == 0;
+                hapStartIndex = haplotypeTrie.sharedPrefixLength(k);
                 final double lk = computeReadLikelihoodGivenHaplotypeLog10(alleleBases,
-                        readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, nextAlleleBases);
+                        readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, null);
                 logLikelihoods.set(a, readIndex, lk);
-                mLogLikelihoodArray[idx++] = lk;
+                mLogLikelihoodArray[readIndex * alleleCount + a] = lk;
             }
             readIndex++;
         }
@@ -259,6 +262,38 @@ public abstract class PairHMM implements Closeable{
         }
     }
 
+    /**
+     *  Batched version of {@link #computeLog10Likelihoods(LikelihoodMatrix, List, Map)} for several likelihood matrices
+     *  that share the same haplotypes (eg., the per-sample matrices of a single assembly region).
+     *
+     *  The default implementation simply processes each matrix in turn. Implementations with a significant fixed cost
+     *  per call (eg., the native implementations, which pay for data marshalling and a JNI crossing on every call)
+     *  override this to submit the reads of all matrices as a single batch and scatter the results back.
+     *
+     *  After this call {@link #getLogLikelihoodArray()} holds the results of the last matrix processed, unless the
+     *  implementation documents otherwise.
+     *
+     *  Batches only span matrices with the same haplotypes, which in practice means the samples of one region: the
+     *  native implementations compute every read against every haplotype, so mixing regions with different haplotypes
+     *  would compute many pairs that are never used. With a single sample there is one matrix per region, and this is
+     *  no faster than {@link #computeLog10Likelihoods(LikelihoodMatrix, List, Map)}.
+     *
+     * @param logLikelihoods destination matrices, all with the same haplotypes in the same order
+     * @param processedReads reads to analyze for each matrix, in the same order as {@code logLikelihoods}
+     * @param gcp penalty for gap continuations base array map for all processed reads.
+     */
+    public void batchComputeLog10Likelihoods(final List<LikelihoodMatrix<Haplotype>> logLikelihoods,
+                                             final List<List<GATKRead>> processedReads,
+                                             final Map<GATKRead, byte[]> gcp) {
+        Utils.nonNull(logLikelihoods);
+        Utils.nonNull(processedReads);
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), "there must be one list of reads per likelihood matrix");
+
+        for ( int i = 0; i < logLikelihoods.size(); i++ ) {
+            computeLog10Likelihoods(logLikelihoods.get(i), processedReads.get(i), gcp);
+        }
+    }
+
     /**
      * Compute the total probability of read arising from haplotypeBases given base substitution, insertion, and deletion
      * probabilities.
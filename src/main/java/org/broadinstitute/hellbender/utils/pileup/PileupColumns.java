@@ -0,0 +1,268 @@
+package org.broadinstitute.hellbender.utils.pileup;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented, reusable representation of the reads piled up at a single locus.
+ *
+ * <p>
+ *     The bases, qualities, offsets, strands and mapping qualities of the pileup live in primitive arrays that are
+ *     filled in place by {@link #add} and kept between loci after {@link #clear}, so summarizing a locus does not
+ *     require a {@link PileupElement} per read. {@link PileupElement}s are only created, once per element, when
+ *     they are requested through {@link #getPileupElement(int)} or the {@link ReadPileup} view returned by
+ *     {@link #asReadPileup()}.
+ * </p>
+ *
+ * <p>
+ *     Because the arrays are reused, the content of this object (and of any {@link ReadPileup} view of it) is only
+ *     valid until the next call to {@link #clear}. Clients that need to keep a pileup around must copy it first.
+ *     Base qualities are also captured when a read is added, so later changes to the qualities of the reads (e.g.
+ *     by {@link ReadPileup#fixOverlaps()}) are not reflected by {@link #getQual(int)}.
+ * </p>
+ */
+public final class PileupColumns {
+
+    private static final int INITIAL_CAPACITY = 100;
+
+    private Locatable loc;
+    private int size;
+
+    private GATKRead[] reads;
+    private int[] offsets;
+    private CigarElement[] cigarElements;
+    private int[] cigarElementIndexes;
+    private int[] offsetsInCigarElement;
+    private byte[] bases;
+    private byte[] quals;
+    private int[] mappingQuals;
+    private boolean[] reverseStrand;
+
+    // elements created on demand, indexed like the columns above
+    private PileupElement[] elements;
+
+    private final List<PileupElement> elementsView = new AbstractList<PileupElement>() {
+        @Override
+        public PileupElement get(final int index) {
+            return getPileupElement(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * Creates an empty pileup without a location. {@link #clear} must be called before adding elements.
+     */
+    public PileupColumns() {
+        reads = new GATKRead[INITIAL_CAPACITY];
+        offsets = new int[INITIAL_CAPACITY];
+        cigarElements = new CigarElement[INITIAL_CAPACITY];
+        cigarElementIndexes = new int[INITIAL_CAPACITY];
+        offsetsInCigarElement = new int[INITIAL_CAPACITY];
+        bases = new byte[INITIAL_CAPACITY];
+        quals = new byte[INITIAL_CAPACITY];
+        mappingQuals = new int[INITIAL_CAPACITY];
+        reverseStrand = new boolean[INITIAL_CAPACITY];
+        elements = new PileupElement[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates a new column-oriented copy of an existing pileup.
+     *
+     * @param pileup the pileup to copy, cannot be {@code null}
+     * @return never {@code null}
+     */
+    public static PileupColumns fromPileup(final ReadPileup pileup) {
+        Utils.nonNull(pileup, "the pileup cannot be null");
+        final PileupColumns result = new PileupColumns();
+        result.clear(pileup.getLocation());
+        for (final PileupElement pe : pileup) {
+            result.add(pe.getRead(), pe.getOffset(), pe.getCurrentCigarElement(), pe.getCurrentCigarOffset(), pe.getOffsetInCurrentCigar());
+        }
+        return result;
+    }
+
+    /**
+     * Removes all the elements and moves this pileup to a new locus, keeping the allocated arrays for reuse.
+     *
+     * @param loc the new location of the pileup, cannot be {@code null}
+     */
+    public void clear(final Locatable loc) {
+        this.loc = Utils.nonNull(loc, "the location cannot be null");
+        // drop references so that we don't keep reads alive past the loci they cover
+        Arrays.fill(reads, 0, size, null);
+        Arrays.fill(cigarElements, 0, size, null);
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Adds a read to the pileup. The arguments have the same meaning as in
+     * {@link PileupElement#PileupElement(GATKRead, int, CigarElement, int, int)}.
+     */
+    public void add(final GATKRead read,
+                    final int baseOffset,
+                    final CigarElement currentElement,
+                    final int currentCigarOffset,
+                    final int offsetInCurrentCigar) {
+        if (size == reads.length) {
+            grow();
+        }
+        final boolean isDeletion = currentElement.getOperator() == CigarOperator.D;
+        reads[size] = read;
+        offsets[size] = baseOffset;
+        cigarElements[size] = currentElement;
+        cigarElementIndexes[size] = currentCigarOffset;
+        offsetsInCigarElement[size] = offsetInCurrentCigar;
+        bases[size] = isDeletion ? PileupElement.DELETION_BASE : read.getBase(baseOffset);
+        quals[size] = isDeletion ? PileupElement.DELETION_QUAL : read.getBaseQuality(baseOffset);
+        mappingQuals[size] = read.getMappingQuality();
+        reverseStrand[size] = read.isReverseStrand();
+        size++;
+    }
+
+    private void grow() {
+        final int newCapacity = reads.length * 2;
+        reads = Arrays.copyOf(reads, newCapacity);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        cigarElements = Arrays.copyOf(cigarElements, newCapacity);
+        cigarElementIndexes = Arrays.copyOf(cigarElementIndexes, newCapacity);
+        offsetsInCigarElement = Arrays.copyOf(offsetsInCigarElement, newCapacity);
+        bases = Arrays.copyOf(bases, newCapacity);
+        quals = Arrays.copyOf(quals, newCapacity);
+        mappingQuals = Arrays.copyOf(mappingQuals, newCapacity);
+        reverseStrand = Arrays.copyOf(reverseStrand, newCapacity);
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    /**
+     * @return the location of this pileup, or {@code null} if {@link #clear} was never called
+     */
+    public Locatable getLocation() {
+        return loc;
+    }
+
+    /**
+     * @return the number of elements in the pileup
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} iff the pileup has no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Note: like PileupElement, the per-element accessors below skip bounds checking against size() because
+    // they are meant to be called in tight loops over the pileup.
+
+    /**
+     * @return the read of the {@code i}th element
+     */
+    public GATKRead getRead(final int i) {
+        return reads[i];
+    }
+
+    /**
+     * @return the offset into the read of the {@code i}th element, see {@link PileupElement#getOffset()}
+     */
+    public int getOffset(final int i) {
+        return offsets[i];
+    }
+
+    /**
+     * @return the base of the {@code i}th element, or {@link PileupElement#DELETION_BASE} if it is a deletion
+     */
+    public byte getBase(final int i) {
+        return bases[i];
+    }
+
+    /**
+     * @return the base quality of the {@code i}th element, or {@link PileupElement#DELETION_QUAL} if it is a deletion
+     */
+    public byte getQual(final int i) {
+        return quals[i];
+    }
+
+    /**
+     * @return the mapping quality of the read of the {@code i}th element
+     */
+    public int getMappingQual(final int i) {
+        return mappingQuals[i];
+    }
+
+    /**
+     * @return {@code true} iff the read of the {@code i}th element is on the reverse strand
+     */
+    public boolean isReverseStrand(final int i) {
+        return reverseStrand[i];
+    }
+
+    /**
+     * @return {@code true} iff the {@code i}th element is a deletion
+     */
+    public boolean isDeletion(final int i) {
+        return cigarElements[i].getOperator() == CigarOperator.D;
+    }
+
+    /**
+     * Returns the {@code i}th element of the pileup as a {@link PileupElement}, creating it on the first request.
+     *
+     * @param i the index of the element, from 0 to {@code size() - 1}
+     * @return never {@code null}
+     */
+    public PileupElement getPileupElement(final int i) {
+        Utils.validIndex(i, size);
+        PileupElement result = elements[i];
+        if (result == null) {
+            result = new PileupElement(reads[i], offsets[i], cigarElements[i], cigarElementIndexes[i], offsetsInCigarElement[i]);
+            elements[i] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a {@link ReadPileup} view of this pileup that creates the {@link PileupElement}s on demand.
+     *
+     * <p>The view reflects the current content of this object, and so is only valid until the next call to {@link #clear}.</p>
+     *
+     * @return never {@code null}
+     */
+    public ReadPileup asReadPileup() {
+        Utils.validate(loc != null, "the pileup has no location yet");
+        return new ReadPileup(loc, elementsView);
+    }
+
+    /**
+     * Get counts of A, C, G, T in order, which returns a int[4] vector with counts according
+     * to BaseUtils.simpleBaseToBaseIndex for each base. Deletions are not counted.
+     *
+     * <p>Same as {@link ReadPileup#getBaseCounts()}, but without creating any {@link PileupElement}.</p>
+     */
+    public int[] getBaseCounts() {
+        final int[] counts = new int[4];
+        for (int i = 0; i < size; i++) {
+            if (!isDeletion(i)) {
+                final int index = BaseUtils.simpleBaseToBaseIndex(bases[i]);
+                if (index != -1) {
+                    counts[index]++;
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -1,5 +1,7 @@
 package org.broadinstitute.hellbender.utils.read;
 
+import htsjdk.samtools.BAMIndex;
+import htsjdk.samtools.BAMIndexer;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
@@ -12,12 +14,21 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SAMUtils;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
 import htsjdk.samtools.SamStreams;
 import htsjdk.samtools.cram.build.CramIO;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import htsjdk.samtools.util.ProgressLoggerInterface;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -27,6 +38,7 @@ import java.util.ListIterator;
 import java.util.OptionalInt;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.zip.Deflater;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
@@ -36,6 +48,9 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedInflatingOutputStream;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
 import org.broadinstitute.hellbender.utils.recalibration.EventType;
 
 /**
@@ -1062,9 +1077,41 @@ public final class ReadUtils {
         final boolean preSorted,
         boolean createOutputBamIndex,
         final boolean createMD5)
+    {
+        return createCommonSAMWriter(outputPath, referenceFile, header, preSorted, createOutputBamIndex, createMD5, 0);
+    }
+
+    /**
+     * Create a common SAMFileWriter for use with GATK tools, optionally compressing BAM output on several threads.
+     *
+     * When compressing on several threads, the BAM writer stores its BGZF blocks uncompressed, and they are compressed
+     * concurrently by a {@link ParallelBlockCompressedOutputStream}. The index, if requested, is then created from the
+     * complete file when the writer is closed, since the final position of the reads in the file is not known while
+     * they are written.
+     *
+     * @param outputPath - if this file has a .cram extension then a reference is required. Can not be null.
+     * @param referenceFile - the reference source to use. Can not be null if a output file has a .cram extension.
+     * @param header - header to be used for the output writer
+     * @param preSorted - if true then the records must already be sorted to match the header sort order
+     * @param createOutputBamIndex - if true an index will be created for .BAM and .CRAM files
+     * @param createMD5 - if true an MD5 file will be created
+     * @param compressionThreads - number of threads used to compress BAM output (0 to compress on the calling thread).
+     *                           Ignored for SAM and CRAM output.
+     *
+     * @return SAMFileWriter
+     */
+    public static SAMFileWriter createCommonSAMWriter(
+        final Path outputPath,
+        final File referenceFile,
+        final SAMFileHeader header,
+        final boolean preSorted,
+        boolean createOutputBamIndex,
+        final boolean createMD5,
+        final int compressionThreads)
     {
         Utils.nonNull(outputPath);
         Utils.nonNull(header);
+        Utils.validateArg(compressionThreads >= 0, "compressionThreads must be >= 0");
 
         if (createOutputBamIndex && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
             logger.warn("Skipping index file creation for: " +
@@ -1072,10 +1119,82 @@ public final class ReadUtils {
             createOutputBamIndex = false;
         }
 
+        if (compressionThreads > 0 && IOUtils.isBamFileName(outputPath.toString())) {
+            return createParallelCompressionBAMWriter(outputPath, header, preSorted, createOutputBamIndex, createMD5, compressionThreads);
+        }
+
         final SAMFileWriterFactory factory = new SAMFileWriterFactory().setCreateIndex(createOutputBamIndex).setCreateMd5File(createMD5);
         return ReadUtils.createCommonSAMWriterFromFactory(factory, outputPath, referenceFile, header, preSorted);
     }
 
+    private static SAMFileWriter createParallelCompressionBAMWriter(
+        final Path outputPath,
+        final SAMFileHeader header,
+        final boolean preSorted,
+        final boolean createOutputBamIndex,
+        final boolean createMD5,
+        final int compressionThreads)
+    {
+        final OutputStream fileStream;
+        try {
+            final OutputStream bufferedStream = new BufferedOutputStream(Files.newOutputStream(outputPath));
+            fileStream = createMD5 ? new Md5CalculatingOutputStream(bufferedStream, IOUtil.addExtension(outputPath, ".md5")) : bufferedStream;
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toString(), "Could not open the output file", e);
+        }
+
+        final OutputStream compressingStream = new BlockCompressedInflatingOutputStream(
+            new ParallelBlockCompressedOutputStream(fileStream, BlockCompressedStreamConstants.DEFAULT_COMPRESSION_LEVEL, compressionThreads));
+        // the blocks written by the BAM writer are only stored, so decompressing them again is little more than a copy
+        final SAMFileWriter writer = new SAMFileWriterFactory().setCompressionLevel(Deflater.NO_COMPRESSION)
+            .makeBAMWriter(header.clone(), preSorted, compressingStream);
+        return createOutputBamIndex ? new IndexOnCloseBAMWriter(writer, outputPath) : writer;
+    }
+
+    /**
+     * Creates the index of a BAM file from the complete file once its writer is closed, for writers that can't
+     * create the index as the reads are written.
+     */
+    private static final class IndexOnCloseBAMWriter implements SAMFileWriter {
+        private final SAMFileWriter writer;
+        private final Path outputPath;
+
+        private IndexOnCloseBAMWriter(final SAMFileWriter writer, final Path outputPath) {
+            this.writer = writer;
+            this.outputPath = outputPath;
+        }
+
+        @Override
+        public void addAlignment(final SAMRecord alignment) {
+            writer.addAlignment(alignment);
+        }
+
+        @Override
+        public SAMFileHeader getFileHeader() {
+            return writer.getFileHeader();
+        }
+
+        @Override
+        public void setProgressLogger(final ProgressLoggerInterface progress) {
+            writer.setProgressLogger(progress);
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+            // same name as the index created by htsjdk's BAM writer
+            final Path indexPath = outputPath.resolveSibling(IOUtils.replaceExtension(outputPath.getFileName().toString(), BAMIndex.BAMIndexSuffix));
+            try (final SamReader reader = SamReaderFactory.makeDefault()
+                    .validationStringency(ReadConstants.DEFAULT_READ_VALIDATION_STRINGENCY)
+                    .enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS)
+                    .open(outputPath)) {
+                BAMIndexer.createIndex(reader, indexPath);
+            } catch (final IOException e) {
+                throw new UserException.CouldNotCreateOutputFile(indexPath.toString(), "Could not create the index", e);
+            }
+        }
+    }
+
     /**
      * Create a common SAMFileWriter from a factory for use with GATK tools. Assumes that if the factory has been set
      * to create an index, the header must be set to coordinate sorted.
@@ -0,0 +1,236 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFlag;
+import htsjdk.samtools.SAMRecord;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Compact summary of a single read holding everything sort-based duplicate marking needs to know about it:
+ * an ordinal identifying the read, its read group index and name (which group reads into pairs), its fragment key
+ * fields, the fields used to order reads with the same name into pairs and to break ties between duplicates, its
+ * score and its physical location on the flowcell.
+ *
+ * These records are shuffled in place of the reads themselves, so the read is never materialised on the reducer side.
+ * They are themselves the keys of the shuffle that groups reads by read group and name (see {@link #GROUPING_ORDER}),
+ * so the name is only shuffled once. The name makes the records variable-width.
+ */
+public final class CompactReadEnd implements OpticalDuplicateFinder.PhysicalLocation, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int REVERSE_STRAND = 1;
+    private static final int PAIRED = 1 << 1;
+    private static final int MATE_MAPPED = 1 << 2;
+    private static final int PROPERLY_PAIRED = 1 << 3;
+    private static final int FIRST_OF_PAIR = 1 << 4;
+    private static final int FAILS_VENDOR_QUALITY_CHECK = 1 << 5;
+    private static final int SECONDARY = 1 << 6;
+    private static final int SUPPLEMENTARY = 1 << 7;
+
+    /**
+     * Orders reads by read group index and then by name, so that reads with the same read group and name (which
+     * {@code ReadsKey.keyForRead} gives the same key) are adjacent.
+     */
+    public static final Comparator<CompactReadEnd> GROUPING_ORDER = Comparator
+            .comparingInt((CompactReadEnd r) -> r.readGroupIndex)
+            .thenComparing(r -> r.name, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * Orders reads with the same name the same way as {@code MarkDuplicatesSparkUtils.GATKOrder}, so that
+     * consecutive reads are paired up identically. The duplicate flag is not compared since it is cleared
+     * on all reads before pairing.
+     */
+    public static final Comparator<CompactReadEnd> PAIRING_ORDER = Comparator
+            .comparingInt((CompactReadEnd r) -> r.referenceIndex)
+            .thenComparingInt(r -> r.start)
+            .thenComparing(r -> r.failsVendorQualityCheck())
+            .thenComparing(r -> r.isPaired())
+            .thenComparing(r -> r.isProperlyPaired())
+            .thenComparing(r -> !r.isFirstOfPair())
+            .thenComparing(r -> r.isSecondaryAlignment())
+            .thenComparing(r -> r.isSupplementaryAlignment())
+            .thenComparingInt(r -> r.mappingQuality)
+            .thenComparingInt(r -> r.mateReferenceIndex)
+            .thenComparingInt(r -> r.mateStart);
+
+    /**
+     * Orders reads the same way as {@link org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator}, which
+     * breaks ties between duplicates with equal scores in {@code MarkDuplicatesSparkUtils.transformReads}.
+     * Reads are always mapped, and the duplicate flag is not compared since it is cleared on all reads before marking.
+     */
+    public static final Comparator<CompactReadEnd> COORDINATE_ORDER = CompactReadEnd::compareCoordinates;
+
+    private final long ordinal;
+    private final short library;
+    private final int readGroupIndex;
+    private final int referenceIndex;
+    private final int start;
+    private final int strandedUnclippedStart;
+    private final int mappingQuality;
+    private final int mateReferenceIndex;
+    private final int mateStart;
+    private final int score;
+    private final int flags;
+    private final String name;
+    private final int samFlags;
+    private final int fragmentLength;
+
+    // Information used to detect optical dupes
+    private short tile = -1;
+    private short x = -1, y = -1;
+
+    private CompactReadEnd(final long ordinal, final short library, final int readGroupIndex, final GATKRead read, final SAMFileHeader header,
+                           final MarkDuplicatesScoringStrategy scoringStrategy) {
+        this.ordinal = ordinal;
+        this.library = library;
+        this.readGroupIndex = readGroupIndex;
+        this.referenceIndex = ReadUtils.getReferenceIndex(read, header);
+        this.start = read.getStart();
+        this.strandedUnclippedStart = ReadUtils.getStrandedUnclippedStart(read);
+        this.mappingQuality = read.getMappingQuality();
+        this.mateReferenceIndex = read.isPaired() ? ReadUtils.getMateReferenceIndex(read, header) : SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX;
+        this.mateStart = read.isPaired() ? read.getMateStart() : 0;
+        this.score = scoringStrategy.score(read);
+        this.flags = (read.isReverseStrand() ? REVERSE_STRAND : 0)
+                | (read.isPaired() ? PAIRED : 0)
+                | (ReadUtils.readHasMappedMate(read) ? MATE_MAPPED : 0)
+                | (read.isPaired() && read.isProperlyPaired() ? PROPERLY_PAIRED : 0)
+                | (read.isPaired() && read.isFirstOfPair() ? FIRST_OF_PAIR : 0)
+                | (read.failsVendorQualityCheck() ? FAILS_VENDOR_QUALITY_CHECK : 0)
+                | (read.isSecondaryAlignment() ? SECONDARY : 0)
+                | (read.isSupplementaryAlignment() ? SUPPLEMENTARY : 0);
+        this.name = read.getName();
+        this.samFlags = ReadUtils.getSAMFlagsForRead(read) & ~SAMFlag.DUPLICATE_READ.intValue();
+        this.fragmentLength = read.getFragmentLength();
+    }
+
+    /**
+     * Summarises a mapped read.
+     *
+     * @param ordinal unique id of the read, used to find it again once duplicates are resolved
+     * @param library index of the read's library, as assigned by the caller
+     * @param readGroupIndex index of the read's read group, as assigned by the caller; reads with the same name are
+     *                       only paired up if they have the same read group index
+     * @param read the read to summarise; must be mapped
+     * @param header header for the read
+     * @param scoringStrategy strategy used to score the read
+     * @param finder used to parse the physical location out of the read name; may be null, in which case
+     *               the location is left unset and the read is never considered an optical duplicate
+     */
+    public static CompactReadEnd of(final long ordinal, final short library, final int readGroupIndex, final GATKRead read, final SAMFileHeader header,
+                                    final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder) {
+        Utils.nonNull(read);
+        Utils.validateArg(!read.isUnmapped(), "read must be mapped");
+        final CompactReadEnd readEnd = new CompactReadEnd(ordinal, library, readGroupIndex, read, header, scoringStrategy);
+        if (finder != null) {
+            finder.addLocationInformation(read.getName(), readEnd);
+        }
+        return readEnd;
+    }
+
+    private static int compareCoordinates(final CompactReadEnd first, final CompactReadEnd second) {
+        int result = Integer.compare(first.referenceIndex, second.referenceIndex);
+        if ( result != 0 ) { return result; }
+        result = Integer.compare(first.start, second.start);
+        if ( result != 0 ) { return result; }
+        if (first.isReverseStrand() != second.isReverseStrand()) {
+            return first.isReverseStrand()? 1: -1;
+        }
+        if ( first.name != null && second.name != null ) {
+            result = first.name.compareTo(second.name);
+            if ( result != 0 ) { return result; }
+        }
+        result = Integer.compare(first.samFlags, second.samFlags);
+        if ( result != 0 ) { return result; }
+        result = Integer.compare(first.mappingQuality, second.mappingQuality);
+        if ( result != 0 ) { return result; }
+        if (first.isPaired() && second.isPaired()) {
+            result = Integer.compare(first.mateReferenceIndex, second.mateReferenceIndex);
+            if ( result != 0 ) { return result; }
+            result = Integer.compare(first.mateStart, second.mateStart);
+            if ( result != 0 ) { return result; }
+        }
+        return Integer.compare(first.fragmentLength, second.fragmentLength);
+    }
+
+    /**
+     * @return a hash of the read group index and name only, consistent with {@link #GROUPING_ORDER}
+     */
+    public int groupingHashCode() {
+        return 31 * readGroupIndex + Objects.hashCode(name);
+    }
+
+    public long getOrdinal() { return ordinal; }
+
+    public short getLibrary() { return library; }
+
+    public int getReadGroupIndex() { return readGroupIndex; }
+
+    public int getReferenceIndex() { return referenceIndex; }
+
+    public int getStart() { return start; }
+
+    public int getStrandedUnclippedStart() { return strandedUnclippedStart; }
+
+    public int getScore() { return score; }
+
+    public String getName() { return name; }
+
+    /**
+     * As for {@link PairedEnds}, the read group is not used to separate optical duplicates.
+     */
+    @Override
+    public short getReadGroup() { return -1; }
+
+    @Override
+    public void setReadGroup(final short readGroup) { throw new UnsupportedOperationException("the read group is not tracked"); }
+
+    @Override
+    public short getTile() { return tile; }
+
+    @Override
+    public void setTile(final short tile) { this.tile = tile; }
+
+    @Override
+    public short getX() { return x; }
+
+    @Override
+    public void setX(final short x) { this.x = x; }
+
+    @Override
+    public short getY() { return y; }
+
+    @Override
+    public void setY(final short y) { this.y = y; }
+
+    @Override
+    public short getLibraryId() { return library; }
+
+    @Override
+    public void setLibraryId(final short libraryId) { throw new UnsupportedOperationException("the library is fixed on construction"); }
+
+    public boolean isReverseStrand() { return (flags & REVERSE_STRAND) != 0; }
+
+    public boolean isPaired() { return (flags & PAIRED) != 0; }
+
+    /**
+     * @return true if the read is paired and its mate is mapped, as in {@link ReadUtils#readHasMappedMate}
+     */
+    public boolean hasMappedMate() { return (flags & MATE_MAPPED) != 0; }
+
+    public boolean isProperlyPaired() { return (flags & PROPERLY_PAIRED) != 0; }
+
+    public boolean isFirstOfPair() { return (flags & FIRST_OF_PAIR) != 0; }
+
+    public boolean failsVendorQualityCheck() { return (flags & FAILS_VENDOR_QUALITY_CHECK) != 0; }
+
+    public boolean isSecondaryAlignment() { return (flags & SECONDARY) != 0; }
+
+    public boolean isSupplementaryAlignment() { return (flags & SUPPLEMENTARY) != 0; }
+}
@@ -0,0 +1,197 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Compact record for a fragment or a pair of reads taking part in sort-based duplicate marking.
+ *
+ * Candidates with equal keys (see {@link #hasSameKey}) are duplicates of each other, exactly as for the String keys
+ * made by {@link ReadsKey#keyForFragment} and {@link ReadsKey#keyForPairedEnds}. Candidates carry only the ordinals
+ * of their reads, so duplicates can be resolved by sorting and sweeping these records without touching the reads.
+ */
+public final class DuplicateCandidate implements OpticalDuplicateFinder.PhysicalLocation, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final long NO_READ = -1L;
+
+    /**
+     * Orders candidates by key, so that duplicates of each other are adjacent, and then from best to worst.
+     * Within a fragment key, fragments from reads with a mapped mate come first.
+     * Candidates with the same score are ordered by their first reads with {@link CompactReadEnd#COORDINATE_ORDER},
+     * as in {@code MarkDuplicatesSparkUtils.transformReads}, so the same read is left unmarked however the reads are
+     * partitioned. Ordinals are only compared for reads that are identical in every field the comparator looks at.
+     */
+    public static final Comparator<DuplicateCandidate> DUPLICATE_ORDER = Comparator
+            .comparing((DuplicateCandidate c) -> c.isPair())
+            .thenComparingInt(c -> c.library)
+            .thenComparingInt(c -> c.firstReferenceIndex)
+            .thenComparingInt(c -> c.firstStrandedUnclippedStart)
+            .thenComparing(c -> c.firstReverseStrand)
+            .thenComparingInt(c -> c.secondReferenceIndex)
+            .thenComparingInt(c -> c.secondStrandedUnclippedStart)
+            .thenComparing(c -> c.secondReverseStrand)
+            .thenComparing(c -> !c.hasMappedMate)
+            .thenComparing(Comparator.comparingInt((DuplicateCandidate c) -> c.score).reversed())
+            .thenComparing(c -> c.first, CompactReadEnd.COORDINATE_ORDER)
+            .thenComparingLong(c -> c.first.getOrdinal());
+
+    private final short library;
+    private final int firstReferenceIndex;
+    private final int firstStrandedUnclippedStart;
+    private final boolean firstReverseStrand;
+    private final int secondReferenceIndex;
+    private final int secondStrandedUnclippedStart;
+    private final boolean secondReverseStrand;
+    private final boolean hasMappedMate;
+    private final byte orientation;
+    private final int score;
+    private final CompactReadEnd first;
+    private final long secondOrdinal;
+
+    // Information used to detect optical dupes
+    private short tile;
+    private short x, y;
+
+    private DuplicateCandidate(final CompactReadEnd first, final CompactReadEnd second, final byte orientation) {
+        this.library = first.getLibrary();
+        this.firstReferenceIndex = first.getReferenceIndex();
+        this.firstStrandedUnclippedStart = first.getStrandedUnclippedStart();
+        this.firstReverseStrand = first.isReverseStrand();
+        this.secondReferenceIndex = second != null ? second.getReferenceIndex() : -1;
+        this.secondStrandedUnclippedStart = second != null ? second.getStrandedUnclippedStart() : -1;
+        this.secondReverseStrand = second != null && second.isReverseStrand();
+        this.hasMappedMate = first.hasMappedMate();
+        this.orientation = orientation;
+        this.score = first.getScore() + (second != null ? second.getScore() : 0);
+        this.first = first;
+        this.secondOrdinal = second != null ? second.getOrdinal() : NO_READ;
+        this.tile = first.getTile();
+        this.x = first.getX();
+        this.y = first.getY();
+    }
+
+    /**
+     * Makes the candidate for a single read considered as a fragment.
+     */
+    public static DuplicateCandidate fragment(final CompactReadEnd read) {
+        Utils.nonNull(read);
+        return new DuplicateCandidate(read, null, (byte) -1);
+    }
+
+    /**
+     * Makes the candidate for two reads with the same name considered as a pair. As in {@link PairedEnds#and},
+     * the read with the lower stranded unclipped start becomes the first end of the pair.
+     */
+    public static DuplicateCandidate pair(final CompactReadEnd read, final CompactReadEnd mate) {
+        Utils.nonNull(read);
+        Utils.nonNull(mate);
+        final boolean swap = read.getStrandedUnclippedStart() > mate.getStrandedUnclippedStart();
+        final CompactReadEnd first = swap ? mate : read;
+        final CompactReadEnd second = swap ? read : mate;
+        return new DuplicateCandidate(first, second, orientationForOpticalDuplicates(first, second));
+    }
+
+    /**
+     * See {@link PairedEnds#getOrientationForOpticalDuplicates()}.
+     */
+    private static byte orientationForOpticalDuplicates(final CompactReadEnd first, final CompactReadEnd second) {
+        final boolean r1R = first.isFirstOfPair() ? first.isReverseStrand() : second.isReverseStrand();
+        final boolean r2R = first.isFirstOfPair() ? second.isReverseStrand() : first.isReverseStrand();
+        if (r1R && r2R) {
+            return ReadEnds.RR;
+        }
+        if (r1R) {
+            return ReadEnds.RF;
+        }
+        if (r2R) {
+            return ReadEnds.FR;
+        }
+        return ReadEnds.FF;
+    }
+
+    /**
+     * @return true if both candidates are duplicates of each other
+     */
+    public boolean hasSameKey(final DuplicateCandidate other) {
+        return isPair() == other.isPair()
+                && library == other.library
+                && firstReferenceIndex == other.firstReferenceIndex
+                && firstStrandedUnclippedStart == other.firstStrandedUnclippedStart
+                && firstReverseStrand == other.firstReverseStrand
+                && secondReferenceIndex == other.secondReferenceIndex
+                && secondStrandedUnclippedStart == other.secondStrandedUnclippedStart
+                && secondReverseStrand == other.secondReverseStrand;
+    }
+
+    /**
+     * @return a hash of the key fields only, consistent with {@link #hasSameKey}
+     */
+    public int keyHashCode() {
+        int result = Boolean.hashCode(isPair());
+        result = 31 * result + library;
+        result = 31 * result + firstReferenceIndex;
+        result = 31 * result + firstStrandedUnclippedStart;
+        result = 31 * result + Boolean.hashCode(firstReverseStrand);
+        result = 31 * result + secondReferenceIndex;
+        result = 31 * result + secondStrandedUnclippedStart;
+        result = 31 * result + Boolean.hashCode(secondReverseStrand);
+        return result;
+    }
+
+    public boolean isPair() { return secondOrdinal != NO_READ; }
+
+    /**
+     * @return for fragments, true if the read is paired and its mate is mapped
+     */
+    public boolean hasMappedMate() { return hasMappedMate; }
+
+    public int getScore() { return score; }
+
+    public long getFirstOrdinal() { return first.getOrdinal(); }
+
+    /**
+     * @return the ordinal of the second read of a pair, or -1 for a fragment
+     */
+    public long getSecondOrdinal() { return secondOrdinal; }
+
+    /**
+     * @return for pairs, one of {@link ReadEnds#RR}, {@link ReadEnds#RF}, {@link ReadEnds#FR}, {@link ReadEnds#FF}
+     */
+    public byte getOrientationForOpticalDuplicates() { return orientation; }
+
+    /**
+     * As for {@link PairedEnds}, the read group is not used to separate optical duplicates.
+     */
+    @Override
+    public short getReadGroup() { return -1; }
+
+    @Override
+    public void setReadGroup(final short readGroup) { throw new UnsupportedOperationException("the read group is not tracked"); }
+
+    @Override
+    public short getTile() { return tile; }
+
+    @Override
+    public void setTile(final short tile) { this.tile = tile; }
+
+    @Override
+    public short getX() { return x; }
+
+    @Override
+    public void setX(final short x) { this.x = x; }
+
+    @Override
+    public short getY() { return y; }
+
+    @Override
+    public void setY(final short y) { this.y = y; }
+
+    @Override
+    public short getLibraryId() { return library; }
+
+    @Override
+    public void setLibraryId(final short libraryId) { throw new UnsupportedOperationException("the library is fixed on construction"); }
+}
@@ -62,6 +62,14 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationTables recalTables;
 
+    /**
+     * Tables into which processRead() accumulates the data, indexed like the tables in recalTables (the read group
+     * table, which is only derived in finalizeData(), has none). Their data is moved to recalTables whenever
+     * recalTables is requested or combined.
+     */
+    private final FlatRecalibrationTable[] flatTables;
+    private final FlatRecalibrationTable flatQualityScoreTable;
+
     private SAMFileHeader readsHeader;
 
     /**
@@ -96,6 +104,18 @@ public final class BaseRecalibrationEngine implements Serializable {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
         recalTables = new RecalibrationTables(covariates, numReadGroups);
+        flatTables = new FlatRecalibrationTable[recalTables.numTables()];
+        FlatRecalibrationTable qualityScoreTable = null;
+        for ( int i = 0; i < flatTables.length; i++ ) {
+            final NestedIntegerArray<RecalDatum> table = recalTables.getTable(i);
+            if ( ! recalTables.isReadGroupTable(table) ) {
+                flatTables[i] = new FlatRecalibrationTable(table.getDimensions());
+            }
+            if ( recalTables.isQualityScoreTable(table) ) {
+                qualityScoreTable = flatTables[i];
+            }
+        }
+        flatQualityScoreTable = qualityScoreTable;
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
@@ -147,6 +167,22 @@ public final class BaseRecalibrationEngine implements Serializable {
         numReadsProcessed++;
     }
 
+    /**
+     * Add the data collected by another engine to this one, so that reads can be processed by several engines
+     * (eg., one per thread) whose data is then combined before calling {@link #finalizeData()}.
+     *
+     * The other engine must have been created with the same arguments and read groups as this one, and
+     * cannot be used afterwards since this engine may share some of its data.
+     *
+     * @param other engine whose data to add to this one, cannot be {@code null}
+     */
+    public void combine( final BaseRecalibrationEngine other ) {
+        Utils.nonNull(other);
+        Utils.validate(!finalized && !other.finalized, "Cannot combine engines once finalizeData() has been called");
+        recalTables.combine(other.getRecalibrationTables());
+        numReadsProcessed += other.numReadsProcessed;
+    }
+
     /**
      * Finalize, if appropriate, all derived data in recalibrationTables.
      *
@@ -157,6 +193,7 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        moveFlatTablesToRecalTables();
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -210,9 +247,21 @@ public final class BaseRecalibrationEngine implements Serializable {
      * Get a possibly not-final recalibration table, to deal with distributed execution.
      */
     public RecalibrationTables getRecalibrationTables() {
+        if ( ! finalized ) {
+            moveFlatTablesToRecalTables();
+        }
         return recalTables;
     }
 
+    private void moveFlatTablesToRecalTables() {
+        for ( int i = 0; i < flatTables.length; i++ ) {
+            if ( flatTables[i] != null && flatTables[i].size() > 0 ) {
+                flatTables[i].addTo(recalTables.getTable(i));
+                flatTables[i].clear();
+            }
+        }
+    }
+
     /**
      * Get the final recalibration tables, after finalizeData() has been called
      *
@@ -244,7 +293,7 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
+        final FlatRecalibrationTable qualityScoreTable = flatQualityScoreTable;
 
         final int nCovariates = covariates.size();
         final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
@@ -261,12 +310,12 @@ public final class BaseRecalibrationEngine implements Serializable {
                     final int key0 = keys[0];
                     final int key1 = keys[1];
 
-                    RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
+                    qualityScoreTable.increment3keys(qual, isError, key0, key1, eventIndex);
 
                     for (int i = nSpecialCovariates; i < nCovariates; i++) {
                         final int keyi = keys[i];
                         if (keyi >= 0) {
-                            RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
+                            flatTables[i].increment4keys(qual, isError, key0, key1, keyi, eventIndex);
                         }
                     }
                 }
@@ -0,0 +1,168 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Accumulates recalibration data for one of the tables of {@link RecalibrationTables} in primitive arrays, for use
+ * while the tables are being collected.
+ *
+ * Each combination of covariate keys is mapped to a single {@code long} computed from the keys (as the index of the
+ * combination in a dense array of the table's dimensions), and the combinations that have been observed are
+ * assigned consecutive slots in parallel arrays of observation counts, mismatch sums and reported qualities.
+ * Updating a combination therefore costs one hash lookup and no allocation, instead of a walk through the nested
+ * arrays of a {@link NestedIntegerArray} and a {@link RecalDatum} per combination, and memory is only used for
+ * the combinations that are observed (the context covariate alone has millions of possible keys).
+ *
+ * {@link RecalDatum}s are only created when the data is added to a {@link NestedIntegerArray} with {@link #addTo},
+ * and are identical to the ones that would have been obtained by incrementing the data directly in that table
+ * with {@link RecalUtils#incrementDatumOrPutIfNecessary3keys} and {@link RecalUtils#incrementDatumOrPutIfNecessary4keys}.
+ */
+public final class FlatRecalibrationTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_SLOT = -1;
+
+    private final int[] dimensions;
+
+    private final Long2IntOpenHashMap slotsByKey;
+    private long[] keys;
+    private long[] numObservations;
+    private double[] scaledNumMismatches; // scaled by RecalDatum.MULTIPLIER, as in RecalDatum
+    private byte[] reportedQuals;
+    private int size;
+
+    /**
+     * @param dimensions the dimensions of the table, as in {@link NestedIntegerArray#NestedIntegerArray(int...)}.
+     *                   Only tables with 3 or 4 dimensions are supported.
+     */
+    public FlatRecalibrationTable(final int... dimensions) {
+        Utils.nonNull(dimensions);
+        Utils.validateArg(dimensions.length == 3 || dimensions.length == 4, "only tables with 3 or 4 dimensions are supported");
+        long numCombinations = 1;
+        for ( final int dimension : dimensions ) {
+            Utils.validateArg(dimension > 0, "dimensions must be positive");
+            numCombinations *= dimension;
+            Utils.validateArg(numCombinations > 0, "too many combinations of keys");
+        }
+        this.dimensions = Arrays.copyOf(dimensions, dimensions.length);
+
+        slotsByKey = new Long2IntOpenHashMap(INITIAL_CAPACITY);
+        slotsByKey.defaultReturnValue(NO_SLOT);
+        keys = new long[INITIAL_CAPACITY];
+        numObservations = new long[INITIAL_CAPACITY];
+        scaledNumMismatches = new double[INITIAL_CAPACITY];
+        reportedQuals = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the dimensions of this table.  DO NOT MODIFY
+     */
+    public int[] getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the number of combinations of keys that have been observed since this table was created or last cleared
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Records one observation in a table with 3 dimensions.
+     *
+     * Note: as in {@link NestedIntegerArray}, keys are not validated against the dimensions for performance.
+     *
+     * @param qual reported quality of the observation, used as the reported quality of the combination if it
+     *             has not been observed before
+     * @param isError error value of the observation
+     */
+    public void increment3keys(final byte qual, final double isError, final int key0, final int key1, final int key2) {
+        increment(((long) key0 * dimensions[1] + key1) * dimensions[2] + key2, qual, isError);
+    }
+
+    /**
+     * Records one observation in a table with 4 dimensions.
+     *
+     * Note: as in {@link NestedIntegerArray}, keys are not validated against the dimensions for performance.
+     *
+     * @param qual reported quality of the observation, used as the reported quality of the combination if it
+     *             has not been observed before
+     * @param isError error value of the observation
+     */
+    public void increment4keys(final byte qual, final double isError, final int key0, final int key1, final int key2, final int key3) {
+        increment((((long) key0 * dimensions[1] + key1) * dimensions[2] + key2) * dimensions[3] + key3, qual, isError);
+    }
+
+    private void increment(final long key, final byte qual, final double isError) {
+        int slot = slotsByKey.get(key);
+        if ( slot == NO_SLOT ) {
+            if ( size == keys.length ) {
+                grow();
+            }
+            slot = size++;
+            slotsByKey.put(key, slot);
+            keys[slot] = key;
+            reportedQuals[slot] = qual;
+        }
+        numObservations[slot]++;
+        scaledNumMismatches[slot] += isError * RecalDatum.MULTIPLIER;
+    }
+
+    private void grow() {
+        final int newCapacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, newCapacity);
+        numObservations = Arrays.copyOf(numObservations, newCapacity);
+        scaledNumMismatches = Arrays.copyOf(scaledNumMismatches, newCapacity);
+        reportedQuals = Arrays.copyOf(reportedQuals, newCapacity);
+    }
+
+    /**
+     * Adds the data in this table to a table of {@link RecalDatum}s with the same dimensions, creating a datum for
+     * each combination of keys that is not in that table yet and combining with {@link RecalDatum#combine} otherwise.
+     *
+     * @param table table to add the data to, must have the same dimensions as this table
+     */
+    public void addTo(final NestedIntegerArray<RecalDatum> table) {
+        Utils.nonNull(table);
+        Utils.validateArg(Arrays.equals(table.getDimensions(), dimensions),
+                () -> "Table dimensions " + Arrays.toString(table.getDimensions()) + " not equal to " + Arrays.toString(dimensions));
+
+        for ( int slot = 0; slot < size; slot++ ) {
+            final int[] datumKeys = decodeKey(keys[slot]);
+            final RecalDatum datum = RecalDatum.fromScaledMismatches(numObservations[slot], scaledNumMismatches[slot], reportedQuals[slot]);
+            final RecalDatum existingDatum = table.get(datumKeys);
+            if ( existingDatum == null ) {
+                table.put(datum, datumKeys);
+            } else {
+                existingDatum.combine(datum);
+            }
+        }
+    }
+
+    /**
+     * Removes all the data in this table, keeping the allocated arrays for reuse.
+     */
+    public void clear() {
+        slotsByKey.clear();
+        Arrays.fill(numObservations, 0, size, 0L);
+        Arrays.fill(scaledNumMismatches, 0, size, 0.0);
+        size = 0;
+    }
+
+    private int[] decodeKey(final long key) {
+        final int[] result = new int[dimensions.length];
+        long remainder = key;
+        for ( int i = dimensions.length - 1; i >= 0; i-- ) {
+            result[i] = (int) (remainder % dimensions[i]);
+            remainder /= dimensions[i];
+        }
+        return result;
+    }
+}
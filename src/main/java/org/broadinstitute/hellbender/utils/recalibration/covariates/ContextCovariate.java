@@ -2,8 +2,6 @@ package org.broadinstitute.hellbender.utils.recalibration.covariates;
 
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMFileHeader;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.barclay.argparser.CommandLineException;
@@ -58,44 +56,102 @@ public final class ContextCovariate implements Covariate {
     @Override
     public void recordValues(final GATKRead read, final SAMFileHeader header, final ReadCovariates values, final boolean recordIndelValues) {
 
-        final int originalReadLength = read.getLength();
+        final int readLength = read.getLength();
+        final ContextWorkspace workspace = WORKSPACE.get();
+        workspace.ensureCapacity(readLength);
 
-        // store the original bases and then write Ns over low quality ones
-        final byte[] strandedClippedBases = getStrandedClippedBytes(read, lowQualTail);  //Note: this makes a copy of the read
-
-        //Note: we're using a non-standard library here because boxing came up on profiling as taking 20% of time in applyBQSR.
-        //IntList avoids boxing
-        final IntList mismatchKeys = contextWith(strandedClippedBases, mismatchesContextSize, mismatchesKeyMask);
-
-        final int readLengthAfterClipping = strandedClippedBases.length;
-
-        // this is necessary to ensure that we don't keep historical data in the ReadCovariates values
-        // since the context covariate may not span the entire set of values in read covariates
-        // due to the clipping of the low quality bases
-        if ( readLengthAfterClipping != originalReadLength) {
-            // don't bother zeroing out if we are going to overwrite the whole array
-            for ( int i = 0; i < originalReadLength; i++ ){
-                // this base has been clipped off, so zero out the covariate values here
+        // the stranded bases, with Ns written over the low quality tails, go into the reusable buffer instead of a copy of the read
+        final byte[] strandedClippedBases = workspace.bases;
+        if ( !fillStrandedClippedBases(read, lowQualTail, strandedClippedBases) ) {
+            // the whole read has low quality, so no base has a context: zero out the values so that we don't keep
+            // historical data in the ReadCovariates values
+            for ( int i = 0; i < readLength; i++ ){
                 values.addCovariate(0, 0, 0, i);
             }
+            return;
         }
 
+        final int[] mismatchKeys = workspace.mismatchKeys;
+        contextWith(strandedClippedBases, readLength, mismatchesContextSize, mismatchesKeyMask, mismatchKeys);
+
         final boolean negativeStrand = read.isReverseStrand();
 
         //Note: duplicated the loop to avoid checking recordIndelValues on each iteration
         if (recordIndelValues) {
-            final IntList indelKeys = contextWith(strandedClippedBases, indelsContextSize, indelsKeyMask);
-            for (int i = 0; i < readLengthAfterClipping; i++) {
-                final int readOffset = getStrandedOffset(negativeStrand, i, readLengthAfterClipping);
-                final int indelKey = indelKeys.getInt(i);
-                values.addCovariate(mismatchKeys.getInt(i), indelKey, indelKey, readOffset);
+            final int[] indelKeys = workspace.indelKeys;
+            contextWith(strandedClippedBases, readLength, indelsContextSize, indelsKeyMask, indelKeys);
+            for (int i = 0; i < readLength; i++) {
+                final int readOffset = getStrandedOffset(negativeStrand, i, readLength);
+                final int indelKey = indelKeys[i];
+                values.addCovariate(mismatchKeys[i], indelKey, indelKey, readOffset);
+            }
+        } else {
+            for (int i = 0; i < readLength; i++) {
+                final int readOffset = getStrandedOffset(negativeStrand, i, readLength);
+                values.addCovariate(mismatchKeys[i], 0, 0, readOffset);
+            }
+        }
+    }
+
+    /**
+     * Buffers reused by {@link #recordValues} across the reads processed by a thread, grown to the longest read seen.
+     * They are per thread rather than per covariate because covariates are shared between threads (e.g. by the
+     * tasks of the Spark tools).
+     */
+    private static final ThreadLocal<ContextWorkspace> WORKSPACE = ThreadLocal.withInitial(ContextWorkspace::new);
+
+    private static final class ContextWorkspace {
+        private byte[] bases = new byte[0];
+        private int[] mismatchKeys = new int[0];
+        private int[] indelKeys = new int[0];
+
+        private void ensureCapacity(final int readLength) {
+            if ( bases.length < readLength ) {
+                bases = new byte[readLength];
+                mismatchKeys = new int[readLength];
+                indelKeys = new int[readLength];
+            }
+        }
+    }
+
+    /**
+     * Writes the bases of the read into a buffer exactly as {@link #getStrandedClippedBytes} would return them, but
+     * without copying the read.
+     *
+     * @param read the read
+     * @param lowQTail every base quality lower than or equal to this in the tail of the read will be replaced with N.
+     * @param strandedBases buffer to write the bases into, at least as long as the read
+     * @return false if the entire read is a low quality tail (in which case getStrandedClippedBytes returns no bases),
+     *         true otherwise
+     */
+    private static boolean fillStrandedClippedBases(final GATKRead read, final byte lowQTail, final byte[] strandedBases) {
+        final int readLength = read.getLength();
+        final byte[] bases = read.getBasesNoCopy();
+
+        // same clipping rule as ReadClipper.clipLowQualEnds
+        int leftClipIndex = 0;
+        int rightClipIndex = readLength - 1;
+        while (rightClipIndex >= 0 && read.getBaseQuality(rightClipIndex) <= lowQTail) {
+            rightClipIndex--;
+        }
+        while (leftClipIndex < readLength && read.getBaseQuality(leftClipIndex) <= lowQTail) {
+            leftClipIndex++;
+        }
+        if (leftClipIndex > rightClipIndex) {
+            return false;
+        }
+
+        if (read.isReverseStrand()) {
+            for (int i = 0; i < readLength; i++) {
+                final byte base = i < leftClipIndex || i > rightClipIndex ? (byte)'N' : bases[i];
+                strandedBases[readLength - 1 - i] = BaseUtils.simpleComplement(base);
             }
         } else {
-            for (int i = 0; i < readLengthAfterClipping; i++) {
-                final int readOffset = getStrandedOffset(negativeStrand, i, readLengthAfterClipping);
-                values.addCovariate(mismatchKeys.getInt(i), 0, 0, readOffset);
+            for (int i = 0; i < readLength; i++) {
+                strandedBases[i] = i < leftClipIndex || i > rightClipIndex ? (byte)'N' : bases[i];
             }
         }
+        return true;
     }
 
     /**
@@ -157,30 +213,30 @@ public final class ContextCovariate implements Covariate {
      * calculates the context of a base independent of the covariate mode (mismatch, insertion or deletion)
      *
      * @param bases       the bases in the read to build the context from
+     * @param readLength  number of bases to use from the start of bases
      * @param contextSize context size to use building the context
      * @param mask        mask for pulling out just the context bits
+     * @param keys        output array for the key of each base, at least readLength long
      */
-    private static IntList contextWith(final byte[] bases, final int contextSize, final int mask) {
-
-        final int readLength = bases.length;
+    private static void contextWith(final byte[] bases, final int readLength, final int contextSize, final int mask, final int[] keys) {
 
-        //Note: we use a specialized collection to avoid the cost of boxing and unboxing that otherwise comes up on the profiler.
-        final IntList keys = new IntArrayList(readLength);
+        //Note: we fill a reused array to avoid the cost of boxing and of allocating a list for every read, which both come up on the profiler.
+        int nextKey = 0;
 
         // the first contextSize-1 bases will not have enough previous context
         for (int i = 1; i < contextSize && i <= readLength; i++) {
-            keys.add(-1);
+            keys[nextKey++] = -1;
         }
 
         if (readLength < contextSize) {
-            return keys;
+            return;
         }
 
         final int newBaseOffset = 2 * (contextSize - 1) + LENGTH_BITS;
 
         // get (and add) the key for the context starting at the first base
         int currentKey = keyFromContext(bases, 0, contextSize);
-        keys.add(currentKey);
+        keys[nextKey++] = currentKey;
 
         // if the first key was -1 then there was an N in the context; figure out how many more consecutive contexts it affects
         int currentNPenalty = 0;
@@ -209,14 +265,12 @@ public final class ContextCovariate implements Covariate {
             }
 
             if (currentNPenalty == 0) {
-                keys.add(currentKey);
+                keys[nextKey++] = currentKey;
             } else {
                 currentNPenalty--;
-                keys.add(-1);
+                keys[nextKey++] = -1;
             }
         }
-
-        return keys;
     }
 
     public static int keyFromContext(final String dna) {
@@ -23,16 +23,20 @@ public final class CycleCovariate implements Covariate {
     @Override
     public void recordValues(final GATKRead read, final SAMFileHeader header, final ReadCovariates values, final boolean recordIndelValues) {
         final int readLength = read.getLength();
+        // the cycle of each base only depends on its offset and on properties of the read, so compute those once per read
+        final int firstCycle = firstCycle(read);
+        final int increment = cycleIncrement(read);
+        final int maxCycleForIndels = readLength - CUSHION_FOR_INDELS - 1;
         //Note: duplicate the loop to void checking recordIndelValues on every iteration
         if (recordIndelValues) {
             for (int i = 0; i < readLength; i++) {
-                final int substitutionKey = cycleKey(i, read, false, MAXIMUM_CYCLE_VALUE);
-                final int indelKey = cycleKey(i, read, true, MAXIMUM_CYCLE_VALUE);
+                final int substitutionKey = keyFromCycle(firstCycle + i * increment, MAXIMUM_CYCLE_VALUE);
+                final int indelKey = (i < CUSHION_FOR_INDELS || i > maxCycleForIndels) ? -1 : substitutionKey;
                 values.addCovariate(substitutionKey, indelKey, indelKey, i);
             }
         } else {
             for (int i = 0; i < readLength; i++) {
-                final int substitutionKey = cycleKey(i, read, false, MAXIMUM_CYCLE_VALUE);
+                final int substitutionKey = keyFromCycle(firstCycle + i * increment, MAXIMUM_CYCLE_VALUE);
                 values.addCovariate(substitutionKey, 0, 0, i);
             }
         }
@@ -63,22 +67,8 @@ public final class CycleCovariate implements Covariate {
      *                 (this method throws UserException if the computed absolute value of the cycle number is higher than this value).
      */
     public static int cycleKey(final int baseNumber, final GATKRead read, final boolean indel, final int maxCycle) {
-        final boolean isNegStrand = read.isReverseStrand();
-        final boolean isSecondInPair = read.isPaired() && read.isSecondOfPair();
         final int readLength = read.getLength();
-
-        final int readOrderFactor = isSecondInPair ? -1 : 1;
-        final int increment;
-        int cycle;
-        if (isNegStrand) {
-            cycle = readLength * readOrderFactor;
-            increment = -1 * readOrderFactor;
-        } else {
-            cycle = readOrderFactor;
-            increment = readOrderFactor;
-        }
-
-        cycle += baseNumber * increment;
+        final int cycle = firstCycle(read) + baseNumber * cycleIncrement(read);
 
         if (!indel) {
             return CycleCovariate.keyFromCycle(cycle, maxCycle);
@@ -91,6 +81,27 @@ public final class CycleCovariate implements Covariate {
         }
     }
 
+    /**
+     * @return the cycle of the first base of the read
+     */
+    private static int firstCycle(final GATKRead read) {
+        final int readOrderFactor = readOrderFactor(read);
+        return read.isReverseStrand() ? read.getLength() * readOrderFactor : readOrderFactor;
+    }
+
+    /**
+     * @return the difference between the cycles of consecutive bases of the read
+     */
+    private static int cycleIncrement(final GATKRead read) {
+        final int readOrderFactor = readOrderFactor(read);
+        return read.isReverseStrand() ? -1 * readOrderFactor : readOrderFactor;
+    }
+
+    private static int readOrderFactor(final GATKRead read) {
+        final boolean isSecondInPair = read.isPaired() && read.isSecondOfPair();
+        return isSecondInPair ? -1 : 1;
+    }
+
     /**
      * Decodes the cycle number from the key.
      */
@@ -0,0 +1,182 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks on a fixed-size thread pool while handing their results to a consumer in submission order.
+ *
+ * Results are delivered on the thread that calls {@link #submit} or {@link #drain}, never on a worker thread,
+ * so the consumer does not need to be thread-safe (eg., it can write directly to a VCF or BAM writer).
+ *
+ * At most {@code maxPendingTasks} tasks may be outstanding at once: once that limit is reached, {@link #submit}
+ * blocks until the oldest outstanding task completes and its result has been consumed. This bounds the memory
+ * held by the reassembly buffer when a single slow task holds up the head of the queue.
+ *
+ * This class is not itself thread-safe: {@link #submit}, {@link #drain} and {@link #close} must all be called
+ * from the same thread.
+ *
+ * @param <T> type of the result produced by each task
+ */
+public final class OrderedTaskExecutor<T> implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(OrderedTaskExecutor.class);
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    private final ExecutorService executorService;
+    private final boolean ownsExecutorService;
+    private final int maxPendingTasks;
+    private final Consumer<T> resultConsumer;
+    private final Queue<Future<T>> pendingResults;
+
+    /**
+     * @param numThreads number of worker threads to use (must be >= 1)
+     * @param maxPendingTasks maximum number of tasks that may be outstanding at once (must be >= numThreads)
+     * @param threadNameFormat name format for the worker threads, as accepted by {@link ThreadFactoryBuilder#setNameFormat}
+     * @param resultConsumer consumer that receives the result of each task, in submission order
+     */
+    public OrderedTaskExecutor(final int numThreads, final int maxPendingTasks, final String threadNameFormat, final Consumer<T> resultConsumer) {
+        this(Executors.newFixedThreadPool(checkNumThreads(numThreads, maxPendingTasks),
+                new ThreadFactoryBuilder().setNameFormat(Utils.nonNull(threadNameFormat)).setDaemon(true).build()),
+                true, maxPendingTasks, resultConsumer);
+    }
+
+    /**
+     * Runs the tasks on a pool owned by the caller, so that the same worker threads can be reused by successive
+     * executors. {@link #close} then waits for the outstanding tasks to complete rather than interrupting them, and
+     * leaves the pool running.
+     *
+     * @param executorService pool to run the tasks on, shut down by the caller once no longer needed
+     * @param maxPendingTasks maximum number of tasks that may be outstanding at once (must be >= 1)
+     * @param resultConsumer consumer that receives the result of each task, in submission order
+     */
+    public OrderedTaskExecutor(final ExecutorService executorService, final int maxPendingTasks, final Consumer<T> resultConsumer) {
+        this(Utils.nonNull(executorService), false, checkNumThreads(1, maxPendingTasks), resultConsumer);
+    }
+
+    private OrderedTaskExecutor(final ExecutorService executorService, final boolean ownsExecutorService, final int maxPendingTasks,
+                                final Consumer<T> resultConsumer) {
+        this.executorService = executorService;
+        this.ownsExecutorService = ownsExecutorService;
+        this.maxPendingTasks = maxPendingTasks;
+        this.resultConsumer = Utils.nonNull(resultConsumer);
+        this.pendingResults = new ArrayDeque<>(maxPendingTasks);
+    }
+
+    private static int checkNumThreads(final int numThreads, final int maxPendingTasks) {
+        Utils.validateArg(numThreads >= 1, "numThreads must be at least 1");
+        Utils.validateArg(maxPendingTasks >= numThreads, "maxPendingTasks must be at least numThreads");
+        return numThreads;
+    }
+
+    /**
+     * Submit a task for execution. Before returning, consumes the results of any tasks at the head of the
+     * queue that have already completed, and blocks if too many tasks are outstanding.
+     *
+     * @param task task to run on a worker thread
+     */
+    public void submit(final Callable<T> task) {
+        Utils.nonNull(task);
+
+        while ( pendingResults.size() >= maxPendingTasks ) {
+            consumeNextResult();
+        }
+        pendingResults.add(executorService.submit(task));
+        consumeCompletedResults();
+    }
+
+    /**
+     * Block until all outstanding tasks have completed, consuming their results in submission order.
+     */
+    public void drain() {
+        while ( ! pendingResults.isEmpty() ) {
+            consumeNextResult();
+        }
+    }
+
+    /**
+     * @return number of tasks submitted whose results have not yet been consumed
+     */
+    public int numPendingTasks() {
+        return pendingResults.size();
+    }
+
+    /**
+     * Shut down the worker threads, cancelling any outstanding tasks without consuming their results, and wait
+     * briefly for running tasks to respond to cancellation so that callers can safely release resources used by
+     * the tasks. Call {@link #drain} first if the outstanding results are needed.
+     *
+     * If the pool is owned by the caller, the outstanding tasks are not interrupted: their results are discarded
+     * once they complete, and the pool is left running.
+     */
+    @Override
+    public void close() {
+        if ( ! ownsExecutorService ) {
+            awaitPendingTasks();
+            return;
+        }
+        pendingResults.forEach(future -> future.cancel(true));
+        pendingResults.clear();
+        executorService.shutdownNow();
+        try {
+            if ( ! executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS) ) {
+                logger.warn("Timed out waiting for worker threads to terminate");
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitPendingTasks() {
+        try {
+            for ( final Future<T> pendingResult : pendingResults ) {
+                try {
+                    pendingResult.get();
+                } catch ( final ExecutionException | CancellationException e ) {
+                    // the results of outstanding tasks are discarded, including their failures
+                }
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pendingResults.clear();
+        }
+    }
+
+    private void consumeCompletedResults() {
+        while ( ! pendingResults.isEmpty() && pendingResults.peek().isDone() ) {
+            consumeNextResult();
+        }
+    }
+
+    private void consumeNextResult() {
+        final T result;
+        try {
+            result = pendingResults.remove().get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for a task to complete", e);
+        } catch ( final ExecutionException e ) {
+            // rethrow unchecked exceptions (eg., UserExceptions) from the task as-is so they are reported normally
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Problem running task", e.getCause());
+        }
+        resultConsumer.accept(result);
+    }
+}
@@ -1,14 +1,20 @@
 package org.broadinstitute.hellbender.utils.variant;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
 import htsjdk.samtools.util.Locatable;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
 import htsjdk.tribble.AbstractFeatureReader;
 import htsjdk.tribble.TribbleException;
+import htsjdk.tribble.index.IndexFactory;
+import htsjdk.tribble.index.tabix.TabixFormat;
 import htsjdk.variant.variantcontext.*;
 import htsjdk.variant.variantcontext.writer.Options;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import htsjdk.variant.vcf.VCFCodec;
 import htsjdk.variant.vcf.VCFConstants;
+import htsjdk.variant.vcf.VCFHeader;
 import htsjdk.variant.vcf.VCFHeaderLine;
 import htsjdk.variant.vcf.VCFStandardHeaderLines;
 import org.apache.commons.io.FilenameUtils;
@@ -20,10 +26,16 @@ import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.*;
 import org.broadinstitute.hellbender.utils.*;
 import org.broadinstitute.hellbender.utils.collections.Permutation;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.function.BiFunction;
@@ -64,8 +76,40 @@ public final class GATKVariantContextUtils {
             final SAMSequenceDictionary referenceDictionary,
             final boolean createMD5,
             final Options... options)
+    {
+        return createVCFWriter(outFile, referenceDictionary, createMD5, 0, options);
+    }
+
+    /**
+     * Creates a VariantContextWriter whose outputFile type is based on the extension of the output file name, as
+     * {@link #createVCFWriter(File, SAMSequenceDictionary, boolean, Options...)}, optionally compressing
+     * block-compressed VCF output on several threads.
+     *
+     * When compressing on several threads, the BGZF blocks are compressed concurrently by a
+     * {@link ParallelBlockCompressedOutputStream}, and the tabix index requested with {@link Options#INDEX_ON_THE_FLY}
+     * is created from the complete file when the writer is closed.
+     *
+     * @param outFile output File for this writer. May not be null.
+     * @param referenceDictionary required if on the fly indexing is set, otherwise can be null
+     * @param createMD5 true if an md5 file should be created
+     * @param compressionThreads number of threads used to compress block-compressed VCF output (0 to compress on the
+     *                           calling thread). Ignored for other output types.
+     * @param options variable length list of additional Options to be set for this writer
+     * @returns VariantContextWriter must be closed by the caller
+     */
+    public static VariantContextWriter createVCFWriter(
+            final File outFile,
+            final SAMSequenceDictionary referenceDictionary,
+            final boolean createMD5,
+            final int compressionThreads,
+            final Options... options)
     {
         Utils.nonNull(outFile);
+        Utils.validateArg(compressionThreads >= 0, "compressionThreads must be >= 0");
+
+        if (compressionThreads > 0 && getVariantFileTypeFromExtension(outFile) == VariantContextWriterBuilder.OutputType.BLOCK_COMPRESSED_VCF) {
+            return createParallelCompressionVCFWriter(outFile, referenceDictionary, createMD5, compressionThreads, options);
+        }
 
         VariantContextWriterBuilder vcWriterBuilder =
                 new VariantContextWriterBuilder().clearOptions().setOutputFile(outFile);
@@ -95,6 +139,87 @@ public final class GATKVariantContextUtils {
         return vcWriterBuilder.build();
     }
 
+    private static VariantContextWriter createParallelCompressionVCFWriter(
+            final File outFile,
+            final SAMSequenceDictionary referenceDictionary,
+            final boolean createMD5,
+            final int compressionThreads,
+            final Options... options)
+    {
+        final OutputStream fileStream;
+        try {
+            final OutputStream bufferedStream = new BufferedOutputStream(new FileOutputStream(outFile));
+            fileStream = createMD5 ? new Md5CalculatingOutputStream(bufferedStream, new File(outFile.getAbsolutePath() + ".md5")) : bufferedStream;
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outFile, "Could not open the output file", e);
+        }
+
+        VariantContextWriterBuilder vcWriterBuilder = new VariantContextWriterBuilder().clearOptions()
+                .setOutputVCFStream(new ParallelBlockCompressedOutputStream(fileStream, BlockCompressedStreamConstants.DEFAULT_COMPRESSION_LEVEL, compressionThreads));
+        if (null != referenceDictionary) {
+            vcWriterBuilder = vcWriterBuilder.setReferenceDictionary(referenceDictionary);
+        }
+
+        boolean indexOnClose = false;
+        for (Options opt : options) {
+            if (opt == Options.INDEX_ON_THE_FLY) {
+                // the writer can't index the blocks as they are written, since they are compressed on other threads
+                indexOnClose = true;
+            } else {
+                vcWriterBuilder = vcWriterBuilder.setOption(opt);
+            }
+        }
+
+        final VariantContextWriter writer = vcWriterBuilder.build();
+        return indexOnClose ? new IndexOnCloseVCFWriter(writer, outFile, referenceDictionary) : writer;
+    }
+
+    /**
+     * Creates the tabix index of a block-compressed VCF file from the complete file once its writer is closed,
+     * for writers that can't create the index as the variants are written.
+     */
+    private static final class IndexOnCloseVCFWriter implements VariantContextWriter {
+        private final VariantContextWriter writer;
+        private final File outFile;
+        private final SAMSequenceDictionary referenceDictionary;
+
+        private IndexOnCloseVCFWriter(final VariantContextWriter writer, final File outFile, final SAMSequenceDictionary referenceDictionary) {
+            this.writer = writer;
+            this.outFile = outFile;
+            this.referenceDictionary = referenceDictionary;
+        }
+
+        @Override
+        public void writeHeader(final VCFHeader header) {
+            writer.writeHeader(header);
+        }
+
+        @Override
+        public void setHeader(final VCFHeader header) {
+            writer.setHeader(header);
+        }
+
+        @Override
+        public void add(final VariantContext vc) {
+            writer.add(vc);
+        }
+
+        @Override
+        public boolean checkError() {
+            return writer.checkError();
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+            try {
+                IndexFactory.createTabixIndex(outFile, new VCFCodec(), TabixFormat.VCF, referenceDictionary).writeBasedOnFeatureFile(outFile);
+            } catch (final IOException e) {
+                throw new UserException.CouldNotCreateOutputFile(outFile, "Could not create the index", e);
+            }
+        }
+    }
+
     // Determine the variant file type from the file extension. Htsjdk has similar code, when
     // https://github.com/broadinstitute/gatk/issues/2128 is fixed we should eliminate this code
     // and use the htsjdk method.
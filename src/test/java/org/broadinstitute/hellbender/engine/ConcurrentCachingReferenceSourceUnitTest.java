@@ -0,0 +1,191 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class ConcurrentCachingReferenceSourceUnitTest extends GATKBaseTest {
+    private static final Path FASTA = new File(v37_chr17_1Mb_Reference).toPath();
+    private static final int CONTIG_LENGTH = 1_000_000;
+
+    /**
+     * Counts the queries made to the wrapped data source, and whether it was closed.
+     */
+    private static final class CountingSource implements ReferenceDataSource {
+        private final ReferenceDataSource source = new ReferenceFileSource(FASTA);
+        private int numQueries = 0;
+        private boolean closed = false;
+
+        @Override
+        public ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+            numQueries++;
+            return source.queryAndPrefetch(contig, start, stop);
+        }
+
+        @Override
+        public SAMSequenceDictionary getSequenceDictionary() {
+            return source.getSequenceDictionary();
+        }
+
+        @Override
+        public Iterator<Byte> iterator() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            source.close();
+        }
+    }
+
+    @DataProvider(name = "cacheSettings")
+    public Object[][] getCacheSettings() {
+        // chunk size, cache size, number of stripes
+        return new Object[][] {
+                {1000, 0, 1},
+                {1000, 10_000, 1},
+                {1000, 10_000, 4},
+                {4096, 1_000_000, 8},
+                {ConcurrentCachingReferenceSource.DEFAULT_CHUNK_SIZE, ConcurrentCachingReferenceSource.DEFAULT_CACHE_SIZE, ConcurrentCachingReferenceSource.DEFAULT_NUM_STRIPES},
+        };
+    }
+
+    @Test(dataProvider = "cacheSettings")
+    public void testSameBasesAsWrappedSource(final int chunkSize, final long cacheSize, final int numStripes) {
+        final Random random = new Random(chunkSize + cacheSize);
+        try ( final ReferenceDataSource expected = new ReferenceFileSource(FASTA);
+              final ReferenceDataSource cached = new ConcurrentCachingReferenceSource(new ReferenceFileSource(FASTA), chunkSize, cacheSize, numStripes) ) {
+            final List<SimpleInterval> intervals = new ArrayList<>();
+            intervals.add(new SimpleInterval("17", 1, 1));
+            intervals.add(new SimpleInterval("17", chunkSize, chunkSize + 1));
+            intervals.add(new SimpleInterval("17", chunkSize + 1, 2 * chunkSize));
+            intervals.add(new SimpleInterval("17", CONTIG_LENGTH - 10, CONTIG_LENGTH));
+            intervals.add(new SimpleInterval("17", 1, CONTIG_LENGTH));
+            for ( int i = 0; i < 2000; i++ ) {
+                // mostly nearby queries, as in a traversal
+                final int start = 1 + (i * 400 + random.nextInt(3000)) % (CONTIG_LENGTH - 5000);
+                intervals.add(new SimpleInterval("17", start, start + random.nextInt(random.nextInt(10) == 0 ? 5000 : 200)));
+            }
+
+            for ( final SimpleInterval interval : intervals ) {
+                final ReferenceSequence actual = cached.queryAndPrefetch(interval);
+                Assert.assertEquals(actual.getBaseString(), expected.queryAndPrefetch(interval).getBaseString(), interval.toString());
+                Assert.assertEquals(actual.getName(), "17");
+                Assert.assertEquals(actual.getContigIndex(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testQueriesFromSeveralThreads() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try ( final ReferenceDataSource expected = new ReferenceFileSource(FASTA);
+              final ReferenceDataSource cached = new ConcurrentCachingReferenceSource(new ReferenceFileSource(FASTA), 1000, 50_000, 4) ) {
+            final List<Future<?>> results = new ArrayList<>();
+            for ( int thread = 0; thread < 8; thread++ ) {
+                final Random random = new Random(thread);
+                final List<SimpleInterval> intervals = new ArrayList<>();
+                final List<String> expectedBases = new ArrayList<>();
+                for ( int i = 0; i < 2000; i++ ) {
+                    final int start = 1 + random.nextInt(CONTIG_LENGTH - 1000);
+                    final SimpleInterval interval = new SimpleInterval("17", start, start + random.nextInt(1000));
+                    intervals.add(interval);
+                    expectedBases.add(expected.queryAndPrefetch(interval).getBaseString());
+                }
+                results.add(executor.submit(() -> {
+                    for ( int i = 0; i < intervals.size(); i++ ) {
+                        Assert.assertEquals(cached.queryAndPrefetch(intervals.get(i)).getBaseString(), expectedBases.get(i));
+                    }
+                }));
+            }
+            for ( final Future<?> result : results ) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedChunksAreEvicted() {
+        final CountingSource source = new CountingSource();
+        // a single stripe holding 2 chunks
+        final ConcurrentCachingReferenceSource cached = new ConcurrentCachingReferenceSource(source, 100, 200, 1);
+
+        cached.queryAndPrefetch("17", 1, 10);     // chunk 0: miss
+        cached.queryAndPrefetch("17", 101, 110);  // chunk 1: miss
+        cached.queryAndPrefetch("17", 20, 30);    // chunk 0: hit
+        cached.queryAndPrefetch("17", 201, 210);  // chunk 2: miss, evicts chunk 1
+        cached.queryAndPrefetch("17", 50, 60);    // chunk 0: hit
+        cached.queryAndPrefetch("17", 150, 160);  // chunk 1: miss, evicts chunk 2
+
+        Assert.assertEquals(cached.getCacheHits(), 2);
+        Assert.assertEquals(cached.getCacheMisses(), 4);
+        Assert.assertEquals(source.numQueries, 4);
+        Assert.assertEquals(cached.calcEfficiency(), 100.0 * 2 / 6, 1e-10);
+
+        // spans chunks 0 and 1, both cached
+        cached.queryAndPrefetch("17", 90, 110);
+        Assert.assertEquals(cached.getCacheHits(), 4);
+        Assert.assertEquals(source.numQueries, 4);
+
+        cached.close();
+        Assert.assertTrue(source.closed);
+    }
+
+    @Test
+    public void testQueryLargerThanStripeIsNotCached() {
+        final CountingSource source = new CountingSource();
+        try ( final ConcurrentCachingReferenceSource cached = new ConcurrentCachingReferenceSource(source, 100, 200, 1) ) {
+            Assert.assertEquals(cached.queryAndPrefetch("17", 1, 201).length(), 201);
+            Assert.assertEquals(cached.getCacheMisses(), 1);
+            Assert.assertEquals(source.numQueries, 1);
+            // nothing was cached
+            cached.queryAndPrefetch("17", 1, 10);
+            Assert.assertEquals(cached.getCacheHits(), 0);
+            Assert.assertEquals(source.numQueries, 2);
+        }
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        try ( final ReferenceDataSource cached = new ConcurrentCachingReferenceSource(FASTA) ) {
+            Assert.assertEquals(cached.queryAndPrefetch("17", 10, 9).length(), 0);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQueryPastContigEnd() {
+        try ( final ReferenceDataSource cached = new ConcurrentCachingReferenceSource(FASTA) ) {
+            cached.queryAndPrefetch("17", CONTIG_LENGTH - 10, CONTIG_LENGTH + 1);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingContigInSequenceDictionary.class)
+    public void testQueryUnknownContig() {
+        try ( final ReferenceDataSource cached = new ConcurrentCachingReferenceSource(FASTA) ) {
+            cached.queryAndPrefetch("1", 1, 10);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidChunkSize() {
+        new ConcurrentCachingReferenceSource(new ReferenceFileSource(FASTA), 0, 1000, 1);
+    }
+}
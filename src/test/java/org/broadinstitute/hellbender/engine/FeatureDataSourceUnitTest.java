@@ -359,10 +359,17 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
                 Pair.of(new SimpleInterval("1", 1100, 1200), Arrays.asList("m", "n"))
         );
 
+        // Query set #4:
+        // The independent queries in reverse order, going backward and jumping between contigs. Queries falling
+        // in a window we already cached are cache hits, even if they come before the previous query.
+        List<Pair<SimpleInterval, List<String>>> reversedIndependentQueries = new ArrayList<>(aggregatedIndependentQueries);
+        Collections.reverse(reversedIndependentQueries);
+
         return new Object[][] {
                 { aggregatedIndependentQueries },
                 { regularlyIncreasingQueries },
-                { cacheMissQueries }
+                { cacheMissQueries },
+                { reversedIndependentQueries }
         };
     }
 
@@ -384,6 +391,45 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    /**
+     * Tests that decoding Features ahead of the queries doesn't change the query results, whether the queries
+     * follow the prefetched intervals or not
+     */
+    @Test(dataProvider = "SingleDataSourceMultipleQueriesTestData")
+    public void testSingleDataSourceMultipleQueriesWithPrefetching( final List<Pair<SimpleInterval, List<String>>> testQueries ) {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF)) {
+            featureSource.setIntervalsForQueryPrefetching(Arrays.asList(
+                    new SimpleInterval("1", 1, 300),
+                    new SimpleInterval("1", 900, 1200),
+                    new SimpleInterval("2", 1, 1000),
+                    new SimpleInterval("3", 1, 500)), 2);
+
+            for ( Pair<SimpleInterval, List<String>> testQuery : testQueries ) {
+                final SimpleInterval queryInterval = testQuery.getLeft();
+                final List<String> expectedVariantIDs = testQuery.getRight();
+
+                final List<VariantContext> queryResults = featureSource.queryAndPrefetch(queryInterval);
+                checkVariantQueryResults(queryResults, expectedVariantIDs, queryInterval);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testQueryWithPrefetchingRequiresIndex() {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(UNINDEXED_VCF)) {
+            // accepted (and ignored) for unindexed files, but queries still require an index
+            featureSource.setIntervalsForQueryPrefetching(Arrays.asList(new SimpleInterval("1", 1, 300)), 2);
+            featureSource.queryAndPrefetch(new SimpleInterval("1", 1, 300));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testPrefetchingWithoutWindows() {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF)) {
+            featureSource.setIntervalsForQueryPrefetching(Arrays.asList(new SimpleInterval("1", 1, 300)), 0);
+        }
+    }
+
     @DataProvider(name = "GVCFQueryTestData")
     public Object[][] getGVCFQueryTestData() {
 
@@ -676,4 +722,162 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
      * End of direct testing on the FeatureCache inner class
      *********************************************************/
 
+    /****************************************************
+     * Direct testing on the MultiWindowFeatureCache class
+     ****************************************************/
+
+    private static List<ArtificialTestFeature> overlapping( final List<ArtificialTestFeature> features, final SimpleInterval interval ) {
+        return features.stream().filter(feature -> interval.overlaps(feature)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testMultiWindowCacheQueriesInAnyOrder() {
+        final List<ArtificialTestFeature> firstWindowFeats = Arrays.asList(
+                new ArtificialTestFeature("1", 1, 1),
+                new ArtificialTestFeature("1", 1, 100),
+                new ArtificialTestFeature("1", 10, 10),
+                new ArtificialTestFeature("1", 10, 20),
+                new ArtificialTestFeature("1", 50, 50),
+                new ArtificialTestFeature("1", 51, 55),
+                new ArtificialTestFeature("1", 90, 120)
+        );
+        final List<ArtificialTestFeature> secondWindowFeats = Arrays.asList(
+                new ArtificialTestFeature("1", 1000, 1000),
+                new ArtificialTestFeature("1", 1005, 1010)
+        );
+        final List<ArtificialTestFeature> thirdWindowFeats = Arrays.asList(
+                new ArtificialTestFeature("2", 40, 60)
+        );
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>();
+        cache.fill(firstWindowFeats.iterator(), new SimpleInterval("1", 1, 100));
+        cache.fill(secondWindowFeats.iterator(), new SimpleInterval("1", 1000, 1100));
+        cache.fill(thirdWindowFeats.iterator(), new SimpleInterval("2", 1, 100));
+        Assert.assertEquals(cache.getNumWindows(), 3);
+        Assert.assertEquals(cache.getNumCachedFeatures(), 10);
+
+        final List<Pair<SimpleInterval, List<ArtificialTestFeature>>> queries = Arrays.asList(
+                Pair.of(new SimpleInterval("1", 1005, 1005), secondWindowFeats),
+                Pair.of(new SimpleInterval("1", 50, 60), firstWindowFeats),
+                Pair.of(new SimpleInterval("2", 1, 100), thirdWindowFeats),
+                Pair.of(new SimpleInterval("1", 1, 1), firstWindowFeats),
+                Pair.of(new SimpleInterval("1", 11, 49), firstWindowFeats),
+                Pair.of(new SimpleInterval("1", 1000, 1100), secondWindowFeats),
+                Pair.of(new SimpleInterval("1", 56, 89), firstWindowFeats),
+                Pair.of(new SimpleInterval("1", 100, 100), firstWindowFeats),
+                Pair.of(new SimpleInterval("2", 61, 70), thirdWindowFeats)
+        );
+        for ( final Pair<SimpleInterval, List<ArtificialTestFeature>> query : queries ) {
+            final SimpleInterval interval = query.getLeft();
+            Assert.assertTrue(cache.cacheHit(interval), "Unexpected cache miss for " + interval);
+            Assert.assertEquals(cache.getCachedFeaturesOverlapping(interval), overlapping(query.getRight(), interval), "Wrong Features returned for " + interval);
+        }
+
+        // not contained in a single window
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 90, 110)));
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 100, 1000)));
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("3", 1, 10)));
+        Assert.assertEquals(cache.getNumCacheHits(), queries.size());
+        Assert.assertEquals(cache.getNumCacheMisses(), 3);
+    }
+
+    @Test
+    public void testMultiWindowCacheFillReplacesOverlappingWindows() {
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>();
+        cache.fill(Arrays.asList(new ArtificialTestFeature("1", 10, 10)).iterator(), new SimpleInterval("1", 1, 100));
+        cache.fill(Arrays.asList(new ArtificialTestFeature("1", 210, 210)).iterator(), new SimpleInterval("1", 201, 300));
+        cache.fill(Arrays.asList(new ArtificialTestFeature("1", 410, 410)).iterator(), new SimpleInterval("1", 401, 500));
+        Assert.assertEquals(cache.getNumWindows(), 3);
+
+        // overlaps the first two windows
+        final List<ArtificialTestFeature> newFeats = Arrays.asList(
+                new ArtificialTestFeature("1", 60, 60),
+                new ArtificialTestFeature("1", 210, 210)
+        );
+        cache.fill(newFeats.iterator(), new SimpleInterval("1", 50, 250));
+        Assert.assertEquals(cache.getNumWindows(), 2);
+        Assert.assertEquals(cache.getNumCachedFeatures(), 3);
+        Assert.assertEquals(cache.getNumEvictedWindows(), 0);
+
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 1, 49)));
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 251, 300)));
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 50, 250)));
+        Assert.assertEquals(cache.getCachedFeaturesOverlapping(new SimpleInterval("1", 50, 250)), newFeats);
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 401, 500)));
+    }
+
+    @Test
+    public void testMultiWindowCacheEvictsLeastRecentlyUsedWindows() {
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>(4);
+        cache.fill(Arrays.asList(new ArtificialTestFeature("1", 10, 10), new ArtificialTestFeature("1", 20, 20)).iterator(), new SimpleInterval("1", 1, 100));
+        cache.fill(Arrays.asList(new ArtificialTestFeature("1", 210, 210)).iterator(), new SimpleInterval("1", 201, 300));
+
+        // makes the first window the most recently used
+        Assert.assertEquals(cache.getCachedFeaturesOverlapping(new SimpleInterval("1", 1, 15)), Arrays.asList(new ArtificialTestFeature("1", 10, 10)));
+
+        cache.fill(Arrays.asList(new ArtificialTestFeature("2", 10, 10), new ArtificialTestFeature("2", 20, 20)).iterator(), new SimpleInterval("2", 1, 100));
+        Assert.assertEquals(cache.getNumEvictedWindows(), 1);
+        Assert.assertEquals(cache.getNumWindows(), 2);
+        Assert.assertEquals(cache.getNumCachedFeatures(), 4);
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 1, 100)));
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 201, 300)));
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("2", 1, 100)));
+
+        // a window larger than the maximum is kept on its own
+        final List<ArtificialTestFeature> manyFeats = new ArrayList<>();
+        for ( int i = 1; i <= 10; i++ ) {
+            manyFeats.add(new ArtificialTestFeature("3", i, i));
+        }
+        cache.fill(manyFeats.iterator(), new SimpleInterval("3", 1, 10));
+        Assert.assertEquals(cache.getNumEvictedWindows(), 3);
+        Assert.assertEquals(cache.getNumWindows(), 1);
+        Assert.assertEquals(cache.getNumCachedFeatures(), 10);
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("3", 1, 10)));
+        Assert.assertEquals(cache.getCachedFeaturesOverlapping(new SimpleInterval("3", 1, 10)), manyFeats);
+    }
+
+    @Test
+    public void testMultiWindowCacheFindsLongFeaturesStartingBeforeQuery() {
+        final List<ArtificialTestFeature> feats = Arrays.asList(
+                new ArtificialTestFeature("1", 1, 500),
+                new ArtificialTestFeature("1", 2, 2),
+                new ArtificialTestFeature("1", 100, 150),
+                new ArtificialTestFeature("1", 300, 300),
+                new ArtificialTestFeature("1", 450, 460)
+        );
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>();
+        cache.fill(feats.iterator(), new SimpleInterval("1", 1, 500));
+
+        for ( int start = 1; start <= 500; start += 7 ) {
+            for ( int end = start; end <= 500; end += 13 ) {
+                final SimpleInterval interval = new SimpleInterval("1", start, end);
+                Assert.assertEquals(cache.getCachedFeaturesOverlapping(interval), overlapping(feats, interval), "Wrong Features returned for " + interval);
+            }
+        }
+    }
+
+    /**
+     * Test caching a region with no Features. This should work (we should avoid going to disk
+     * to look for new records when querying within such a region).
+     */
+    @Test
+    public void testMultiWindowCacheHandlesEmptyRegion() {
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>();
+        cache.fill(Collections.<ArtificialTestFeature>emptyIterator(), new SimpleInterval("1", 1, 100));
+
+        Assert.assertEquals(cache.getNumWindows(), 1);
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 2, 99)), "Unexpected cache miss");
+        Assert.assertTrue(cache.getCachedFeaturesOverlapping(new SimpleInterval("1", 2, 99)).isEmpty(), "Should get back empty List for empty region");
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testMultiWindowCacheRetrievalOnCacheMiss() {
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>();
+        cache.fill(Collections.<ArtificialTestFeature>emptyIterator(), new SimpleInterval("1", 1, 100));
+        cache.getCachedFeaturesOverlapping(new SimpleInterval("1", 50, 150));
+    }
+
+    /***********************************************************
+     * End of direct testing on the MultiWindowFeatureCache class
+     ***********************************************************/
+
 }
@@ -0,0 +1,144 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.FeatureReader;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
+import org.apache.commons.lang3.tuple.Pair;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class FeatureQueryPrefetcherUnitTest extends GATKBaseTest {
+    private static final File QUERY_TEST_VCF = new File(publicTestDir + "org/broadinstitute/hellbender/engine/feature_data_source_test.vcf");
+
+    private static FeatureReader<VariantContext> openReader() {
+        return AbstractFeatureReader.getFeatureReader(QUERY_TEST_VCF.getAbsolutePath(), new VCFCodec(), true);
+    }
+
+    private static List<String> getIDs( final List<VariantContext> variants ) {
+        return variants.stream().map(VariantContext::getID).collect(Collectors.toList());
+    }
+
+    @DataProvider(name = "MakeWindowsTestData")
+    public Object[][] getMakeWindowsTestData() {
+        // intervals, window size, padding, expected windows
+        return new Object[][] {
+                { Collections.emptyList(), 100, 10, Collections.emptyList() },
+                { Arrays.asList(new SimpleInterval("1", 1, 100)), 100, 0,
+                        Arrays.asList(new SimpleInterval("1", 1, 100)) },
+                // split
+                { Arrays.asList(new SimpleInterval("1", 1, 250)), 100, 0,
+                        Arrays.asList(new SimpleInterval("1", 1, 100), new SimpleInterval("1", 101, 200), new SimpleInterval("1", 201, 250)) },
+                // padded, without going below 1
+                { Arrays.asList(new SimpleInterval("1", 5, 150)), 100, 10,
+                        Arrays.asList(new SimpleInterval("1", 1, 114), new SimpleInterval("1", 95, 160)) },
+                // grouped while the window is small enough, and never across contigs
+                { Arrays.asList(new SimpleInterval("1", 1, 10), new SimpleInterval("1", 50, 60), new SimpleInterval("1", 90, 100),
+                                new SimpleInterval("1", 101, 110), new SimpleInterval("2", 1, 10), new SimpleInterval("3", 50, 60)), 100, 0,
+                        Arrays.asList(new SimpleInterval("1", 1, 100), new SimpleInterval("1", 101, 110), new SimpleInterval("2", 1, 10), new SimpleInterval("3", 50, 60)) },
+                // a split interval is grouped with the following intervals
+                { Arrays.asList(new SimpleInterval("1", 1, 150), new SimpleInterval("1", 170, 180), new SimpleInterval("1", 300, 310)), 100, 5,
+                        Arrays.asList(new SimpleInterval("1", 1, 105), new SimpleInterval("1", 96, 185), new SimpleInterval("1", 295, 315)) }
+        };
+    }
+
+    @Test(dataProvider = "MakeWindowsTestData")
+    public void testMakeWindows( final List<SimpleInterval> intervals, final int windowBases, final int padding, final List<SimpleInterval> expectedWindows ) {
+        Assert.assertEquals(FeatureQueryPrefetcher.makeWindows(intervals, windowBases, padding), expectedWindows);
+    }
+
+    @Test
+    public void testWindowsHandedOutInOrder() {
+        final List<SimpleInterval> intervals = Arrays.asList(
+                new SimpleInterval("1", 1, 300),
+                new SimpleInterval("1", 901, 1200),
+                new SimpleInterval("2", 1, 800),
+                new SimpleInterval("3", 1, 500),
+                new SimpleInterval("4", 1, 800));
+        try ( final FeatureQueryPrefetcher<VariantContext> prefetcher = new FeatureQueryPrefetcher<>(openReader(), QUERY_TEST_VCF.getName(), intervals, 300, 50, 2) ) {
+            Assert.assertEquals(prefetcher.getWindows(), Arrays.asList(
+                    new SimpleInterval("1", 1, 350),
+                    new SimpleInterval("1", 851, 1250),
+                    new SimpleInterval("2", 1, 350),
+                    new SimpleInterval("2", 251, 650),
+                    new SimpleInterval("2", 551, 850),
+                    new SimpleInterval("3", 1, 350),
+                    new SimpleInterval("3", 251, 550),
+                    new SimpleInterval("4", 1, 350),
+                    new SimpleInterval("4", 251, 650),
+                    new SimpleInterval("4", 551, 850)));
+
+            Pair<SimpleInterval, List<VariantContext>> window = prefetcher.getWindowContaining(new SimpleInterval("1", 150, 210));
+            Assert.assertEquals(window.getLeft(), new SimpleInterval("1", 1, 350));
+            Assert.assertEquals(getIDs(window.getRight()), Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h"));
+
+            // not in any window
+            Assert.assertNull(prefetcher.getWindowContaining(new SimpleInterval("1", 500, 600)));
+            Assert.assertNull(prefetcher.getWindowContaining(new SimpleInterval("1", 300, 900)));
+            Assert.assertNull(prefetcher.getWindowContaining(new SimpleInterval("5", 1, 10)));
+
+            window = prefetcher.getWindowContaining(new SimpleInterval("1", 1000, 1000));
+            Assert.assertEquals(window.getLeft(), new SimpleInterval("1", 851, 1250));
+            Assert.assertEquals(getIDs(window.getRight()), Arrays.asList("i", "j", "k", "l", "m", "n"));
+
+            // in the overlap of two windows: the later one is handed out
+            window = prefetcher.getWindowContaining(new SimpleInterval("2", 260, 340));
+            Assert.assertEquals(window.getLeft(), new SimpleInterval("2", 251, 650));
+            Assert.assertEquals(getIDs(window.getRight()), Arrays.asList("p", "q", "r"));
+
+            // going back
+            Assert.assertNull(prefetcher.getWindowContaining(new SimpleInterval("2", 1, 100)));
+            Assert.assertNull(prefetcher.getWindowContaining(new SimpleInterval("1", 100, 100)));
+
+            // skipping ahead, past the windows decoded so far
+            window = prefetcher.getWindowContaining(new SimpleInterval("4", 700, 800));
+            Assert.assertEquals(window.getLeft(), new SimpleInterval("4", 551, 850));
+            Assert.assertEquals(getIDs(window.getRight()), Arrays.asList("x", "y", "z"));
+
+            Assert.assertEquals(prefetcher.getNumWindowsHandedOut(), 4);
+            Assert.assertEquals(prefetcher.getNumWindowsDiscarded(), 6);
+        }
+    }
+
+    @Test
+    public void testEveryQueryMatchesReader() throws IOException {
+        final List<SimpleInterval> intervals = Arrays.asList(
+                new SimpleInterval("1", 1, 1500),
+                new SimpleInterval("2", 1, 1000),
+                new SimpleInterval("3", 1, 1000),
+                new SimpleInterval("4", 1, 1000));
+        try ( final FeatureReader<VariantContext> reader = openReader();
+              final FeatureQueryPrefetcher<VariantContext> prefetcher = new FeatureQueryPrefetcher<>(openReader(), QUERY_TEST_VCF.getName(), intervals, 100, 10, 3) ) {
+            for ( final SimpleInterval interval : intervals ) {
+                for ( int start = 1; start <= interval.getEnd(); start += 7 ) {
+                    final SimpleInterval query = new SimpleInterval(interval.getContig(), start, start + 5);
+                    final Pair<SimpleInterval, List<VariantContext>> window = prefetcher.getWindowContaining(query);
+                    if ( window == null ) {
+                        // contained in the window handed out previously, which is in the cache of the caller
+                        continue;
+                    }
+                    Assert.assertTrue(window.getLeft().contains(query));
+                    Assert.assertEquals(getIDs(window.getRight()), getIDs(reader.query(window.getLeft().getContig(), window.getLeft().getStart(), window.getLeft().getEnd()).toList()));
+                }
+            }
+            Assert.assertEquals(prefetcher.getNumWindowsDiscarded(), 0);
+            Assert.assertEquals(prefetcher.getNumWindowsHandedOut(), prefetcher.getWindows().size());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsortedIntervals() {
+        new FeatureQueryPrefetcher<>(openReader(), QUERY_TEST_VCF.getName(),
+                Arrays.asList(new SimpleInterval("1", 1, 100), new SimpleInterval("2", 1, 100), new SimpleInterval("1", 200, 300)), 100, 0, 1);
+    }
+}
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine;
 
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.TestProgramGroup;
@@ -11,6 +12,9 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author Daniel Gomez-Sanchez (magicDGS)
@@ -133,4 +137,73 @@ public class LocusWalkerUnitTest extends CommandLineProgramTest {
         Assert.assertEquals(tool.totalApplyCalls, 10);
     }
 
-}
\ No newline at end of file
+    private static class TestThreadedLocusWalker extends LocusWalker {
+        public final List<String> loci = new ArrayList<>();
+
+        @Override
+        public boolean emitEmptyLoci() {
+            return true;
+        }
+
+        @Override
+        public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+            loci.add(describeLocus(alignmentContext, referenceContext));
+        }
+
+        @Override
+        protected ThreadedLocusProcessor<?> makeThreadedLocusProcessor() {
+            return new ThreadedLocusProcessor<String>() {
+                @Override
+                public String process(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+                    return describeLocus(alignmentContext, referenceContext);
+                }
+
+                @Override
+                public void reduce(String result) {
+                    loci.add(result);
+                }
+            };
+        }
+
+        private static String describeLocus(AlignmentContext alignmentContext, ReferenceContext referenceContext) {
+            return alignmentContext.getContig() + ":" + alignmentContext.getStart() + " " + (char) referenceContext.getBase() + " " + new String(alignmentContext.getBasePileup().getBases());
+        }
+    }
+
+    @Test
+    public void testThreadedTraversalMatchesSingleThreaded() {
+        final String[] args = {
+                "-I", getTestDataDir()+ "/print_reads.sorted.bam",
+                "-R", getTestDataDir()+ "/print_reads.fasta",
+                "-L", "chr7:1-60",
+                "-L", "chr1:10-30"
+        };
+
+        final TestThreadedLocusWalker singleThreaded = new TestThreadedLocusWalker();
+        singleThreaded.instanceMain(args);
+
+        // small shards so that reads span several of them
+        final TestThreadedLocusWalker threaded = new TestThreadedLocusWalker();
+        final String[] threadedArgs = Arrays.copyOf(args, args.length + 4);
+        threadedArgs[args.length] = "--" + LocusWalker.LOCUS_THREADS_LONG_NAME;
+        threadedArgs[args.length + 1] = "3";
+        threadedArgs[args.length + 2] = "--" + LocusWalker.LOCUS_SHARD_SIZE_LONG_NAME;
+        threadedArgs[args.length + 3] = "7";
+        threaded.instanceMain(threadedArgs);
+
+        Assert.assertEquals(singleThreaded.loci.size(), 81);
+        Assert.assertEquals(threaded.loci, singleThreaded.loci);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testThreadedTraversalUnsupported() {
+        final String[] args = {
+                "-I", getTestDataDir()+ "/print_reads.sorted.bam",
+                "-R", getTestDataDir()+ "/print_reads.fasta",
+                "-L", "chr7:21-30",
+                "--" + LocusWalker.LOCUS_THREADS_LONG_NAME, "2"
+        };
+
+        new TestEmitUncoveredLociTool().instanceMain(args);
+    }
+}
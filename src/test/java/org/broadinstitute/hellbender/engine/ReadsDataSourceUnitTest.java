@@ -665,6 +665,54 @@ public final class ReadsDataSourceUnitTest extends GATKBaseTest {
     }
 
 
+    @DataProvider(name = "readDecodingThreadsData")
+    public Object[][] getReadDecodingThreadsData() {
+        final Path chr17Bam = IOUtils.getPath(publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/NA12878.chr17_69k_70k.dictFix.bam");
+        return new Object[][] {
+                { Collections.singletonList(chr17Bam), Arrays.asList(new SimpleInterval("17", 69_200, 69_400), new SimpleInterval("17", 69_800, 70_000)), new SimpleInterval("17", 69_500, 69_600) },
+                { Arrays.<Path>asList(FIRST_TEST_BAM, SECOND_TEST_BAM, THIRD_TEST_BAM), Arrays.asList(new SimpleInterval("1", 205, 207), new SimpleInterval("4", 500, 704)), new SimpleInterval("1", 200, 1000) }
+        };
+    }
+
+    @Test(dataProvider = "readDecodingThreadsData")
+    public void testReadDecodingThreads( final List<Path> samFiles, final List<SimpleInterval> intervals, final SimpleInterval queryInterval ) {
+        try ( final ReadsDataSource expectedSource = new ReadsDataSource(samFiles, null, null, 0, 0, 0);
+              final ReadsDataSource threadedSource = new ReadsDataSource(samFiles, null, null, 0, 0, 3) ) {
+            assertSameReads(threadedSource.iterator(), expectedSource.iterator());
+
+            // abandon an iteration half way, and make sure that the next one starts over
+            final Iterator<GATKRead> abandoned = threadedSource.iterator();
+            abandoned.next();
+            assertSameReads(threadedSource.query(queryInterval), expectedSource.query(queryInterval));
+
+            // abandoning queries must leave the readers, and the decoding threads, usable by the next queries
+            for ( int i = 0; i < 5; i++ ) {
+                Assert.assertTrue(threadedSource.query(queryInterval).hasNext());
+            }
+            assertSameReads(threadedSource.query(queryInterval), expectedSource.query(queryInterval));
+
+            expectedSource.setTraversalBounds(intervals);
+            threadedSource.setTraversalBounds(intervals);
+            assertSameReads(threadedSource.iterator(), expectedSource.iterator());
+        }
+    }
+
+    private static void assertSameReads( final Iterator<GATKRead> actual, final Iterator<GATKRead> expected ) {
+        int numReads = 0;
+        while ( expected.hasNext() ) {
+            Assert.assertTrue(actual.hasNext(), "missing reads after " + numReads + " reads");
+            Assert.assertEquals(actual.next().getSAMString(), expected.next().getSAMString());
+            numReads++;
+        }
+        Assert.assertFalse(actual.hasNext(), "too many reads");
+        Assert.assertTrue(numReads > 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeReadDecodingThreads() {
+        new ReadsDataSource(Collections.singletonList(FIRST_TEST_BAM), null, null, 0, 0, -1);
+    }
+
     @DataProvider(name = "readHeaders")
     public Object[][] getHeadersForDetectOrder() {
         final SAMFileHeader unknown = new SAMFileHeader();
@@ -0,0 +1,257 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class ReferenceTwoBitFileSourceUnitTest extends GATKBaseTest {
+    private static final Path FASTA = new File(v37_chr17_1Mb_Reference).toPath();
+    private static final Path TWO_BIT = new File(publicTestDir, "human_g1k_v37.chr17_1Mb.2bit").toPath();
+    private static final Path DICT = new File(publicTestDir, "human_g1k_v37.chr17_1Mb.dict").toPath();
+
+    @DataProvider(name = "chr17Intervals")
+    public Object[][] getChr17Intervals() {
+        return new Object[][] {
+                {new SimpleInterval("17", 1, 1)},
+                {new SimpleInterval("17", 1, 100)},
+                {new SimpleInterval("17", 2, 9)},
+                {new SimpleInterval("17", 4_000, 5_003)},
+                // the file has an N block from 296627 to 396626
+                {new SimpleInterval("17", 296_600, 296_700)},
+                {new SimpleInterval("17", 296_627, 296_627)},
+                {new SimpleInterval("17", 350_000, 350_010)},
+                {new SimpleInterval("17", 396_620, 396_640)},
+                {new SimpleInterval("17", 200_000, 500_000)},
+                {new SimpleInterval("17", 999_990, 1_000_000)},
+                {new SimpleInterval("17", 1, 1_000_000)},
+        };
+    }
+
+    @Test(dataProvider = "chr17Intervals")
+    public void testSameBasesAsFasta(final SimpleInterval interval) {
+        try ( final ReferenceDataSource fasta = new ReferenceFileSource(FASTA);
+              final ReferenceDataSource twoBit = new ReferenceTwoBitFileSource(TWO_BIT) ) {
+            Assert.assertEquals(twoBit.queryAndPrefetch(interval).getBaseString(), fasta.queryAndPrefetch(interval).getBaseString());
+            Assert.assertEquals(twoBit.queryAndPrefetch(interval).getName(), interval.getContig());
+            Assert.assertEquals(twoBit.queryAndPrefetch(interval).getContigIndex(), 0);
+        }
+    }
+
+    @Test
+    public void testRandomQueriesFromSeveralThreads() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try ( final ReferenceDataSource fasta = new ReferenceFileSource(FASTA);
+              final ReferenceDataSource twoBit = ReferenceDataSource.of(TWO_BIT) ) {
+            Assert.assertTrue(twoBit instanceof ReferenceTwoBitFileSource);
+            final List<Future<?>> results = new ArrayList<>();
+            for ( int thread = 0; thread < 4; thread++ ) {
+                final Random random = new Random(thread);
+                final List<SimpleInterval> intervals = new ArrayList<>();
+                final List<String> expected = new ArrayList<>();
+                for ( int i = 0; i < 500; i++ ) {
+                    final int start = 1 + random.nextInt(999_000);
+                    final SimpleInterval interval = new SimpleInterval("17", start, start + random.nextInt(1000));
+                    intervals.add(interval);
+                    expected.add(fasta.queryAndPrefetch(interval).getBaseString());
+                }
+                results.add(executor.submit(() -> {
+                    for ( int i = 0; i < intervals.size(); i++ ) {
+                        Assert.assertEquals(twoBit.queryAndPrefetch(intervals.get(i)).getBaseString(), expected.get(i));
+                    }
+                }));
+            }
+            for ( final Future<?> result : results ) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequenceDictionaryFromDictFile() {
+        try ( final ReferenceDataSource fasta = new ReferenceFileSource(FASTA);
+              final ReferenceDataSource twoBit = new ReferenceTwoBitFileSource(TWO_BIT) ) {
+            Assert.assertEquals(twoBit.getSequenceDictionary(), fasta.getSequenceDictionary());
+            Assert.assertEquals(twoBit.getSequenceDictionary().getSequence("17").getMd5(), fasta.getSequenceDictionary().getSequence("17").getMd5());
+        }
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        try ( final ReferenceDataSource twoBit = new ReferenceTwoBitFileSource(TWO_BIT) ) {
+            Assert.assertEquals(twoBit.queryAndPrefetch("17", 10, 9).length(), 0);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQueryPastContigEnd() {
+        try ( final ReferenceDataSource twoBit = new ReferenceTwoBitFileSource(TWO_BIT) ) {
+            twoBit.queryAndPrefetch("17", 999_990, 1_000_001);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQueryUnknownContig() {
+        try ( final ReferenceDataSource twoBit = new ReferenceTwoBitFileSource(TWO_BIT) ) {
+            twoBit.queryAndPrefetch("1", 1, 10);
+        }
+    }
+
+    /**
+     * Writes a version 0 .2bit file in big endian order (files written by UCSC tools on little endian machines are
+     * little endian, like the chr17 test file), with lower case letters soft-masked.
+     */
+    private static byte[] makeTwoBit(final Map<String, String> sequences) throws IOException {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        final DataOutputStream indexOut = new DataOutputStream(index);
+        int indexLength = 0;
+        for ( final String name : sequences.keySet() ) {
+            indexLength += 1 + name.length() + 4;
+        }
+        for ( final Map.Entry<String, String> entry : sequences.entrySet() ) {
+            indexOut.writeByte(entry.getKey().length());
+            indexOut.write(entry.getKey().getBytes(StandardCharsets.US_ASCII));
+            indexOut.writeInt(16 + indexLength + records.size());
+
+            final String bases = entry.getValue();
+            final DataOutputStream out = new DataOutputStream(records);
+            out.writeInt(bases.length());
+            writeBlocks(out, bases, c -> c == 'N' || c == 'n');
+            writeBlocks(out, bases, Character::isLowerCase);
+            out.writeInt(0);
+            for ( int i = 0; i < bases.length(); i += 4 ) {
+                int packed = 0;
+                for ( int j = i; j < i + 4; j++ ) {
+                    final int code = j < bases.length() ? Math.max(0, "TCAG".indexOf(Character.toUpperCase(bases.charAt(j)))) : 0;
+                    packed = (packed << 2) | code;
+                }
+                out.writeByte(packed);
+            }
+        }
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(file);
+        out.writeInt(0x1A412743);
+        out.writeInt(0);
+        out.writeInt(sequences.size());
+        out.writeInt(0);
+        out.write(index.toByteArray());
+        out.write(records.toByteArray());
+        return file.toByteArray();
+    }
+
+    private interface CharPredicate {
+        boolean test(char c);
+    }
+
+    private static void writeBlocks(final DataOutputStream out, final String bases, final CharPredicate inBlock) throws IOException {
+        final List<int[]> blocks = new ArrayList<>();
+        for ( int i = 0; i < bases.length(); i++ ) {
+            if ( inBlock.test(bases.charAt(i)) ) {
+                final int start = i;
+                while ( i < bases.length() && inBlock.test(bases.charAt(i)) ) {
+                    i++;
+                }
+                blocks.add(new int[]{start, i - start});
+            }
+        }
+        out.writeInt(blocks.size());
+        for ( final int[] block : blocks ) {
+            out.writeInt(block[0]);
+        }
+        for ( final int[] block : blocks ) {
+            out.writeInt(block[1]);
+        }
+    }
+
+    private static Map<String, String> makeSequences() {
+        final Map<String, String> sequences = new LinkedHashMap<>();
+        sequences.put("chrA", "NNacgtACGTTTGCAnNNNNCaGTA");
+        sequences.put("chrB", "G");
+        sequences.put("chrC", "ACGTNNNN");
+        return sequences;
+    }
+
+    @Test
+    public void testBigEndianFileWithoutDictionary() throws IOException {
+        final Map<String, String> sequences = makeSequences();
+        final Path twoBitPath = createTempFile("testBigEndianFileWithoutDictionary", ".2bit").toPath();
+        Files.write(twoBitPath, makeTwoBit(sequences));
+
+        try ( final ReferenceDataSource twoBit = new ReferenceTwoBitFileSource(twoBitPath) ) {
+            assertSequences(twoBit, sequences);
+        }
+    }
+
+    @Test
+    public void testFileSystemWithoutMemoryMapping() throws IOException {
+        final Map<String, String> sequences = makeSequences();
+        try ( final FileSystem jimfs = Jimfs.newFileSystem(Configuration.unix()) ) {
+            final Path twoBitPath = jimfs.getPath("reference.2bit");
+            Files.write(twoBitPath, makeTwoBit(sequences));
+
+            try ( final ReferenceDataSource twoBit = ReferenceDataSource.of(twoBitPath) ) {
+                assertSequences(twoBit, sequences);
+            }
+        }
+    }
+
+    private static void assertSequences(final ReferenceDataSource twoBit, final Map<String, String> sequences) {
+        final List<SAMSequenceRecord> expectedRecords = new ArrayList<>();
+        sequences.forEach((name, bases) -> expectedRecords.add(new SAMSequenceRecord(name, bases.length())));
+        Assert.assertEquals(twoBit.getSequenceDictionary(), new SAMSequenceDictionary(expectedRecords));
+
+        for ( final Map.Entry<String, String> entry : sequences.entrySet() ) {
+            final String bases = entry.getValue().toUpperCase();
+            for ( int start = 1; start <= bases.length(); start++ ) {
+                for ( int stop = start; stop <= bases.length(); stop++ ) {
+                    Assert.assertEquals(twoBit.queryAndPrefetch(entry.getKey(), start, stop).getBaseString(),
+                            bases.substring(start - 1, stop), entry.getKey() + ":" + start + "-" + stop);
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testDictionaryNotMatchingFile() throws IOException {
+        final Path dir = createTempDir("testDictionaryNotMatchingFile").toPath();
+        final Path twoBitPath = dir.resolve("reference.2bit");
+        Files.write(twoBitPath, makeTwoBit(makeSequences()));
+        Files.copy(DICT, dir.resolve("reference.dict"));
+        new ReferenceTwoBitFileSource(twoBitPath);
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testNotTwoBitFile() throws IOException {
+        final Path twoBitPath = createTempFile("testNotTwoBitFile", ".2bit").toPath();
+        Files.write(twoBitPath, Arrays.copyOf(Files.readAllBytes(FASTA), 1000));
+        new ReferenceTwoBitFileSource(twoBitPath);
+    }
+}
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.engine.spark;
 
 import com.google.common.collect.Lists;
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
@@ -65,8 +66,29 @@ public class AddContextDataToReadSparkUnitTest extends GATKBaseTest {
                 rddVariants, null, joinStrategy,
                 sd, 10000, 1000);
 
-        Map<GATKRead, ReadContextData> actual = rddActual.collectAsMap();
+        assertReadContextData(rddActual.collectAsMap(), expectedReadContextData);
+    }
+
+    @Test(dataProvider = "bases", groups = "spark")
+    public void addContextDataWithHeaderTest(List<GATKRead> reads, List<GATKVariant> variantList,
+                                             List<KV<GATKRead, ReadContextData>> expectedReadContextData,
+                                             JoinStrategy joinStrategy) {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        JavaRDD<GATKRead> rddReads = ctx.parallelize(reads);
+        JavaRDD<GATKVariant> rddVariants = ctx.parallelize(variantList);
+
+        // with a header, the SHUFFLE join strategy shuffles the reads in their compact encoding
+        SAMSequenceDictionary sd = new SAMSequenceDictionary(Lists.newArrayList(new SAMSequenceRecord("1", 100000), new SAMSequenceRecord("2", 100000)));
+        JavaPairRDD<GATKRead, ReadContextData> rddActual = AddContextDataToReadSpark.add(ctx, rddReads,
+                new TestMultiReferenceSource(sd),
+                rddVariants, null, joinStrategy,
+                new SAMFileHeader(sd), 10000, 1000);
+
+        assertReadContextData(rddActual.collectAsMap(), expectedReadContextData);
+    }
 
+    private static void assertReadContextData(Map<GATKRead, ReadContextData> actual, List<KV<GATKRead, ReadContextData>> expectedReadContextData) {
         Assert.assertEquals(actual.size(), expectedReadContextData.size());
         for (KV<GATKRead, ReadContextData> kv : expectedReadContextData) {
             ReadContextData readContextData = actual.get(kv.getKey());
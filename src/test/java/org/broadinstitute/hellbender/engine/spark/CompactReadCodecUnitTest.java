@@ -0,0 +1,91 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecordSparkCodec;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import scala.Tuple2;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+public class CompactReadCodecUnitTest extends GATKBaseTest {
+
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeaderWithGroups(3, 1, 1000, 2);
+
+    @DataProvider(name = "reads")
+    public Object[][] reads() {
+        final GATKRead mapped = ArtificialReadUtils.createHeaderlessSamBackedRead("mapped", "1", 100, 50);
+        mapped.setReadGroup(HEADER.getReadGroups().get(1).getReadGroupId());
+        mapped.setAttribute("NM", 2);
+        mapped.setAttribute("XS", "some string");
+
+        // read group before another attribute, to check that the order of attributes is kept
+        final GATKRead unknownReadGroup = ArtificialReadUtils.createHeaderlessSamBackedRead("unknownReadGroup", "2", 1, 50);
+        unknownReadGroup.setReadGroup("notInHeader");
+        unknownReadGroup.setAttribute("AS", 40);
+
+        final GATKRead unknownContig = ArtificialReadUtils.createHeaderlessSamBackedRead("unknownContig", "notInHeader", 10, 50);
+        unknownContig.setIsPaired(true);
+        unknownContig.setMatePosition("1", 500);
+        unknownContig.setFragmentLength(-490);
+
+        final GATKRead unmapped = ArtificialReadUtils.createHeaderlessSamBackedRead("unmapped", "1", 100, 50);
+        unmapped.setIsUnmapped();
+
+        final GATKRead noQualities = ArtificialReadUtils.createHeaderlessSamBackedRead("noQualities", "1", 100, 51);
+        noQualities.setBaseQualities(new byte[0]);
+
+        return new Object[][]{{mapped}, {unknownReadGroup}, {unknownContig}, {unmapped}, {noQualities}};
+    }
+
+    @Test(dataProvider = "reads", groups = "spark")
+    public void testRoundTrip(final GATKRead read) {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final CompactReadCodec codec = new CompactReadCodec(ctx, HEADER);
+
+        final GATKRead roundTrippedRead = codec.decode(codec.encode(read));
+        Assert.assertEquals(roundTrippedRead, read);
+    }
+
+    @Test(groups = "spark")
+    public void testSmallerThanSAMRecordSparkCodec() {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final CompactReadCodec codec = new CompactReadCodec(ctx, HEADER);
+        final GATKRead read = ArtificialReadUtils.createHeaderlessSamBackedRead("read", "1", 100, 50);
+        read.setReadGroup(HEADER.getReadGroups().get(0).getReadGroupId());
+
+        final ByteArrayOutputStream sparkCodecOutput = new ByteArrayOutputStream();
+        final SAMRecordSparkCodec sparkCodec = new SAMRecordSparkCodec();
+        sparkCodec.setOutputStream(sparkCodecOutput);
+        sparkCodec.encode(((SAMRecordToGATKReadAdapter) read).getEncapsulatedSamRecord());
+
+        Assert.assertTrue(codec.encode(read).length < sparkCodecOutput.size());
+    }
+
+    @Test(groups = "spark")
+    public void testGroupByKey() {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final CompactReadCodec codec = new CompactReadCodec(ctx, HEADER);
+
+        final GATKRead read1 = ArtificialReadUtils.createHeaderlessSamBackedRead("read1", "1", 100, 50);
+        final GATKRead read2 = ArtificialReadUtils.createHeaderlessSamBackedRead("read2", "2", 200, 50);
+        final GATKRead read3 = ArtificialReadUtils.createHeaderlessSamBackedRead("read3", "1", 300, 50);
+        final JavaPairRDD<String, GATKRead> keyedReads = ctx.parallelizePairs(ImmutableList.of(
+                new Tuple2<>("a", read1), new Tuple2<>("b", read2), new Tuple2<>("a", read3)), 2);
+
+        final Map<String, Iterable<GATKRead>> grouped = codec.groupByKey(keyedReads, 2).collectAsMap();
+        Assert.assertEquals(grouped.size(), 2);
+        Assert.assertEquals(ImmutableSet.copyOf(grouped.get("a")), ImmutableSet.of(read1, read3));
+        Assert.assertEquals(ImmutableSet.copyOf(grouped.get("b")), ImmutableSet.of(read2));
+    }
+}
@@ -0,0 +1,109 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public class ShardBalancerUnitTest extends GATKBaseTest {
+
+    private static final SAMSequenceDictionary SEQUENCE_DICTIONARY = new SAMSequenceDictionary(
+            ImmutableList.of(new SAMSequenceRecord("1", 100), new SAMSequenceRecord("2", 50)));
+
+    private static final int WINDOW_SIZE = 10;
+
+    @Test(groups = "spark")
+    public void testCountStartsPerWindow() {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        List<SimpleInterval> reads = ImmutableList.of(
+                new SimpleInterval("1", 1, 5), new SimpleInterval("1", 10, 15), new SimpleInterval("1", 11, 15),
+                new SimpleInterval("1", 100, 100), new SimpleInterval("2", 25, 30),
+                new SimpleInterval("notInDictionary", 1, 5));
+
+        Map<String, NavigableMap<Integer, Integer>> counts = ShardBalancer.countStartsPerWindow(ctx.parallelize(reads, 3), SEQUENCE_DICTIONARY, WINDOW_SIZE);
+
+        // only the windows with reads are counted
+        Assert.assertEquals(counts.keySet(), ImmutableSet.of("1", "2"));
+        Assert.assertEquals(counts.get("1"), windowCounts(2, 1, 0, 0, 0, 0, 0, 0, 0, 1));
+        Assert.assertEquals(counts.get("2"), windowCounts(0, 0, 1, 0, 0));
+    }
+
+    @Test
+    public void testCost() {
+        Map<String, NavigableMap<Integer, Integer>> counts = ImmutableMap.of("1", windowCounts(10, 20, 0, 0, 0, 0, 0, 0, 0, 0));
+
+        Assert.assertEquals(ShardBalancer.cost(new SimpleInterval("1", 1, 20), counts, WINDOW_SIZE), 30 + ShardBalancer.COST_PER_SHARD);
+        Assert.assertEquals(ShardBalancer.cost(new SimpleInterval("1", 6, 15), counts, WINDOW_SIZE), 5 + 10 + ShardBalancer.COST_PER_SHARD);
+        Assert.assertEquals(ShardBalancer.cost(new SimpleInterval("1", 21, 100), counts, WINDOW_SIZE), ShardBalancer.COST_PER_SHARD);
+        Assert.assertEquals(ShardBalancer.cost(new SimpleInterval("2", 1, 50), counts, WINDOW_SIZE), ShardBalancer.COST_PER_SHARD);
+    }
+
+    @Test
+    public void testSplitCostlyShards() {
+        // a pile-up in the second window of the first shard
+        Map<String, NavigableMap<Integer, Integer>> counts = ImmutableMap.of("1", windowCounts(1, 100, 1, 1, 1, 1, 1, 1, 1, 1));
+        List<ShardBoundary> shards = ImmutableList.of(
+                shard(1, 50, 5), shard(51, 100, 5));
+
+        List<ShardBoundary> split = ShardBalancer.splitCostlyShards(shards, counts, WINDOW_SIZE, 10, SEQUENCE_DICTIONARY);
+
+        Assert.assertEquals(split.stream().map(ShardBoundary::getInterval).collect(Collectors.toList()), ImmutableList.of(
+                new SimpleInterval("1", 1, 10), new SimpleInterval("1", 11, 20), new SimpleInterval("1", 21, 50),
+                new SimpleInterval("1", 51, 100)));
+        // padding is kept, and clipped at the contig ends
+        Assert.assertEquals(split.get(0).getPaddedInterval(), new SimpleInterval("1", 1, 15));
+        Assert.assertEquals(split.get(1).getPaddedInterval(), new SimpleInterval("1", 6, 25));
+        Assert.assertEquals(split.get(3), shards.get(1));
+    }
+
+    @Test
+    public void testPartitionByCost() {
+        Map<String, NavigableMap<Integer, Integer>> counts = ImmutableMap.of("1", windowCounts(1, 100, 1, 1, 1, 1, 1, 1, 1, 1));
+        List<ShardBoundary> shards = ImmutableList.of(
+                shard(1, 10, 0), shard(11, 20, 0), shard(21, 50, 0), shard(51, 100, 0));
+
+        List<List<ShardBoundary>> shardsPerPartition = ShardBalancer.partitionByCost(shards, counts, WINDOW_SIZE, 2);
+
+        // the pile-up and the small shard before it make up one partition, and the rest of the contig the other
+        Assert.assertEquals(shardsPerPartition, ImmutableList.of(
+                ImmutableList.of(shards.get(0), shards.get(1)), ImmutableList.of(shards.get(2), shards.get(3))));
+    }
+
+    @Test
+    public void testPartitionByCostWithNoReads() {
+        List<ShardBoundary> shards = ImmutableList.of(
+                shard(1, 25, 0), shard(26, 50, 0), shard(51, 75, 0), shard(76, 100, 0));
+
+        List<List<ShardBoundary>> shardsPerPartition = ShardBalancer.partitionByCost(shards, ImmutableMap.of(), WINDOW_SIZE, 2);
+
+        Assert.assertEquals(shardsPerPartition, ImmutableList.of(shards.subList(0, 2), shards.subList(2, 4)));
+    }
+
+    private static NavigableMap<Integer, Integer> windowCounts(int... counts) {
+        NavigableMap<Integer, Integer> windowCounts = new TreeMap<>();
+        for (int window = 0; window < counts.length; window++) {
+            if (counts[window] > 0) {
+                windowCounts.put(window, counts[window]);
+            }
+        }
+        return windowCounts;
+    }
+
+    private static ShardBoundary shard(int start, int end, int padding) {
+        SimpleInterval interval = new SimpleInterval("1", start, end);
+        return new ShardBoundary(interval, interval.expandWithinContig(padding, SEQUENCE_DICTIONARY));
+    }
+}
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.engine.spark;
 
 import com.google.common.collect.*;
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.util.Locatable;
@@ -13,6 +14,8 @@ import org.broadinstitute.hellbender.engine.Shard;
 import org.broadinstitute.hellbender.engine.ShardBoundary;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.annotations.Test;
 import scala.Tuple2;
@@ -244,6 +247,81 @@ public class SparkSharderUnitTest extends GATKBaseTest implements Serializable {
 
     }
 
+    @Test
+    public void testShuffleWithUnsortedReads() throws IOException {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        // The same reads and intervals as testSingleContig, and a second contig, but with the reads out of order.
+        // The shuffle implementation sorts the reads itself, so it gives the same counts as for sorted reads.
+
+        JavaRDD<TestRead> reads = ctx.parallelize(ImmutableList.of(
+                new TestRead("2", 2, 4), new TestRead(25, 27), new TestRead(7, 9),
+                new TestRead(12, 14), new TestRead(7, 9), new TestRead(1, 3),
+                new TestRead(17, 19), new TestRead(7, 9), new TestRead(5, 7),
+                new TestRead(11, 13), new TestRead(7, 9), new TestRead(21, 23),
+                new TestRead("2", 1, 3), new TestRead(7, 9)
+        ), 3);
+
+        List<SimpleInterval> intervals = ImmutableList.of(
+                new SimpleInterval("1", 2, 4),
+                new SimpleInterval("1", 8, 12),
+                new SimpleInterval("1", 11, 22),
+                new SimpleInterval("2", 1, 12));
+
+        List<ShardBoundary> shardBoundaries = intervals.stream().map(si -> new ShardBoundary(si, si)).collect(Collectors.toList());
+
+        ImmutableMap<SimpleInterval, Integer> expectedReadsPerInterval = ImmutableMap.of(
+                intervals.get(0), 1, intervals.get(1), 7, intervals.get(2), 4, intervals.get(3), 2);
+
+        JavaPairRDD<Locatable, Integer> readsPerIntervalShuffle =
+                SparkSharder.shard(ctx, reads, TestRead.class, sequenceDictionary, shardBoundaries, STANDARD_READ_LENGTH, true)
+                        .flatMapToPair(new CountOverlappingReadsFunction());
+        assertEquals(readsPerIntervalShuffle.collectAsMap(), expectedReadsPerInterval);
+
+        // windows larger than the shards, so no shard is split and the counts are the same
+        JavaPairRDD<Locatable, Integer> readsPerIntervalBalanced =
+                SparkSharder.shardBalancedByCoverage(ctx, reads, TestRead.class, sequenceDictionary, shardBoundaries, STANDARD_READ_LENGTH, 20)
+                        .flatMapToPair(new CountOverlappingReadsFunction());
+        assertEquals(readsPerIntervalBalanced.collectAsMap(), expectedReadsPerInterval);
+    }
+
+    @Test
+    public void testShardReadsWithCodec() throws IOException {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        // Reads shuffled in their compact encoding end up in the same shards as reads shuffled as they are
+
+        JavaRDD<GATKRead> reads = ctx.parallelize(ImmutableList.of(
+                ArtificialReadUtils.createHeaderlessSamBackedRead("a", "2", 2, 3),
+                ArtificialReadUtils.createHeaderlessSamBackedRead("b", "1", 25, 3),
+                ArtificialReadUtils.createHeaderlessSamBackedRead("c", "1", 7, 3),
+                ArtificialReadUtils.createHeaderlessSamBackedRead("d", "1", 1, 3),
+                ArtificialReadUtils.createHeaderlessSamBackedRead("e", "1", 7, 3),
+                ArtificialReadUtils.createHeaderlessSamBackedRead("f", "1", 11, 3),
+                ArtificialReadUtils.createHeaderlessSamBackedRead("g", "2", 1, 3)
+        ), 3);
+
+        List<ShardBoundary> shardBoundaries = ImmutableList.of(
+                new SimpleInterval("1", 2, 4),
+                new SimpleInterval("1", 8, 12),
+                new SimpleInterval("1", 11, 22),
+                new SimpleInterval("2", 1, 12)).stream().map(si -> new ShardBoundary(si, si)).collect(Collectors.toList());
+
+        CompactReadCodec readCodec = new CompactReadCodec(ctx, new SAMFileHeader(sequenceDictionary));
+
+        Map<SimpleInterval, Multiset<GATKRead>> expectedReadsPerShard =
+                readsPerShard(SparkSharder.shard(ctx, reads, GATKRead.class, sequenceDictionary, shardBoundaries, STANDARD_READ_LENGTH, true));
+        assertEquals(readsPerShard(SparkSharder.shardReads(ctx, reads, sequenceDictionary, shardBoundaries, STANDARD_READ_LENGTH, true, readCodec)),
+                expectedReadsPerShard);
+        assertEquals(readsPerShard(SparkSharder.shardReadsBalancedByCoverage(ctx, reads, sequenceDictionary, shardBoundaries, STANDARD_READ_LENGTH, 20, readCodec)),
+                expectedReadsPerShard);
+    }
+
+    private static Map<SimpleInterval, Multiset<GATKRead>> readsPerShard(JavaRDD<Shard<GATKRead>> shards) {
+        return shards.mapToPair(shard -> new Tuple2<SimpleInterval, Multiset<GATKRead>>(shard.getInterval(), HashMultiset.create(shard)))
+                .collectAsMap();
+    }
+
     @Test
     public void testPartitionReadExtents() throws IOException {
         JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools;
 
 import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
 import htsjdk.samtools.SamReader;
 import org.apache.commons.io.FileUtils;
 import htsjdk.samtools.SamReaderFactory;
@@ -126,6 +127,68 @@ public final class PrintReadsIntegrationTest extends CommandLineProgramTest{
         };
     }
 
+    @Test(dataProvider = "readDecodingThreadsData")
+    public void testReadDecodingThreads(final String fileIn, final String reference) throws IOException {
+        final File inFile = new File(TEST_DATA_DIR, fileIn);
+        final File outFile = GATKBaseTest.createTempFile("testReadDecodingThreads", ".bam");
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addInput(inFile);
+        args.addOutput(outFile);
+        if (reference != null) {
+            args.addReference(new File(TEST_DATA_DIR, reference));
+        }
+        args.addArgument(StandardArgumentDefinitions.READS_DECODING_THREADS_LONG_NAME, "4");
+        runCommandLine(args);
+
+        SamAssertionUtils.assertSamsEqual(outFile, inFile, reference == null ? null : new File(TEST_DATA_DIR, reference));
+    }
+
+    @DataProvider(name = "readDecodingThreadsData")
+    public Object[][] readDecodingThreadsData() {
+        return new Object[][]{
+                {"print_reads.sorted.bam", null},
+                {"print_reads.sorted.queryname.bam", null},
+                {"print_reads.sorted.cram", "print_reads.fasta"},
+        };
+    }
+
+    @Test
+    public void testOutputCompressionThreads() throws IOException {
+        final File inFile = new File(TEST_DATA_DIR, "print_reads.sorted.bam");
+        final File outFile = GATKBaseTest.createTempFile("testOutputCompressionThreads", ".bam");
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addInput(inFile);
+        args.addOutput(outFile);
+        args.addBooleanArgument(StandardArgumentDefinitions.CREATE_OUTPUT_BAM_INDEX_LONG_NAME, true);
+        args.addBooleanArgument(StandardArgumentDefinitions.CREATE_OUTPUT_BAM_MD5_LONG_NAME, true);
+        args.addArgument(StandardArgumentDefinitions.OUTPUT_COMPRESSION_THREADS_LONG_NAME, "4");
+        runCommandLine(args);
+
+        SamAssertionUtils.assertSamsEqual(outFile, inFile);
+
+        final File md5File = new File(outFile.getAbsolutePath() + ".md5");
+        Assert.assertEquals(FileUtils.readFileToString(md5File, StandardCharsets.UTF_8), Utils.calculateFileMD5(outFile));
+
+        final File indexFile = new File(outFile.getAbsolutePath().replaceAll("\\.bam$", ".bai"));
+        Assert.assertTrue(indexFile.exists(), "no index was created");
+        try (final SamReader expectedReader = SamReaderFactory.makeDefault().open(inFile);
+             final SamReader actualReader = SamReaderFactory.makeDefault().open(outFile)) {
+            Assert.assertTrue(actualReader.hasIndex());
+            final SAMRecord firstRead;
+            try (final SAMRecordIterator iterator = expectedReader.iterator()) {
+                firstRead = iterator.next();
+            }
+            final String contig = firstRead.getContig();
+            final int end = firstRead.getAlignmentStart() + 1000;
+            final List<String> expected = new ArrayList<>();
+            expectedReader.queryOverlapping(contig, 1, end).forEachRemaining(r -> expected.add(r.getSAMString()));
+            final List<String> actual = new ArrayList<>();
+            actualReader.queryOverlapping(contig, 1, end).forEachRemaining(r -> actual.add(r.getSAMString()));
+            Assert.assertFalse(actual.isEmpty());
+            Assert.assertEquals(actual, expected);
+        }
+    }
+
     @Test
     public void testReadThatConsumesNoReferenceBases() throws IOException {
         final File zeroRefBasesReadBam = new File(TEST_DATA_DIR, "read_consumes_zero_ref_bases.bam");
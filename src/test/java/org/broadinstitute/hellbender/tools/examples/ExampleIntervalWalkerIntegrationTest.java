@@ -23,4 +23,18 @@ public final class ExampleIntervalWalkerIntegrationTest extends CommandLineProgr
         );
         testSpec.executeTest("testExampleIntervalWalker", this);
     }
+
+    @Test
+    public void testExampleIntervalWalkerWithFeaturePrefetching() throws IOException {
+        IntegrationTestSpec testSpec = new IntegrationTestSpec(
+                " -L 1:100-200 -L 2:500-600" +
+                " -R " + hg19MiniReference +
+                " -I " + TEST_DATA_DIRECTORY + "reads_data_source_test1.bam" +
+                " -V " + TEST_DATA_DIRECTORY + "feature_data_source_test.vcf" +
+                " --feature-prefetch-windows 2" +
+                " -O %s",
+                Arrays.asList(TEST_OUTPUT_DIRECTORY + "expected_ExampleIntervalWalkerIntegrationTest_output.txt")
+        );
+        testSpec.executeTest("testExampleIntervalWalkerWithFeaturePrefetching", this);
+    }
 }
@@ -79,6 +79,10 @@ public class BQSRPipelineSparkIntegrationTest extends CommandLineProgramTest {
                 {new BQSRTest(b37_reference_20_21 , hiSeqCram_20_21_100000, more20Sites, ".cram", "-indels --enable-baq " +"--join-strategy SHUFFLE --known-sites " + more21Sites, getResourceDir() + "expected.MultiSite.bqsr.pipeline.cram")},
                 {new BQSRTest(b37_2bit_reference_20_21 , hiSeqBam_20_21_100000, more20Sites, ".bam", "-indels --enable-baq " +"--join-strategy BROADCAST --known-sites " + more21Sites, getResourceDir() + "expected.MultiSite.bqsr.pipeline.bam")},
                 {new BQSRTest(b37_reference_20_21 , hiSeqBam_20_21_100000, more20Sites, ".bam", "-indels --enable-baq " +"--join-strategy OVERLAPS_PARTITIONER --known-sites " + more21Sites, getResourceDir() + "expected.MultiSite.bqsr.pipeline.bam")},
+
+                // reads persisted to disk rather than read a second time
+                {new BQSRTest(GRCh37Ref2bit_chr2021, hiSeqBam_chr20, dbSNPb37_20, ".bam", "-indels --enable-baq " +"--join-strategy BROADCAST --persist-reads-to-disk", getResourceDir() + "expected.CEUTrio.HiSeq.WGS.b37.ch20.1m-1m1k.NA12878.recalibrated.DIQ.bam")},
+                {new BQSRTest(b37_reference_20_21 , hiSeqBam_20_21_100000, more20Sites, ".bam", "-indels --enable-baq " +"--join-strategy SHUFFLE --persist-reads-to-disk --known-sites " + more21Sites, getResourceDir() + "expected.MultiSite.bqsr.pipeline.bam")},
        };
     }
 
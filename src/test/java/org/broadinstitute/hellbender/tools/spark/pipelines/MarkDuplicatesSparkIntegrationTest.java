@@ -86,8 +86,25 @@ public class MarkDuplicatesSparkIntegrationTest extends AbstractMarkDuplicatesCo
     public void testMarkDuplicatesSparkIntegrationTestLocal(
         final File input, final long totalExpected, final long dupsExpected,
         Map<String, List<String>> metricsExpected) throws IOException {
+        testMarkDuplicatesSparkIntegrationTestLocalImpl(input, totalExpected, dupsExpected, metricsExpected, false);
+    }
+
+    @Test(groups = "spark", dataProvider = "md")
+    public void testMarkDuplicatesSparkSortBasedIntegrationTestLocal(
+        final File input, final long totalExpected, final long dupsExpected,
+        Map<String, List<String>> metricsExpected) throws IOException {
+        testMarkDuplicatesSparkIntegrationTestLocalImpl(input, totalExpected, dupsExpected, metricsExpected, true);
+    }
+
+    private void testMarkDuplicatesSparkIntegrationTestLocalImpl(
+        final File input, final long totalExpected, final long dupsExpected,
+        Map<String, List<String>> metricsExpected, final boolean sortBasedMarking) throws IOException {
 
         ArgumentsBuilder args = new ArgumentsBuilder();
+        if (sortBasedMarking) {
+            args.add("--SORT_BASED_MARKING");
+            args.add("true");
+        }
         args.add("--"+ StandardArgumentDefinitions.INPUT_LONG_NAME);
         args.add(input.getPath());
         args.add("--"+StandardArgumentDefinitions.OUTPUT_LONG_NAME);
@@ -48,4 +48,22 @@ public class MarkDuplicatesSparkUnitTest extends GATKBaseTest {
         Assert.assertEquals(dupes.count(), dupsExpected);
     }
 
+    @Test(dataProvider = "md", groups = "spark")
+    public void markDupesSortBasedTest(final String input, final long totalExpected, final long dupsExpected) throws IOException {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        ReadsSparkSource readSource = new ReadsSparkSource(ctx);
+        JavaRDD<GATKRead> reads = readSource.getParallelReads(input, null).repartition(3);
+        Assert.assertEquals(reads.count(), totalExpected);
+
+        SAMFileHeader header = readSource.getHeader(input, null);
+        final OpticalDuplicateFinder finder = new OpticalDuplicateFinder();
+        JavaRDD<GATKRead> markedReads = MarkDuplicatesSpark.mark(reads.cache(), header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, finder, 2, true);
+
+        Assert.assertEquals(markedReads.count(), totalExpected);
+        JavaRDD<GATKRead> dupes = markedReads.filter(GATKRead::isDuplicate);
+
+        Assert.assertEquals(dupes.count(), dupsExpected);
+    }
+
 }
@@ -8,7 +8,11 @@ import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.markduplicates.CompactReadEnd;
+import org.broadinstitute.hellbender.utils.read.markduplicates.DuplicateCandidate;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
 import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.Assert;
@@ -17,8 +21,11 @@ import scala.Tuple2;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
     @Test(groups = "spark")
@@ -67,6 +74,124 @@ public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
                 ImmutableList.of(pairIterable(key1, read1, read3), pairIterable(key2, read2, read4)));
     }
 
+    @Test(groups = "spark")
+    public void testMarkSortedCandidatesAndApplyFlags() {
+        SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(1, 1, 1000, 1);
+        List<GATKRead> reads = new ArrayList<>();
+        reads.addAll(ArtificialReadUtils.createPair(header, "low", 20, 10, 100, true, false));
+        reads.addAll(ArtificialReadUtils.createPair(header, "high", 20, 10, 100, true, false));
+        for (int i = 0; i < reads.size(); i++) {
+            reads.get(i).setReadGroup(getReadGroupId(header, 0));
+            reads.get(i).setBaseQualities(Utils.dupBytes(i < 2 ? (byte) 10 : (byte) 30, 20));
+        }
+
+        Map<String, Short> libraries = MarkDuplicatesSparkUtils.indexLibrariesByReadGroup(header);
+        Map<String, Integer> readGroups = MarkDuplicatesSparkUtils.indexReadGroups(header);
+        List<CompactReadEnd> summaries = new ArrayList<>();
+        for (int i = 0; i < reads.size(); i++) {
+            summaries.add(CompactReadEnd.of(MarkDuplicatesSparkUtils.ordinal(0, i, 1), libraries.get(getReadGroupId(header, 0)),
+                    readGroups.get(getReadGroupId(header, 0)), reads.get(i), header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null));
+        }
+
+        // each name gives a fragment for each read and one pair
+        List<DuplicateCandidate> candidates = new ArrayList<>(MarkDuplicatesSparkUtils.candidatesForReadsWithSameKey(summaries.subList(0, 2)));
+        Assert.assertEquals(candidates.size(), 3);
+        candidates.addAll(MarkDuplicatesSparkUtils.candidatesForReadsWithSameKey(summaries.subList(2, 4)));
+        candidates.sort(new MarkDuplicatesSparkUtils.DuplicateOrder());
+
+        List<Tuple2<Long, Integer>> flags = Lists.newArrayList(MarkDuplicatesSparkUtils.markSortedCandidates(candidates.iterator(), null));
+        flags.sort(Comparator.comparingLong(flag -> flag._1()));
+
+        List<GATKRead> marked = Lists.newArrayList(MarkDuplicatesSparkUtils.applyFlags(reads.iterator(), flags.iterator(), 1));
+        Assert.assertEquals(marked.size(), 4);
+        Assert.assertTrue(marked.get(0).isDuplicate());
+        Assert.assertTrue(marked.get(1).isDuplicate());
+        Assert.assertFalse(marked.get(2).isDuplicate());
+        Assert.assertFalse(marked.get(3).isDuplicate());
+        // the optical duplicate total goes on the first end of the best pair
+        Assert.assertEquals(marked.get(2).getAttributeAsInteger(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME), Integer.valueOf(0));
+        Assert.assertFalse(marked.get(3).hasAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME));
+    }
+
+    @Test(groups = "spark")
+    public void testSortBasedTiesDoNotDependOnPartitioning() {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(1, 1, 1000, 1);
+
+        Map<String, Boolean> expected = duplicateFlagsByRead(MarkDuplicatesSparkUtils.transformReads(header,
+                MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, ctx.parallelize(readsWithTiedScores(header), 1), 2));
+        Assert.assertEquals(expected.values().stream().filter(isDuplicate -> isDuplicate).count(), 6);
+        Assert.assertFalse(expected.get("tieA/1"));
+        Assert.assertFalse(expected.get("fragA/0"));
+
+        for (final int numPartitions : new int[]{1, 2, 3, 7}) {
+            JavaRDD<GATKRead> reads = ctx.parallelize(readsWithTiedScores(header), numPartitions);
+            Map<String, Boolean> actual = duplicateFlagsByRead(MarkDuplicatesSparkUtils.transformReadsSortBased(header,
+                    MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, reads, 3));
+            Assert.assertEquals(actual, expected, "with " + numPartitions + " partitions");
+        }
+    }
+
+    @Test(groups = "spark")
+    public void testSortBasedKeepsReadGroupsApart() {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(1, 1, 1000, 2);
+
+        // pairs with the same names in both read groups, which must not be paired up across read groups
+        List<GATKRead> reads = new ArrayList<>();
+        for (int readGroup = 0; readGroup < 2; readGroup++) {
+            for (final String name : new String[]{"pairB", "pairA"}) {
+                List<GATKRead> pair = ArtificialReadUtils.createPair(header, name, 20, 10 + 100 * readGroup, 200, true, false);
+                for (final GATKRead read : pair) {
+                    read.setReadGroup(getReadGroupId(header, readGroup));
+                    read.setBaseQualities(Utils.dupBytes(name.equals("pairA") ? (byte) 30 : (byte) 20, 20));
+                }
+                reads.addAll(pair);
+            }
+        }
+
+        Map<String, Boolean> expected = new HashMap<>();
+        for (final GATKRead read : MarkDuplicatesSparkUtils.transformReads(header,
+                MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, ctx.parallelize(reads, 1), 2).collect()) {
+            expected.put(read.getReadGroup() + "/" + read.getName() + "/" + (read.isFirstOfPair() ? 1 : 2), read.isDuplicate());
+        }
+        Assert.assertEquals(expected.values().stream().filter(isDuplicate -> isDuplicate).count(), 4);
+
+        Map<String, Boolean> actual = new HashMap<>();
+        for (final GATKRead read : MarkDuplicatesSparkUtils.transformReadsSortBased(header,
+                MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, ctx.parallelize(reads, 3), 3).collect()) {
+            actual.put(read.getReadGroup() + "/" + read.getName() + "/" + (read.isFirstOfPair() ? 1 : 2), read.isDuplicate());
+        }
+        Assert.assertEquals(actual, expected);
+    }
+
+    /**
+     * Three pairs and three unpaired fragments that are duplicates of each other with equal scores, named so that
+     * their input order differs from their name order.
+     */
+    private List<GATKRead> readsWithTiedScores(final SAMFileHeader header) {
+        List<GATKRead> reads = new ArrayList<>();
+        for (final String name : new String[]{"tieC", "tieA", "tieB"}) {
+            reads.addAll(ArtificialReadUtils.createPair(header, name, 20, 10, 100, true, false));
+        }
+        for (final String name : new String[]{"fragB", "fragC", "fragA"}) {
+            reads.add(ArtificialReadUtils.createArtificialRead(header, name, 0, 300, 20));
+        }
+        for (final GATKRead read : reads) {
+            read.setReadGroup(getReadGroupId(header, 0));
+            read.setBaseQualities(Utils.dupBytes((byte) 30, 20));
+        }
+        return reads;
+    }
+
+    private static Map<String, Boolean> duplicateFlagsByRead(final JavaRDD<GATKRead> markedReads) {
+        Map<String, Boolean> flags = new HashMap<>();
+        for (final GATKRead read : markedReads.collect()) {
+            flags.put(read.getName() + "/" + (read.isPaired() && read.isFirstOfPair() ? 1 : read.isPaired() ? 2 : 0), read.isDuplicate());
+        }
+        return flags;
+    }
+
     private String getReadGroupId(final SAMFileHeader header, final int index) {
         return header.getReadGroups().get(index).getReadGroupId();
     }
@@ -89,6 +89,7 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
 
                 {new BQSRTest(hg18Reference, HiSeqCram_chr17, dbSNPb37_chr17, "-indels --enable-baq ", getResourceDir() + "expected.NA12878.chr17_69k_70k.txt")},
                 {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq ", getResourceDir() + "expected.NA12878.chr17_69k_70k.txt")},
+                {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq --" + BaseRecalibrator.RECALIBRATION_THREADS_LONG_NAME + " 4", getResourceDir() + "expected.NA12878.chr17_69k_70k.txt")},
                 {new BQSRTest(GRCh37Ref_chr2021, trickyBam_chr20, dbSNPb37_chr20, "-indels --enable-baq ", getResourceDir() + "expected.CEUTrio.HiSeq.WGS.b37.ch20.4379150-4379157.recal.txt")},
                 {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq " +"--known-sites " + more17Sites, getResourceDir() + "expected.NA12878.chr17_69k_70k.2inputs.txt")},
                 {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq " +"--indels-context-size 4", getResourceDir() + "expected.NA12878.chr17_69k_70k.indels_context_size4.txt")},
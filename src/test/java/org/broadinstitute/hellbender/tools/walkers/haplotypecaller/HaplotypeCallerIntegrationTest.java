@@ -196,6 +196,49 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
         IntegrationTestSpec.assertEqualTextFiles(output, expected);
     }
 
+    /*
+     * Test that running with multiple assembly region threads produces exactly the same GVCF as a single-threaded run
+     */
+    @Test
+    public void testGVCFModeWithMultipleAssemblyRegionThreadsMatchesSingleThreadedResults() throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testGVCFModeWithMultipleAssemblyRegionThreads", ".g.vcf");
+        final File expected = new File(TEST_FILES_DIR, "expected.testGVCFMode.gatk4.g.vcf");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-ERC", "GVCF",
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + HaplotypeCaller.ASSEMBLY_REGION_THREADS_LONG_NAME, "4",
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+        };
+
+        runCommandLine(args);
+
+        IntegrationTestSpec.assertEqualTextFiles(output, expected);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testMultipleAssemblyRegionThreadsNotAllowedWithBamout() throws IOException {
+        final File vcfOutput = createTempFile("testMultipleAssemblyRegionThreadsNotAllowedWithBamout", ".vcf");
+        final File bamOutput = createTempFile("testMultipleAssemblyRegionThreadsNotAllowedWithBamout", ".bam");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", vcfOutput.getAbsolutePath(),
+                "-bamout", bamOutput.getAbsolutePath(),
+                "--" + HaplotypeCaller.ASSEMBLY_REGION_THREADS_LONG_NAME, "2"
+        };
+
+        runCommandLine(args);
+    }
+
     /*
      * Test that in GVCF mode we're consistent with past GATK4 results using AS_ annotations
      *
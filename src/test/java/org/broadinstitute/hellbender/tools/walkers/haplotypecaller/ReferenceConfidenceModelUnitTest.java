@@ -12,6 +12,7 @@ import org.broadinstitute.hellbender.tools.walkers.genotyper.IndependentSampleGe
 import org.broadinstitute.hellbender.tools.walkers.genotyper.PloidyModel;
 import org.broadinstitute.hellbender.utils.GenomeLoc;
 import org.broadinstitute.hellbender.utils.GenomeLocParser;
+import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
@@ -412,6 +413,39 @@ public final class ReferenceConfidenceModelUnitTest extends GATKBaseTest {
         }
     }
 
+    @DataProvider(name = "NonRefEvidenceData")
+    public Object[][] makeNonRefEvidenceData() {
+        return new Object[][] {
+                // read bases, cigar, base quality, pileup offset, reference base, expected
+                {"ACGTA", "5M", 30, 2, 'G', false},
+                {"ACGTA", "5M", 30, 2, 'T', true},
+                {"ACGTA", "5M", 10, 2, 'T', false}, // mismatch at or below the min base quality is ignored
+                {"ACGTA", "5M", 10, 2, 'G', false},
+                {"ACGTAC", "3S3M", 30, 3, 'T', true}, // next to a soft clip
+                {"ACGTAC", "3S3M", 30, 4, 'A', false},
+                {"ACGT", "2M1D2M", 30, 1, 'C', true}, // before a deletion
+                {"ACGT", "2M1D2M", 30, 2, 'G', true}, // after a deletion
+                {"ACGTA", "2M1I2M", 30, 1, 'C', true}, // before an insertion
+                {"ACGTA", "2M1I2M", 30, 4, 'A', false},
+        };
+    }
+
+    @Test(dataProvider = "NonRefEvidenceData")
+    public void testHasNonRefEvidence(final String readBases, final String cigar, final int qual, final int offset, final char refBase, final boolean expected) {
+        final byte minBaseQual = 10;
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(readBases.getBytes(), Utils.dupBytes((byte) qual, readBases.length()), cigar);
+        final ReadPileup pileup = new ReadPileup(new SimpleInterval("20", 1, 1), Collections.singletonList(read), offset);
+        Assert.assertEquals(ReferenceConfidenceModel.hasNonRefEvidence(pileup, (byte) refBase, minBaseQual), expected);
+
+        // must agree with the evidence counted by the likelihood calculation, so that callers can skip it
+        final MathUtils.RunningAverage hqSoftClips = new MathUtils.RunningAverage();
+        final ReferenceConfidenceModel.RefVsAnyResult result = model.calcGenotypeLikelihoodsOfRefVsAny(2, pileup, (byte) refBase, minBaseQual, hqSoftClips);
+        Assert.assertEquals(result.nonRefDepth > 0, expected);
+        if ( ! expected ) {
+            Assert.assertEquals(hqSoftClips.observationCount(), 0);
+        }
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testRefVsAnyResultNotNegative() throws Exception {
         new ReferenceConfidenceModel.RefVsAnyResult(-1);
@@ -214,6 +214,85 @@ public final class KBestHaplotypeFinderUnitTest extends GATKBaseTest {
     }
 
 
+    @DataProvider(name = "RandomGraphData")
+    public Object[][] makeRandomGraphData() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( int seed = 0; seed < 30; seed++ ) {
+            tests.add(new Object[]{seed, 8 + seed % 7, seed % 3 == 0 ? 0.5 : 0.3});
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "RandomGraphData")
+    public void testIterativeFinderMatchesRecursiveFinder(final int seed, final int numVertices, final double edgeProbability) {
+        final Random random = new Random(seed);
+        final SeqGraph graph = new SeqGraph(11);
+        final List<SeqVertex> vertices = new ArrayList<>();
+        for ( int i = 0; i < numVertices; i++ ) {
+            vertices.add(new SeqVertex("ACGT".substring(random.nextInt(4), 4)));
+            graph.addVertex(vertices.get(i));
+        }
+        for ( int i = 0; i < numVertices; i++ ) {
+            for ( int j = i + 1; j < numVertices; j++ ) {
+                if ( random.nextDouble() < edgeProbability ) {
+                    // few distinct multiplicities, so that there are haplotypes with the same score
+                    graph.addEdge(vertices.get(i), vertices.get(j), new BaseEdge(random.nextBoolean(), random.nextInt(4)));
+                }
+            }
+        }
+        final Set<SeqVertex> sources = graph.getSources();
+        final Set<SeqVertex> sinks = graph.getSinks();
+        final List<KBestHaplotype> expected = new ArrayList<>(new KBestHaplotypeFinder(graph, sources, sinks));
+
+        for ( final int maxHaplotypes : Arrays.asList(1, 5, expected.size() + 1) ) {
+            final KBestHaplotypeFinder finder = new KBestHaplotypeFinder(graph, sources, sinks, maxHaplotypes);
+            final List<KBestHaplotype> actual = new ArrayList<>(finder);
+            final int size = Math.min(maxHaplotypes, expected.size());
+            Assert.assertEquals(actual.size(), size);
+            // the same haplotypes in the same order, including amongst haplotypes with the same score
+            for ( int i = 0; i < size; i++ ) {
+                Assert.assertEquals(actual.get(i).score(), expected.get(i).score());
+                Assert.assertEquals(actual.get(i).rank(), i);
+                Assert.assertEquals(actual.get(i).isReference(), expected.get(i).isReference());
+                Assert.assertEquals(actual.get(i).bases(), expected.get(i).bases());
+                Assert.assertEquals(actual.get(i).path(), expected.get(i).path());
+            }
+
+            for ( final KBestHaplotype haplotype : expected ) {
+                final byte[] bases = haplotype.bases();
+                Assert.assertEquals(finder.score(bases), new KBestHaplotypeFinder(graph, sources, sinks).score(bases));
+                final byte[] prefix = Arrays.copyOf(bases, bases.length / 2);
+                Assert.assertEquals(finder.score(prefix), new KBestHaplotypeFinder(graph, sources, sinks).score(prefix));
+            }
+        }
+    }
+
+    @Test
+    public void testIterativeFinderOnLongGraph() {
+        final SeqGraph graph = new SeqGraph(11);
+        final int length = 50000;
+        SeqVertex previous = new SeqVertex("A");
+        graph.addVertex(previous);
+        final SeqVertex source = previous;
+        for ( int i = 1; i < length; i++ ) {
+            final SeqVertex next = new SeqVertex(i % 2 == 0 ? "A" : "C");
+            final SeqVertex alt = new SeqVertex("G");
+            graph.addVertices(next, alt);
+            graph.addEdge(previous, next, new BaseEdge(true, 3));
+            graph.addEdge(previous, alt, new BaseEdge(false, 1));
+            graph.addEdge(alt, next, new BaseEdge(false, 1));
+            previous = next;
+        }
+        // this graph is too deep for the recursive finder, which overflows the stack
+        final KBestHaplotypeFinder iterativeFinder = new KBestHaplotypeFinder(graph, Collections.singleton(source), Collections.singleton(previous), 3);
+        Assert.assertEquals(iterativeFinder.size(), 3);
+        Assert.assertTrue(iterativeFinder.get(0).isReference());
+        Assert.assertEquals(iterativeFinder.get(0).bases().length, length);
+        Assert.assertEquals(iterativeFinder.get(1).bases().length, length + 1);
+        Assert.assertEquals(iterativeFinder.get(1).score(), iterativeFinder.get(2).score());
+        Assert.assertEquals(iterativeFinder.score(iterativeFinder.get(1).bases()), iterativeFinder.get(1).score());
+    }
+
     @DataProvider(name = "BasicBubbleDataProvider")
     public Object[][] makeBasicBubbleDataProvider() {
         final List<Object[]> tests = new ArrayList<>();
@@ -0,0 +1,62 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+public final class PackedKmerMapUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testPack() {
+        Assert.assertEquals(PackedKmerMap.pack("ACGT".getBytes(), 0, 4), 0b00011011L);
+        Assert.assertEquals(PackedKmerMap.pack("NNTGCANN".getBytes(), 2, 4), 0b11100100L);
+        Assert.assertEquals(PackedKmerMap.pack("ACNT".getBytes(), 0, 4), PackedKmerMap.UNPACKABLE);
+        Assert.assertEquals(PackedKmerMap.pack("acgt".getBytes(), 0, 4), PackedKmerMap.UNPACKABLE);
+        final byte[] longest = new byte[PackedKmerMap.MAX_PACKED_KMER_SIZE + 1];
+        Arrays.fill(longest, (byte) 'T');
+        Assert.assertTrue(PackedKmerMap.pack(longest, 0, PackedKmerMap.MAX_PACKED_KMER_SIZE) >= 0);
+        Assert.assertEquals(PackedKmerMap.pack(longest, 0, longest.length), PackedKmerMap.UNPACKABLE);
+    }
+
+    @DataProvider(name = "KmerSizes")
+    public Object[][] makeKmerSizes() {
+        return new Object[][] { {3}, {PackedKmerMap.MAX_PACKED_KMER_SIZE}, {PackedKmerMap.MAX_PACKED_KMER_SIZE + 1} };
+    }
+
+    @Test(dataProvider = "KmerSizes")
+    public void testMapOperations(final int kmerSize) {
+        final PackedKmerMap<String> map = new PackedKmerMap<>(kmerSize);
+        final byte[] packable = new byte[kmerSize + 2];
+        Arrays.fill(packable, (byte) 'A');
+        packable[kmerSize + 1] = 'C';
+        final byte[] withN = packable.clone();
+        withN[1] = 'N';
+
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.put(packable, 0, "first"));
+        Assert.assertNull(map.put(packable, 2, "second"));
+        Assert.assertNull(map.put(withN, 0, "withN"));
+        Assert.assertEquals(map.put(packable, 1, "replaced"), "first");
+        Assert.assertEquals(map.size(), 3);
+
+        Assert.assertEquals(map.get(packable, 0), "replaced");
+        Assert.assertEquals(map.get(new Kmer(Arrays.copyOfRange(packable, 2, 2 + kmerSize))), "second");
+        Assert.assertEquals(map.get(withN, 0), "withN");
+        Assert.assertTrue(map.containsKey(withN, 0));
+        Assert.assertFalse(map.containsKey(withN, 1));
+        Assert.assertNull(map.get(new Kmer(packable)));
+        Assert.assertEquals(new HashSet<>(map.values()), new HashSet<>(Arrays.asList("replaced", "second", "withN")));
+
+        Assert.assertEquals(map.remove(withN, 0), "withN");
+        Assert.assertEquals(map.remove(packable, 2), "second");
+        Assert.assertNull(map.remove(packable, 2));
+        Assert.assertEquals(map.size(), 1);
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+    }
+}
@@ -10,6 +10,7 @@ import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import java.nio.file.Paths;
 import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.KBestHaplotype;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.KBestHaplotypeFinder;
@@ -226,6 +227,45 @@ public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
         Assert.assertEquals(haplotypes.get(1), altHaplotype);
     }
 
+    @DataProvider(name = "SkipKmerSizesPredictedToFailData")
+    public Object[][] makeSkipKmerSizesPredictedToFailData() {
+        final String repeat = String.join("", Collections.nCopies(20, "CA"));
+        final String expandedRepeat = String.join("", Collections.nCopies(24, "CA"));
+        return new Object[][] {
+                // every graph that can be built is low complexity, so none of them needs to be built
+                {"TG" + repeat + "GT", "TG" + expandedRepeat + "GT", 3, 0},
+                // the flanks make the graphs complex enough, so the kmer counts cannot rule any of them out
+                {"CATGCACTTTAAAACTTGCC" + repeat + "GTTTTTAACAAGACTTCCAGATG", "CATGCACTTTAAAACTTGCC" + expandedRepeat + "GTTTTTAACAAGACTTCCAGATG", 2, 2}
+        };
+    }
+
+    @Test(dataProvider = "SkipKmerSizesPredictedToFailData")
+    public void testSkipKmerSizesPredictedToFail(final String ref, final String alt, final int expectedGraphsBuiltWithoutSkipping, final int expectedGraphsBuiltWithSkipping) {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final Haplotype refHaplotype = new Haplotype(ref.getBytes(), true);
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( final String sequence : Arrays.asList(ref, alt) ) {
+            final byte[] bases = sequence.getBytes();
+            for ( int i = 0; i < 3; i++ ) {
+                reads.add(ArtificialReadUtils.createArtificialRead(bases, Utils.dupBytes((byte) 30, bases.length), bases.length + "M"));
+            }
+        }
+
+        final List<List<String>> resultsByMode = new ArrayList<>();
+        for ( final boolean skip : Arrays.asList(false, true) ) {
+            final ReadThreadingAssembler assembler = new ReadThreadingAssembler(128, Arrays.asList(5, 10), false, true, 1);
+            assembler.setJustReturnRawGraph(true);
+            assembler.setSkipKmerSizesPredictedToFail(skip);
+            final List<String> results = new ArrayList<>();
+            for ( final AssemblyResult result : assembler.assemble(reads, refHaplotype, Collections.emptyList(), header, SmithWatermanJavaAligner.getInstance()) ) {
+                results.add(result.getStatus() + (result.getGraph() == null ? "" : " k=" + result.getKmerSize() + " vertices=" + result.getGraph().vertexSet().size()));
+            }
+            resultsByMode.add(results);
+            Assert.assertEquals(assembler.getGraphsBuiltInRegion(), skip ? expectedGraphsBuiltWithSkipping : expectedGraphsBuiltWithoutSkipping);
+        }
+        Assert.assertEquals(resultsByMode.get(1), resultsByMode.get(0));
+    }
+
     private static class TestAssembler {
         final ReadThreadingAssembler assembler;
         private final SAMFileHeader header;
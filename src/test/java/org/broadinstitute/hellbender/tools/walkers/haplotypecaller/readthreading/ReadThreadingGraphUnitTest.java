@@ -60,6 +60,100 @@ public final class ReadThreadingGraphUnitTest extends GATKBaseTest {
         assertNonUniques(assembler, "ACA", "CAC");
     }
 
+    @DataProvider(name = "NonUniqueKmersData")
+    public Object[][] makeNonUniqueKmersData() {
+        final List<Object[]> tests = new ArrayList<>();
+        final String[] sequences = {
+                "GACACACAGTCA",
+                "ACGTNACGTNACGT",
+                "NNNNNNNN",
+                "acgtacgtACGTACGT",
+                "ACRTACRTACGTACGT",
+                "ATATATATATATATATATATATATATATATATATATATATATATATATATATATATATATATATAT",
+                "CATGCACTTTAAAACTTGCCTTTTTAACAAGACTTCCAGATGCATGCACTTTAAAACTTGCCTTTTTAACAAGACTTCCAGATG"};
+        for ( final String sequence : sequences ) {
+            for ( final int kmerSize : Arrays.asList(1, 3, 4, 10, 31, 32, 40) ) {
+                tests.add(new Object[]{sequence, kmerSize});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "NonUniqueKmersData")
+    public void testDetermineNonUniqueKmersMatchesKmerScan(final String sequence, final int kmerSize) {
+        final byte[] bases = sequence.getBytes();
+        final List<Kmer> expected = new ArrayList<>();
+        final Set<Kmer> seen = new HashSet<>();
+        for ( int i = 0; i <= bases.length - kmerSize; i++ ) {
+            final Kmer kmer = new Kmer(bases, i, kmerSize);
+            if ( ! seen.add(kmer) ) {
+                expected.add(kmer);
+            }
+        }
+        final Collection<Kmer> actual = ReadThreadingGraph.determineNonUniqueKmers(
+                new ReadThreadingGraph.SequenceForKmers("test", bases, 0, bases.length, 1, false), kmerSize);
+        Assert.assertEquals(new ArrayList<>(actual), expected);
+    }
+
+    @DataProvider(name = "PredictedLowComplexityData")
+    public Object[][] makePredictedLowComplexityData() {
+        final String dinucleotideRepeat = "TGCACACACACACACACACACACAGT";
+        final String expandedDinucleotideRepeat = "TGCACACACACACACACACACACACACACAGT";
+        final String complex = "CATGCACTTTAAAACTTGCCTTTTTAACAAGACTTCCAGATG";
+        final String complexWithRepeat = "CATGCACTTTAAAACTTGCCCACACACACATTTTTAACAAGACTTCCAGATG";
+        return new Object[][] {
+                {dinucleotideRepeat, expandedDinucleotideRepeat, 3, true},
+                {dinucleotideRepeat, expandedDinucleotideRepeat, 5, true},
+                {complex, complex, 5, false},
+                {complex, complexWithRepeat, 3, true},
+                {complex, complexWithRepeat, 5, false},
+                {"ACGTACGTACGTACGTACGTACGT", "ACGTACGTACGTACGTACGTACGT", 4, true},
+                {"AAAAAAAAAAAAAAAAAAAAAAAAAAAAAT", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAT", 10, true},
+                {"AAAAAAAAAAAAAAAAAAAAAAAAAAAAAT", "GCAAAAAAAAAAAAAAAAAAAAAAAAAAAAATGC", 10, false}
+        };
+    }
+
+    @Test(dataProvider = "PredictedLowComplexityData")
+    public void testIsPredictedLowComplexity(final String ref, final String read, final int kmerSize, final boolean expected) {
+        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize);
+        graph.addSequence("ref", getBytes(ref), true);
+        graph.addSequence("read", getBytes(read), false);
+        Assert.assertEquals(graph.isPredictedLowComplexity(), expected);
+
+        // the prediction can only be true when the built graph is low complexity, and building it must not be affected
+        final ReadThreadingGraph unpredicted = new ReadThreadingGraph(kmerSize);
+        unpredicted.addSequence("ref", getBytes(ref), true);
+        unpredicted.addSequence("read", getBytes(read), false);
+        graph.buildGraphIfNecessary();
+        unpredicted.buildGraphIfNecessary();
+        Assert.assertEquals(graph.isLowComplexity(), unpredicted.isLowComplexity());
+        Assert.assertTrue(! expected || graph.isLowComplexity());
+        Assert.assertEquals(graph.getNonUniqueKmers(), unpredicted.getNonUniqueKmers());
+        Assert.assertEquals(graph.vertexSet().size(), unpredicted.vertexSet().size());
+        Assert.assertEquals(graph.edgeSet().size(), unpredicted.edgeSet().size());
+    }
+
+    @Test
+    public void testIsPredictedLowComplexityWithLowQualityPrefix() {
+        // the low quality prefix is not threaded, but its repeated kmers still count as non-unique in the built graph
+        final String lowQualityPrefix = "ACACACACA";
+        final String goodBases = "TGGATCCTTGAGC";
+        final byte[] bases = getBytes(lowQualityPrefix + goodBases);
+        final byte[] quals = Utils.dupBytes((byte) 30, bases.length);
+        Arrays.fill(quals, 0, lowQualityPrefix.length(), (byte) 5);
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, quals, bases.length + "M");
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+
+        final ReadThreadingGraph graph = new ReadThreadingGraph(5, false, (byte) 10, 1);
+        graph.addSequence("ref", getBytes(goodBases), true);
+        graph.addRead(read, header);
+        final boolean predicted = graph.isPredictedLowComplexity();
+        graph.buildGraphIfNecessary();
+
+        Assert.assertFalse(graph.isLowComplexity());
+        Assert.assertFalse(predicted);
+    }
+
     @Test(enabled = ! DEBUG)
     public void testReadsCreateNonUnique() {
         final ReadThreadingGraph assembler = new ReadThreadingGraph(3);
@@ -1,15 +1,108 @@
 package org.broadinstitute.hellbender.transformers;
 
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
+import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.recalibration.EventType;
 import org.broadinstitute.hellbender.utils.recalibration.RecalDatum;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationTables;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.CovariateKeyCache;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
 public final class BQSRReadTransformerUnitTest extends GATKBaseTest {
+    private static final String BQSR_RESOURCE_DIR = publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/";
+    private static final String RECAL_TABLE = BQSR_RESOURCE_DIR + "HiSeq.20mb.1RG.table.gz";
+    private static final String READS = BQSR_RESOURCE_DIR + "HiSeq.1mb.1RG.2k_lines.alternate.bam";
+
+    @DataProvider(name = "maxPrecomputedDeltas")
+    public Object[][] getMaxPrecomputedDeltas() {
+        // 0 looks up every covariate in its nested table instead of in the precomputed deltas
+        return new Object[][] { {BQSRReadTransformer.DEFAULT_MAX_PRECOMPUTED_DELTAS_PER_COVARIATE}, {0} };
+    }
+
+    @Test(dataProvider = "maxPrecomputedDeltas")
+    public void testRecalibratedQualitiesMatchHierarchicalBayesianQualityEstimate(final int maxPrecomputedDeltasPerCovariate) {
+        final ApplyBQSRArgumentCollection args = new ApplyBQSRArgumentCollection();
+        final RecalibrationReport report = new RecalibrationReport(new File(RECAL_TABLE));
+        try ( final ReadsDataSource reads = new ReadsDataSource(IOUtils.getPath(READS)) ) {
+            final SAMFileHeader header = reads.getHeader();
+            final BQSRReadTransformer transformer = new BQSRReadTransformer(header, report, args, maxPrecomputedDeltasPerCovariate);
+            int numReads = 0;
+            for ( final GATKRead read : reads ) {
+                final byte[] expectedQuals = recalibrateWithHierarchicalBayesianQualityEstimate(read.deepCopy(), header, report, args);
+                Assert.assertEquals(transformer.apply(read.deepCopy()).getBaseQualities(), expectedQuals, read.getName());
+                numReads++;
+            }
+            Assert.assertTrue(numReads > 0);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MalformedRead.class)
+    public void testQualityAboveRecalibrationTables() {
+        final RecalibrationReport report = new RecalibrationReport(new File(RECAL_TABLE));
+        try ( final ReadsDataSource reads = new ReadsDataSource(IOUtils.getPath(READS)) ) {
+            final BQSRReadTransformer transformer = new BQSRReadTransformer(reads.getHeader(), report, new ApplyBQSRArgumentCollection());
+            final GATKRead read = reads.iterator().next();
+            final byte[] quals = new byte[read.getLength()];
+            Arrays.fill(quals, (byte) (QualityUtils.MAX_SAM_QUAL_SCORE + 1));
+            read.setBaseQualities(quals);
+            transformer.apply(read);
+        }
+    }
+
+    /**
+     * Recalibrates the qualities of a read by looking up every base in the nested recalibration tables and evaluating
+     * {@link BQSRReadTransformer#hierarchicalBayesianQualityEstimate}, as ApplyBQSR did before the lookup tables.
+     */
+    private static byte[] recalibrateWithHierarchicalBayesianQualityEstimate(final GATKRead read, final SAMFileHeader header,
+                                                                             final RecalibrationReport report, final ApplyBQSRArgumentCollection args) {
+        final StandardCovariateList covariates = report.getCovariates();
+        final RecalibrationTables tables = report.getRecalibrationTables();
+        final int baseSubstitutionIndex = EventType.BASE_SUBSTITUTION.ordinal();
+        final int[][] keySets = RecalUtils.computeCovariates(read, header, covariates, false, new CovariateKeyCache()).getKeySet(EventType.BASE_SUBSTITUTION);
+        final byte[] quals = read.getBaseQualities();
+
+        final RecalDatum empiricalQualRG = tables.getReadGroupTable().get2Keys(keySets[0][0], baseSubstitutionIndex);
+        if ( empiricalQualRG == null ) {
+            return quals;
+        }
+        final double epsilon = args.globalQScorePrior > 0.0 ? args.globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+        final List<Byte> quantizedQuals = report.getQuantizationInfo().getQuantizedQuals();
+        final int specialCovariateCount = covariates.numberOfSpecialCovariates();
+
+        for ( int offset = 0; offset < quals.length; offset++ ) {
+            if ( quals[offset] < args.PRESERVE_QSCORES_LESS_THAN ) {
+                continue;
+            }
+            final int[] keySet = keySets[offset];
+            final RecalDatum empiricalQualQS = tables.getQualityScoreTable().get3Keys(keySet[0], keySet[1], baseSubstitutionIndex);
+            final RecalDatum[] empiricalQualCovs = new RecalDatum[covariates.size() - specialCovariateCount];
+            for ( int i = specialCovariateCount; i < covariates.size(); i++ ) {
+                if ( keySet[i] >= 0 ) {
+                    empiricalQualCovs[i - specialCovariateCount] = tables.getTable(i).get4Keys(keySet[0], keySet[1], keySet[i], baseSubstitutionIndex);
+                }
+            }
+            final double estimate = BQSRReadTransformer.hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovs);
+            quals[offset] = quantizedQuals.get(QualityUtils.boundQual(MathUtils.fastRound(estimate), RecalDatum.MAX_RECALIBRATED_Q_SCORE));
+        }
+        return quals;
+    }
+
     @Test
     public void basicHierarchicalBayesianQualityEstimateTest() {
 
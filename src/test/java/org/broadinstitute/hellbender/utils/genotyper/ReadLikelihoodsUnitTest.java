@@ -172,6 +172,49 @@ public final class ReadLikelihoodsUnitTest {
         }
     }
 
+    @Test(dataProvider = "dataSets")
+    public void testRemoveAndAddReadsReusesStorage(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
+        final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
+        fillWithRandomLikelihoods(samples, alleles, original);
+        final ReadLikelihoods<Allele> result = original.copy();
+        final SimpleInterval evenReadOverlap = new SimpleInterval(SAM_HEADER.getSequenceDictionary().getSequences().get(0).getSequenceName(), EVEN_READ_START, EVEN_READ_START);
+
+        final GATKRead[][] readArraysBeforeRemoval = result.readsBySampleIndex.clone();
+        result.filterToOnlyOverlappingUnclippedReads(evenReadOverlap);
+
+        // add back the odd reads that were removed, which must fit in the space they left behind
+        final Map<String,List<GATKRead>> removedReads = new LinkedHashMap<>();
+        for (int s = 0; s < samples.length; s++) {
+            Assert.assertSame(result.readsBySampleIndex[s], readArraysBeforeRemoval[s]);
+            final List<GATKRead> sampleRemovedReads = new ArrayList<>();
+            for (int r = 1; r < original.sampleReadCount(s); r += 2) {
+                sampleRemovedReads.add(original.sampleMatrix(s).getRead(r));
+            }
+            removedReads.put(samples[s], sampleRemovedReads);
+        }
+        result.addReads(removedReads, -1.0);
+
+        for (int s = 0; s < samples.length; s++) {
+            Assert.assertSame(result.readsBySampleIndex[s], readArraysBeforeRemoval[s]);
+            final int sampleReadCount = original.sampleReadCount(s);
+            final int evenReadCount = (sampleReadCount + 1) / 2;
+            Assert.assertEquals(result.sampleReadCount(s), sampleReadCount);
+            Assert.assertEquals(result.sampleReads(s).size(), sampleReadCount);
+            final LikelihoodMatrix<Allele> resultMatrix = result.sampleMatrix(s);
+            final LikelihoodMatrix<Allele> originalMatrix = original.sampleMatrix(s);
+            for (int r = 0; r < sampleReadCount; r++) {
+                // even reads were kept in their original order, followed by the re-added odd reads
+                final int originalReadIndex = r < evenReadCount ? r << 1 : ((r - evenReadCount) << 1) + 1;
+                final GATKRead read = originalMatrix.getRead(originalReadIndex);
+                Assert.assertSame(resultMatrix.getRead(r), read);
+                Assert.assertEquals(result.readIndex(s, read), r);
+                for (int a = 0; a < alleles.length; a++) {
+                    Assert.assertEquals(resultMatrix.get(a, r), r < evenReadCount ? originalMatrix.get(a, originalReadIndex) : -1.0);
+                }
+            }
+        }
+    }
+
     @Test(dataProvider = "dataSets")
     public void testFilterReadsToOverlap(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
         final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
@@ -0,0 +1,141 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.apache.commons.io.IOUtils;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+public final class ParallelBlockCompressedOutputStreamUnitTest extends GATKBaseTest {
+    private static final int BLOCK_SIZE = BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE;
+
+    // somewhat compressible data, so that the blocks aren't all stored uncompressed
+    private static byte[] makeData(final int length) {
+        final Random random = new Random(length);
+        final byte[] data = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            data[i] = (byte) "ACGT\t\n0123".charAt(random.nextInt(10));
+        }
+        return data;
+    }
+
+    private static byte[] decompress(final byte[] compressed) throws IOException {
+        try ( final BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(compressed)) ) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static void assertEndsWithEOFBlock(final byte[] compressed) {
+        final byte[] eof = BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK;
+        Assert.assertTrue(compressed.length >= eof.length);
+        Assert.assertEquals(Arrays.copyOfRange(compressed, compressed.length - eof.length, compressed.length), eof);
+    }
+
+    @DataProvider(name = "sizesAndThreads")
+    public Object[][] getSizesAndThreads() {
+        return new Object[][] {
+                {0, 1}, {1, 1}, {BLOCK_SIZE, 2}, {BLOCK_SIZE + 1, 2}, {20 * BLOCK_SIZE + 13, 1}, {20 * BLOCK_SIZE + 13, 4}
+        };
+    }
+
+    @Test(dataProvider = "sizesAndThreads")
+    public void testRoundTrip(final int size, final int numThreads) throws IOException {
+        final byte[] data = makeData(size);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( final OutputStream out = new ParallelBlockCompressedOutputStream(compressed, 5, numThreads) ) {
+            // uneven writes, so that they don't line up with the blocks
+            int offset = 0;
+            for ( int length = 1; offset < size; length = length * 3 + 1 ) {
+                final int toWrite = Math.min(length, size - offset);
+                out.write(data, offset, toWrite);
+                offset += toWrite;
+            }
+        }
+
+        Assert.assertEquals(decompress(compressed.toByteArray()), data);
+        assertEndsWithEOFBlock(compressed.toByteArray());
+    }
+
+    @Test
+    public void testFlushWritesCompleteBlocks() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        final byte[] data = makeData(100);
+        try ( final OutputStream out = new ParallelBlockCompressedOutputStream(compressed, 5, 2) ) {
+            out.write(data);
+            out.flush();
+            // the data written so far can be decompressed even though the stream isn't closed yet
+            Assert.assertEquals(decompress(compressed.toByteArray()), data);
+        }
+    }
+
+    @Test
+    public void testFileReadableByHtsjdk() throws IOException {
+        final byte[] data = makeData(5 * BLOCK_SIZE + 3);
+        final File file = createTempFile("testFileReadableByHtsjdk", ".gz");
+        try ( final OutputStream out = new ParallelBlockCompressedOutputStream(new FileOutputStream(file), 9, 3) ) {
+            out.write(data);
+        }
+        Assert.assertEquals(BlockCompressedInputStream.checkTermination(file), BlockCompressedInputStream.FileTermination.HAS_TERMINATOR_BLOCK);
+        try ( final BlockCompressedInputStream in = new BlockCompressedInputStream(file) ) {
+            Assert.assertEquals(IOUtils.toByteArray(in), data);
+        }
+    }
+
+    @Test
+    public void testRecompressUncompressedBlocks() throws IOException {
+        final byte[] data = makeData(7 * BLOCK_SIZE + 5);
+        final ByteArrayOutputStream recompressed = new ByteArrayOutputStream();
+        final OutputStream inflating = new BlockCompressedInflatingOutputStream(new ParallelBlockCompressedOutputStream(recompressed, 5, 2));
+        try ( final BlockCompressedOutputStream uncompressedBlocks = new BlockCompressedOutputStream(inflating, null, 0) ) {
+            uncompressedBlocks.write(data);
+        }
+
+        final byte[] compressed = recompressed.toByteArray();
+        Assert.assertEquals(decompress(compressed), data);
+        assertEndsWithEOFBlock(compressed);
+        // the uncompressed blocks were compressed again
+        Assert.assertTrue(compressed.length < data.length);
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testInflatingNonBGZFData() throws IOException {
+        try ( final OutputStream out = new BlockCompressedInflatingOutputStream(new ByteArrayOutputStream()) ) {
+            out.write(makeData(1000));
+        }
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testInflatingIncompleteBlock() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( final OutputStream out = new ParallelBlockCompressedOutputStream(compressed, 5, 1) ) {
+            out.write(makeData(1000));
+        }
+        final byte[] truncated = Arrays.copyOf(compressed.toByteArray(), 100);
+        try ( final OutputStream out = new BlockCompressedInflatingOutputStream(new ByteArrayOutputStream()) ) {
+            out.write(truncated);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidCompressionLevel() {
+        new ParallelBlockCompressedOutputStream(new ByteArrayOutputStream(), 10, 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoThreads() {
+        new ParallelBlockCompressedOutputStream(new ByteArrayOutputStream(), 5, 0);
+    }
+}
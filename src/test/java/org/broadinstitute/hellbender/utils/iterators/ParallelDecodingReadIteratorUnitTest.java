@@ -0,0 +1,147 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class ParallelDecodingReadIteratorUnitTest extends GATKBaseTest {
+
+    private static List<SAMRecord> makeRecords(final int numRecords) {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final List<SAMRecord> records = new ArrayList<>(numRecords);
+        for ( int i = 0; i < numRecords; i++ ) {
+            records.add(ArtificialReadUtils.createArtificialSAMRecord(header, "read" + i, 0, i + 1, 10));
+        }
+        return records;
+    }
+
+    @DataProvider(name = "numRecordsAndThreads")
+    public Object[][] getNumRecordsAndThreads() {
+        final int batch = ParallelDecodingReadIterator.READS_PER_BATCH;
+        return new Object[][] {
+                {0, 1}, {1, 1}, {batch, 2}, {batch + 1, 2}, {10 * batch + 7, 1}, {10 * batch + 7, 4}
+        };
+    }
+
+    @Test(dataProvider = "numRecordsAndThreads")
+    public void testReadsInOrder(final int numRecords, final int numThreads) {
+        final List<SAMRecord> records = makeRecords(numRecords);
+        try ( final ParallelDecodingReadIterator iterator = new ParallelDecodingReadIterator(records.iterator(), numThreads) ) {
+            for ( final SAMRecord record : records ) {
+                Assert.assertTrue(iterator.hasNext());
+                final GATKRead read = iterator.next();
+                Assert.assertEquals(read.getName(), record.getReadName());
+                Assert.assertEquals(read.getStart(), record.getAlignmentStart());
+            }
+            Assert.assertFalse(iterator.hasNext());
+            Assert.assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void testNextAfterLastRead() {
+        try ( final ParallelDecodingReadIterator iterator = new ParallelDecodingReadIterator(makeRecords(1).iterator(), 2) ) {
+            iterator.next();
+            iterator.next();
+        }
+    }
+
+    @Test
+    public void testCloseBeforeEnd() {
+        final List<SAMRecord> records = makeRecords(50 * ParallelDecodingReadIterator.READS_PER_BATCH);
+        final ParallelDecodingReadIterator iterator = new ParallelDecodingReadIterator(records.iterator(), 2);
+        Assert.assertEquals(iterator.next().getName(), "read0");
+        // must not block, even though the background threads are waiting for the consumer to take more reads
+        iterator.close();
+        iterator.close();
+    }
+
+    @Test
+    public void testCloseDoesNotInterruptReader() {
+        final Iterator<SAMRecord> records = makeRecords(50 * ParallelDecodingReadIterator.READS_PER_BATCH).iterator();
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        final Iterator<SAMRecord> interruptCheckingIterator = new Iterator<SAMRecord>() {
+            @Override
+            public boolean hasNext() {
+                // an interrupt would close the NIO channel of a real reader
+                if ( Thread.currentThread().isInterrupted() ) {
+                    interrupted.set(true);
+                }
+                return records.hasNext();
+            }
+
+            @Override
+            public SAMRecord next() {
+                return records.next();
+            }
+        };
+
+        final ParallelDecodingReadIterator iterator = new ParallelDecodingReadIterator(interruptCheckingIterator, 2);
+        iterator.next();
+        iterator.close();
+        Assert.assertFalse(interrupted.get());
+    }
+
+    @Test
+    public void testSharedThreads() {
+        final List<SAMRecord> records = makeRecords(3 * ParallelDecodingReadIterator.READS_PER_BATCH + 1);
+        try ( final ParallelDecodingReadIterator.DecodingThreads threads = new ParallelDecodingReadIterator.DecodingThreads(2) ) {
+            // abandon an iteration, then make sure that the threads are still usable by the next ones
+            final ParallelDecodingReadIterator abandoned = new ParallelDecodingReadIterator(records.iterator(), threads);
+            Assert.assertEquals(abandoned.next().getName(), "read0");
+            abandoned.close();
+
+            for ( int i = 0; i < 2; i++ ) {
+                try ( final ParallelDecodingReadIterator iterator = new ParallelDecodingReadIterator(records.iterator(), threads) ) {
+                    int numReads = 0;
+                    while ( iterator.hasNext() ) {
+                        Assert.assertEquals(iterator.next().getName(), records.get(numReads++).getReadName());
+                    }
+                    Assert.assertEquals(numReads, records.size());
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testErrorFromWrappedIteratorIsRethrown() {
+        final Iterator<SAMRecord> records = makeRecords(ParallelDecodingReadIterator.READS_PER_BATCH + 1).iterator();
+        final Iterator<SAMRecord> failingIterator = new Iterator<SAMRecord>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public SAMRecord next() {
+                if ( ! records.hasNext() ) {
+                    throw new UserException("Malformed read");
+                }
+                return records.next();
+            }
+        };
+
+        try ( final ParallelDecodingReadIterator iterator = new ParallelDecodingReadIterator(failingIterator, 2) ) {
+            while ( iterator.hasNext() ) {
+                iterator.next();
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoThreads() {
+        new ParallelDecodingReadIterator(makeRecords(1).iterator(), 0);
+    }
+}
@@ -9,11 +9,13 @@ import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.DownsampleType;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
+import org.broadinstitute.hellbender.utils.pileup.PileupColumns;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -193,6 +195,71 @@ public final class LocusIteratorByStateUnitTest extends LocusIteratorByStateBase
          Assert.assertTrue(foundIndel,"Indel in pileup not found");
     }
 
+    @Test
+    public void testColumnarPileupsMatchPileupElements() {
+        final List<GATKRead> reads = new ArrayList<>();
+        final String[] cigars = {"10M", "4M2I4M", "3M2D7M", "2S8M", "5M1D5M"};
+        for ( int i = 0; i < cigars.length; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 1 + i, Utils.dupBytes((byte) 'A', 10), Utils.dupBytes((byte) 20, 10), cigars[i]);
+            final byte[] bases = read.getBases();
+            bases[i] = 'C';
+            read.setBases(bases);
+            final byte[] quals = read.getBaseQualities();
+            quals[9 - i] = 30;
+            read.setBaseQualities(quals);
+            read.setMappingQuality(10 * i);
+            read.setIsReverseStrand(i % 2 == 1);
+            reads.add(read);
+        }
+
+        final LocusIteratorByState li = makeLIBS(new ArrayList<>(reads), header);
+        reads.sort(new ReadCoordinateComparator(header));
+        final LocusIteratorByState columnarLi = new LocusIteratorByState(new FakeCloseableIterator<>(reads.iterator()),
+                LocusIteratorByState.NO_DOWNSAMPLING, false, sampleListForSAMWithoutReadGroups(), header, true, false, true);
+
+        PileupColumns previousColumns = null;
+        int nLoci = 0;
+        while ( li.hasNext() ) {
+            Assert.assertTrue(columnarLi.hasNext());
+            final AlignmentContext context = li.next();
+            final AlignmentContext columnarContext = columnarLi.next();
+            final PileupColumns columns = columnarContext.getPileupColumns();
+            if ( previousColumns != null ) {
+                Assert.assertSame(columns, previousColumns, "released pileup storage should be reused");
+            }
+
+            Assert.assertEquals(columnarContext.getLocation(), context.getLocation());
+            Assert.assertEquals(columns.size(), context.size());
+            Assert.assertEquals(columns.getBaseCounts(), context.getBasePileup().getBaseCounts());
+            final List<PileupElement> elements = new ArrayList<>();
+            context.getBasePileup().forEach(elements::add);
+            final List<PileupElement> viewElements = new ArrayList<>();
+            columnarContext.getBasePileup().forEach(viewElements::add);
+            for ( int i = 0; i < columns.size(); i++ ) {
+                final PileupElement expected = elements.get(i);
+                Assert.assertSame(columns.getRead(i), expected.getRead());
+                Assert.assertEquals(columns.getOffset(i), expected.getOffset());
+                Assert.assertEquals(columns.getBase(i), expected.getBase());
+                Assert.assertEquals(columns.getQual(i), expected.getQual());
+                Assert.assertEquals(columns.isDeletion(i), expected.isDeletion());
+                Assert.assertEquals(columns.getMappingQual(i), expected.getMappingQual());
+                Assert.assertEquals(columns.isReverseStrand(i), expected.getRead().isReverseStrand());
+
+                final PileupElement actual = viewElements.get(i);
+                Assert.assertSame(columns.getPileupElement(i), actual, "pileup elements should only be created once");
+                Assert.assertEquals(actual.getCurrentCigarElement(), expected.getCurrentCigarElement());
+                Assert.assertEquals(actual.getCurrentCigarOffset(), expected.getCurrentCigarOffset());
+                Assert.assertEquals(actual.getOffsetInCurrentCigar(), expected.getOffsetInCurrentCigar());
+            }
+
+            columnarContext.release();
+            previousColumns = columns;
+            nLoci++;
+        }
+        Assert.assertFalse(columnarLi.hasNext());
+        Assert.assertEquals(nLoci, 15);
+    }
+
     /**
      * Test to make sure that reads supporting only an indel (example cigar string: 76I) do
      * not negatively influence the ordering of the pileup.
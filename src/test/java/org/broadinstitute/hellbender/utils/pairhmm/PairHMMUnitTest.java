@@ -5,10 +5,16 @@ import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.SampleList;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
@@ -532,6 +538,115 @@ public final class PairHMMUnitTest extends GATKBaseTest {
 
     }
 
+    @DataProvider(name = "NewHMMProvider")
+    public Object[][] makeNewHMMProvider() {
+        // new instances, so that state left behind by these tests can't affect the tests sharing the HMMs above
+        return new Object[][] { {new Log10PairHMM(true)}, {new Log10PairHMM(false)}, {new LoglessPairHMM()} };
+    }
+
+    @Test(dataProvider = "NewHMMProvider")
+    public void testBatchedLikelihoodsMatchPerMatrixLikelihoods(final PairHMM hmm) {
+        final List<Haplotype> haplotypes = Arrays.asList(
+                new Haplotype("ACGTGTCAAACCGGGTTACGT".getBytes(), true),
+                new Haplotype("ACGTGTCACACTGGGTTACGT".getBytes(), false),
+                new Haplotype("ACGTGTCACTCCGCGTTACGT".getBytes(), false));
+        final Map<String, List<GATKRead>> readsBySample = new LinkedHashMap<>();
+        readsBySample.put("sample1", Arrays.asList(
+                ArtificialReadUtils.createArtificialRead("GTCACACTGGATT".getBytes(), Utils.dupBytes((byte) 30, 13), "13M"),
+                ArtificialReadUtils.createArtificialRead("ACGTGTCAAACCG".getBytes(), Utils.dupBytes((byte) 25, 13), "13M")));
+        readsBySample.put("sample2", Collections.emptyList());
+        readsBySample.put("sample3", Arrays.asList(
+                ArtificialReadUtils.createArtificialRead("CACTCCGCGTTAC".getBytes(), Utils.dupBytes((byte) 20, 13), "13M")));
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        readsBySample.values().forEach(reads -> gcps.putAll(buildGapContinuationPenalties(reads, (byte) 10)));
+
+        final SampleList samples = new IndexedSampleList(readsBySample.keySet());
+        final AlleleList<Haplotype> alleles = new IndexedAlleleList<>(haplotypes);
+        final ReadLikelihoods<Haplotype> batched = new ReadLikelihoods<>(samples, alleles, readsBySample);
+        final ReadLikelihoods<Haplotype> unbatched = new ReadLikelihoods<>(samples, alleles, readsBySample);
+
+        final List<LikelihoodMatrix<Haplotype>> batchedMatrices = new ArrayList<>();
+        final List<List<GATKRead>> batchedReads = new ArrayList<>();
+        for ( int s = 0; s < samples.numberOfSamples(); s++ ) {
+            batchedMatrices.add(batched.sampleMatrix(s));
+            batchedReads.add(readsBySample.get(samples.getSample(s)));
+        }
+        hmm.initialize(haplotypes, readsBySample, 13, 21);
+        hmm.batchComputeLog10Likelihoods(batchedMatrices, batchedReads, gcps);
+
+        for ( int s = 0; s < samples.numberOfSamples(); s++ ) {
+            hmm.computeLog10Likelihoods(unbatched.sampleMatrix(s), readsBySample.get(samples.getSample(s)), gcps);
+        }
+
+        for ( int s = 0; s < samples.numberOfSamples(); s++ ) {
+            final LikelihoodMatrix<Haplotype> expected = unbatched.sampleMatrix(s);
+            final LikelihoodMatrix<Haplotype> actual = batched.sampleMatrix(s);
+            for ( int r = 0; r < expected.numberOfReads(); r++ ) {
+                for ( int a = 0; a < expected.numberOfAlleles(); a++ ) {
+                    Assert.assertEquals(actual.get(a, r), expected.get(a, r));
+                }
+            }
+        }
+    }
+
+    @Test(dataProvider = "NewHMMProvider")
+    public void testPrefixSharingLikelihoodsMatchIndependentLikelihoods(final PairHMM hmm) {
+        // haplotypes of mixed lengths in an order that keeps related ones apart, so the prefix trie has to reorder them
+        final Random random = new Random(13);
+        final String root = "GATTTATCATCGAGTCTGCACGTAATGACGATTGCACATGG";
+        final List<Haplotype> haplotypes = new ArrayList<>();
+        for ( int i = 0; i < 12; i++ ) {
+            final byte[] bases = (root + (i % 3 == 0 ? "TTA" : "")).getBytes();
+            final int numMutations = 1 + random.nextInt(3);
+            for ( int m = 0; m < numMutations; m++ ) {
+                bases[random.nextInt(bases.length)] = BaseUtils.baseIndexToSimpleBase(random.nextInt(4));
+            }
+            haplotypes.add(new Haplotype(bases, i == 0));
+        }
+        haplotypes.add(new Haplotype(haplotypes.get(5).getBases(), false));
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int r = 0; r < 5; r++ ) {
+            final int start = random.nextInt(root.length() - 20);
+            final byte[] readBases = root.substring(start, start + 15 + r).getBytes();
+            reads.add(ArtificialReadUtils.createArtificialRead(readBases, Utils.dupBytes((byte) (20 + r), readBases.length), readBases.length + "M"));
+        }
+        final Map<GATKRead, byte[]> gcps = buildGapContinuationPenalties(reads, (byte) 10);
+
+        hmm.initialize(20, root.length() + 3);
+        hmm.computeLog10Likelihoods(matrix(haplotypes), reads, gcps);
+        final double[] actual = hmm.getLogLikelihoodArray();
+
+        for ( int r = 0; r < reads.size(); r++ ) {
+            final GATKRead read = reads.get(r);
+            for ( int a = 0; a < haplotypes.size(); a++ ) {
+                final double expected = hmm.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(a).getBases(),
+                        read.getBases(), read.getBaseQualities(), ReadUtils.getBaseInsertionQualities(read),
+                        ReadUtils.getBaseDeletionQualities(read), gcps.get(read), true, null);
+                Assert.assertEquals(actual[r * haplotypes.size() + a], expected, "read " + r + " haplotype " + a);
+            }
+        }
+    }
+
+    @Test
+    public void testHaplotypePrefixTrieOrder() {
+        final List<Haplotype> haplotypes = Arrays.asList(
+                new Haplotype("ACGTTA".getBytes(), true),
+                new Haplotype("ACGAAAA".getBytes(), false),
+                new Haplotype("ACGTAA".getBytes(), false),
+                new Haplotype("TCGTTA".getBytes(), false),
+                new Haplotype("ACGTAT".getBytes(), false));
+        final HaplotypePrefixTrie trie = new HaplotypePrefixTrie(haplotypes);
+
+        Assert.assertEquals(trie.size(), haplotypes.size());
+        final int[] expectedOrder = {2, 4, 0, 3, 1};
+        final int[] expectedSharedPrefixLengths = {0, 5, 4, 0, 0};
+        for ( int k = 0; k < trie.size(); k++ ) {
+            Assert.assertEquals(trie.haplotypeIndex(k), expectedOrder[k]);
+            Assert.assertEquals(trie.sharedPrefixLength(k), expectedSharedPrefixLengths[k]);
+        }
+    }
+
     private LikelihoodMatrix<Haplotype> matrix(final List<Haplotype> haplotypes) {
         return new LikelihoodMatrix<Haplotype>() {
             @Override
@@ -0,0 +1,100 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public final class FlatRecalibrationTableUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "dimensions")
+    public Object[][] makeDimensions() {
+        return new Object[][] {
+                {new int[]{3, 94, 3}},
+                {new int[]{2, 94, 1_048_576, 3}},
+        };
+    }
+
+    @Test(dataProvider = "dimensions")
+    public void testMatchesNestedIntegerArray(final int[] dimensions) {
+        final Random random = new Random(13);
+        final NestedIntegerArray<RecalDatum> expected = new NestedIntegerArray<>(dimensions);
+        final FlatRecalibrationTable flat = new FlatRecalibrationTable(dimensions);
+
+        // few distinct keys so that combinations are observed several times, and enough of them to grow the arrays
+        for ( int i = 0; i < 50_000; i++ ) {
+            final int key0 = random.nextInt(dimensions[0]);
+            final int key1 = random.nextInt(5) * 7;
+            final int key2 = random.nextInt(dimensions.length == 3 ? dimensions[2] : 600);
+            final byte qual = (byte) key1;
+            // fractional errors, as when BAQ spreads errors over blocks of bases
+            final double isError = random.nextInt(4) == 0 ? random.nextInt(3) / 3.0 : 0.0;
+            if ( dimensions.length == 3 ) {
+                RecalUtils.incrementDatumOrPutIfNecessary3keys(expected, qual, isError, key0, key1, key2);
+                flat.increment3keys(qual, isError, key0, key1, key2);
+            } else {
+                final int key3 = random.nextInt(dimensions[3]);
+                RecalUtils.incrementDatumOrPutIfNecessary4keys(expected, qual, isError, key0, key1, key2, key3);
+                flat.increment4keys(qual, isError, key0, key1, key2, key3);
+            }
+        }
+
+        final NestedIntegerArray<RecalDatum> actual = new NestedIntegerArray<>(dimensions);
+        flat.addTo(actual);
+
+        final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = expected.getAllLeaves();
+        Assert.assertEquals(flat.size(), expectedLeaves.size());
+        Assert.assertEquals(actual.getAllLeaves().size(), expectedLeaves.size());
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : expectedLeaves ) {
+            assertDatumsEqual(actual.get(leaf.keys), leaf.value);
+        }
+    }
+
+    @Test
+    public void testAddToCombinesAndClear() {
+        final int[] dimensions = {2, 94, 3};
+        final NestedIntegerArray<RecalDatum> expected = new NestedIntegerArray<>(dimensions);
+        final NestedIntegerArray<RecalDatum> actual = new NestedIntegerArray<>(dimensions);
+        final FlatRecalibrationTable flat = new FlatRecalibrationTable(dimensions);
+
+        RecalUtils.incrementDatumOrPutIfNecessary3keys(expected, (byte) 30, 1.0, 1, 30, 0);
+        flat.increment3keys((byte) 30, 1.0, 1, 30, 0);
+        flat.addTo(actual);
+        flat.clear();
+        Assert.assertEquals(flat.size(), 0);
+
+        // data added after clearing is combined with the data already in the table
+        final NestedIntegerArray<RecalDatum> other = new NestedIntegerArray<>(dimensions);
+        RecalUtils.incrementDatumOrPutIfNecessary3keys(other, (byte) 30, 0.0, 1, 30, 0);
+        RecalUtils.incrementDatumOrPutIfNecessary3keys(other, (byte) 30, 0.0, 1, 30, 0);
+        RecalUtils.combineTables(expected, other);
+        flat.increment3keys((byte) 30, 0.0, 1, 30, 0);
+        flat.increment3keys((byte) 30, 0.0, 1, 30, 0);
+        flat.addTo(actual);
+
+        Assert.assertEquals(actual.getAllLeaves().size(), 1);
+        assertDatumsEqual(actual.get(1, 30, 0), expected.get(1, 30, 0));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAddToTableWithDifferentDimensions() {
+        new FlatRecalibrationTable(2, 94, 3).addTo(new NestedIntegerArray<>(2, 94, 4));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedNumberOfDimensions() {
+        new FlatRecalibrationTable(2, 3);
+    }
+
+    private static void assertDatumsEqual(final RecalDatum actual, final RecalDatum expected) {
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(actual.getNumObservations(), expected.getNumObservations());
+        // exact comparisons: the flat table must accumulate the mismatches exactly like RecalDatum
+        Assert.assertEquals(Double.compare(actual.getNumMismatches(), expected.getNumMismatches()), 0);
+        Assert.assertEquals(Double.compare(actual.getEstimatedQReported(), expected.getEstimatedQReported()), 0);
+    }
+}
@@ -46,6 +46,51 @@ public final class ContextCovariateUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testContextsOfReadsWithDifferentLengths() {
+        final Random rnd = Utils.getRandomGenerator();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+
+        // the buffers used to compute the contexts are reused between reads, so mix long and short reads,
+        // strands, Ns and low quality tails
+        for (final int length : new int[]{500, 3, 150, 1, 20, 501, 2, 76}) {
+            final GATKRead read = ArtificialReadUtils.createRandomRead(header, length, true);
+            read.setIsReverseStrand(rnd.nextBoolean());
+            final ReadCovariates readCovariates = new ReadCovariates(read.getLength(), 1, new CovariateKeyCache());
+            covariate.recordValues(read, header, readCovariates, true);
+
+            if (getStrandedClippedBytes(read, RAC.LOW_QUAL_TAIL).length == 0) {
+                verifyZeroedCovariateArrays(readCovariates);
+            } else {
+                verifyCovariateArray(readCovariates.getMismatchesKeySet(), RAC.MISMATCHES_CONTEXT_SIZE, read, covariate, RAC.LOW_QUAL_TAIL);
+                verifyCovariateArray(readCovariates.getInsertionsKeySet(), RAC.INDELS_CONTEXT_SIZE, read, covariate, RAC.LOW_QUAL_TAIL);
+                verifyCovariateArray(readCovariates.getDeletionsKeySet(), RAC.INDELS_CONTEXT_SIZE, read, covariate, RAC.LOW_QUAL_TAIL);
+            }
+        }
+    }
+
+    @Test
+    public void testEntirelyLowQualityReadOverwritesPreviousValues() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final ReadCovariates readCovariates = new ReadCovariates(5, 1, new CovariateKeyCache());
+
+        final GATKRead goodRead = ArtificialReadUtils.createArtificialRead("ACGTA".getBytes(), new byte[]{30, 30, 30, 30, 30}, "5M");
+        covariate.recordValues(goodRead, header, readCovariates, true);
+        Assert.assertEquals(covariate.formatKey(readCovariates.getMismatchesKeySet()[4][0]), "TA");
+
+        final GATKRead lowQualityRead = ArtificialReadUtils.createArtificialRead("ACGTA".getBytes(), new byte[]{2, 2, 2, 2, 2}, "5M");
+        covariate.recordValues(lowQualityRead, header, readCovariates, true);
+        verifyZeroedCovariateArrays(readCovariates);
+    }
+
+    private static void verifyZeroedCovariateArrays(final ReadCovariates readCovariates) {
+        for (final int[][] keySet : new int[][][]{readCovariates.getMismatchesKeySet(), readCovariates.getInsertionsKeySet(), readCovariates.getDeletionsKeySet()}) {
+            for (int i = 0; i < keySet.length; i++) {
+                Assert.assertEquals(keySet[i][0], 0, "offset " + i);
+            }
+        }
+    }
+
     public static void verifyCovariateArray(int[][] values, int contextSize, GATKRead read, Covariate contextCovariate, final byte lowQualTail) {
         for (int i = 0; i < values.length; i++) {
             Assert.assertEquals(contextCovariate.formatKey(values[i][0]), expectedContext(read, i, contextSize, lowQualTail), "offset " + i);
@@ -0,0 +1,84 @@
+package org.broadinstitute.hellbender.utils.recalibration.covariates;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to measure the time and the allocations taken to compute the standard BQSR covariates of a read, which is
+ * done for every read by BaseRecalibrator and ApplyBQSR.
+ * This test is disabled by default because it only prints timing information.
+ */
+public final class CovariateComputationSpeedUnitTest extends GATKBaseTest {
+
+    private static final String READ_GROUP = "rg";
+    private static final int NUM_READS = 1000;
+    private static final int READ_LENGTH = 151;
+    private static final int NUM_WARMUP_ITERATIONS = 200;
+    private static final int NUM_ITERATIONS = 1000;
+
+    private static final double MS_TO_NS = 1000000.0;
+
+    @Test(enabled = false)
+    public void timeComputeCovariates() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithReadGroup(new SAMReadGroupRecord(READ_GROUP));
+        final RecalibrationArgumentCollection rac = new RecalibrationArgumentCollection();
+        final StandardCovariateList covariates = new StandardCovariateList(rac, header);
+
+        final List<GATKRead> reads = new ArrayList<>(NUM_READS);
+        for ( int i = 0; i < NUM_READS; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createRandomRead(header, READ_LENGTH, true);
+            read.setReadGroup(READ_GROUP);
+            read.setIsReverseStrand(i % 2 == 0);
+            reads.add(read);
+        }
+
+        final CovariateKeyCache keyCache = new CovariateKeyCache();
+        runIterations(reads, header, covariates, keyCache, NUM_WARMUP_ITERATIONS);
+
+        final long allocatedBefore = getAllocatedBytes();
+        final long start = System.nanoTime();
+        runIterations(reads, header, covariates, keyCache, NUM_ITERATIONS);
+        final long elapsed_ns = System.nanoTime() - start;
+        final long allocated = getAllocatedBytes() - allocatedBefore;
+
+        final long numReads = (long) NUM_READS * NUM_ITERATIONS;
+        System.out.println("================================================================================");
+        System.out.println("Covariates of " + numReads + " reads of length " + READ_LENGTH + ":");
+        System.out.println("\tTotal Time:\t" + elapsed_ns + "ns\t" + elapsed_ns / MS_TO_NS + "ms\tPer Read:\t" + (double) elapsed_ns / numReads + "ns");
+        if ( allocated >= 0 ) {
+            System.out.println("\tAllocated:\t" + allocated + " bytes\tPer Read:\t" + (double) allocated / numReads + " bytes");
+        }
+        System.out.println("================================================================================");
+    }
+
+    private static void runIterations(final List<GATKRead> reads, final SAMFileHeader header, final StandardCovariateList covariates,
+                                      final CovariateKeyCache keyCache, final int numIterations) {
+        for ( int i = 0; i < numIterations; i++ ) {
+            for ( final GATKRead read : reads ) {
+                RecalUtils.computeCovariates(read, header, covariates, true, keyCache);
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes allocated so far by the current thread, or -1 if the JVM can't tell
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if ( bean instanceof com.sun.management.ThreadMXBean ) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
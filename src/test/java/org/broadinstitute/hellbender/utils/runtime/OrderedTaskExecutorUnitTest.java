@@ -0,0 +1,110 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class OrderedTaskExecutorUnitTest extends BaseTest {
+
+    @DataProvider(name = "threadCounts")
+    public Object[][] threadCounts() {
+        return new Object[][] { {1, 1}, {1, 4}, {4, 4}, {4, 16} };
+    }
+
+    @Test(dataProvider = "threadCounts")
+    public void testResultsAreConsumedInSubmissionOrder(final int numThreads, final int maxPendingTasks) {
+        final int numTasks = 200;
+        final Random random = new Random(17);
+        final List<Integer> results = new ArrayList<>();
+
+        try ( final OrderedTaskExecutor<Integer> executor = new OrderedTaskExecutor<>(numThreads, maxPendingTasks, "test-%d", results::add) ) {
+            for ( int i = 0; i < numTasks; i++ ) {
+                final int taskId = i;
+                final long sleepMillis = random.nextInt(3);
+                executor.submit(() -> {
+                    Thread.sleep(sleepMillis);
+                    return taskId;
+                });
+                Assert.assertTrue(executor.numPendingTasks() <= maxPendingTasks);
+            }
+            executor.drain();
+            Assert.assertEquals(executor.numPendingTasks(), 0);
+        }
+
+        Assert.assertEquals(results.size(), numTasks);
+        for ( int i = 0; i < numTasks; i++ ) {
+            Assert.assertEquals(results.get(i).intValue(), i);
+        }
+    }
+
+    @Test
+    public void testResultsAreNotConsumedBeforeEarlierTasksComplete() throws InterruptedException {
+        final List<String> results = new ArrayList<>();
+        final CountDownLatch releaseFirstTask = new CountDownLatch(1);
+
+        try ( final OrderedTaskExecutor<String> executor = new OrderedTaskExecutor<>(2, 4, "test-%d", results::add) ) {
+            executor.submit(() -> {
+                releaseFirstTask.await();
+                return "first";
+            });
+            executor.submit(() -> "second");
+            Thread.sleep(100);
+            executor.submit(() -> "third");
+
+            // the second task has certainly completed by now, but must be held back until the first one completes
+            Assert.assertTrue(results.isEmpty());
+
+            releaseFirstTask.countDown();
+            executor.drain();
+        }
+
+        Assert.assertEquals(results, Arrays.asList("first", "second", "third"));
+    }
+
+    @Test
+    public void testSharedPool() throws InterruptedException {
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for ( int i = 0; i < 3; i++ ) {
+                final List<Integer> results = new ArrayList<>();
+                try ( final OrderedTaskExecutor<Integer> executor = new OrderedTaskExecutor<>(pool, 4, results::add) ) {
+                    for ( int task = 0; task < 10; task++ ) {
+                        final int value = task;
+                        executor.submit(() -> value);
+                    }
+                    executor.drain();
+                }
+                Assert.assertEquals(results, Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+            }
+            // closing the executors must leave the shared pool running
+            Assert.assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testUncheckedExceptionFromTaskIsRethrown() {
+        try ( final OrderedTaskExecutor<Integer> executor = new OrderedTaskExecutor<>(2, 2, "test-%d", result -> {}) ) {
+            executor.submit(() -> { throw new UserException("bad input"); });
+            executor.drain();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMaxPendingTasksMustBeAtLeastNumThreads() {
+        new OrderedTaskExecutor<Integer>(4, 2, "test-%d", result -> {});
+    }
+}
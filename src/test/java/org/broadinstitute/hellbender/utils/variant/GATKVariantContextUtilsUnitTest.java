@@ -1653,6 +1653,47 @@ public final class GATKVariantContextUtilsUnitTest extends GATKBaseTest {
         verifyFileType(outputFile, outputExtension);
     }
 
+    @Test
+    public void testCreateVCFWriterWithCompressionThreads() throws IOException {
+        final File inputVCF = new File(publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/dbsnp_138.b37.excluding_sites_after_129.ch20.1m-1m1k.vcf");
+        final VCFHeader header;
+        try (final FeatureReader<VariantContext> reader = AbstractFeatureReader.getFeatureReader(inputVCF.getAbsolutePath(), new VCFCodec(), false)) {
+            header = (VCFHeader) reader.getHeader();
+        }
+
+        // enough variants for many BGZF blocks
+        final List<VariantContext> variants = new ArrayList<>();
+        for (int start = 1_000_000; start < 1_050_000; start += 2) {
+            variants.add(new VariantContextBuilder("test", "20", start, start, Arrays.asList(Aref, T)).id("rs" + start).make());
+        }
+
+        final File outputFile = new File(createTempDir("createVCFWithCompressionThreads"), "output.vcf.gz");
+        try (final VariantContextWriter writer = GATKVariantContextUtils.createVCFWriter(
+                outputFile, header.getSequenceDictionary(), true, 3, Options.INDEX_ON_THE_FLY)) {
+            writer.writeHeader(header);
+            variants.forEach(writer::add);
+        }
+
+        Assert.assertTrue(new File(outputFile.getAbsolutePath() + TabixUtils.STANDARD_INDEX_EXTENSION).exists(), "no tabix index");
+        Assert.assertEquals(
+                new String(java.nio.file.Files.readAllBytes(new File(outputFile.getAbsolutePath() + ".md5").toPath())),
+                Utils.calculateFileMD5(outputFile));
+
+        try (final FeatureReader<VariantContext> reader = AbstractFeatureReader.getFeatureReader(outputFile.getAbsolutePath(), new VCFCodec(), true)) {
+            final List<VariantContext> actual = new ArrayList<>();
+            reader.iterator().forEachRemaining(actual::add);
+            Assert.assertEquals(actual.size(), variants.size());
+            for (int i = 0; i < variants.size(); i++) {
+                VariantContextTestUtils.assertVariantContextsAreEqual(actual.get(i), variants.get(i), Collections.emptyList());
+            }
+
+            final List<VariantContext> queried = new ArrayList<>();
+            reader.query("20", 1_030_001, 1_030_010).forEachRemaining(queried::add);
+            Assert.assertEquals(queried.stream().map(VariantContext::getStart).collect(Collectors.toList()),
+                    Arrays.asList(1_030_002, 1_030_004, 1_030_006, 1_030_008, 1_030_010));
+        }
+    }
+
     // just make sure we can read the file with the corresponding codec
     private void verifyFileType(
             final File resultVCFFile,